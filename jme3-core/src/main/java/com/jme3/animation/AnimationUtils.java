@@ -60,4 +60,56 @@ public class AnimationUtils {
         }
         return time;
      }
+
+    /**
+     * Finds the keyframe to interpolate from for the given time, that is
+     * the last frame before <code>lastFrame</code> whose time is strictly
+     * lower than <code>time</code>, or 0 if there is none.
+     * <p>
+     * The frame found on the previous call is passed as a cursor: during
+     * normal playback the result is the same frame or the next one, so
+     * the lookup is constant time. After a seek or a loop the cursor is
+     * discarded and the frame is found with a binary search.
+     * <p>
+     * Tracks keep the result in a field for their next lookup. A track may
+     * be shared by several channels playing at different times, so the
+     * cursor is only a hint and any value is accepted.
+     * 
+     * @param times the keyframe times, in ascending order
+     * @param time the time to look up
+     * @param cursor the frame returned by the previous lookup
+     * @return the start frame, between 0 and <code>times.length - 2</code>
+     */
+    public static int findStartFrame(float[] times, float time, int cursor) {
+        int lastFrame = times.length - 1;
+        if (lastFrame <= 1) {
+            return 0;
+        }
+        if (cursor >= 0 && cursor < lastFrame) {
+            if (isStartFrame(times, time, cursor, lastFrame)) {
+                return cursor;
+            }
+            if (cursor + 1 < lastFrame && isStartFrame(times, time, cursor + 1, lastFrame)) {
+                return cursor + 1;
+            }
+        }
+
+        // first frame in [0, lastFrame) whose time is not lower than time
+        int low = 0;
+        int high = lastFrame;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low > 0 ? low - 1 : 0;
+    }
+
+    private static boolean isStartFrame(float[] times, float time, int frame, int lastFrame) {
+        return (frame == 0 || times[frame] < time)
+                && (frame + 1 == lastFrame || !(times[frame + 1] < time));
+    }
 }
@@ -62,6 +62,11 @@ public final class BoneTrack implements Track {
     private CompactQuaternionArray rotations;
     private CompactVector3Array scales;
     private float[] times;
+
+    /**
+     * Lookup cursor for {@link AnimationUtils#findStartFrame(float[], float, int) }.
+     */
+    private transient int lastStartFrame = 0;
     
     /**
      * Serialization-only. Do not use.
@@ -221,14 +226,9 @@ public final class BoneTrack implements Track {
                 scales.get(lastFrame, tempS);
             }
         } else {
-            int startFrame = 0;
-            int endFrame = 1;
-            // use lastFrame so we never overflow the array
-            int i;
-            for (i = 0; i < lastFrame && times[i] < time; i++) {
-                startFrame = i;
-                endFrame = i + 1;
-            }
+            int startFrame = AnimationUtils.findStartFrame(times, time, lastStartFrame);
+            int endFrame = startFrame + 1;
+            lastStartFrame = startFrame;
 
             float blend = (time - times[startFrame])
                     / (times[endFrame] - times[startFrame]);
@@ -54,6 +54,11 @@ public final class PoseTrack implements Track {
     private PoseFrame[] frames;
     private float[] times;
 
+    /**
+     * Lookup cursor for {@link AnimationUtils#findStartFrame(float[], float, int) }.
+     */
+    private transient int lastStartFrame = 0;
+
     public static class PoseFrame implements Savable, Cloneable {
 
         Pose[] poses;
@@ -148,12 +153,8 @@ public final class PoseTrack implements Track {
         } else if (time > times[times.length - 1]) {
             applyFrame(target, times.length - 1, weight);
         } else {
-            int startFrame = 0;
-            for (int i = 0; i < times.length; i++) {
-                if (times[i] < time) {
-                    startFrame = i;
-                }
-            }
+            int startFrame = AnimationUtils.findStartFrame(times, time, lastStartFrame);
+            lastStartFrame = startFrame;
 
             int endFrame = startFrame + 1;
             float blend = (time - times[startFrame]) / (times[endFrame] - times[startFrame]);
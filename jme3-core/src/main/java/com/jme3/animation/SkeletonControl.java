@@ -53,6 +53,7 @@ import com.jme3.scene.control.Control;
 import com.jme3.shader.VarType;
 import com.jme3.util.SafeArrayList;
 import com.jme3.util.TempVars;
+import com.jme3.util.WorkerPool;
 import com.jme3.util.clone.Cloner;
 import com.jme3.util.clone.JmeCloneable;
 
@@ -62,6 +63,7 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -110,6 +112,17 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
      */
     private transient boolean hwSkinningSupported = false;
     
+    /**
+     * User wishes to spread software skinning across the worker pool.
+     */
+    private transient boolean parallelSkinning = false;
+
+    /**
+     * Meshes with more vertices are split into ranges skinned by separate
+     * tasks when parallel skinning is used.
+     */
+    private static final int SKINNING_SPLIT_VERTICES = 2048;
+
     /**
      * Bone offset matrices, recreated each frame
      */
@@ -204,6 +217,33 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
         return hwSkinningEnabled;
     }
     
+    /**
+     * Specifies if software skinning should be spread across cores. When
+     * enabled, the skinning of the target meshes is started on the shared
+     * {@link WorkerPool} and runs while the rest of the scene is traversed,
+     * so the controls rendered in a scene are skinned concurrently. Large
+     * meshes are also split into vertex ranges skinned concurrently. The
+     * skinning is joined before any geometry is rendered, see
+     * {@link RenderManager#forkSceneTask(java.util.concurrent.ForkJoinTask) },
+     * and produces the same results as the serial path.
+     * <p>
+     * Has no effect when hardware skinning is used. Disabled by default.
+     * 
+     * @param parallel true to enable parallel software skinning
+     */
+    public void setParallelSkinning(boolean parallel) {
+        parallelSkinning = parallel;
+    }
+
+    /**
+     * @return True if software skinning is spread across cores.
+     * 
+     * @see #setParallelSkinning(boolean) 
+     */
+    public boolean isParallelSkinning() {
+        return parallelSkinning;
+    }
+
     /**
      * Creates a skeleton control. The list of targets will be acquired
      * automatically when the control is attached to a node.
@@ -238,11 +278,16 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
         updateTargetsAndMaterials(spatial);
     }
 
-    private void controlRenderSoftware() {
+    private void controlRenderSoftware(RenderManager rm) {
         resetToBind(); // reset morph meshes to bind pose
 
         offsetMatrices = skeleton.computeSkinningMatrices();
 
+        if (parallelSkinning) {
+            parallelSkinUpdate(rm, offsetMatrices);
+            return;
+        }
+
         for (Mesh mesh : targets) {
             // NOTE: This assumes that code higher up
             // Already ensured those targets are animated
@@ -250,6 +295,29 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
             softwareSkinUpdate(mesh, offsetMatrices);
         }     
     }
+
+    private void parallelSkinUpdate(RenderManager rm, Matrix4f[] offsetMatrices) {
+        Mesh[] meshes = targets.getArray();
+        for (Mesh mesh : meshes) {
+            if (mesh.getMaxNumWeights() <= 0) {
+                throw new IllegalStateException("Max weights per vert is incorrectly set!");
+            }
+            mesh.getBuffer(Type.BoneIndex).getData().rewind();
+            mesh.getBuffer(Type.BoneWeight).getData().rewind();
+
+            // the buffers are uploaded after the skinning was joined
+            VertexBuffer vb = mesh.getBuffer(Type.Position);
+            vb.updateData(vb.getData());
+            VertexBuffer nb = mesh.getBuffer(Type.Normal);
+            nb.updateData(nb.getData());
+            VertexBuffer tb = mesh.getBuffer(Type.Tangent);
+            if (tb != null) {
+                tb.updateData(tb.getData());
+            }
+        }
+
+        rm.forkSceneTask(new SkinTargetsTask(meshes, offsetMatrices));
+    }
     
     private void controlRenderHardware() {
         offsetMatrices = skeleton.computeSkinningMatrices();
@@ -306,7 +374,7 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
             if (hwSkinningEnabled) {
                 controlRenderHardware();
             } else {
-                controlRenderSoftware();
+                controlRenderSoftware(rm);
             }
 
             wasMeshUpdated = true;
@@ -376,6 +444,7 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
         clone.hwSkinningEnabled = this.hwSkinningEnabled;
         clone.hwSkinningSupported = this.hwSkinningSupported;
         clone.hwSkinningTested = this.hwSkinningTested;
+        clone.parallelSkinning = this.parallelSkinning;
         
         clone.setSpatial(clonedNode);
 
@@ -506,17 +575,13 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
             throw new IllegalStateException("Max weights per vert is incorrectly set!");
         }
 
-        int fourMinusMaxWeights = 4 - maxWeightsPerVert;
-
         // NOTE: This code assumes the vertex buffer is in bind pose
         // resetToBind() has been called this frame
         VertexBuffer vb = mesh.getBuffer(Type.Position);
         FloatBuffer fvb = (FloatBuffer) vb.getData();
-        fvb.rewind();
 
         VertexBuffer nb = mesh.getBuffer(Type.Normal);
         FloatBuffer fnb = (FloatBuffer) nb.getData();
-        fnb.rewind();
 
         // get boneIndexes and weights for mesh
         ByteBuffer ib = (ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData();
@@ -527,18 +592,40 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
 
         float[] weights = wb.array();
         byte[] indices = ib.array();
-        int idxWeights = 0;
+
+        skinVertices(maxWeightsPerVert, offsetMatrices, fvb, fnb, weights, indices,
+                0, fvb.limit() / 3);
+
+        fvb.rewind();
+        fnb.rewind();
+        vb.updateData(fvb);
+        nb.updateData(fnb);
+
+    }
+
+    /**
+     * Applies the skinning transforms to the vertices in the range
+     * [startVert, endVert). Only absolute positions of the given buffers are
+     * modified, so several ranges of the same buffers can be skinned
+     * concurrently as long as each caller uses its own duplicate of them.
+     */
+    private static void skinVertices(int maxWeightsPerVert, Matrix4f[] offsetMatrices,
+            FloatBuffer fvb, FloatBuffer fnb, float[] weights, byte[] indices,
+            int startVert, int endVert) {
+        int fourMinusMaxWeights = 4 - maxWeightsPerVert;
+        int idxWeights = startVert * 4;
 
         TempVars vars = TempVars.get();
 
         float[] posBuf = vars.skinPositions;
         float[] normBuf = vars.skinNormals;
 
-        int iterations = (int) FastMath.ceil(fvb.limit() / ((float) posBuf.length));
-        int bufLength = posBuf.length;
-        for (int i = iterations - 1; i >= 0; i--) {
+        int end = endVert * 3;
+        fvb.position(startVert * 3);
+        fnb.position(startVert * 3);
+        while (fvb.position() < end) {
             // read next set of positions and normals from native buffer
-            bufLength = Math.min(posBuf.length, fvb.remaining());
+            int bufLength = Math.min(posBuf.length, end - fvb.position());
             fvb.get(posBuf, 0, bufLength);
             fnb.get(normBuf, 0, bufLength);
             int verts = bufLength / 3;
@@ -593,10 +680,6 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
         }
 
         vars.release();
-
-        vb.updateData(fvb);
-        nb.updateData(fnb);
-
     }
 
     /**
@@ -618,23 +701,15 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
             throw new IllegalStateException("Max weights per vert is incorrectly set!");
         }
 
-        int fourMinusMaxWeights = 4 - maxWeightsPerVert;
-
         // NOTE: This code assumes the vertex buffer is in bind pose
         // resetToBind() has been called this frame
         VertexBuffer vb = mesh.getBuffer(Type.Position);
         FloatBuffer fvb = (FloatBuffer) vb.getData();
-        fvb.rewind();
 
         VertexBuffer nb = mesh.getBuffer(Type.Normal);
-
         FloatBuffer fnb = (FloatBuffer) nb.getData();
-        fnb.rewind();
-
 
         FloatBuffer ftb = (FloatBuffer) tb.getData();
-        ftb.rewind();
-
 
         // get boneIndexes and weights for mesh
         ByteBuffer ib = (ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData();
@@ -645,7 +720,29 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
 
         float[] weights = wb.array();
         byte[] indices = ib.array();
-        int idxWeights = 0;
+
+        skinVerticesTangents(maxWeightsPerVert, offsetMatrices, fvb, fnb, ftb, weights, indices,
+                0, fvb.limit() / 3);
+
+        fvb.rewind();
+        fnb.rewind();
+        ftb.rewind();
+        vb.updateData(fvb);
+        nb.updateData(fnb);
+        tb.updateData(ftb);
+
+
+    }
+
+    /**
+     * Tangent variant of {@link #skinVertices}, applies the skinning
+     * transforms to the vertices in the range [startVert, endVert).
+     */
+    private static void skinVerticesTangents(int maxWeightsPerVert, Matrix4f[] offsetMatrices,
+            FloatBuffer fvb, FloatBuffer fnb, FloatBuffer ftb, float[] weights, byte[] indices,
+            int startVert, int endVert) {
+        int fourMinusMaxWeights = 4 - maxWeightsPerVert;
+        int idxWeights = startVert * 4;
 
         TempVars vars = TempVars.get();
 
@@ -654,13 +751,15 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
         float[] normBuf = vars.skinNormals;
         float[] tanBuf = vars.skinTangents;
 
-        int iterations = (int) FastMath.ceil(fvb.limit() / ((float) posBuf.length));
-        int bufLength = 0;
-        int tanLength = 0;
-        for (int i = iterations - 1; i >= 0; i--) {
+        int end = endVert * 3;
+        int tanEnd = Math.min(endVert * 4, ftb.limit());
+        fvb.position(startVert * 3);
+        fnb.position(startVert * 3);
+        ftb.position(Math.min(startVert * 4, tanEnd));
+        while (fvb.position() < end) {
             // read next set of positions and normals from native buffer
-            bufLength = Math.min(posBuf.length, fvb.remaining());
-            tanLength = Math.min(tanBuf.length, ftb.remaining());
+            int bufLength = Math.min(posBuf.length, end - fvb.position());
+            int tanLength = Math.min(tanBuf.length, tanEnd - ftb.position());
             fvb.get(posBuf, 0, bufLength);
             fnb.get(normBuf, 0, bufLength);
             ftb.get(tanBuf, 0, tanLength);
@@ -742,12 +841,106 @@ public class SkeletonControl extends AbstractControl implements Cloneable, JmeCl
         }
 
         vars.release();
+    }
 
-        vb.updateData(fvb);
-        nb.updateData(fnb);
-        tb.updateData(ftb);
+    /**
+     * Skins a range of vertices of one mesh on the worker pool. Ranges larger
+     * than {@link #SKINNING_SPLIT_VERTICES} are split in two halves.
+     * Each task works on its own duplicates of the vertex buffers and takes
+     * its scratch arrays from the TempVars of the worker thread, so the
+     * results are identical to the serial path.
+     */
+    private static class SkinningTask extends RecursiveAction {
+
+        static final long serialVersionUID = 1;
 
+        private final Mesh mesh;
+        private final Matrix4f[] offsetMatrices;
+        private final int startVert;
+        private final int endVert;
 
+        SkinningTask(Mesh mesh, Matrix4f[] offsetMatrices, int startVert, int endVert) {
+            this.mesh = mesh;
+            this.offsetMatrices = offsetMatrices;
+            this.startVert = startVert;
+            this.endVert = endVert;
+        }
+
+        @Override
+        protected void compute() {
+            if (endVert - startVert > SKINNING_SPLIT_VERTICES) {
+                int mid = (startVert + endVert) >>> 1;
+                invokeAll(new SkinningTask(mesh, offsetMatrices, startVert, mid),
+                          new SkinningTask(mesh, offsetMatrices, mid, endVert));
+                return;
+            }
+
+            skin(mesh, offsetMatrices, startVert, endVert);
+        }
+
+        static void skin(Mesh mesh, Matrix4f[] offsetMatrices, int startVert, int endVert) {
+            FloatBuffer fvb = ((FloatBuffer) mesh.getBuffer(Type.Position).getData()).duplicate();
+            FloatBuffer fnb = ((FloatBuffer) mesh.getBuffer(Type.Normal).getData()).duplicate();
+            float[] weights = ((FloatBuffer) mesh.getBuffer(Type.BoneWeight).getData()).array();
+            byte[] indices = ((ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData()).array();
+            int maxWeightsPerVert = mesh.getMaxNumWeights();
+
+            VertexBuffer tb = mesh.getBuffer(Type.Tangent);
+            if (tb == null) {
+                skinVertices(maxWeightsPerVert, offsetMatrices, fvb, fnb,
+                        weights, indices, startVert, endVert);
+            } else {
+                FloatBuffer ftb = ((FloatBuffer) tb.getData()).duplicate();
+                skinVerticesTangents(maxWeightsPerVert, offsetMatrices, fvb, fnb, ftb,
+                        weights, indices, startVert, endVert);
+            }
+        }
+    }
+
+    /**
+     * Skins all the target meshes of a control. Meshes above
+     * {@link #SKINNING_SPLIT_VERTICES} are forked as separate tasks, the
+     * others are skinned by this task.
+     */
+    private static class SkinTargetsTask extends RecursiveAction {
+
+        static final long serialVersionUID = 1;
+
+        private final Mesh[] meshes;
+        private final Matrix4f[] offsetMatrices;
+
+        SkinTargetsTask(Mesh[] meshes, Matrix4f[] offsetMatrices) {
+            this.meshes = meshes;
+            this.offsetMatrices = offsetMatrices;
+        }
+
+        @Override
+        protected void compute() {
+            SkinningTask[] forked = null;
+            for (int i = 0; i < meshes.length; i++) {
+                int numVerts = meshes[i].getBuffer(Type.Position).getData().limit() / 3;
+                if (numVerts > SKINNING_SPLIT_VERTICES) {
+                    if (forked == null) {
+                        forked = new SkinningTask[meshes.length];
+                    }
+                    forked[i] = new SkinningTask(meshes[i], offsetMatrices, 0, numVerts);
+                    forked[i].fork();
+                }
+            }
+            for (int i = 0; i < meshes.length; i++) {
+                if (forked == null || forked[i] == null) {
+                    int numVerts = meshes[i].getBuffer(Type.Position).getData().limit() / 3;
+                    SkinningTask.skin(meshes[i], offsetMatrices, 0, numVerts);
+                }
+            }
+            if (forked != null) {
+                for (SkinningTask task : forked) {
+                    if (task != null) {
+                        task.join();
+                    }
+                }
+            }
+        }
     }
 
     @Override
@@ -70,6 +70,11 @@ public class SpatialTrack implements Track {
      */
     private float[] times;
 
+    /**
+     * Lookup cursor for {@link AnimationUtils#findStartFrame(float[], float, int) }.
+     */
+    private transient int lastStartFrame = 0;
+
     public SpatialTrack() {
     }
 
@@ -125,13 +130,9 @@ public class SpatialTrack implements Track {
                 scales.get(lastFrame, tempS);
             }
         } else {
-            int startFrame = 0;
-            int endFrame = 1;
-            // use lastFrame so we never overflow the array
-            for (int i = 0; i < lastFrame && times[i] < time; ++i) {
-                startFrame = i;
-                endFrame = i + 1;
-            }
+            int startFrame = AnimationUtils.findStartFrame(times, time, lastStartFrame);
+            int endFrame = startFrame + 1;
+            lastStartFrame = startFrame;
 
             float blend = (time - times[startFrame]) / (times[endFrame] - times[startFrame]);
 
@@ -34,6 +34,7 @@ package com.jme3.app;
 import com.jme3.app.state.AppState;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
 import com.jme3.audio.AudioContext;
 import com.jme3.audio.AudioRenderer;
 import com.jme3.audio.Listener;
@@ -725,6 +726,11 @@ public class LegacyApplication implements Application, SystemListener {
         if (prof!=null) prof.appStep(AppStep.QueuedTasks);
         runQueuedTasks();
 
+        // Hand finished asynchronous asset loads to their callbacks
+        if (assetManager instanceof DesktopAssetManager) {
+            ((DesktopAssetManager) assetManager).getThreadingManager().dispatchCompleted();
+        }
+
         if (speed == 0 || paused)
             return;
 
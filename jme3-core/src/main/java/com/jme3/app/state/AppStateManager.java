@@ -32,6 +32,7 @@
 package com.jme3.app.state;
 
 import com.jme3.app.Application;
+import com.jme3.profile.TimelineProfiler;
 import com.jme3.renderer.RenderManager;
 import com.jme3.util.SafeArrayList;
 
@@ -283,9 +284,16 @@ public class AppStateManager {
 
         // Update enabled states    
         AppState[] array = getStates();
+        boolean timeline = TimelineProfiler.isActive();
         for (AppState state : array){
             if (state.isEnabled()) {
-                state.update(tpf);
+                if (timeline) {
+                    TimelineProfiler.begin("AppState", state.getClass().getSimpleName());
+                    state.update(tpf);
+                    TimelineProfiler.end();
+                } else {
+                    state.update(tpf);
+                }
             }
         }
     }
@@ -296,9 +304,16 @@ public class AppStateManager {
      */
     public void render(RenderManager rm){
         AppState[] array = getStates();
+        boolean timeline = TimelineProfiler.isActive();
         for (AppState state : array){
             if (state.isEnabled()) {
-                state.render(rm);
+                if (timeline) {
+                    TimelineProfiler.begin("AppState", state.getClass().getSimpleName());
+                    state.render(rm);
+                    TimelineProfiler.end();
+                } else {
+                    state.render(rm);
+                }
             }
         }
     }
@@ -308,9 +323,16 @@ public class AppStateManager {
      */
     public void postRender(){
         AppState[] array = getStates();
+        boolean timeline = TimelineProfiler.isActive();
         for (AppState state : array){
             if (state.isEnabled()) {
-                state.postRender();
+                if (timeline) {
+                    TimelineProfiler.begin("AppState", state.getClass().getSimpleName());
+                    state.postRender();
+                    TimelineProfiler.end();
+                } else {
+                    state.postRender();
+                }
             }
         }
     }
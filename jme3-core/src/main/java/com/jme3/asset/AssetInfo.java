@@ -32,6 +32,7 @@
 package com.jme3.asset;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * The result of locating an asset through an AssetKey. Provides
@@ -73,4 +74,28 @@ public abstract class AssetInfo {
      */
     public abstract InputStream openStream();
 
+    /**
+     * Returns the asset data as a buffer if the locator can provide it
+     * without reading it through a stream, for example by memory-mapping
+     * a file. Loaders that can read from a buffer should try this method
+     * first and fall back to {@link #openStream() } if it returns null.
+     * <p>
+     * Each invocation of this method should return a new buffer
+     * positioned at the beginning of the asset data.
+     * <p>
+     * The buffer may be read-only and may share memory with other assets,
+     * for example when it is a slice of a memory-mapped pack. Loaders must
+     * not destroy it. Assets using its data in place, like images sliced
+     * out of it, may be read-only as well: writing through an 
+     * {@link com.jme3.texture.image.ImageRaster} or generating mipmaps on
+     * the CPU then throws a {@link java.nio.ReadOnlyBufferException}, such
+     * images must be copied first. Images using it in place are marked
+     * with {@link com.jme3.texture.Image#setDataOwned(boolean) }.
+     * 
+     * @return The asset data, or null if only stream access is supported.
+     */
+    public ByteBuffer openBuffer() {
+        return null;
+    }
+
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset;
+
+/**
+ * <code>AssetLoadCallback</code> receives the outcome of an asset requested
+ * with {@link DesktopAssetManager#loadAssetAsync(com.jme3.asset.AssetKey, int, com.jme3.asset.AssetLoadCallback) }.
+ * Both methods are called on the update thread, from
+ * {@link ThreadingManager#dispatchCompleted() }.
+ *
+ * @param <T> The type of the asset
+ */
+public interface AssetLoadCallback<T> {
+
+    /**
+     * Called when the asset has been loaded.
+     *
+     * @param key The key that was requested
+     * @param asset The loaded asset
+     */
+    public void assetLoaded(AssetKey<T> key, T asset);
+
+    /**
+     * Called when the asset could not be loaded.
+     *
+     * @param key The key that was requested
+     * @param cause The exception thrown while loading, usually an
+     * {@link AssetNotFoundException} or {@link AssetLoadException}
+     */
+    public void assetFailed(AssetKey<T> key, Throwable cause);
+
+}
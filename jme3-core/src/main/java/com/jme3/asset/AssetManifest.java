@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <code>AssetManifest</code> records which assets each locator contains,
+ * so the asset manager can find the locator of an asset with a single 
+ * lookup and answer misses without asking the locators.
+ * 
+ * <p>Locators are identified by their type and root path, as registered
+ * with {@link AssetManager#registerLocator(java.lang.String, java.lang.Class) }.
+ * The contents of a locator are either set explicitly, read from a 
+ * manifest file written ahead of time with {@link #write(java.io.OutputStream) },
+ * or listed by the locator itself if it is an {@link IndexableAssetLocator}.
+ * Locators without contents in the manifest are still asked for every 
+ * asset.</p>
+ * 
+ * <p>During development, assets added or removed on disk are not seen
+ * until the manifest is updated with {@link #addAsset(java.lang.Class, java.lang.String, java.lang.String) }
+ * or {@link #removeAsset(java.lang.Class, java.lang.String, java.lang.String) },
+ * or invalidated with {@link #invalidate() } to list the locators again.</p>
+ * 
+ * @see DesktopAssetManager#setManifest(com.jme3.asset.AssetManifest) 
+ */
+public class AssetManifest {
+
+    private static final String HEADER = "# jME3 asset manifest";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final LinkedHashMap<String, LocatorContents> locators = new LinkedHashMap<String, LocatorContents>();
+    private volatile int version;
+
+    private static class LocatorContents {
+
+        final String type;
+        final String rootPath;
+        final HashSet<String> names;
+
+        LocatorContents(String type, String rootPath, Collection<String> names) {
+            this.type = type;
+            this.rootPath = rootPath;
+            this.names = new HashSet<String>(names.size() * 2);
+            for (String name : names) {
+                this.names.add(normalize(name));
+            }
+        }
+    }
+
+    /**
+     * Normalizes an asset name for lookups, removing a leading "/".
+     * 
+     * @param name The asset name.
+     * @return The normalized name.
+     */
+    public static String normalize(String name) {
+        return name.startsWith("/") ? name.substring(1) : name;
+    }
+
+    private static String id(String type, String rootPath) {
+        return type + "\n" + (rootPath == null ? "" : rootPath);
+    }
+
+    /**
+     * Sets the complete contents of a locator.
+     * 
+     * @param type The locator type.
+     * @param rootPath The root path of the locator.
+     * @param names The names of all assets the locator contains.
+     */
+    public void setContents(Class<? extends AssetLocator> type, String rootPath, Collection<String> names) {
+        setContents(type.getName(), rootPath, names);
+    }
+
+    private synchronized void setContents(String type, String rootPath, Collection<String> names) {
+        locators.put(id(type, rootPath), new LocatorContents(type, rootPath, names));
+        version++;
+    }
+
+    /**
+     * Returns the contents of a locator.
+     * 
+     * @param type The locator type.
+     * @param rootPath The root path of the locator.
+     * @return The asset names, or null if the manifest has no contents 
+     * for this locator.
+     */
+    public synchronized Set<String> getContents(Class<? extends AssetLocator> type, String rootPath) {
+        LocatorContents contents = locators.get(id(type.getName(), rootPath));
+        return contents == null ? null : Collections.unmodifiableSet(new HashSet<String>(contents.names));
+    }
+
+    /**
+     * @return True if the contents of the locator are known.
+     */
+    public synchronized boolean isIndexed(Class<? extends AssetLocator> type, String rootPath) {
+        return locators.containsKey(id(type.getName(), rootPath));
+    }
+
+    /**
+     * Records an asset added to a locator. Does nothing if the contents of
+     * the locator are not known.
+     * 
+     * @param type The locator type.
+     * @param rootPath The root path of the locator.
+     * @param name The asset name.
+     */
+    public synchronized void addAsset(Class<? extends AssetLocator> type, String rootPath, String name) {
+        LocatorContents contents = locators.get(id(type.getName(), rootPath));
+        if (contents != null && contents.names.add(normalize(name))) {
+            version++;
+        }
+    }
+
+    /**
+     * Records an asset removed from a locator.
+     * 
+     * @param type The locator type.
+     * @param rootPath The root path of the locator.
+     * @param name The asset name.
+     */
+    public synchronized void removeAsset(Class<? extends AssetLocator> type, String rootPath, String name) {
+        LocatorContents contents = locators.get(id(type.getName(), rootPath));
+        if (contents != null && contents.names.remove(normalize(name))) {
+            version++;
+        }
+    }
+
+    /**
+     * Forgets the contents of a locator. An indexable locator is listed 
+     * again on the next lookup, any other locator is asked for every asset
+     * from then on.
+     * 
+     * @param type The locator type.
+     * @param rootPath The root path of the locator.
+     */
+    public synchronized void invalidate(Class<? extends AssetLocator> type, String rootPath) {
+        if (locators.remove(id(type.getName(), rootPath)) != null) {
+            version++;
+        }
+    }
+
+    /**
+     * Forgets the contents of all locators.
+     */
+    public synchronized void invalidate() {
+        locators.clear();
+        version++;
+    }
+
+    /**
+     * @return A number that changes whenever the manifest changes.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Writes the manifest as UTF-8 text: a line "@ type rootPath" for each
+     * locator, followed by the asset names, one per line.
+     * 
+     * @param out The stream to write to, it is not closed.
+     * @throws IOException If writing fails.
+     */
+    public synchronized void write(OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, UTF8);
+        writer.write(HEADER);
+        writer.write('\n');
+        for (LocatorContents contents : locators.values()) {
+            writer.write("@ " + contents.type + " " + contents.rootPath + "\n");
+            for (String name : new TreeSet<String>(contents.names)) {
+                writer.write(name);
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Reads a manifest written by {@link #write(java.io.OutputStream) }.
+     * 
+     * @param in The stream to read from, it is not closed.
+     * @return The manifest.
+     * @throws IOException If reading fails or the data is not a manifest.
+     */
+    public static AssetManifest read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF8));
+        if (!HEADER.equals(reader.readLine())) {
+            throw new IOException("Not an asset manifest");
+        }
+        LinkedHashMap<String, Collection<String>> sections = new LinkedHashMap<String, Collection<String>>();
+        Collection<String> names = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("@ ")) {
+                int space = line.indexOf(' ', 2);
+                String type = space < 0 ? line.substring(2) : line.substring(2, space);
+                String rootPath = space < 0 ? "" : line.substring(space + 1);
+                names = new HashSet<String>();
+                sections.put(id(type, rootPath), names);
+            } else if (!line.isEmpty()) {
+                if (names == null) {
+                    throw new IOException("Asset name outside of a locator section: " + line);
+                }
+                names.add(line);
+            }
+        }
+        AssetManifest manifest = new AssetManifest();
+        for (Map.Entry<String, Collection<String>> e : sections.entrySet()) {
+            String[] id = e.getKey().split("\n", 2);
+            manifest.setContents(id[0], id[1], e.getValue());
+        }
+        return manifest;
+    }
+}
@@ -37,6 +37,10 @@ import com.jme3.audio.AudioKey;
 import com.jme3.font.BitmapFont;
 import com.jme3.material.Material;
 import com.jme3.post.FilterPostProcessor;
+import com.jme3.profile.Counter;
+import com.jme3.profile.Histogram;
+import com.jme3.profile.MetricsRegistry;
+import com.jme3.profile.TimelineProfiler;
 import com.jme3.renderer.Caps;
 import com.jme3.scene.Spatial;
 import com.jme3.shader.Glsl100ShaderGenerator;
@@ -54,6 +58,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -66,10 +71,16 @@ import java.util.logging.Logger;
 public class DesktopAssetManager implements AssetManager {
 
     private static final Logger logger = Logger.getLogger(AssetManager.class.getName());
+
+    private static final Counter cacheHits = MetricsRegistry.getDefault().counter("asset.cache.hits");
+    private static final Counter cacheMisses = MetricsRegistry.getDefault().counter("asset.cache.misses");
+    private static final Histogram loadTime = MetricsRegistry.getDefault().histogram("asset.load.time");
     private ShaderGenerator shaderGenerator;
     
     private final ImplHandler handler = new ImplHandler(this);
 
+    private final ThreadingManager threadingMan = new ThreadingManager(this);
+
     private CopyOnWriteArrayList<AssetEventListener> eventListeners = 
             new CopyOnWriteArrayList<AssetEventListener>();
     
@@ -188,6 +199,26 @@ public class DesktopAssetManager implements AssetManager {
         }
     }
     
+    /**
+     * Sets a manifest of the assets each locator contains. Assets are then
+     * found with a single lookup instead of asking each locator in turn, 
+     * and assets that no locator contains fail without asking them.
+     * Registered locators that implement {@link IndexableAssetLocator} and
+     * have no contents in the manifest are listed into it right away.
+     *
+     * @param manifest The manifest, or null to ask every locator in turn.
+     */
+    public void setManifest(AssetManifest manifest) {
+        handler.setManifest(manifest);
+    }
+
+    /**
+     * @return The manifest used to find assets, or null if none is set.
+     */
+    public AssetManifest getManifest() {
+        return handler.getManifest();
+    }
+
     public AssetInfo locateAsset(AssetKey<?> key){
         AssetInfo info = handler.tryLocate(key);
         if (info == null){
@@ -232,6 +263,19 @@ public class DesktopAssetManager implements AssetManager {
         }
     }
     
+    /**
+     * Returns the cache instance used for keys of the given cache type,
+     * creating it if needed. Useful to configure a cache or read its
+     * statistics, e.g. for {@link com.jme3.asset.cache.LRUAssetCache}.
+     *
+     * @param cacheClass The cache type, as returned by
+     * {@link AssetKey#getCacheType() }
+     * @return The cache instance
+     */
+    public <T extends AssetCache> T getCache(Class<T> cacheClass) {
+        return handler.getCache(cacheClass);
+    }
+
     @Override
     public void clearCache(){
         handler.clearCache();
@@ -255,6 +299,8 @@ public class DesktopAssetManager implements AssetManager {
     protected <T> T loadLocatedAsset(AssetKey<T> key, AssetInfo info, AssetProcessor proc, AssetCache cache) {
         AssetLoader loader = handler.aquireLoader(key);
         Object obj;
+        TimelineProfiler.begin("Asset", key.getName());
+        long start = System.nanoTime();
         try {
             handler.establishParentKey(key);
             obj = loader.load(info);
@@ -262,6 +308,8 @@ public class DesktopAssetManager implements AssetManager {
             throw new AssetLoadException("An exception has occured while loading asset: " + key, ex);
         } finally {
             handler.releaseParentKey(key);
+            TimelineProfiler.end();
+            loadTime.recordSince(start);
         }
         if (obj == null) {
             throw new AssetLoadException("Error occured while loading asset \""
@@ -355,6 +403,17 @@ public class DesktopAssetManager implements AssetManager {
         AssetProcessor proc = handler.getProcessor(key.getProcessorType());
         
         Object obj = cache != null ? cache.getFromCache(key) : null;
+        if (obj == null && cache != null && threadingMan.awaitLoad(key)){
+            // An asynchronous load of the same key just finished
+            obj = cache.getFromCache(key);
+        }
+        if (cache != null) {
+            if (obj != null) {
+                cacheHits.increment();
+            } else {
+                cacheMisses.increment();
+            }
+        }
         if (obj == null){
             // Asset not in cache, load it from file system.
             AssetInfo info = handler.tryLocate(key);
@@ -387,6 +446,36 @@ public class DesktopAssetManager implements AssetManager {
         return loadAsset(new AssetKey(name));
     }
 
+    /**
+     * Loads an asset on the asset loading threads.
+     * <p>
+     * Loads are started in order of priority, higher priorities first.
+     * Requesting a key that is already being loaded attaches to that load
+     * instead of starting another one. The callback is called on the
+     * update thread from {@link ThreadingManager#dispatchCompleted() },
+     * which the application does once per frame.
+     * <p>
+     * Cancelling the returned future drops the callback. The load itself is
+     * cancelled if it has not started and no other request waits for it.
+     *
+     * @param <T> The type of the asset
+     * @param key The key of the asset to load
+     * @param priority The priority of the load, higher loads first
+     * @param callback Receives the asset or the error, may be null
+     * @return A future for the loaded asset
+     */
+    public <T> Future<T> loadAssetAsync(AssetKey<T> key, int priority, AssetLoadCallback<T> callback){
+        return threadingMan.loadAsset(key, priority, callback);
+    }
+
+    /**
+     * @return The manager of the asynchronous loading threads, used to
+     * deliver callbacks and to query load queue statistics.
+     */
+    public ThreadingManager getThreadingManager(){
+        return threadingMan;
+    }
+
     public Texture loadTexture(TextureKey key){                
         return (Texture) loadAsset(key);
     }
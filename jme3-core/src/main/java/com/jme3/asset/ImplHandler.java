@@ -34,8 +34,11 @@ package com.jme3.asset;
 import com.jme3.asset.cache.AssetCache;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
@@ -72,6 +75,52 @@ final class ImplHandler {
     private final ConcurrentHashMap<Class<? extends AssetCache>, AssetCache> classToCacheMap =
                 new ConcurrentHashMap<Class<? extends AssetCache>, AssetCache>();
 
+    private volatile AssetManifest manifest;
+    private volatile LocatorIndex locatorIndex;
+    // changes whenever a locator is added or removed
+    private volatile int locatorsVersion;
+
+    /**
+     * The registered locators resolved against the manifest.
+     */
+    private static final class LocatorIndex {
+
+        final AssetManifest manifest;
+        final int version;
+        final int locatorsVersion;
+        final List<ImplThreadLocal<AssetLocator>> locators;
+        // null for the locators the manifest has no contents for
+        final List<Set<String>> contents;
+        // the first locator containing each asset
+        final HashMap<String, Integer> owners = new HashMap<String, Integer>();
+        final int[] unindexed;
+
+        LocatorIndex(AssetManifest manifest, int version, int locatorsVersion, List<ImplThreadLocal<AssetLocator>> locators) {
+            this.manifest = manifest;
+            this.version = version;
+            this.locatorsVersion = locatorsVersion;
+            this.locators = locators;
+            this.contents = new ArrayList<Set<String>>(locators.size());
+            int numUnindexed = 0;
+            int[] unindexedTmp = new int[locators.size()];
+            for (int i = 0; i < locators.size(); i++) {
+                ImplThreadLocal<AssetLocator> local = locators.get(i);
+                Set<String> names = manifest.getContents(local.getTypeClass().asSubclass(AssetLocator.class), local.getPath());
+                contents.add(names);
+                if (names == null) {
+                    unindexedTmp[numUnindexed++] = i;
+                    continue;
+                }
+                for (String name : names) {
+                    if (!owners.containsKey(name)) {
+                        owners.put(name, i);
+                    }
+                }
+            }
+            unindexed = Arrays.copyOf(unindexedTmp, numUnindexed);
+        }
+    }
+
     public ImplHandler(AssetManager assetManager){
         this.assetManager = assetManager;
     }
@@ -173,6 +222,11 @@ final class ImplHandler {
                             " locator.");
             return null;
         }
+
+        AssetManifest m = manifest;
+        if (m != null) {
+            return tryLocate(getLocatorIndex(m), key);
+        }
         
         for (ImplThreadLocal<AssetLocator> local : locatorsList){
             AssetInfo info = local.get().locate(assetManager, key);
@@ -184,6 +238,98 @@ final class ImplHandler {
         return null;
     }
 
+    private AssetInfo tryLocate(LocatorIndex index, AssetKey<?> key) {
+        String name = AssetManifest.normalize(key.getName());
+        Integer owner = index.owners.get(name);
+        int end = owner != null ? owner : index.locators.size();
+
+        // locators registered before the owner take precedence,
+        // unless the manifest knows they don't have the asset
+        for (int i : index.unindexed) {
+            if (i >= end) {
+                break;
+            }
+            AssetInfo info = index.locators.get(i).get().locate(assetManager, key);
+            if (info != null) {
+                return info;
+            }
+        }
+        if (owner == null) {
+            return null;
+        }
+        AssetInfo info = index.locators.get(owner).get().locate(assetManager, key);
+        if (info != null) {
+            return info;
+        }
+
+        // the manifest is out of date, ask the remaining locators
+        logger.log(Level.FINE, "Asset manifest lists {0} but it was not found", name);
+        for (int i = owner + 1; i < index.locators.size(); i++) {
+            Set<String> names = index.contents.get(i);
+            if (names == null || names.contains(name)) {
+                info = index.locators.get(i).get().locate(assetManager, key);
+                if (info != null) {
+                    return info;
+                }
+            }
+        }
+        return null;
+    }
+
+    private LocatorIndex getLocatorIndex(AssetManifest m) {
+        LocatorIndex index = locatorIndex;
+        if (isCurrent(index, m)) {
+            return index;
+        }
+        synchronized (this) {
+            index = locatorIndex;
+            while (!isCurrent(index, m)) {
+                int version = m.getVersion();
+                int locatorsVer = locatorsVersion;
+                List<ImplThreadLocal<AssetLocator>> locators = new ArrayList<ImplThreadLocal<AssetLocator>>(locatorsList);
+                boolean listed = false;
+                for (ImplThreadLocal<AssetLocator> local : locators) {
+                    Class<? extends AssetLocator> type = local.getTypeClass().asSubclass(AssetLocator.class);
+                    AssetLocator locator = local.get();
+                    if (locator instanceof IndexableAssetLocator && !m.isIndexed(type, local.getPath())) {
+                        m.setContents(type, local.getPath(), ((IndexableAssetLocator) locator).listAssets());
+                        listed = true;
+                    }
+                }
+                if (listed) {
+                    // index again with the listed contents
+                    continue;
+                }
+                index = new LocatorIndex(m, version, locatorsVer, locators);
+                locatorIndex = index;
+            }
+            return index;
+        }
+    }
+
+    private boolean isCurrent(LocatorIndex index, AssetManifest m) {
+        return index != null && index.manifest == m
+                && index.version == m.getVersion()
+                && index.locatorsVersion == locatorsVersion;
+    }
+
+    /**
+     * Sets the manifest used to find the locator of an asset, lists the
+     * indexable locators it has no contents for.
+     * 
+     * @param manifest The manifest, or null to ask every locator in turn.
+     */
+    public void setManifest(AssetManifest manifest) {
+        this.manifest = manifest;
+        if (manifest != null) {
+            getLocatorIndex(manifest);
+        }
+    }
+
+    public AssetManifest getManifest() {
+        return manifest;
+    }
+
     public int getLocatorCount(){
         return locatorsList.size();
     }
@@ -292,6 +438,7 @@ final class ImplHandler {
     
     public void addLocator(final Class<? extends AssetLocator> locatorType, String rootPath){
         locatorsList.add(new ImplThreadLocal(locatorType, rootPath));
+        locatorsVersion++;
     }
 
     public void removeLocator(final Class<? extends AssetLocator> locatorType, String rootPath){
@@ -310,6 +457,7 @@ final class ImplHandler {
         }
         
         locatorsList.removeAll(locatorsToRemove);
+        locatorsVersion++;
     }
 
 }
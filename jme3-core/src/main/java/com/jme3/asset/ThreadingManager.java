@@ -31,29 +31,73 @@
  */
 package com.jme3.asset;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.jme3.profile.Counter;
+import com.jme3.profile.Histogram;
+import com.jme3.profile.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * <code>ThreadingManager</code> manages the threads used to load content
  * within the Content Manager system. A pool of threads and a task queue
  * is used to load resource data and perform I/O while the application's
  * render thread is active. 
+ * <p>
+ * Requests are served in order of priority, higher first. Requests for a
+ * key that is already queued or loading share the same load. Callbacks are
+ * not called on the loading threads, they are queued and delivered by
+ * {@link #dispatchCompleted() }, which the application calls once per
+ * frame from the update thread.
  */
 public class ThreadingManager {
 
-    protected final ExecutorService executor =
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), 
-                                         new LoadingThreadFactory());
+    private static final Logger logger = Logger.getLogger(ThreadingManager.class.getName());
+
+    private static final Counter queuedLoads = MetricsRegistry.getDefault().counter("asset.async.queued");
+    private static final Histogram loadLatency = MetricsRegistry.getDefault().histogram("asset.async.latency");
+
+    private static final int QUEUED = 0, RUNNING = 1, DONE = 2, CANCELLED = 3;
+
+    protected final ThreadPoolExecutor executor;
 
     protected final AssetManager owner;
     protected int nextThreadId = 0;
 
+    private final ConcurrentHashMap<AssetKey<?>, LoadingTask<?>> inFlight = new ConcurrentHashMap<AssetKey<?>, LoadingTask<?>>();
+    private final ConcurrentLinkedQueue<LoadRequest<?>> completed = new ConcurrentLinkedQueue<LoadRequest<?>>();
+    private final ThreadLocal<LoadingTask<?>> currentTask = new ThreadLocal<LoadingTask<?>>();
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    private final AtomicInteger pendingCallbacks = new AtomicInteger();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private volatile long lastLatency;
+    private volatile long maxLatency;
+
+    private long callbackTimeBudget = TimeUnit.MILLISECONDS.toNanos(2);
+
     public ThreadingManager(AssetManager owner){
         this.owner = owner;
+        int threads = Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                               new PriorityBlockingQueue<Runnable>(),
+                                               new LoadingThreadFactory());
     }
 
     protected class LoadingThreadFactory implements ThreadFactory {
@@ -65,21 +109,419 @@ public class ThreadingManager {
         }
     }
 
-    protected class LoadingTask<T> implements Callable<T> {
+    /**
+     * A load of one asset key, shared by every request for that key
+     * made while it is queued or running.
+     */
+    protected class LoadingTask<T> implements Runnable, Comparable<LoadingTask<?>> {
 
         private final AssetKey<T> assetKey;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final List<LoadRequest<T>> requests = new ArrayList<LoadRequest<T>>(1);
+        private final long queueTime = System.nanoTime();
+        // only changed while the task is out of the queue
+        private volatile int priority;
+        private volatile long sequence;
+        private T result;
+        private Throwable error;
 
-        public LoadingTask(AssetKey<T> assetKey) {
+        public LoadingTask(AssetKey<T> assetKey, int priority) {
             this.assetKey = assetKey;
+            this.priority = priority;
+            this.sequence = nextSequence.getAndIncrement();
+        }
+
+        public int compareTo(LoadingTask<?> other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+
+        public void run() {
+            if (state.compareAndSet(QUEUED, RUNNING)) {
+                queuedLoads.decrement();
+                load();
+            }
+        }
+
+        private void load() {
+            LoadingTask<?> previous = currentTask.get();
+            currentTask.set(this);
+            try {
+                result = owner.loadAsset(assetKey);
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                currentTask.set(previous);
+            }
+            complete();
+        }
+
+        private void complete() {
+            long latency = System.nanoTime() - queueTime;
+            lastLatency = latency;
+            if (latency > maxLatency) {
+                maxLatency = latency;
+            }
+            totalLatency.addAndGet(latency);
+            loadLatency.record(latency);
+            loadCount.incrementAndGet();
+            if (error != null) {
+                failedCount.incrementAndGet();
+                logger.log(Level.WARNING, "Failed to load asset " + assetKey, error);
+            }
+
+            synchronized (this) {
+                state.set(DONE);
+                inFlight.remove(assetKey, this);
+                boolean first = true;
+                for (LoadRequest<T> request : requests) {
+                    deliver(request, first);
+                    first = false;
+                }
+            }
+            done.countDown();
+        }
+
+        /**
+         * Called with the task lock held once the task is done.
+         */
+        private void deliver(LoadRequest<T> request, boolean first) {
+            request.error = error;
+            if (error == null) {
+                // every caller gets its own instance of a smart asset
+                if (!first && result instanceof CloneableSmartAsset) {
+                    try {
+                        request.result = owner.loadAsset(assetKey);
+                    } catch (Throwable t) {
+                        request.error = t;
+                    }
+                } else {
+                    request.result = result;
+                }
+            }
+            request.done = true;
+            if (request.callback != null && !request.cancelled) {
+                pendingCallbacks.incrementAndGet();
+                completed.add(request);
+            }
+        }
+
+        /**
+         * Attaches a request to this task.
+         *
+         * @return false if the task is already finished or cancelled and
+         * cannot take new requests
+         */
+        synchronized boolean addRequest(LoadRequest<T> request) {
+            int s = state.get();
+            if (s == DONE || s == CANCELLED) {
+                return false;
+            }
+            requests.add(request);
+            return true;
+        }
+
+        synchronized boolean removeRequest(LoadRequest<T> request) {
+            requests.remove(request);
+            if (requests.isEmpty() && state.compareAndSet(QUEUED, CANCELLED)) {
+                queuedLoads.decrement();
+                executor.remove(this);
+                inFlight.remove(assetKey, this);
+                done.countDown();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Moves a queued task ahead if a new request has a higher priority.
+         */
+        void raisePriority(int newPriority) {
+            if (newPriority <= priority) {
+                return;
+            }
+            // the queue must not see the ordering change under it
+            if (executor.remove(this)) {
+                priority = newPriority;
+                sequence = nextSequence.getAndIncrement();
+                executor.execute(this);
+            }
+        }
+    }
+
+    /**
+     * The handle of one caller's request, returned as a <code>Future</code>.
+     * Cancelling it drops the callback, and cancels the load itself if no
+     * other request waits for it and it has not started yet.
+     */
+    protected class LoadRequest<T> implements Future<T> {
+
+        private final LoadingTask<T> task;
+        private final AssetLoadCallback<T> callback;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private T result;
+        private Throwable error;
+
+        LoadRequest(LoadingTask<T> task, AssetLoadCallback<T> callback) {
+            this.task = task;
+            this.callback = callback;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (task) {
+                if (done || cancelled) {
+                    return false;
+                }
+                cancelled = true;
+            }
+            task.removeRequest(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return done || cancelled;
+        }
+
+        public T get() throws InterruptedException, ExecutionException {
+            if (!cancelled) {
+                task.done.await();
+            }
+            return getResult();
+        }
+
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!cancelled && !task.done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return getResult();
+        }
+
+        private T getResult() throws ExecutionException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            synchronized (task) {
+                if (error != null) {
+                    throw new ExecutionException(error);
+                }
+                return result;
+            }
         }
 
-        public T call() throws Exception {
-            return owner.loadAsset(assetKey);
+        void invokeCallback() {
+            if (cancelled) {
+                return;
+            }
+            if (error != null) {
+                callback.assetFailed(task.assetKey, error);
+            } else {
+                callback.assetLoaded(task.assetKey, result);
+            }
+        }
+    }
+
+    /**
+     * Loads an asset on the loading threads.
+     *
+     * @param assetKey The asset to load
+     * @param priority Higher priorities are loaded first
+     * @param callback Called on the update thread when the load finished,
+     * may be null
+     * @return A future for the loaded asset
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Future<T> loadAsset(AssetKey<T> assetKey, int priority, AssetLoadCallback<T> callback) {
+        if (assetKey == null) {
+            throw new IllegalArgumentException("key cannot be null");
+        }
+        while (true) {
+            LoadingTask<T> task = (LoadingTask<T>) inFlight.get(assetKey);
+            if (task == null) {
+                LoadingTask<T> newTask = new LoadingTask<T>(assetKey, priority);
+                task = (LoadingTask<T>) inFlight.putIfAbsent(assetKey, newTask);
+                if (task == null) {
+                    LoadRequest<T> request = new LoadRequest<T>(newTask, callback);
+                    newTask.addRequest(request);
+                    queuedLoads.increment();
+                    executor.execute(newTask);
+                    return request;
+                }
+            }
+            LoadRequest<T> request = new LoadRequest<T>(task, callback);
+            if (task.addRequest(request)) {
+                task.raisePriority(priority);
+                return request;
+            }
+            // finished in the meantime, it left the in flight map
+            inFlight.remove(assetKey, task);
         }
     }
 
     public <T> Future<T> loadAsset(AssetKey<T> assetKey) {
-        return executor.submit(new LoadingTask(assetKey));
+        return loadAsset(assetKey, 0, null);
+    }
+
+    /**
+     * Queues a dependency of the asset being loaded on the calling thread so
+     * it loads in parallel. The dependency is queued with the priority of
+     * the current load. Does nothing when not called from a loading thread.
+     *
+     * @param assetKey The dependency to load
+     */
+    public void prefetch(AssetKey<?> assetKey) {
+        LoadingTask<?> task = currentTask.get();
+        if (task == null || assetKey.getCacheType() == null) {
+            return;
+        }
+        loadAsset(assetKey, task.priority, null);
+    }
+
+    /**
+     * Waits for a load of the given key that was started by another request.
+     * If that load has not started yet it is run on the calling thread
+     * instead, so a loading thread never waits on a queued task.
+     *
+     * @param assetKey The key to wait for
+     * @return true if a load of the key was waited for, the asset is then
+     * in the cache unless it failed to load
+     */
+    public boolean awaitLoad(AssetKey<?> assetKey) {
+        LoadingTask<?> task = inFlight.get(assetKey);
+        if (task == null || task == currentTask.get()) {
+            return false;
+        }
+        if (task.state.compareAndSet(QUEUED, RUNNING)) {
+            queuedLoads.decrement();
+            executor.remove(task);
+            task.load();
+            return true;
+        }
+        try {
+            task.done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return task.state.get() == DONE;
+    }
+
+    /**
+     * Calls the callbacks of completed loads. Callbacks are run until the
+     * time budget set with {@link #setCallbackTimeBudget(long) } is used
+     * up, the rest are kept for the next call. At least one callback is run
+     * per call.
+     *
+     * @return the number of callbacks called
+     */
+    public int dispatchCompleted() {
+        return dispatchCompleted(callbackTimeBudget);
+    }
+
+    /**
+     * Calls the callbacks of completed loads within the given time budget.
+     *
+     * @param timeBudget Time budget in nanoseconds
+     * @return the number of callbacks called
+     */
+    public int dispatchCompleted(long timeBudget) {
+        if (completed.isEmpty()) {
+            return 0;
+        }
+        long end = System.nanoTime() + timeBudget;
+        int count = 0;
+        LoadRequest<?> request;
+        while ((request = completed.poll()) != null) {
+            pendingCallbacks.decrementAndGet();
+            try {
+                request.invokeCallback();
+            } catch (RuntimeException ex) {
+                logger.log(Level.SEVERE, "Exception in asset load callback for " + request.task.assetKey, ex);
+            }
+            count++;
+            if (System.nanoTime() >= end) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sets the time the update thread may spend in load callbacks per frame.
+     *
+     * @param nanos Time budget in nanoseconds, default is 2 milliseconds
+     */
+    public void setCallbackTimeBudget(long nanos) {
+        this.callbackTimeBudget = nanos;
+    }
+
+    public long getCallbackTimeBudget() {
+        return callbackTimeBudget;
+    }
+
+    /**
+     * @return the number of loads waiting for a loading thread.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of loads currently running.
+     */
+    public int getActiveLoads() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return the number of callbacks waiting for {@link #dispatchCompleted() }.
+     */
+    public int getPendingCallbacks() {
+        return pendingCallbacks.get();
+    }
+
+    /**
+     * @return the number of loads that finished, including failed loads.
+     */
+    public long getCompletedLoads() {
+        return loadCount.get();
+    }
+
+    /**
+     * @return the number of loads that failed.
+     */
+    public long getFailedLoads() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return the time from queueing to completion of the last load,
+     * in nanoseconds.
+     */
+    public long getLastLoadLatency() {
+        return lastLatency;
+    }
+
+    /**
+     * @return the average time from queueing to completion, in nanoseconds.
+     */
+    public long getAverageLoadLatency() {
+        long count = loadCount.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+
+    /**
+     * @return the longest time from queueing to completion, in nanoseconds.
+     */
+    public long getMaxLoadLatency() {
+        return maxLatency;
     }
 
     public static boolean isLoadingThread() {
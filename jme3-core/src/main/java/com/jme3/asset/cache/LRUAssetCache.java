@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset.cache;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.audio.AudioBuffer;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.util.NativeObject;
+import com.jme3.util.NativeObjectManager;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An asset cache that keeps assets in memory up to a byte budget, evicting
+ * the least recently used assets once the budget is exceeded.
+ * <p>
+ * The size of an asset is estimated with a {@link SizeEstimator}, the
+ * default one counts the data buffers of {@link Image}s and
+ * {@link Mesh}es, including those reachable from textures and models.
+ * <p>
+ * Evicted assets are not destroyed. The cache only drops its strong
+ * reference and keeps a weak one, so an evicted asset that is still in use
+ * is found again without reloading it, and one that is no longer used is
+ * collected by the GC, after which the {@link NativeObjectManager}
+ * releases its GPU objects as usual.
+ * <p>
+ * To free GPU memory without waiting for the GC, an {@link EvictionListener}
+ * can be set, the {@link NativeObjectReleaser} hands the GPU objects of
+ * evicted assets to their <code>NativeObjectManager</code> so the renderer
+ * deletes them on the next frame.
+ * <p>
+ * The cache is selected by returning <code>LRUAssetCache.class</code> from
+ * {@link AssetKey#getCacheType() }. Assets given to the user are the cached
+ * instances, cloning is left to the asset processor as with
+ * {@link SimpleAssetCache}.
+ */
+public class LRUAssetCache implements AssetCache {
+
+    private static final Logger logger = Logger.getLogger(LRUAssetCache.class.getName());
+
+    /**
+     * Default budget of a new cache, 256 megabytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Estimates the memory used by an asset.
+     */
+    public interface SizeEstimator {
+
+        /**
+         * @param asset The asset to measure
+         * @return The estimated size of the asset in bytes
+         */
+        public long estimateSize(Object asset);
+    }
+
+    /**
+     * Counts the bytes of image, mesh and audio data. Assets without data
+     * buffers are counted as {@link #MIN_ASSET_SIZE} bytes.
+     */
+    public static class DefaultSizeEstimator implements SizeEstimator {
+
+        public static final long MIN_ASSET_SIZE = 1024;
+
+        public long estimateSize(Object asset) {
+            long size;
+            if (asset instanceof Image) {
+                size = imageSize((Image) asset);
+            } else if (asset instanceof Texture) {
+                Image image = ((Texture) asset).getImage();
+                size = image != null ? imageSize(image) : 0;
+            } else if (asset instanceof Mesh) {
+                size = meshSize((Mesh) asset);
+            } else if (asset instanceof Spatial) {
+                size = spatialSize((Spatial) asset, new IdentityHashMap<Mesh, Mesh>());
+            } else if (asset instanceof AudioBuffer) {
+                ByteBuffer data = ((AudioBuffer) asset).getData();
+                size = data != null ? data.capacity() : 0;
+            } else {
+                size = 0;
+            }
+            return Math.max(size, MIN_ASSET_SIZE);
+        }
+
+        protected long imageSize(Image image) {
+            long size = 0;
+            for (ByteBuffer data : image.getData()) {
+                if (data != null) {
+                    size += data.capacity();
+                }
+            }
+            return size;
+        }
+
+        protected long meshSize(Mesh mesh) {
+            long size = 0;
+            for (VertexBuffer vb : mesh.getBufferList().getArray()) {
+                Buffer data = vb.getData();
+                if (data != null) {
+                    size += (long) data.capacity() * vb.getFormat().getComponentSize();
+                }
+            }
+            return size;
+        }
+
+        private long spatialSize(Spatial spatial, IdentityHashMap<Mesh, Mesh> visited) {
+            long size = 0;
+            if (spatial instanceof Geometry) {
+                Mesh mesh = ((Geometry) spatial).getMesh();
+                // meshes shared between geometries are counted once
+                if (mesh != null && visited.put(mesh, mesh) == null) {
+                    size += meshSize(mesh);
+                }
+            } else if (spatial instanceof Node) {
+                for (Spatial child : ((Node) spatial).getChildren()) {
+                    size += spatialSize(child, visited);
+                }
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Notified when an asset is evicted from the cache.
+     */
+    public interface EvictionListener {
+
+        /**
+         * Called with the cache locked, the listener must not call back
+         * into the cache.
+         *
+         * @param key The key of the evicted asset
+         * @param asset The evicted asset
+         */
+        public void assetEvicted(AssetKey<?> key, Object asset);
+    }
+
+    /**
+     * Releases the GPU objects of evicted images, meshes and audio buffers,
+     * including those reachable from textures and models. The objects are
+     * deleted by the renderer on its next frame, through the
+     * {@link NativeObjectManager} they are registered with.
+     * <p>
+     * An evicted asset that is no longer referenced frees its GPU memory
+     * right away instead of after the next GC. One that is still in use
+     * keeps its data and is uploaded again the next time it is rendered.
+     * Nothing is released while {@link NativeObjectManager#UNSAFE} is set,
+     * since the data buffers would be destroyed as well.
+     */
+    public static class NativeObjectReleaser implements EvictionListener {
+
+        public void assetEvicted(AssetKey<?> key, Object asset) {
+            if (!NativeObjectManager.UNSAFE) {
+                release(asset, new IdentityHashMap<Object, Object>());
+            }
+        }
+
+        private void release(Object asset, IdentityHashMap<Object, Object> visited) {
+            if (visited.put(asset, asset) != null) {
+                return;
+            }
+            if (asset instanceof NativeObject) {
+                // images, vertex buffers and audio buffers, if uploaded
+                NativeObject obj = (NativeObject) asset;
+                if (obj.getId() > 0) {
+                    obj.dispose();
+                }
+            } else if (asset instanceof Texture) {
+                Image image = ((Texture) asset).getImage();
+                if (image != null) {
+                    release(image, visited);
+                }
+            } else if (asset instanceof Mesh) {
+                for (VertexBuffer vb : ((Mesh) asset).getBufferList().getArray()) {
+                    release(vb, visited);
+                }
+            } else if (asset instanceof Geometry) {
+                Mesh mesh = ((Geometry) asset).getMesh();
+                if (mesh != null) {
+                    release(mesh, visited);
+                }
+            } else if (asset instanceof Node) {
+                for (Spatial child : ((Node) asset).getChildren()) {
+                    release(child, visited);
+                }
+            }
+        }
+    }
+
+    private static class AssetRef extends WeakReference<Object> {
+
+        private final AssetKey<?> assetKey;
+
+        public AssetRef(AssetKey<?> assetKey, Object asset, ReferenceQueue<Object> refQueue) {
+            super(asset, refQueue);
+            this.assetKey = assetKey;
+        }
+    }
+
+    private static class Entry {
+
+        final Object asset;
+        final long size;
+
+        Entry(Object asset, long size) {
+            this.asset = asset;
+            this.size = size;
+        }
+    }
+
+    // access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<AssetKey<?>, Entry> entries = new LinkedHashMap<AssetKey<?>, Entry>(16, 0.75f, true);
+    // evicted assets, until they are collected or requested again
+    private final HashMap<AssetKey<?>, AssetRef> evicted = new HashMap<AssetKey<?>, AssetRef>();
+    private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
+
+    private SizeEstimator sizeEstimator = new DefaultSizeEstimator();
+    private EvictionListener evictionListener;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long usedBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long revivals;
+
+    /**
+     * Sets the byte budget of the cache. Assets are evicted right away if
+     * the cache is over the new budget.
+     *
+     * @param maxBytes The maximum number of bytes to keep cached
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return The estimated size of the cached assets in bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return The number of assets currently held by the cache.
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized void setSizeEstimator(SizeEstimator sizeEstimator) {
+        if (sizeEstimator == null) {
+            throw new IllegalArgumentException("sizeEstimator cannot be null");
+        }
+        this.sizeEstimator = sizeEstimator;
+    }
+
+    public synchronized SizeEstimator getSizeEstimator() {
+        return sizeEstimator;
+    }
+
+    /**
+     * Sets the listener notified of evicted assets, for example a
+     * {@link NativeObjectReleaser}.
+     *
+     * @param evictionListener The listener, or null to only keep a weak
+     * reference to evicted assets
+     */
+    public synchronized void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public synchronized EvictionListener getEvictionListener() {
+        return evictionListener;
+    }
+
+    /**
+     * @return The number of lookups that found the asset, including assets
+     * found again after being evicted.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups that did not find the asset.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return The number of assets evicted to stay within the budget.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return The number of evicted assets that were found again because
+     * they were still in use.
+     */
+    public synchronized long getRevivalCount() {
+        return revivals;
+    }
+
+    /**
+     * Resets the hit, miss, eviction and revival counters.
+     */
+    public synchronized void resetCounters() {
+        hits = misses = evictions = revivals = 0;
+    }
+
+    public synchronized <T> void addToCache(AssetKey<T> key, T obj) {
+        removeCollectedAssets();
+        evicted.remove(key);
+        Entry old = entries.put(key, new Entry(obj, sizeEstimator.estimateSize(obj)));
+        if (old != null) {
+            usedBytes -= old.size;
+        }
+        usedBytes += entries.get(key).size;
+        evict();
+    }
+
+    public <T> void registerAssetClone(AssetKey<T> key, T clone) {
+    }
+
+    public void notifyNoAssetClone() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getFromCache(AssetKey<T> key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+            return (T) entry.asset;
+        }
+
+        removeCollectedAssets();
+        AssetRef ref = evicted.remove(key);
+        Object asset = ref != null ? ref.get() : null;
+        if (asset != null) {
+            // still in use somewhere, take it back instead of reloading
+            hits++;
+            revivals++;
+            entries.put(key, new Entry(asset, sizeEstimator.estimateSize(asset)));
+            usedBytes += entries.get(key).size;
+            evict();
+            return (T) asset;
+        }
+
+        misses++;
+        return null;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public synchronized boolean deleteFromCache(AssetKey key) {
+        evicted.remove(key);
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            usedBytes -= entry.size;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void clearCache() {
+        entries.clear();
+        evicted.clear();
+        usedBytes = 0;
+    }
+
+    private void evict() {
+        int count = 0;
+        Iterator<Map.Entry<AssetKey<?>, Entry>> it = entries.entrySet().iterator();
+        // the most recently used asset stays even if it is over the budget
+        while (usedBytes > maxBytes && entries.size() > 1) {
+            Map.Entry<AssetKey<?>, Entry> eldest = it.next();
+            it.remove();
+            usedBytes -= eldest.getValue().size;
+            evicted.put(eldest.getKey(), new AssetRef(eldest.getKey(), eldest.getValue().asset, refQueue));
+            evictions++;
+            count++;
+            if (evictionListener != null) {
+                evictionListener.assetEvicted(eldest.getKey(), eldest.getValue().asset);
+            }
+        }
+        if (count > 0) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "LRUAssetCache: {0} assets were evicted, {1} bytes in use.",
+                        new Object[]{count, usedBytes});
+            }
+        }
+    }
+
+    private void removeCollectedAssets() {
+        for (AssetRef ref; (ref = (AssetRef) refQueue.poll()) != null;) {
+            // the key may already map to a newer reference
+            if (evicted.get(ref.assetKey) == ref) {
+                evicted.remove(ref.assetKey);
+            }
+        }
+    }
+}
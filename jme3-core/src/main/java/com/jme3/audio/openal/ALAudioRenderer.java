@@ -44,6 +44,8 @@ import com.jme3.audio.Listener;
 import com.jme3.audio.ListenerParam;
 import com.jme3.audio.LowPassFilter;
 import com.jme3.math.Vector3f;
+import com.jme3.profile.Counter;
+import com.jme3.profile.MetricsRegistry;
 import com.jme3.util.BufferUtilsCreator;
 import com.jme3.util.NativeObjectManager;
 
@@ -90,6 +92,7 @@ import static com.jme3.audio.openal.AL.AL_VERSION;
 public class ALAudioRenderer implements AudioRenderer, Runnable {
 
     private static final Logger logger = Logger.getLogger(ALAudioRenderer.class.getName());
+    private static final Counter activeSources = MetricsRegistry.getDefault().counter("audio.sources.active");
     
     private static final String THREAD_NAME = "jME3 Audio Decoder";
     
@@ -676,8 +679,10 @@ public class ALAudioRenderer implements AudioRenderer, Runnable {
 
     private int newChannel() {
         if (freeChans.size() > 0) {
+            activeSources.increment();
             return freeChans.remove(0);
         } else if (nextChan < channels.length) {
+            activeSources.increment();
             return nextChan++;
         } else {
             return -1;
@@ -685,6 +690,7 @@ public class ALAudioRenderer implements AudioRenderer, Runnable {
     }
 
     private void freeChannel(int index) {
+        activeSources.decrement();
         if (index == nextChan - 1) {
             nextChan--;
         } else {
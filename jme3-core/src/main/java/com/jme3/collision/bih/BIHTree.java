@@ -35,6 +35,7 @@ import com.jme3.bounding.BoundingBox;
 import com.jme3.bounding.BoundingSphere;
 import com.jme3.bounding.BoundingVolume;
 import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResult;
 import com.jme3.collision.CollisionResults;
 import com.jme3.collision.UnsupportedCollisionException;
 import com.jme3.export.InputCapsule;
@@ -53,10 +54,13 @@ import com.jme3.scene.VertexBuffer.Type;
 import com.jme3.scene.mesh.IndexBuffer;
 import com.jme3.scene.mesh.VirtualIndexBuffer;
 import com.jme3.scene.mesh.WrappedIndexBuffer;
+import com.jme3.math.Triangle;
 import com.jme3.util.TempVars;
+import com.jme3.util.WorkerPool;
 
 import java.io.IOException;
 import java.nio.FloatBuffer;
+import java.util.concurrent.RecursiveTask;
 
 import static java.lang.Math.max;
 
@@ -64,12 +68,45 @@ public class BIHTree implements CollisionData {
 
     public static final int MAX_TREE_DEPTH = 100;
     public static final int MAX_TRIS_PER_NODE = 21;
+    /**
+     * Triangle count above which the surface area build splits its work
+     * across the {@link WorkerPool}.
+     */
+    public static final int PARALLEL_BUILD_THRESHOLD = 4096;
+
+    /**
+     * Selects how {@link BIHTree#construct() } picks its split planes.
+     */
+    public enum BuildMode {
+        /**
+         * Splits each node at the center of its box along the axis with
+         * the most empty space. Single threaded.
+         */
+        Midpoint,
+        /**
+         * Splits each node where the binned surface area heuristic is
+         * lowest. Produces better trees and builds large subtrees in
+         * parallel.
+         */
+        SurfaceArea
+    }
+
+    private static final int SAH_BINS = 16;
+
+    // Flattened node layout, 3 ints and 2 floats per node in depth-first
+    // order. nodes: axis (3 for leaves), left child or first triangle,
+    // right child or last triangle. planes: left plane, right plane.
+    private static final int LEAF = 3;
+
     private Mesh mesh;
-    private BIHNode root;
+    private int[] nodes;
+    private float[] planes;
+    private int maxDepth;
     private int maxTrisPerNode;
     private int numTris;
     private float[] pointData;
     private int[] triIndices;
+    private BuildMode buildMode = BuildMode.Midpoint;
     
     // private transient CollisionResults boundResults = new CollisionResults();
     private transient float[] bihSwapTmp;
@@ -144,9 +181,342 @@ public class BIHTree implements CollisionData {
     public BIHTree() {
     }
 
+    /**
+     * Sets the algorithm used by {@link #construct() }.
+     * Default is {@link BuildMode#Midpoint}.
+     */
+    public void setBuildMode(BuildMode buildMode) {
+        this.buildMode = buildMode;
+    }
+
+    public BuildMode getBuildMode() {
+        return buildMode;
+    }
+
     public void construct() {
-        BoundingBox sceneBbox = createBox(0, numTris - 1);
-        root = createNode(0, numTris - 1, sceneBbox, 0);
+        BIHNode root;
+        if (buildMode == BuildMode.SurfaceArea) {
+            float[] centroids = new float[numTris * 3];
+            for (int i = 0; i < numTris; i++) {
+                int p = i * 9;
+                for (int a = 0; a < 3; a++) {
+                    centroids[i * 3 + a] = (pointData[p + a] + pointData[p + 3 + a] + pointData[p + 6 + a]) * FastMath.ONE_THIRD;
+                }
+            }
+            root = WorkerPool.get().invoke(new SAHBuildTask(centroids, 0, numTris - 1, 0));
+        } else {
+            BoundingBox sceneBbox = createBox(0, numTris - 1);
+            root = createNode(0, numTris - 1, sceneBbox, 0);
+        }
+        flatten(root);
+    }
+
+    /**
+     * @return the number of nodes in the tree.
+     */
+    public int getNodeCount() {
+        return nodes == null ? 0 : nodes.length / 3;
+    }
+
+    /**
+     * @return the depth of the deepest leaf, 0 if the root is a leaf.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    private void flatten(BIHNode root) {
+        int count = countNodes(root);
+        nodes = new int[count * 3];
+        planes = new float[count * 2];
+        maxDepth = 0;
+        flattenNode(root, 0, 0);
+    }
+
+    private static int countNodes(BIHNode node) {
+        if (node.getAxis() == LEAF) {
+            return 1;
+        }
+        return 1 + countNodes(node.getLeftChild()) + countNodes(node.getRightChild());
+    }
+
+    /**
+     * Writes the subtree in depth-first order starting at the given slot.
+     *
+     * @return the slot after the last node of the subtree
+     */
+    private int flattenNode(BIHNode node, int index, int depth) {
+        maxDepth = max(maxDepth, depth);
+        int n = index * 3;
+        int axis = node.getAxis();
+        nodes[n] = axis;
+        if (axis == LEAF) {
+            nodes[n + 1] = node.getLeftIndex();
+            nodes[n + 2] = node.getRightIndex();
+            return index + 1;
+        }
+        planes[index * 2] = node.getLeftPlane();
+        planes[index * 2 + 1] = node.getRightPlane();
+        // left child directly follows its parent
+        int right = flattenNode(node.getLeftChild(), index + 1, depth + 1);
+        nodes[n + 1] = index + 1;
+        nodes[n + 2] = right;
+        return flattenNode(node.getRightChild(), right, depth + 1);
+    }
+
+    /**
+     * Rebuilds the linked nodes of the subtree at the given slot, as saved
+     * by earlier versions.
+     */
+    private BIHNode toNode(int index) {
+        int n = index * 3;
+        if (nodes[n] == LEAF) {
+            return new BIHNode(nodes[n + 1], nodes[n + 2]);
+        }
+        BIHNode node = new BIHNode(nodes[n]);
+        node.setLeftPlane(planes[index * 2]);
+        node.setRightPlane(planes[index * 2 + 1]);
+        node.setLeftChild(toNode(nodes[n + 1]));
+        node.setRightChild(toNode(nodes[n + 2]));
+        return node;
+    }
+
+    private int computeDepth(int index) {
+        int n = index * 3;
+        if (nodes[n] == LEAF) {
+            return 0;
+        }
+        return 1 + max(computeDepth(nodes[n + 1]), computeDepth(nodes[n + 2]));
+    }
+
+    /**
+     * Builds a subtree with the surface area heuristic. Subtrees larger
+     * than {@link #PARALLEL_BUILD_THRESHOLD} are forked, they work on
+     * disjoint triangle ranges so no locking is needed.
+     */
+    private final class SAHBuildTask extends RecursiveTask<BIHNode> {
+
+        static final long serialVersionUID = 1;
+
+        private final float[] centroids;
+        private final int l, r, depth;
+        // per task scratch, reused by the sequential part of the build
+        private final int[] binCounts = new int[SAH_BINS];
+        private final float[] binBounds = new float[SAH_BINS * 6];
+        private final float[] sweepArea = new float[SAH_BINS];
+        private final float[] swapTmp = new float[9];
+
+        SAHBuildTask(float[] centroids, int l, int r, int depth) {
+            this.centroids = centroids;
+            this.l = l;
+            this.r = r;
+            this.depth = depth;
+        }
+
+        @Override
+        protected BIHNode compute() {
+            return build(l, r, depth);
+        }
+
+        private BIHNode build(int l, int r, int depth) {
+            int count = r - l + 1;
+            if (count <= maxTrisPerNode || depth > MAX_TREE_DEPTH) {
+                return new BIHNode(l, r);
+            }
+
+            // bounds of the triangle centroids
+            float[] cmin = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+            float[] cmax = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+            for (int i = l; i <= r; i++) {
+                for (int a = 0; a < 3; a++) {
+                    float c = centroids[i * 3 + a];
+                    cmin[a] = Math.min(cmin[a], c);
+                    cmax[a] = Math.max(cmax[a], c);
+                }
+            }
+
+            int bestAxis = -1;
+            int bestBin = -1;
+            float bestCost = Float.POSITIVE_INFINITY;
+            float bestLeftPlane = 0, bestRightPlane = 0;
+
+            for (int axis = 0; axis < 3; axis++) {
+                float extent = cmax[axis] - cmin[axis];
+                if (!(extent > 0)) {
+                    continue;
+                }
+                float scale = SAH_BINS / extent;
+
+                fillBins(l, r, axis, cmin[axis], scale);
+
+                // right to left sweep, sweepArea[i] covers bins i+1..end
+                float[] box = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                               Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+                for (int i = SAH_BINS - 1; i > 0; i--) {
+                    growBox(box, i);
+                    sweepArea[i - 1] = boxArea(box);
+                }
+
+                // left to right sweep, evaluating the split after bin i
+                resetBox(box);
+                int leftCount = 0;
+                for (int i = 0; i < SAH_BINS - 1; i++) {
+                    growBox(box, i);
+                    leftCount += binCounts[i];
+                    int rightCount = count - leftCount;
+                    if (leftCount == 0 || rightCount == 0) {
+                        continue;
+                    }
+                    float cost = boxArea(box) * leftCount + sweepArea[i] * rightCount;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestBin = i;
+                        bestLeftPlane = box[3 + axis];
+                    }
+                }
+                if (bestAxis == axis) {
+                    // right plane is the lowest point of the right bins
+                    float rightPlane = Float.POSITIVE_INFINITY;
+                    for (int i = bestBin + 1; i < SAH_BINS; i++) {
+                        if (binCounts[i] > 0) {
+                            rightPlane = Math.min(rightPlane, binBounds[i * 6 + axis]);
+                        }
+                    }
+                    bestRightPlane = rightPlane;
+                }
+            }
+
+            int pivot;
+            if (bestAxis == -1) {
+                // all centroids coincide, split the range in half
+                bestAxis = 0;
+                pivot = l + count / 2;
+                bestLeftPlane = extremum(l, pivot - 1, bestAxis, true);
+                bestRightPlane = extremum(pivot, r, bestAxis, false);
+            } else {
+                float scale = SAH_BINS / (cmax[bestAxis] - cmin[bestAxis]);
+                pivot = partition(l, r, bestAxis, bestBin, cmin[bestAxis], scale);
+            }
+
+            BIHNode node = new BIHNode(bestAxis);
+            node.setLeftPlane(bestLeftPlane);
+            node.setRightPlane(bestRightPlane);
+
+            if (count >= PARALLEL_BUILD_THRESHOLD) {
+                SAHBuildTask left = new SAHBuildTask(centroids, l, pivot - 1, depth + 1);
+                left.fork();
+                node.setRightChild(build(pivot, r, depth + 1));
+                node.setLeftChild(left.join());
+            } else {
+                node.setLeftChild(build(l, pivot - 1, depth + 1));
+                node.setRightChild(build(pivot, r, depth + 1));
+            }
+            return node;
+        }
+
+        private int binOf(int tri, int axis, float min, float scale) {
+            int bin = (int) ((centroids[tri * 3 + axis] - min) * scale);
+            return bin < SAH_BINS ? bin : SAH_BINS - 1;
+        }
+
+        private void fillBins(int l, int r, int axis, float min, float scale) {
+            for (int i = 0; i < SAH_BINS; i++) {
+                binCounts[i] = 0;
+            }
+            for (int i = 0; i < SAH_BINS * 6; i += 6) {
+                binBounds[i] = binBounds[i + 1] = binBounds[i + 2] = Float.POSITIVE_INFINITY;
+                binBounds[i + 3] = binBounds[i + 4] = binBounds[i + 5] = Float.NEGATIVE_INFINITY;
+            }
+            for (int i = l; i <= r; i++) {
+                int bin = binOf(i, axis, min, scale);
+                binCounts[bin]++;
+                int b = bin * 6;
+                int p = i * 9;
+                for (int v = 0; v < 9; v += 3) {
+                    for (int a = 0; a < 3; a++) {
+                        float x = pointData[p + v + a];
+                        if (x < binBounds[b + a]) {
+                            binBounds[b + a] = x;
+                        }
+                        if (x > binBounds[b + 3 + a]) {
+                            binBounds[b + 3 + a] = x;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void resetBox(float[] box) {
+            box[0] = box[1] = box[2] = Float.POSITIVE_INFINITY;
+            box[3] = box[4] = box[5] = Float.NEGATIVE_INFINITY;
+        }
+
+        private void growBox(float[] box, int bin) {
+            if (binCounts[bin] == 0) {
+                return;
+            }
+            int b = bin * 6;
+            for (int a = 0; a < 3; a++) {
+                box[a] = Math.min(box[a], binBounds[b + a]);
+                box[a + 3] = Math.max(box[a + 3], binBounds[b + a + 3]);
+            }
+        }
+
+        private float boxArea(float[] box) {
+            float dx = box[3] - box[0];
+            float dy = box[4] - box[1];
+            float dz = box[5] - box[2];
+            if (!(dx >= 0)) {
+                return 0;
+            }
+            return dx * dy + dy * dz + dz * dx;
+        }
+
+        private float extremum(int l, int r, int axis, boolean doMax) {
+            float value = doMax ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+            for (int i = l; i <= r; i++) {
+                int p = i * 9 + axis;
+                for (int v = 0; v < 9; v += 3) {
+                    value = doMax ? Math.max(value, pointData[p + v]) : Math.min(value, pointData[p + v]);
+                }
+            }
+            return value;
+        }
+
+        private int partition(int l, int r, int axis, int splitBin, float min, float scale) {
+            int i = l;
+            int j = r;
+            while (i <= j) {
+                if (binOf(i, axis, min, scale) <= splitBin) {
+                    i++;
+                } else {
+                    swap(i, j);
+                    j--;
+                }
+            }
+            return i;
+        }
+
+        private void swap(int index1, int index2) {
+            int p1 = index1 * 9;
+            int p2 = index2 * 9;
+            System.arraycopy(pointData, p1, swapTmp, 0, 9);
+            System.arraycopy(pointData, p2, pointData, p1, 9);
+            System.arraycopy(swapTmp, 0, pointData, p2, 9);
+
+            int c1 = index1 * 3;
+            int c2 = index2 * 3;
+            for (int a = 0; a < 3; a++) {
+                float tmp = centroids[c1 + a];
+                centroids[c1 + a] = centroids[c2 + a];
+                centroids[c2 + a] = tmp;
+            }
+
+            int tmp = triIndices[index1];
+            triIndices[index1] = triIndices[index2];
+            triIndices[index2] = tmp;
+        }
     }
 
     private BoundingBox createBox(int l, int r) {
@@ -435,8 +805,7 @@ public class BIHTree implements CollisionData {
                     }
                 }
 
-    //            return root.intersectBrute(r, worldMatrix, this, tMin, tMax, results);
-                return root.intersectWhere(r, worldMatrix, this, tMin, tMax, results);
+                return intersectWhere(r, worldMatrix, tMin, tMax, results);
             }
             return 0;
         } finally {
@@ -460,7 +829,223 @@ public class BIHTree implements CollisionData {
         }
 
         bbox.transform(worldMatrix.invert(), bbox);
-        return root.intersectWhere(bv, bbox, worldMatrix, this, results);
+        return intersectWhere(bv, bbox, worldMatrix, results);
+    }
+
+    private int intersectWhere(Collidable col,
+            BoundingBox box,
+            Matrix4f worldMatrix,
+            CollisionResults results) {
+
+        TempVars vars = TempVars.get();
+        int[] stack = vars.bihNodeStack;
+        if (stack.length <= maxDepth) {
+            stack = new int[maxDepth + 1];
+        }
+
+        Vector3f center = box.getCenter();
+        float minX = center.x - box.getXExtent(),
+              minY = center.y - box.getYExtent(),
+              minZ = center.z - box.getZExtent();
+        float maxX = center.x + box.getXExtent(),
+              maxY = center.y + box.getYExtent(),
+              maxZ = center.z + box.getZExtent();
+
+        Triangle t = new Triangle();
+        int cols = 0;
+        int sp = 0;
+        stack[sp++] = 0;
+
+        stackloop:
+        while (sp > 0) {
+            int node = stack[--sp];
+
+            int n = node * 3;
+            while (nodes[n] != LEAF) {
+                int a = nodes[n];
+                float minExt = a == 0 ? minX : (a == 1 ? minY : minZ);
+                float maxExt = a == 0 ? maxX : (a == 1 ? maxY : maxZ);
+                float leftPlane = planes[node * 2];
+                float rightPlane = planes[node * 2 + 1];
+
+                if (leftPlane < rightPlane) {
+                    // means there's a gap in the middle
+                    // if the box is in that gap, we stop there
+                    if (minExt > leftPlane
+                            && maxExt < rightPlane) {
+                        continue stackloop;
+                    }
+                }
+
+                if (maxExt < rightPlane) {
+                    node = nodes[n + 1];
+                } else if (minExt > leftPlane) {
+                    node = nodes[n + 2];
+                } else {
+                    stack[sp++] = nodes[n + 2];
+                    node = nodes[n + 1];
+                }
+                n = node * 3;
+            }
+
+            for (int i = nodes[n + 1]; i <= nodes[n + 2]; i++) {
+                getTriangle(i, t.get1(), t.get2(), t.get3());
+                if (worldMatrix != null) {
+                    worldMatrix.mult(t.get1(), t.get1());
+                    worldMatrix.mult(t.get2(), t.get2());
+                    worldMatrix.mult(t.get3(), t.get3());
+                }
+
+                int added = col.collideWith(t, results);
+
+                if (added > 0) {
+                    int index = getTriangleIndex(i);
+                    int start = results.size() - added;
+
+                    for (int j = start; j < results.size(); j++) {
+                        CollisionResult cr = results.getCollisionDirect(j);
+                        cr.setTriangleIndex(index);
+                    }
+
+                    cols += added;
+                }
+            }
+        }
+        vars.release();
+        return cols;
+    }
+
+    private int intersectWhere(Ray r,
+            Matrix4f worldMatrix,
+            float sceneMin,
+            float sceneMax,
+            CollisionResults results) {
+
+        TempVars vars = TempVars.get();
+        int[] nodeStack = vars.bihNodeStack;
+        float[] rangeStack = vars.bihRangeStack;
+        if (nodeStack.length <= maxDepth) {
+            nodeStack = new int[maxDepth + 1];
+            rangeStack = new float[(maxDepth + 1) * 2];
+        }
+
+        Vector3f o = vars.vect1.set(r.getOrigin());
+        Vector3f d = vars.vect2.set(r.getDirection());
+
+        Matrix4f inv = vars.tempMat4.set(worldMatrix).invertLocal();
+
+        inv.mult(r.getOrigin(), r.getOrigin());
+
+        // Fixes rotation collision bug
+        inv.multNormal(r.getDirection(), r.getDirection());
+
+        float originX = r.getOrigin().x,
+              originY = r.getOrigin().y,
+              originZ = r.getOrigin().z;
+
+        float invDirX = 1f / r.getDirection().x,
+              invDirY = 1f / r.getDirection().y,
+              invDirZ = 1f / r.getDirection().z;
+
+        r.getDirection().normalizeLocal();
+
+        Vector3f v1 = vars.vect3,
+                v2 = vars.vect4,
+                v3 = vars.vect5;
+        int cols = 0;
+
+        int sp = 0;
+        nodeStack[sp] = 0;
+        rangeStack[0] = sceneMin;
+        rangeStack[1] = sceneMax;
+        sp++;
+
+        stackloop:
+        while (sp > 0) {
+            sp--;
+            int node = nodeStack[sp];
+            float tMin = rangeStack[sp * 2],
+                  tMax = rangeStack[sp * 2 + 1];
+
+            if (tMax < tMin) {
+                continue;
+            }
+
+            int n = node * 3;
+            while (nodes[n] != LEAF) { // while node is not a leaf
+                int a = nodes[n];
+
+                // find the origin and direction value for the given axis
+                float origin = a == 0 ? originX : (a == 1 ? originY : originZ);
+                float invDirection = a == 0 ? invDirX : (a == 1 ? invDirY : invDirZ);
+
+                float tNearSplit = (planes[node * 2] - origin) * invDirection;
+                float tFarSplit = (planes[node * 2 + 1] - origin) * invDirection;
+                int nearNode = nodes[n + 1];
+                int farNode = nodes[n + 2];
+
+                if (invDirection < 0) {
+                    float tmpSplit = tNearSplit;
+                    tNearSplit = tFarSplit;
+                    tFarSplit = tmpSplit;
+
+                    int tmpNode = nearNode;
+                    nearNode = farNode;
+                    farNode = tmpNode;
+                }
+
+                if (tMin > tNearSplit && tMax < tFarSplit) {
+                    continue stackloop;
+                }
+
+                if (tMin > tNearSplit) {
+                    tMin = max(tMin, tFarSplit);
+                    node = farNode;
+                } else if (tMax < tFarSplit) {
+                    tMax = Math.min(tMax, tNearSplit);
+                    node = nearNode;
+                } else {
+                    nodeStack[sp] = farNode;
+                    rangeStack[sp * 2] = max(tMin, tFarSplit);
+                    rangeStack[sp * 2 + 1] = tMax;
+                    sp++;
+                    tMax = Math.min(tMax, tNearSplit);
+                    node = nearNode;
+                }
+                n = node * 3;
+            }
+
+            // a leaf
+            for (int i = nodes[n + 1]; i <= nodes[n + 2]; i++) {
+                getTriangle(i, v1, v2, v3);
+
+                float t = r.intersects(v1, v2, v3);
+                if (!Float.isInfinite(t)) {
+                    if (worldMatrix != null) {
+                        worldMatrix.mult(v1, v1);
+                        worldMatrix.mult(v2, v2);
+                        worldMatrix.mult(v3, v3);
+                        float t_world = new Ray(o, d).intersects(v1, v2, v3);
+                        t = t_world;
+                    }
+
+                    Vector3f contactNormal = Triangle.computeTriangleNormal(v1, v2, v3, null);
+                    Vector3f contactPoint = new Vector3f(d).multLocal(t).addLocal(o);
+                    float worldSpaceDist = o.distance(contactPoint);
+
+                    CollisionResult cr = new CollisionResult(contactPoint, worldSpaceDist);
+                    cr.setContactNormal(contactNormal);
+                    cr.setTriangleIndex(getTriangleIndex(i));
+                    results.addCollision(cr);
+                    cols++;
+                }
+            }
+        }
+        vars.release();
+        r.setOrigin(o);
+        r.setDirection(d);
+
+        return cols;
     }
 
     public int collideWith(Collidable other,
@@ -482,7 +1067,8 @@ public class BIHTree implements CollisionData {
     public void write(JmeExporter ex) throws IOException {
         OutputCapsule oc = ex.getCapsule(this);
         oc.write(mesh, "mesh", null);
-        oc.write(root, "root", null);
+        // the linked nodes are saved so that earlier versions can read the tree
+        oc.write(nodes != null ? toNode(0) : null, "root", null);
         oc.write(maxTrisPerNode, "tris_per_node", 0);
         oc.write(pointData, "points", null);
         oc.write(triIndices, "indices", null);
@@ -491,9 +1077,18 @@ public class BIHTree implements CollisionData {
     public void read(JmeImporter im) throws IOException {
         InputCapsule ic = im.getCapsule(this);
         mesh = (Mesh) ic.readSavable("mesh", null);
-        root = (BIHNode) ic.readSavable("root", null);
         maxTrisPerNode = ic.readInt("tris_per_node", 0);
         pointData = ic.readFloatArray("points", null);
         triIndices = ic.readIntArray("indices", null);
+        BIHNode root = (BIHNode) ic.readSavable("root", null);
+        if (root != null) {
+            flatten(root);
+        } else {
+            nodes = ic.readIntArray("nodes", null);
+            planes = ic.readFloatArray("planes", null);
+            if (nodes != null) {
+                maxDepth = computeDepth(0);
+            }
+        }
     }
 }
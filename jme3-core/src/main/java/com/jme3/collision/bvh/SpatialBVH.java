@@ -0,0 +1,847 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.collision.bvh;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * <code>SpatialBVH</code> is a dynamic bounding volume hierarchy over a set
+ * of spatials, typically the children of a {@link com.jme3.scene.Node}.
+ * <p>
+ * Every spatial is stored as a leaf with an axis-aligned box that is
+ * slightly larger than its world bound, so small movements only touch the
+ * leaf itself. When a spatial leaves its enlarged box the leaf is removed
+ * and reinserted, and the tree is kept balanced with tree rotations.
+ * <p>
+ * Spatials are marked dirty with {@link #markDirty(com.jme3.scene.Spatial) }
+ * when their bound changes, and the index is refit lazily by
+ * {@link #refit() } using the spatials' current world bounds. The index
+ * does not update world bounds on its own; callers are expected to have
+ * done so (e.g. through <code>updateGeometricState()</code>) before running
+ * queries. Spatials without a world bound are kept aside and are only
+ * visited by the generic collision fallback.
+ *
+ * @see com.jme3.scene.Node#setSpatialIndexEnabled(boolean)
+ */
+public class SpatialBVH {
+
+    /**
+     * Fraction of a leaf's extent that its box is enlarged by.
+     */
+    public static final float FAT_FACTOR = 0.1f;
+
+    private static final int NULL_NODE = -1;
+
+    private static class Proxy {
+        Spatial spatial;
+        int node = NULL_NODE;
+        boolean dirty;
+        boolean unbounded;
+        boolean removed;
+        final float[] box = new float[6];
+    }
+
+    // Node storage, indexed by node id. Leaves have left == NULL_NODE.
+    private float[] boxes;
+    private int[] parents;
+    private int[] lefts;
+    private int[] rights;
+    private int[] heights;
+    private Proxy[] leafProxies;
+    private int capacity;
+    private int nodeCount;
+    private int freeList = NULL_NODE;
+    private int root = NULL_NODE;
+
+    private final IdentityHashMap<Spatial, Proxy> proxies = new IdentityHashMap<Spatial, Proxy>();
+    private final ArrayList<Proxy> dirty = new ArrayList<Proxy>();
+    private final ArrayList<Proxy> unbounded = new ArrayList<Proxy>();
+
+    private int[] stack = new int[64];
+    private final float[] tmpBox = new float[6];
+
+    public SpatialBVH() {
+        allocate(16);
+    }
+
+    /**
+     * Adds a spatial to the index. The spatial is placed in the tree on the
+     * next {@link #refit() }.
+     *
+     * @param spatial the spatial to add
+     */
+    public void insert(Spatial spatial) {
+        if (proxies.containsKey(spatial)) {
+            return;
+        }
+        Proxy proxy = new Proxy();
+        proxy.spatial = spatial;
+        proxies.put(spatial, proxy);
+        proxy.dirty = true;
+        dirty.add(proxy);
+    }
+
+    /**
+     * Removes a spatial from the index.
+     *
+     * @param spatial the spatial to remove
+     */
+    public void remove(Spatial spatial) {
+        Proxy proxy = proxies.remove(spatial);
+        if (proxy == null) {
+            return;
+        }
+        if (proxy.node != NULL_NODE) {
+            removeLeaf(proxy.node);
+            freeNode(proxy.node);
+            proxy.node = NULL_NODE;
+        }
+        if (proxy.unbounded) {
+            unbounded.remove(proxy);
+            proxy.unbounded = false;
+        }
+        // a dirty proxy stays queued and is skipped by refit()
+        proxy.removed = true;
+    }
+
+    /**
+     * Removes all spatials from the index.
+     */
+    public void clear() {
+        proxies.clear();
+        dirty.clear();
+        unbounded.clear();
+        root = NULL_NODE;
+        nodeCount = 0;
+        freeList = NULL_NODE;
+        allocate(16);
+    }
+
+    /**
+     * @return true if the given spatial is part of this index.
+     */
+    public boolean contains(Spatial spatial) {
+        return proxies.containsKey(spatial);
+    }
+
+    /**
+     * @return the number of spatials in this index.
+     */
+    public int size() {
+        return proxies.size();
+    }
+
+    /**
+     * Indicates that the world bound of the given spatial has changed.
+     * Spatials that are not part of the index are ignored.
+     *
+     * @param spatial the spatial whose bound changed
+     */
+    public void markDirty(Spatial spatial) {
+        Proxy proxy = proxies.get(spatial);
+        if (proxy != null && !proxy.dirty) {
+            proxy.dirty = true;
+            dirty.add(proxy);
+        }
+    }
+
+    /**
+     * @return true if some spatials have been marked dirty since the last
+     * {@link #refit() }.
+     */
+    public boolean needsRefit() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Updates the leaves of all dirty spatials from their current world
+     * bounds. Leaves that still fit in their enlarged box are left alone.
+     */
+    public void refit() {
+        int size = dirty.size();
+        if (size == 0) {
+            return;
+        }
+        float[] box = tmpBox;
+        for (int i = 0; i < size; i++) {
+            Proxy proxy = dirty.get(i);
+            proxy.dirty = false;
+            if (proxy.removed) {
+                continue;
+            }
+
+            BoundingVolume bv = proxy.spatial.getWorldBound();
+            if (!computeBox(bv, proxy.box)) {
+                if (proxy.node != NULL_NODE) {
+                    removeLeaf(proxy.node);
+                    freeNode(proxy.node);
+                    proxy.node = NULL_NODE;
+                }
+                if (!proxy.unbounded) {
+                    proxy.unbounded = true;
+                    unbounded.add(proxy);
+                }
+                continue;
+            }
+
+            if (proxy.unbounded) {
+                proxy.unbounded = false;
+                unbounded.remove(proxy);
+            }
+
+            if (proxy.node != NULL_NODE) {
+                if (contains(proxy.node, proxy.box)) {
+                    continue;
+                }
+                removeLeaf(proxy.node);
+            } else {
+                proxy.node = allocateNode();
+                leafProxies[proxy.node] = proxy;
+            }
+
+            fatten(proxy.box, box);
+            System.arraycopy(box, 0, boxes, proxy.node * 6, 6);
+            insertLeaf(proxy.node);
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Collides the indexed spatials with the given collidable. Rays, bounding
+     * boxes and bounding spheres only visit spatials whose bounds overlap
+     * them, any other collidable is tested against every spatial.
+     *
+     * @param other the collidable to test
+     * @param results collision results are stored here
+     * @return the number of collisions found
+     */
+    public int collideWith(Collidable other, CollisionResults results) {
+        refit();
+
+        int total = 0;
+        if (other instanceof Ray) {
+            total = collideWithRay((Ray) other, results);
+        } else if (other instanceof BoundingVolume
+                && computeBox((BoundingVolume) other, tmpBox)) {
+            float[] query = tmpBox.clone();
+            int count = 0;
+            int[] stack = this.stack;
+            if (root != NULL_NODE) {
+                stack[count++] = root;
+            }
+            while (count > 0) {
+                int node = stack[--count];
+                if (!overlaps(node, query)) {
+                    continue;
+                }
+                if (lefts[node] == NULL_NODE) {
+                    total += leafProxies[node].spatial.collideWith(other, results);
+                } else {
+                    stack = ensureStack(count + 2);
+                    stack[count++] = lefts[node];
+                    stack[count++] = rights[node];
+                }
+            }
+        } else {
+            for (Proxy proxy : proxies.values()) {
+                total += proxy.spatial.collideWith(other, results);
+            }
+            return total;
+        }
+
+        for (int i = 0, size = unbounded.size(); i < size; i++) {
+            total += unbounded.get(i).spatial.collideWith(other, results);
+        }
+        return total;
+    }
+
+    private int collideWithRay(Ray ray, CollisionResults results) {
+        Vector3f origin = ray.getOrigin();
+        Vector3f direction = ray.getDirection();
+        float ox = origin.x, oy = origin.y, oz = origin.z;
+        float ix = 1f / direction.x, iy = 1f / direction.y, iz = 1f / direction.z;
+        float limit = ray.getLimit();
+
+        int total = 0;
+        int count = 0;
+        int[] stack = this.stack;
+        if (root != NULL_NODE) {
+            stack[count++] = root;
+        }
+        while (count > 0) {
+            int node = stack[--count];
+            int b = node * 6;
+            float[] box = boxes;
+
+            // slab test, infinities take care of axis-parallel rays
+            float t1 = (box[b] - ox) * ix;
+            float t2 = (box[b + 3] - ox) * ix;
+            float tmin = Math.min(t1, t2);
+            float tmax = Math.max(t1, t2);
+            t1 = (box[b + 1] - oy) * iy;
+            t2 = (box[b + 4] - oy) * iy;
+            tmin = Math.max(tmin, Math.min(t1, t2));
+            tmax = Math.min(tmax, Math.max(t1, t2));
+            t1 = (box[b + 2] - oz) * iz;
+            t2 = (box[b + 5] - oz) * iz;
+            tmin = Math.max(tmin, Math.min(t1, t2));
+            tmax = Math.min(tmax, Math.max(t1, t2));
+
+            // NaN (origin on a slab plane of a parallel axis) must not reject
+            if (tmax < tmin || tmax < 0 || tmin > limit) {
+                continue;
+            }
+
+            if (lefts[node] == NULL_NODE) {
+                total += leafProxies[node].spatial.collideWith(ray, results);
+            } else {
+                stack = ensureStack(count + 2);
+                stack[count++] = lefts[node];
+                stack[count++] = rights[node];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Finds the spatials whose world bound intersects the given volume.
+     *
+     * @param volume the volume to test
+     * @param store the list the spatials are added to
+     * @return the number of spatials added to the list
+     */
+    public int findIntersecting(BoundingVolume volume, List<Spatial> store) {
+        refit();
+
+        float[] query = new float[6];
+        if (!computeBox(volume, query)) {
+            return 0;
+        }
+
+        int found = 0;
+        int count = 0;
+        int[] stack = this.stack;
+        if (root != NULL_NODE) {
+            stack[count++] = root;
+        }
+        while (count > 0) {
+            int node = stack[--count];
+            if (!overlaps(node, query)) {
+                continue;
+            }
+            if (lefts[node] == NULL_NODE) {
+                Spatial spatial = leafProxies[node].spatial;
+                if (volume.intersects(spatial.getWorldBound())) {
+                    store.add(spatial);
+                    found++;
+                }
+            } else {
+                stack = ensureStack(count + 2);
+                stack[count++] = lefts[node];
+                stack[count++] = rights[node];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the <code>k</code> spatials closest to the given point, nearest
+     * first. The distance of a spatial is the distance from the point to the
+     * axis-aligned box around its world bound, so spatials containing the
+     * point have a distance of zero.
+     *
+     * @param point the query point
+     * @param k the maximum number of spatials to return
+     * @param store the list the spatials are added to
+     * @return the number of spatials added to the list
+     */
+    public int findNearest(Vector3f point, int k, List<Spatial> store) {
+        refit();
+
+        if (k <= 0 || root == NULL_NODE) {
+            return 0;
+        }
+
+        // best k candidates so far, sorted by distance
+        Proxy[] best = new Proxy[Math.min(k, proxies.size())];
+        float[] bestDist = new float[best.length];
+        int numBest = 0;
+
+        // min-heap of nodes to visit, keyed by distance to their box
+        int[] heap = new int[16];
+        float[] heapDist = new float[16];
+        int heapSize = 1;
+        heap[0] = root;
+        heapDist[0] = distanceSquared(boxes, root * 6, point);
+
+        while (heapSize > 0) {
+            int node = heap[0];
+            float dist = heapDist[0];
+            heapSize--;
+            heap[0] = heap[heapSize];
+            heapDist[0] = heapDist[heapSize];
+            siftDown(heap, heapDist, heapSize);
+
+            if (numBest == best.length && dist >= bestDist[numBest - 1]) {
+                break;
+            }
+
+            if (lefts[node] == NULL_NODE) {
+                Proxy proxy = leafProxies[node];
+                float d = distanceSquared(proxy.box, 0, point);
+                if (numBest < best.length || d < bestDist[numBest - 1]) {
+                    int i = numBest < best.length ? numBest++ : numBest - 1;
+                    while (i > 0 && bestDist[i - 1] > d) {
+                        best[i] = best[i - 1];
+                        bestDist[i] = bestDist[i - 1];
+                        i--;
+                    }
+                    best[i] = proxy;
+                    bestDist[i] = d;
+                }
+                continue;
+            }
+
+            if (heapSize + 2 > heap.length) {
+                int[] newHeap = new int[heap.length * 2];
+                float[] newDist = new float[heap.length * 2];
+                System.arraycopy(heap, 0, newHeap, 0, heapSize);
+                System.arraycopy(heapDist, 0, newDist, 0, heapSize);
+                heap = newHeap;
+                heapDist = newDist;
+            }
+            int child = lefts[node];
+            for (int c = 0; c < 2; c++) {
+                float d = distanceSquared(boxes, child * 6, point);
+                if (numBest < best.length || d < bestDist[numBest - 1]) {
+                    heap[heapSize] = child;
+                    heapDist[heapSize] = d;
+                    siftUp(heap, heapDist, heapSize++);
+                }
+                child = rights[node];
+            }
+        }
+
+        for (int i = 0; i < numBest; i++) {
+            store.add(best[i].spatial);
+        }
+        return numBest;
+    }
+
+    /**
+     * @return the height of the tree, 0 for an empty or single leaf tree.
+     */
+    public int getHeight() {
+        return root == NULL_NODE ? 0 : heights[root];
+    }
+
+    /**
+     * Stores the box enclosing every indexed spatial that has a bound.
+     *
+     * @param store the box to store the result in, may be null
+     * @return the enclosing box, or null if no spatial has a bound
+     */
+    public BoundingBox getBounds(BoundingBox store) {
+        refit();
+        if (root == NULL_NODE) {
+            return null;
+        }
+        if (store == null) {
+            store = new BoundingBox();
+        }
+        int b = root * 6;
+        store.setMinMax(new Vector3f(boxes[b], boxes[b + 1], boxes[b + 2]),
+                        new Vector3f(boxes[b + 3], boxes[b + 4], boxes[b + 5]));
+        return store;
+    }
+
+    private static void siftUp(int[] heap, float[] dist, int i) {
+        int node = heap[i];
+        float d = dist[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (dist[parent] <= d) {
+                break;
+            }
+            heap[i] = heap[parent];
+            dist[i] = dist[parent];
+            i = parent;
+        }
+        heap[i] = node;
+        dist[i] = d;
+    }
+
+    private static void siftDown(int[] heap, float[] dist, int size) {
+        if (size == 0) {
+            return;
+        }
+        int node = heap[0];
+        float d = dist[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && dist[child + 1] < dist[child]) {
+                child++;
+            }
+            if (dist[child] >= d) {
+                break;
+            }
+            heap[i] = heap[child];
+            dist[i] = dist[child];
+            i = child;
+        }
+        heap[i] = node;
+        dist[i] = d;
+    }
+
+    private static float distanceSquared(float[] box, int b, Vector3f p) {
+        float dx = Math.max(Math.max(box[b] - p.x, p.x - box[b + 3]), 0f);
+        float dy = Math.max(Math.max(box[b + 1] - p.y, p.y - box[b + 4]), 0f);
+        float dz = Math.max(Math.max(box[b + 2] - p.z, p.z - box[b + 5]), 0f);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static boolean computeBox(BoundingVolume bv, float[] store) {
+        if (bv == null) {
+            return false;
+        }
+        Vector3f c = bv.getCenter();
+        float ex, ey, ez;
+        if (bv instanceof BoundingBox) {
+            BoundingBox bb = (BoundingBox) bv;
+            ex = bb.getXExtent();
+            ey = bb.getYExtent();
+            ez = bb.getZExtent();
+        } else if (bv instanceof BoundingSphere) {
+            ex = ey = ez = ((BoundingSphere) bv).getRadius();
+        } else {
+            return false;
+        }
+        store[0] = c.x - ex;
+        store[1] = c.y - ey;
+        store[2] = c.z - ez;
+        store[3] = c.x + ex;
+        store[4] = c.y + ey;
+        store[5] = c.z + ez;
+        return true;
+    }
+
+    private static void fatten(float[] box, float[] store) {
+        for (int i = 0; i < 3; i++) {
+            float margin = (box[i + 3] - box[i]) * FAT_FACTOR + 0.001f;
+            store[i] = box[i] - margin;
+            store[i + 3] = box[i + 3] + margin;
+        }
+    }
+
+    private boolean contains(int node, float[] box) {
+        int b = node * 6;
+        return boxes[b] <= box[0] && boxes[b + 1] <= box[1] && boxes[b + 2] <= box[2]
+            && boxes[b + 3] >= box[3] && boxes[b + 4] >= box[4] && boxes[b + 5] >= box[5];
+    }
+
+    private boolean overlaps(int node, float[] box) {
+        int b = node * 6;
+        return boxes[b] <= box[3] && boxes[b + 3] >= box[0]
+            && boxes[b + 1] <= box[4] && boxes[b + 4] >= box[1]
+            && boxes[b + 2] <= box[5] && boxes[b + 5] >= box[2];
+    }
+
+    private int[] ensureStack(int size) {
+        if (size > stack.length) {
+            int[] newStack = new int[stack.length * 2];
+            System.arraycopy(stack, 0, newStack, 0, stack.length);
+            stack = newStack;
+        }
+        return stack;
+    }
+
+    private void allocate(int newCapacity) {
+        float[] newBoxes = new float[newCapacity * 6];
+        int[] newParents = new int[newCapacity];
+        int[] newLefts = new int[newCapacity];
+        int[] newRights = new int[newCapacity];
+        int[] newHeights = new int[newCapacity];
+        Proxy[] newProxies = new Proxy[newCapacity];
+        if (boxes != null && nodeCount > 0) {
+            System.arraycopy(boxes, 0, newBoxes, 0, capacity * 6);
+            System.arraycopy(parents, 0, newParents, 0, capacity);
+            System.arraycopy(lefts, 0, newLefts, 0, capacity);
+            System.arraycopy(rights, 0, newRights, 0, capacity);
+            System.arraycopy(heights, 0, newHeights, 0, capacity);
+            System.arraycopy(leafProxies, 0, newProxies, 0, capacity);
+        }
+        boxes = newBoxes;
+        parents = newParents;
+        lefts = newLefts;
+        rights = newRights;
+        heights = newHeights;
+        leafProxies = newProxies;
+
+        // chain the new nodes into the free list
+        int first = nodeCount > 0 ? capacity : 0;
+        for (int i = first; i < newCapacity - 1; i++) {
+            parents[i] = i + 1;
+            heights[i] = -1;
+        }
+        parents[newCapacity - 1] = freeList;
+        heights[newCapacity - 1] = -1;
+        freeList = first;
+        capacity = newCapacity;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL_NODE) {
+            allocate(capacity * 2);
+        }
+        int node = freeList;
+        freeList = parents[node];
+        parents[node] = NULL_NODE;
+        lefts[node] = NULL_NODE;
+        rights[node] = NULL_NODE;
+        heights[node] = 0;
+        leafProxies[node] = null;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parents[node] = freeList;
+        heights[node] = -1;
+        leafProxies[node] = null;
+        freeList = node;
+        nodeCount--;
+    }
+
+    private float area(int node) {
+        int b = node * 6;
+        float dx = boxes[b + 3] - boxes[b];
+        float dy = boxes[b + 4] - boxes[b + 1];
+        float dz = boxes[b + 5] - boxes[b + 2];
+        return 2f * (dx * dy + dy * dz + dz * dx);
+    }
+
+    private float unionArea(int a, int c) {
+        int ba = a * 6, bc = c * 6;
+        float dx = Math.max(boxes[ba + 3], boxes[bc + 3]) - Math.min(boxes[ba], boxes[bc]);
+        float dy = Math.max(boxes[ba + 4], boxes[bc + 4]) - Math.min(boxes[ba + 1], boxes[bc + 1]);
+        float dz = Math.max(boxes[ba + 5], boxes[bc + 5]) - Math.min(boxes[ba + 2], boxes[bc + 2]);
+        return 2f * (dx * dy + dy * dz + dz * dx);
+    }
+
+    private void union(int a, int c, int store) {
+        int ba = a * 6, bc = c * 6, bs = store * 6;
+        for (int i = 0; i < 3; i++) {
+            boxes[bs + i] = Math.min(boxes[ba + i], boxes[bc + i]);
+            boxes[bs + i + 3] = Math.max(boxes[ba + i + 3], boxes[bc + i + 3]);
+        }
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL_NODE) {
+            root = leaf;
+            parents[leaf] = NULL_NODE;
+            return;
+        }
+
+        // find the best sibling using the surface area heuristic
+        int index = root;
+        while (lefts[index] != NULL_NODE) {
+            int left = lefts[index];
+            int right = rights[index];
+
+            float area = area(index);
+            float combinedArea = unionArea(index, leaf);
+
+            // cost of creating a new parent for this node and the leaf
+            float cost = 2f * combinedArea;
+            // minimum cost of pushing the leaf further down the tree
+            float inheritanceCost = 2f * (combinedArea - area);
+
+            float costLeft = unionArea(left, leaf) + inheritanceCost;
+            if (lefts[left] != NULL_NODE) {
+                costLeft -= area(left);
+            }
+            float costRight = unionArea(right, leaf) + inheritanceCost;
+            if (lefts[right] != NULL_NODE) {
+                costRight -= area(right);
+            }
+
+            if (cost < costLeft && cost < costRight) {
+                break;
+            }
+            index = costLeft < costRight ? left : right;
+        }
+
+        int sibling = index;
+        int oldParent = parents[sibling];
+        int newParent = allocateNode();
+        parents[newParent] = oldParent;
+        union(leaf, sibling, newParent);
+        heights[newParent] = heights[sibling] + 1;
+        lefts[newParent] = sibling;
+        rights[newParent] = leaf;
+        parents[sibling] = newParent;
+        parents[leaf] = newParent;
+
+        if (oldParent != NULL_NODE) {
+            if (lefts[oldParent] == sibling) {
+                lefts[oldParent] = newParent;
+            } else {
+                rights[oldParent] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+
+        refitAncestors(parents[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL_NODE;
+            return;
+        }
+
+        int parent = parents[leaf];
+        int grandParent = parents[parent];
+        int sibling = lefts[parent] == leaf ? rights[parent] : lefts[parent];
+
+        if (grandParent != NULL_NODE) {
+            if (lefts[grandParent] == parent) {
+                lefts[grandParent] = sibling;
+            } else {
+                rights[grandParent] = sibling;
+            }
+            parents[sibling] = grandParent;
+            freeNode(parent);
+            refitAncestors(grandParent);
+        } else {
+            root = sibling;
+            parents[sibling] = NULL_NODE;
+            freeNode(parent);
+        }
+        parents[leaf] = NULL_NODE;
+    }
+
+    private void refitAncestors(int index) {
+        while (index != NULL_NODE) {
+            index = balance(index);
+            int left = lefts[index];
+            int right = rights[index];
+            heights[index] = 1 + Math.max(heights[left], heights[right]);
+            union(left, right, index);
+            index = parents[index];
+        }
+    }
+
+    /**
+     * Performs a left or right rotation if the subtree rooted at
+     * <code>a</code> is imbalanced.
+     *
+     * @return the new root of the subtree
+     */
+    private int balance(int a) {
+        if (lefts[a] == NULL_NODE || heights[a] < 2) {
+            return a;
+        }
+
+        int b = lefts[a];
+        int c = rights[a];
+        int diff = heights[c] - heights[b];
+
+        if (diff > 1) {
+            return rotate(a, c, b);
+        } else if (diff < -1) {
+            return rotate(a, b, c);
+        }
+        return a;
+    }
+
+    /**
+     * Promotes <code>up</code>, the taller child of <code>a</code>, to the
+     * position of <code>a</code>.
+     */
+    private int rotate(int a, int up, int other) {
+        int f = lefts[up];
+        int g = rights[up];
+
+        lefts[up] = a;
+        parents[up] = parents[a];
+        parents[a] = up;
+
+        int upParent = parents[up];
+        if (upParent != NULL_NODE) {
+            if (lefts[upParent] == a) {
+                lefts[upParent] = up;
+            } else {
+                rights[upParent] = up;
+            }
+        } else {
+            root = up;
+        }
+
+        // keep the taller grandchild under the promoted node
+        int keep = f, move = g;
+        if (heights[f] < heights[g]) {
+            keep = g;
+            move = f;
+        }
+        rights[up] = keep;
+        if (lefts[a] == up) {
+            lefts[a] = move;
+        } else {
+            rights[a] = move;
+        }
+        parents[move] = a;
+
+        union(other, move, a);
+        union(a, keep, up);
+        heights[a] = 1 + Math.max(heights[other], heights[move]);
+        heights[up] = 1 + Math.max(heights[a], heights[keep]);
+        return up;
+    }
+}
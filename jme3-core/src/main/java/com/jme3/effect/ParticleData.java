@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.effect;
+
+import com.jme3.math.ColorRGBA;
+
+/**
+ * Particle state stored as a structure of arrays.
+ * <p>
+ * Used by {@link ParticleEmitter} when 
+ * {@link ParticleEmitter#setBatchSimulation(boolean) batch simulation}
+ * is enabled. Each attribute of a particle is kept in its own primitive 
+ * array, the particle at index <code>i</code> is made of the values at
+ * index <code>i</code> of every array. Alive particles are always packed
+ * at the front of the arrays: indices <code>0</code> to 
+ * {@link #getNumParticles() } minus one. Killing a particle moves the
+ * last alive particle in its place.
+ */
+public final class ParticleData {
+
+    /** Particle positions. */
+    public float[] positionX, positionY, positionZ;
+    /** Particle velocities. */
+    public float[] velocityX, velocityY, velocityZ;
+    /** Particle colors. */
+    public float[] colorR, colorG, colorB, colorA;
+    /** Particle sizes or radii. */
+    public float[] size;
+    /** Particle remaining life, in seconds. */
+    public float[] life;
+    /** The initial particle life. */
+    public float[] startLife;
+    /** Particle rotation angles (in radians). */
+    public float[] angle;
+    /** Particle rotation angle speeds (in radians). */
+    public float[] rotateSpeed;
+    /** Particle image indices. */
+    public int[] imageIndex;
+
+    private int numParticles;
+
+    /**
+     * Creates particle data able to hold the given number of particles.
+     * 
+     * @param capacity The maximum number of particles
+     */
+    public ParticleData(int capacity) {
+        setCapacity(capacity);
+    }
+
+    /**
+     * Resizes the arrays, killing all particles.
+     * 
+     * @param capacity The maximum number of particles
+     */
+    public void setCapacity(int capacity) {
+        positionX = new float[capacity];
+        positionY = new float[capacity];
+        positionZ = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        velocityZ = new float[capacity];
+        colorR = new float[capacity];
+        colorG = new float[capacity];
+        colorB = new float[capacity];
+        colorA = new float[capacity];
+        size = new float[capacity];
+        life = new float[capacity];
+        startLife = new float[capacity];
+        angle = new float[capacity];
+        rotateSpeed = new float[capacity];
+        imageIndex = new int[capacity];
+        numParticles = 0;
+    }
+
+    /**
+     * @return The maximum number of particles.
+     */
+    public int getCapacity() {
+        return life.length;
+    }
+
+    /**
+     * @return The number of alive particles.
+     */
+    public int getNumParticles() {
+        return numParticles;
+    }
+
+    /**
+     * Adds a particle at the end of the alive particles. All its
+     * attributes are reset to zero.
+     * 
+     * @return The index of the new particle, or -1 if the capacity
+     * is reached.
+     */
+    public int add() {
+        if (numParticles == life.length) {
+            return -1;
+        }
+        int i = numParticles++;
+        positionX[i] = positionY[i] = positionZ[i] = 0;
+        velocityX[i] = velocityY[i] = velocityZ[i] = 0;
+        colorR[i] = colorG[i] = colorB[i] = colorA[i] = 0;
+        size[i] = life[i] = startLife[i] = angle[i] = rotateSpeed[i] = 0;
+        imageIndex[i] = 0;
+        return i;
+    }
+
+    /**
+     * Kills the particle at the given index, the last alive particle 
+     * is moved to that index.
+     * 
+     * @param i The index of the particle to kill
+     */
+    public void kill(int i) {
+        if (i < 0 || i >= numParticles) {
+            throw new IndexOutOfBoundsException("No alive particle at " + i);
+        }
+        int last = --numParticles;
+        if (i != last) {
+            positionX[i] = positionX[last];
+            positionY[i] = positionY[last];
+            positionZ[i] = positionZ[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            velocityZ[i] = velocityZ[last];
+            colorR[i] = colorR[last];
+            colorG[i] = colorG[last];
+            colorB[i] = colorB[last];
+            colorA[i] = colorA[last];
+            size[i] = size[last];
+            life[i] = life[last];
+            startLife[i] = startLife[last];
+            angle[i] = angle[last];
+            rotateSpeed[i] = rotateSpeed[last];
+            imageIndex[i] = imageIndex[last];
+        }
+        life[last] = 0;
+    }
+
+    /**
+     * Kills all particles.
+     */
+    public void clear() {
+        for (int i = 0; i < numParticles; i++) {
+            life[i] = 0;
+        }
+        numParticles = 0;
+    }
+
+    /**
+     * Copies the particle at the given index into a particle object.
+     * 
+     * @param i The index of the particle
+     * @param store The particle to store the state in
+     */
+    public void get(int i, Particle store) {
+        store.position.set(positionX[i], positionY[i], positionZ[i]);
+        store.velocity.set(velocityX[i], velocityY[i], velocityZ[i]);
+        store.color.set(colorR[i], colorG[i], colorB[i], colorA[i]);
+        store.size = size[i];
+        store.life = life[i];
+        store.startlife = startLife[i];
+        store.angle = angle[i];
+        store.rotateSpeed = rotateSpeed[i];
+        store.imageIndex = imageIndex[i];
+    }
+
+    /**
+     * Copies a particle object into the particle at the given index.
+     * 
+     * @param i The index of the particle
+     * @param p The particle to copy
+     */
+    public void set(int i, Particle p) {
+        positionX[i] = p.position.x;
+        positionY[i] = p.position.y;
+        positionZ[i] = p.position.z;
+        velocityX[i] = p.velocity.x;
+        velocityY[i] = p.velocity.y;
+        velocityZ[i] = p.velocity.z;
+        setColor(i, p.color);
+        size[i] = p.size;
+        life[i] = p.life;
+        startLife[i] = p.startlife;
+        angle[i] = p.angle;
+        rotateSpeed[i] = p.rotateSpeed;
+        imageIndex[i] = p.imageIndex;
+    }
+
+    /**
+     * Sets the color of the particle at the given index.
+     * 
+     * @param i The index of the particle
+     * @param color The color
+     */
+    public void setColor(int i, ColorRGBA color) {
+        colorR[i] = color.r;
+        colorG[i] = color.g;
+        colorB[i] = color.b;
+        colorA[i] = color.a;
+    }
+
+    /**
+     * Returns the color of the particle at the given index packed 
+     * the same way as {@link ColorRGBA#asIntABGR() }.
+     * 
+     * @param i The index of the particle
+     * @return The packed color
+     */
+    public int getColorABGR(int i) {
+        return ((int) (colorA[i] * 255) & 0xFF) << 24
+                | ((int) (colorB[i] * 255) & 0xFF) << 16
+                | ((int) (colorG[i] * 255) & 0xFF) << 8
+                | ((int) (colorR[i] * 255) & 0xFF);
+    }
+
+    /**
+     * Creates a copy of this particle data.
+     * 
+     * @return A deep copy.
+     */
+    public ParticleData copy() {
+        ParticleData copy = new ParticleData(getCapacity());
+        Particle p = new Particle();
+        for (int i = 0; i < numParticles; i++) {
+            get(i, p);
+            copy.set(copy.add(), p);
+        }
+        return copy;
+    }
+}
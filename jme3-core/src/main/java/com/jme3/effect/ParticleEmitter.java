@@ -32,7 +32,10 @@
 package com.jme3.effect;
 
 import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
 import com.jme3.effect.ParticleMesh.Type;
+import com.jme3.effect.influencers.BatchParticleInfluencer;
 import com.jme3.effect.influencers.DefaultParticleInfluencer;
 import com.jme3.effect.influencers.ParticleInfluencer;
 import com.jme3.effect.shapes.EmitterPointShape;
@@ -44,6 +47,7 @@ import com.jme3.export.OutputCapsule;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.FastMath;
 import com.jme3.math.Matrix3f;
+import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
@@ -54,10 +58,12 @@ import com.jme3.scene.Geometry;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.control.Control;
 import com.jme3.util.TempVars;
+import com.jme3.util.WorkerPool;
 import com.jme3.util.clone.Cloner;
 import com.jme3.util.clone.JmeCloneable;
 
 import java.io.IOException;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * <code>ParticleEmitter</code> is a special kind of geometry which simulates
@@ -71,6 +77,11 @@ import java.io.IOException;
  * {@link ParticleInfluencer} that has been assigned to the emitter via
  * {@link ParticleEmitter#setParticleInfluencer(com.jme3.effect.influencers.ParticleInfluencer) }.
  * By default the implementation {@link DefaultParticleInfluencer} is used.
+ * <p>
+ * With {@link #setBatchSimulation(boolean) batch simulation} enabled, the
+ * particles are stored in a {@link ParticleData} instead of 
+ * {@link Particle} objects, updated in tight loops on the 
+ * {@link WorkerPool} and written directly into the mesh buffers.
  *
  * @author Kirill Vainer
  */
@@ -110,6 +121,31 @@ public class ParticleEmitter extends Geometry {
     //variable that helps with computations
     private transient Vector3f temp = new Vector3f();
     private transient Vector3f lastPos;
+    private ParticleData particleData;
+    private boolean parallelUpdate = true;
+    private transient ForkJoinTask<?> pendingUpdate;
+    private transient SimulationState simState;
+    private transient Particle influenced;
+    private transient float minX, minY, minZ, maxX, maxY, maxZ;
+    private float offscreenUpdateInterval = 0;
+    private float minScreenSize = 0;
+    private transient float renderedSize = -1;
+    private transient float sleepTime = 0;
+    private transient boolean sleeping = false;
+
+    /**
+     * The emitter state read by the particle simulation, copied before each
+     * update so that the scene can change while the update runs on a worker.
+     */
+    private static final class SimulationState {
+
+        final Transform transform = new Transform();
+        final Vector3f gravity = new Vector3f();
+        final ColorRGBA startColor = new ColorRGBA();
+        final ColorRGBA endColor = new ColorRGBA();
+        final Vector3f temp = new Vector3f();
+        float particlesPerSec;
+    }
 
     public static class ParticleEmitterControl implements Control, JmeCloneable {
 
@@ -182,8 +218,14 @@ public class ParticleEmitter extends Geometry {
      *  The old clone() method that did not use the new Cloner utility.
      */
     public ParticleEmitter oldClone(boolean cloneMaterial) {
+        awaitUpdate();
         ParticleEmitter clone = (ParticleEmitter) super.clone(cloneMaterial);
         clone.shape = shape.deepClone();
+        clone.pendingUpdate = null;
+        clone.simState = null;
+        if (particleData != null) {
+            clone.particleData = new ParticleData(particles.length);
+        }
 
         // Reinitialize particle list
         clone.setNumParticles(particles.length);
@@ -236,6 +278,14 @@ public class ParticleEmitter extends Geometry {
         // change in behavior: gravity was not cloned before -pspeed
         this.gravity = cloner.clone(gravity);
 
+        // the particles are not cloned, only the storage
+        this.pendingUpdate = null;
+        this.simState = null;
+        this.influenced = null;
+        if (particleData != null) {
+            this.particleData = new ParticleData(particles.length);
+        }
+
         // So, simply setting the mesh type will cause all kinds of things
         // to happen:
         // 1) the new mesh gets created.
@@ -304,6 +354,7 @@ public class ParticleEmitter extends Geometry {
     }
 
     public void setShape(EmitterShape shape) {
+        awaitUpdate();
         this.shape = shape;
     }
 
@@ -320,6 +371,7 @@ public class ParticleEmitter extends Geometry {
      * @see ParticleInfluencer
      */
     public void setParticleInfluencer(ParticleInfluencer particleInfluencer) {
+        awaitUpdate();
         this.particleInfluencer = particleInfluencer;
     }
 
@@ -354,6 +406,7 @@ public class ParticleEmitter extends Geometry {
      * @param meshType The mesh type to use
      */
     public void setMeshType(ParticleMesh.Type meshType) {
+        awaitUpdate();
         this.meshType = meshType;
         switch (meshType) {
             case Point:
@@ -393,6 +446,7 @@ public class ParticleEmitter extends Geometry {
      * @param worldSpace true if particles should spawn in world space.
      */
     public void setInWorldSpace(boolean worldSpace) {
+        awaitUpdate();
         this.setIgnoreTransform(worldSpace);
         this.worldSpace = worldSpace;
     }
@@ -404,6 +458,10 @@ public class ParticleEmitter extends Geometry {
      */
     public int getNumVisibleParticles() {
 //        return unusedIndices.size() + next;
+        if (particleData != null) {
+            awaitUpdate();
+            return particleData.getNumParticles();
+        }
         return lastUsed + 1;
     }
 
@@ -416,6 +474,10 @@ public class ParticleEmitter extends Geometry {
      * can exist at the same time with this emitter.
      */
     public final void setNumParticles(int numParticles) {
+        awaitUpdate();
+        if (particleData != null) {
+            particleData.setCapacity(numParticles);
+        }
         particles = new Particle[numParticles];
         for (int i = 0; i < numParticles; i++) {
             particles[i] = new Particle();
@@ -439,13 +501,129 @@ public class ParticleEmitter extends Geometry {
      * The size of the array is set to the <code>numParticles</code> value
      * specified in the constructor or {@link ParticleEmitter#setNumParticles(int) }
      * method.
+     * <p>
+     * With {@link #setBatchSimulation(boolean) batch simulation} enabled,
+     * the particles are copied from the {@link #getParticleData() particle data}
+     * on every call, alive particles first. Changes made to the returned
+     * particles have no effect.
      *
      * @return a list of all particles.
      */
     public Particle[] getParticles() {
+        if (particleData != null) {
+            awaitUpdate();
+            copyParticleData();
+        }
         return particles;
     }
 
+    /**
+     * Returns the particle data of the emitter, or null if 
+     * {@link #setBatchSimulation(boolean) batch simulation} is disabled.
+     *
+     * @return the particle data.
+     */
+    public ParticleData getParticleData() {
+        awaitUpdate();
+        return particleData;
+    }
+
+    /**
+     * Enable or disable batch simulation.
+     *
+     * <p>When enabled, particles are stored in a {@link ParticleData}, a 
+     * structure of primitive arrays, instead of {@link Particle} objects. 
+     * They are updated in tight loops, spawned through 
+     * {@link BatchParticleInfluencer} when the influencer supports it,
+     * and written directly into the mesh buffers. Only the part of the
+     * buffers holding alive particles is sent to the GPU.
+     *
+     * <p>The particles alive when the mode is changed are kept.
+     * Disabled by default.
+     *
+     * @param batchSimulation True to enable batch simulation.
+     *
+     * @see #setParallelUpdate(boolean)
+     */
+    public void setBatchSimulation(boolean batchSimulation) {
+        awaitUpdate();
+        if (batchSimulation == (particleData != null)) {
+            return;
+        }
+        if (batchSimulation) {
+            particleData = new ParticleData(particles.length);
+            for (int i = 0; i < particles.length; i++) {
+                if (particles[i].life > 0) {
+                    particleData.set(particleData.add(), particles[i]);
+                }
+            }
+        } else {
+            copyParticleData();
+            firstUnUsed = particleData.getNumParticles();
+            lastUsed = firstUnUsed - 1;
+            particleData = null;
+        }
+    }
+
+    /**
+     * Check if batch simulation is enabled.
+     *
+     * @return True if batch simulation is enabled.
+     *
+     * @see ParticleEmitter#setBatchSimulation(boolean)
+     */
+    public boolean isBatchSimulation() {
+        return particleData != null;
+    }
+
+    /**
+     * Set to update the particles on the {@link WorkerPool}.
+     *
+     * <p>Only used with {@link #setBatchSimulation(boolean) batch simulation}.
+     * The update started by the emitter's control runs in the background
+     * while the rest of the scene is updated, and is waited for when the
+     * bound of the emitter is refreshed, so many emitters are simulated
+     * in parallel. The {@link #getShape() shape} and 
+     * {@link #getParticleInfluencer() influencer} are used from a worker 
+     * thread and must not be shared with other emitters. Emitters updated
+     * from a worker thread are always updated on that thread.
+     * Enabled by default.
+     *
+     * @param parallelUpdate True to update the particles in parallel.
+     */
+    public void setParallelUpdate(boolean parallelUpdate) {
+        this.parallelUpdate = parallelUpdate;
+    }
+
+    /**
+     * Check if particles are updated on the {@link WorkerPool}.
+     *
+     * @return True if particles are updated in parallel.
+     *
+     * @see ParticleEmitter#setParallelUpdate(boolean)
+     */
+    public boolean isParallelUpdate() {
+        return parallelUpdate;
+    }
+
+    // copies the particle data into the particle objects
+    private void copyParticleData() {
+        int count = particleData.getNumParticles();
+        for (int i = 0; i < particles.length; i++) {
+            if (i < count) {
+                particleData.get(i, particles[i]);
+            } else {
+                Particle p = particles[i];
+                p.life = 0;
+                p.size = 0f;
+                p.color.set(0, 0, 0, 0);
+                p.imageIndex = 0;
+                p.angle = 0;
+                p.rotateSpeed = 0;
+            }
+        }
+    }
+
     /**
      * Get the normal which particles are facing.
      *
@@ -500,6 +678,7 @@ public class ParticleEmitter extends Geometry {
      * spawned after the invocation of this method.
      */
     public void setRotateSpeed(float rotateSpeed) {
+        awaitUpdate();
         this.rotateSpeed = rotateSpeed;
     }
 
@@ -524,6 +703,7 @@ public class ParticleEmitter extends Geometry {
      * should have a random facing angle.
      */
     public void setRandomAngle(boolean randomAngle) {
+        awaitUpdate();
         this.randomAngle = randomAngle;
     }
 
@@ -557,6 +737,7 @@ public class ParticleEmitter extends Geometry {
      * image.
      */
     public void setSelectRandomImage(boolean selectRandomImage) {
+        awaitUpdate();
         this.selectRandomImage = selectRandomImage;
     }
 
@@ -606,6 +787,7 @@ public class ParticleEmitter extends Geometry {
      * @param endColor the end color of the particles spawned.
      */
     public void setEndColor(ColorRGBA endColor) {
+        awaitUpdate();
         this.endColor.set(endColor);
     }
 
@@ -631,6 +813,7 @@ public class ParticleEmitter extends Geometry {
      * @param endSize the end size of the particles spawned.
      */
     public void setEndSize(float endSize) {
+        awaitUpdate();
         this.endSize = endSize;
     }
 
@@ -651,6 +834,7 @@ public class ParticleEmitter extends Geometry {
      * @param gravity the gravity vector
      */
     public void setGravity(Vector3f gravity) {
+        awaitUpdate();
         this.gravity.set(gravity);
     }
 
@@ -662,6 +846,7 @@ public class ParticleEmitter extends Geometry {
      * @param z the z component of the gravity vector
      */
     public void setGravity(float x, float y, float z) {
+        awaitUpdate();
         this.gravity.x = x;
         this.gravity.y = y;
         this.gravity.z = z;
@@ -687,6 +872,7 @@ public class ParticleEmitter extends Geometry {
      * @param highLife the high value of life.
      */
     public void setHighLife(float highLife) {
+        awaitUpdate();
         this.highLife = highLife;
     }
 
@@ -711,6 +897,7 @@ public class ParticleEmitter extends Geometry {
      * @param imagesX the number of images along the X axis (width).
      */
     public void setImagesX(int imagesX) {
+        awaitUpdate();
         this.imagesX = imagesX;
         particleMesh.setImagesXY(this.imagesX, this.imagesY);
     }
@@ -735,6 +922,7 @@ public class ParticleEmitter extends Geometry {
      * @param imagesY the number of images along the Y axis (height).
      */
     public void setImagesY(int imagesY) {
+        awaitUpdate();
         this.imagesY = imagesY;
         particleMesh.setImagesXY(this.imagesX, this.imagesY);
     }
@@ -759,6 +947,7 @@ public class ParticleEmitter extends Geometry {
      * @param lowLife the low value of life.
      */
     public void setLowLife(float lowLife) {
+        awaitUpdate();
         this.lowLife = lowLife;
     }
 
@@ -783,6 +972,7 @@ public class ParticleEmitter extends Geometry {
      * second.
      */
     public void setParticlesPerSec(float particlesPerSec) {
+        awaitUpdate();
         this.particlesPerSec = particlesPerSec;
         timeDifference = 0;
     }
@@ -808,6 +998,7 @@ public class ParticleEmitter extends Geometry {
      * @param startColor the start color of the particles spawned
      */
     public void setStartColor(ColorRGBA startColor) {
+        awaitUpdate();
         this.startColor.set(startColor);
     }
 
@@ -832,6 +1023,7 @@ public class ParticleEmitter extends Geometry {
      * @param startSize the start size of the particles spawned.
      */
     public void setStartSize(float startSize) {
+        awaitUpdate();
         this.startSize = startSize;
     }
 
@@ -859,6 +1051,7 @@ public class ParticleEmitter extends Geometry {
      */
     @Deprecated
     public void setInitialVelocity(Vector3f initialVelocity) {
+        awaitUpdate();
         this.particleInfluencer.setInitialVelocity(initialVelocity);
     }
 
@@ -886,6 +1079,7 @@ public class ParticleEmitter extends Geometry {
      */
     @Deprecated
     public void setVelocityVariation(float variation) {
+        awaitUpdate();
         this.particleInfluencer.setVelocityVariation(variation);
     }
 
@@ -940,9 +1134,20 @@ public class ParticleEmitter extends Geometry {
      * Instantly emits available particles, up to num.
      */
     public void emitParticles(int num) {
+        awaitUpdate();
         // Force world transform to update
         this.getWorldTransform();
 
+        if (particleData != null) {
+            captureState();
+            int start = particleData.getNumParticles();
+            spawnParticles(Math.min(num, particleData.getCapacity() - start));
+            updateBounds();
+            applyBounds();
+            this.setBoundRefresh();
+            return;
+        }
+
         TempVars vars = TempVars.get();
 
         BoundingBox bbox = (BoundingBox) this.getMesh().getBound();
@@ -975,6 +1180,11 @@ public class ParticleEmitter extends Geometry {
      * particles will be dead and no longer visible.
      */
     public void killAllParticles() {
+        if (particleData != null) {
+            awaitUpdate();
+            particleData.clear();
+            return;
+        }
         for (int i = 0; i < particles.length; ++i) {
             if (particles[i].life > 0) {
                 this.freeParticle(i);
@@ -989,6 +1199,11 @@ public class ParticleEmitter extends Geometry {
      * @see #getParticles()
      */
     public void killParticle(int index){
+        if (particleData != null) {
+            awaitUpdate();
+            particleData.kill(index);
+            return;
+        }
         freeParticle(index);
     }
 
@@ -1042,10 +1257,232 @@ public class ParticleEmitter extends Geometry {
         }
     }
 
+    // spawns count particles at the end of the particle data, returns
+    // the index of the first one
+    private int spawnParticles(int count) {
+        ParticleData data = particleData;
+        SimulationState state = simState;
+        int start = data.getNumParticles();
+        for (int n = 0; n < count; n++) {
+            int i = data.add();
+            if (selectRandomImage) {
+                data.imageIndex[i] = FastMath.nextRandomInt(0, imagesY - 1) * imagesX + FastMath.nextRandomInt(0, imagesX - 1);
+            }
+            data.startLife[i] = lowLife + FastMath.nextRandomFloat() * (highLife - lowLife);
+            data.life[i] = data.startLife[i];
+            data.setColor(i, state.startColor);
+            data.size[i] = startSize;
+            if (randomAngle) {
+                data.angle[i] = FastMath.nextRandomFloat() * FastMath.TWO_PI;
+            }
+            if (rotateSpeed != 0) {
+                data.rotateSpeed[i] = rotateSpeed * (0.2f + (FastMath.nextRandomFloat() * 2f - 1f) * .8f);
+            }
+        }
+        int end = start + count;
+
+        if (particleInfluencer instanceof BatchParticleInfluencer) {
+            ((BatchParticleInfluencer) particleInfluencer).influenceParticles(data, start, end, shape);
+        } else {
+            if (influenced == null) {
+                influenced = new Particle();
+            }
+            for (int i = start; i < end; i++) {
+                data.get(i, influenced);
+                particleInfluencer.influenceParticle(influenced, shape);
+                data.set(i, influenced);
+            }
+        }
+
+        if (worldSpace) {
+            Transform transform = state.transform;
+            Vector3f v = state.temp;
+            for (int i = start; i < end; i++) {
+                v.set(data.positionX[i], data.positionY[i], data.positionZ[i]);
+                transform.transformVector(v, v);
+                data.positionX[i] = v.x;
+                data.positionY[i] = v.y;
+                data.positionZ[i] = v.z;
+                v.set(data.velocityX[i], data.velocityY[i], data.velocityZ[i]);
+                transform.getRotation().mult(v, v);
+                data.velocityX[i] = v.x;
+                data.velocityY[i] = v.y;
+                data.velocityZ[i] = v.z;
+            }
+        }
+        return start;
+    }
+
+    // integrates the particles in the range over tpf seconds
+    private void updateParticles(int start, int end, float tpf) {
+        ParticleData data = particleData;
+        float[] px = data.positionX, py = data.positionY, pz = data.positionZ;
+        float[] vx = data.velocityX, vy = data.velocityY, vz = data.velocityZ;
+        float[] life = data.life, startLife = data.startLife;
+        SimulationState state = simState;
+        Vector3f gravity = state.gravity;
+        ColorRGBA startColor = state.startColor, endColor = state.endColor;
+        float gx = gravity.x * tpf, gy = gravity.y * tpf, gz = gravity.z * tpf;
+        int numImages = imagesX * imagesY;
+
+        for (int i = start; i < end; i++) {
+            // applying gravity
+            vx[i] -= gx;
+            vy[i] -= gy;
+            vz[i] -= gz;
+            px[i] += vx[i] * tpf;
+            py[i] += vy[i] * tpf;
+            pz[i] += vz[i] * tpf;
+
+            // affecting color, size and angle
+            float b = (startLife[i] - life[i]) / startLife[i];
+            float a = 1f - b;
+            data.colorR[i] = a * startColor.r + b * endColor.r;
+            data.colorG[i] = a * startColor.g + b * endColor.g;
+            data.colorB[i] = a * startColor.b + b * endColor.b;
+            data.colorA[i] = a * startColor.a + b * endColor.a;
+            data.size[i] = FastMath.interpolateLinear(b, startSize, endSize);
+            data.angle[i] += data.rotateSpeed[i] * tpf;
+
+            if (!selectRandomImage) {
+                data.imageIndex[i] = (int) (b * numImages);
+            }
+        }
+    }
+
+    // updates the particle data, may run on a worker thread so it only
+    // touches the state of this emitter
+    private void updateParticleData(float tpf) {
+        ParticleData data = particleData;
+
+        // age the particles, iterating backwards so that the particle
+        // moved in place of a dead one was already aged
+        float[] life = data.life;
+        for (int i = data.getNumParticles() - 1; i >= 0; i--) {
+            life[i] -= tpf;
+            if (life[i] <= 0) {
+                data.kill(i);
+            }
+        }
+        updateParticles(0, data.getNumParticles(), tpf);
+
+        // Spawns particles within the tpf timeslot with proper age
+        float interval = 1f / simState.particlesPerSec;
+        float time = tpf + timeDifference;
+        int count = 0;
+        while (time > interval) {
+            time -= interval;
+            count++;
+        }
+        float total = tpf + timeDifference;
+        timeDifference = time;
+
+        count = Math.min(count, data.getCapacity() - data.getNumParticles());
+        if (count > 0) {
+            int start = spawnParticles(count);
+            int end = start + count;
+            Vector3f last = lastPos != null && worldSpace ? lastPos : null;
+            for (int i = start; i < end; i++) {
+                float age = total - (i - start + 1) * interval;
+                life[i] -= age;
+                if (last != null) {
+                    float s = 1 - age / tpf;
+                    data.positionX[i] += (last.x - data.positionX[i]) * s;
+                    data.positionY[i] += (last.y - data.positionY[i]) * s;
+                    data.positionZ[i] += (last.z - data.positionZ[i]) * s;
+                }
+                if (life[i] > 0) {
+                    updateParticles(i, i + 1, age);
+                }
+            }
+            for (int i = end - 1; i >= start; i--) {
+                if (life[i] <= 0) {
+                    data.kill(i);
+                }
+            }
+        }
+
+        if (lastPos == null) {
+            lastPos = new Vector3f();
+        }
+        lastPos.set(simState.transform.getTranslation());
+
+        updateBounds();
+    }
+
+    // computes the bounds of the particle data
+    private void updateBounds() {
+        ParticleData data = particleData;
+        float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY, z0 = Float.POSITIVE_INFINITY;
+        float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY, z1 = Float.NEGATIVE_INFINITY;
+        for (int i = 0, n = data.getNumParticles(); i < n; i++) {
+            float size = data.size[i];
+            x0 = Math.min(x0, data.positionX[i] - size);
+            y0 = Math.min(y0, data.positionY[i] - size);
+            z0 = Math.min(z0, data.positionZ[i] - size);
+            x1 = Math.max(x1, data.positionX[i] + size);
+            y1 = Math.max(y1, data.positionY[i] + size);
+            z1 = Math.max(z1, data.positionZ[i] + size);
+        }
+        minX = x0; minY = y0; minZ = z0;
+        maxX = x1; maxY = y1; maxZ = z1;
+    }
+
+    // sets the bounds computed by the last update on the mesh
+    private void applyBounds() {
+        TempVars vars = TempVars.get();
+        BoundingBox bbox = (BoundingBox) this.getMesh().getBound();
+        bbox.setMinMax(vars.vect1.set(minX, minY, minZ), vars.vect2.set(maxX, maxY, maxZ));
+        vars.release();
+    }
+
+    // copies the state read by the simulation, the world transform and the
+    // public vectors and colors may change while an update runs on a worker
+    private void captureState() {
+        if (simState == null) {
+            simState = new SimulationState();
+        }
+        simState.transform.set(worldTransform);
+        simState.gravity.set(gravity);
+        simState.startColor.set(startColor);
+        simState.endColor.set(endColor);
+        simState.particlesPerSec = particlesPerSec;
+    }
+
+    // waits for the update running on the worker pool, if any
+    private void awaitUpdate() {
+        ForkJoinTask<?> task = pendingUpdate;
+        if (task != null) {
+            pendingUpdate = null;
+            task.join();
+            applyBounds();
+        }
+    }
+
     private void updateParticleState(float tpf) {
+        awaitUpdate();
         // Force world transform to update
         this.getWorldTransform();
 
+        if (particleData != null) {
+            // the bound is set once the update completes, either by the
+            // next world bound refresh or by the next access to the particles
+            this.setBoundRefresh();
+            captureState();
+            if (parallelUpdate && !WorkerPool.isWorkerThread()) {
+                final float time = tpf;
+                pendingUpdate = WorkerPool.get().submit(new Runnable() {
+                    public void run() {
+                        updateParticleData(time);
+                    }
+                });
+            } else {
+                updateParticleData(tpf);
+                applyBounds();
+            }
+            return;
+        }
+
         TempVars vars = TempVars.get();
 
         Vector3f min = vars.vect1.set(Vector3f.POSITIVE_INFINITY);
@@ -1137,9 +1574,146 @@ public class ParticleEmitter extends Geometry {
      * @param tpf
      */
     public void updateFromControl(float tpf) {
-        if (enabled) {
-            this.updateParticleState(tpf);
+        if (!enabled) {
+            return;
+        }
+        awaitUpdate();
+
+        boolean visible = renderedSize >= 0 && renderedSize >= minScreenSize;
+        renderedSize = -1;
+
+        float time = sleepTime + tpf;
+        if (offscreenUpdateInterval > 0 && !visible && !hasMoved()) {
+            sleeping = true;
+            if (time < offscreenUpdateInterval) {
+                sleepTime = time;
+                return;
+            }
+        } else {
+            sleeping = false;
+        }
+        sleepTime = 0;
+
+        if (time > tpf) {
+            // catch up in one step, particles older than the highest
+            // life would be dead anyway
+            time = Math.min(time, Math.max(highLife, tpf));
+        }
+        this.updateParticleState(time);
+    }
+
+    // true if particles spawned in world space would not start from
+    // where the last update left them
+    private boolean hasMoved() {
+        return worldSpace && lastPos != null && !lastPos.equals(getWorldTranslation());
+    }
+
+    /**
+     * Set how often emitters that are not visible are updated.
+     *
+     * <p>An emitter is not visible if it was not rendered in any viewport
+     * since its last update, or if its bound was smaller than the
+     * {@link #setMinScreenSize(float) minimum screen size}. Such emitters
+     * accumulate the elapsed time and simulate it in a single step once
+     * the interval has passed, or as soon as they become visible again.
+     * The catch-up step is limited to the {@link #getHighLife() high life},
+     * older particles would be dead anyway. Emitters in world space that
+     * moved since their last update are always updated, so that their 
+     * bound follows them.
+     *
+     * <p>0 updates every frame, which is the default. 
+     * <code>Float.POSITIVE_INFINITY</code> pauses emitters while they are 
+     * not visible.
+     *
+     * @param offscreenUpdateInterval The update interval in seconds.
+     */
+    public void setOffscreenUpdateInterval(float offscreenUpdateInterval) {
+        this.offscreenUpdateInterval = offscreenUpdateInterval;
+    }
+
+    /**
+     * Get how often emitters that are not visible are updated.
+     *
+     * @return the update interval in seconds.
+     *
+     * @see ParticleEmitter#setOffscreenUpdateInterval(float)
+     */
+    public float getOffscreenUpdateInterval() {
+        return offscreenUpdateInterval;
+    }
+
+    /**
+     * Set the screen size below which the emitter is considered not
+     * visible.
+     *
+     * <p>The size is the projected diameter of the emitter's world bound,
+     * in pixels, in the viewport it appears largest in. Only used when an
+     * {@link #setOffscreenUpdateInterval(float) offscreen update interval}
+     * is set. Default is 0.
+     *
+     * @param minScreenSize The minimum screen size in pixels.
+     */
+    public void setMinScreenSize(float minScreenSize) {
+        this.minScreenSize = minScreenSize;
+    }
+
+    /**
+     * Get the screen size below which the emitter is considered not
+     * visible.
+     *
+     * @return the minimum screen size in pixels.
+     *
+     * @see ParticleEmitter#setMinScreenSize(float)
+     */
+    public float getMinScreenSize() {
+        return minScreenSize;
+    }
+
+    /**
+     * Check if the emitter was throttled by its last update because it
+     * was not visible.
+     *
+     * @return True if the emitter is sleeping.
+     *
+     * @see ParticleEmitter#setOffscreenUpdateInterval(float)
+     */
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
+    // projected diameter of the world bound in pixels
+    private float getScreenSize(Camera cam) {
+        if (getNumVisibleParticles() == 0) {
+            // the bound says nothing about the particles to come
+            return Float.POSITIVE_INFINITY;
+        }
+        BoundingVolume bound = getWorldBound();
+        float radius;
+        if (bound instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bound;
+            radius = FastMath.sqrt(box.getXExtent() * box.getXExtent()
+                    + box.getYExtent() * box.getYExtent()
+                    + box.getZExtent() * box.getZExtent());
+        } else if (bound instanceof BoundingSphere) {
+            radius = ((BoundingSphere) bound).getRadius();
+        } else {
+            return Float.POSITIVE_INFINITY;
+        }
+        float frustumHeight = cam.getFrustumTop() - cam.getFrustumBottom();
+        float size;
+        if (cam.isParallelProjection()) {
+            size = 2 * radius / frustumHeight * cam.getHeight();
+        } else {
+            TempVars vars = TempVars.get();
+            float depth = vars.vect1.set(bound.getCenter()).subtractLocal(cam.getLocation()).dot(cam.getDirection(vars.vect2));
+            vars.release();
+            if (depth <= radius) {
+                // the camera is inside the bound
+                return Float.POSITIVE_INFINITY;
+            }
+            size = 2 * radius * cam.getFrustumNear() / (depth * frustumHeight) * cam.getHeight();
         }
+        return Float.isNaN(size) ? Float.POSITIVE_INFINITY : size;
     }
 
     /**
@@ -1149,7 +1723,11 @@ public class ParticleEmitter extends Geometry {
      * @param vp
      */
     private void renderFromControl(RenderManager rm, ViewPort vp) {
+        awaitUpdate();
         Camera cam = vp.getCamera();
+        if (offscreenUpdateInterval > 0) {
+            renderedSize = Math.max(renderedSize, getScreenSize(cam));
+        }
 
         if (meshType == ParticleMesh.Type.Point) {
             float C = cam.getProjectionMatrix().m00;
@@ -1166,7 +1744,11 @@ public class ParticleEmitter extends Geometry {
 
             inverseRotation = this.getWorldRotation().toRotationMatrix(vars.tempMat3).invertLocal();
         }
-        particleMesh.updateParticleData(particles, cam, inverseRotation);
+        if (particleData != null) {
+            particleMesh.updateParticleData(particleData, cam, inverseRotation);
+        } else {
+            particleMesh.updateParticleData(particles, cam, inverseRotation);
+        }
         if (!worldSpace) {
             vars.release();
         }
@@ -1174,7 +1756,18 @@ public class ParticleEmitter extends Geometry {
 
     public void preload(RenderManager rm, ViewPort vp) {
         this.updateParticleState(0);
-        particleMesh.updateParticleData(particles, vp.getCamera(), Matrix3f.IDENTITY);
+        awaitUpdate();
+        if (particleData != null) {
+            particleMesh.updateParticleData(particleData, vp.getCamera(), Matrix3f.IDENTITY);
+        } else {
+            particleMesh.updateParticleData(particles, vp.getCamera(), Matrix3f.IDENTITY);
+        }
+    }
+
+    @Override
+    protected void updateWorldBound() {
+        awaitUpdate();
+        super.updateWorldBound();
     }
 
     @Override
@@ -1202,6 +1795,10 @@ public class ParticleEmitter extends Geometry {
         oc.write(selectRandomImage, "selectRandomImage", false);
         oc.write(randomAngle, "randomAngle", false);
         oc.write(rotateSpeed, "rotateSpeed", 0);
+        oc.write(particleData != null, "batchSimulation", false);
+        oc.write(parallelUpdate, "parallelUpdate", true);
+        oc.write(offscreenUpdateInterval, "offscreenUpdateInterval", 0);
+        oc.write(minScreenSize, "minScreenSize", 0);
 
         oc.write(particleInfluencer, "influencer", DEFAULT_INFLUENCER);
     }
@@ -1240,6 +1837,12 @@ public class ParticleEmitter extends Geometry {
         selectRandomImage = ic.readBoolean("selectRandomImage", false);
         randomAngle = ic.readBoolean("randomAngle", false);
         rotateSpeed = ic.readFloat("rotateSpeed", 0);
+        if (ic.readBoolean("batchSimulation", false)) {
+            particleData = new ParticleData(numParticles);
+        }
+        parallelUpdate = ic.readBoolean("parallelUpdate", true);
+        offscreenUpdateInterval = ic.readFloat("offscreenUpdateInterval", 0);
+        minScreenSize = ic.readFloat("minScreenSize", 0);
 
         switch (meshType) {
             case Point:
@@ -43,6 +43,8 @@ import com.jme3.scene.Mesh;
  */
 public abstract class ParticleMesh extends Mesh {
 
+    private Particle[] particlesCopy;
+
     /**
      * Type of particle mesh
      */
@@ -82,4 +84,34 @@ public abstract class ParticleMesh extends Mesh {
      */
     public abstract void updateParticleData(Particle[] particles, Camera cam, Matrix3f inverseRotation);
 
+    /**
+     * Update the particle visual data from particles stored in a 
+     * {@link ParticleData}. Used by emitters with 
+     * {@link ParticleEmitter#setBatchSimulation(boolean) batch simulation}
+     * enabled.
+     * <p>
+     * The default implementation copies the particles into 
+     * {@link Particle} objects and calls
+     * {@link #updateParticleData(com.jme3.effect.Particle[], com.jme3.renderer.Camera, com.jme3.math.Matrix3f) },
+     * subclasses should override it to write the buffers directly.
+     */
+    public void updateParticleData(ParticleData data, Camera cam, Matrix3f inverseRotation) {
+        if (particlesCopy == null || particlesCopy.length != data.getCapacity()) {
+            particlesCopy = new Particle[data.getCapacity()];
+            for (int i = 0; i < particlesCopy.length; i++) {
+                particlesCopy[i] = new Particle();
+            }
+        }
+        for (int i = 0; i < particlesCopy.length; i++) {
+            if (i < data.getNumParticles()) {
+                data.get(i, particlesCopy[i]);
+            } else {
+                particlesCopy[i].life = 0;
+                particlesCopy[i].size = 0;
+                particlesCopy[i].color.set(0, 0, 0, 0);
+            }
+        }
+        updateParticleData(particlesCopy, cam, inverseRotation);
+    }
+
 }
@@ -44,6 +44,7 @@ import java.nio.FloatBuffer;
 public class ParticlePointMesh extends ParticleMesh {
 
     private ParticleEmitter emitter;
+    private int lastNumParticles;
 
     private int imagesX = 1;
     private int imagesY = 1;
@@ -59,6 +60,7 @@ public class ParticlePointMesh extends ParticleMesh {
         setMode(Mode.Points);
 
         this.emitter = emitter;
+        lastNumParticles = numParticles;
 
         // set positions
         FloatBuffer pb = BufferUtilsCreator.createVector3Buffer(numParticles);
@@ -164,5 +166,59 @@ public class ParticlePointMesh extends ParticleMesh {
         cvb.updateData(colors);
         svb.updateData(sizes);
         tvb.updateData(texcoords);
+        lastNumParticles = particles.length;
+    }
+
+    @Override
+    public void updateParticleData(ParticleData data, Camera cam, Matrix3f inverseRotation) {
+        VertexBuffer pvb = getBuffer(VertexBuffer.Type.Position);
+        FloatBuffer positions = (FloatBuffer) pvb.getData();
+
+        VertexBuffer cvb = getBuffer(VertexBuffer.Type.Color);
+        ByteBuffer colors = (ByteBuffer) cvb.getData();
+
+        VertexBuffer svb = getBuffer(VertexBuffer.Type.Size);
+        FloatBuffer sizes = (FloatBuffer) svb.getData();
+
+        VertexBuffer tvb = getBuffer(VertexBuffer.Type.TexCoord);
+        FloatBuffer texcoords = (FloatBuffer) tvb.getData();
+
+        float sizeScale = emitter.getWorldScale().x;
+        int count = data.getNumParticles();
+
+        for (int i = 0; i < count; i++) {
+            positions.put(i * 3, data.positionX[i])
+                     .put(i * 3 + 1, data.positionY[i])
+                     .put(i * 3 + 2, data.positionZ[i]);
+
+            sizes.put(i, data.size[i] * sizeScale);
+            colors.putInt(i * 4, data.getColorABGR(i));
+
+            int imageIndex = data.imageIndex[i];
+            int imgX = imageIndex % imagesX;
+            int imgY = (imageIndex - imgX) / imagesY;
+
+            float startX = ((float) imgX) / imagesX;
+            float startY = ((float) imgY) / imagesY;
+            float endX   = startX + (1f / imagesX);
+            float endY   = startY + (1f / imagesY);
+
+            texcoords.put(i * 4, startX).put(i * 4 + 1, startY)
+                     .put(i * 4 + 2, endX).put(i * 4 + 3, endY);
+        }
+
+        // hide the particles that died since the last update
+        for (int i = count; i < lastNumParticles; i++) {
+            sizes.put(i, 0);
+            colors.putInt(i * 4, 0);
+        }
+
+        // only send the range that contains particles to the GPU
+        int numVertices = Math.max(count, lastNumParticles);
+        pvb.setUpdateNeeded(0, numVertices);
+        cvb.setUpdateNeeded(0, numVertices);
+        svb.setUpdateNeeded(0, numVertices);
+        tvb.setUpdateNeeded(0, numVertices);
+        lastNumParticles = count;
     }
 }
@@ -52,6 +52,7 @@ public class ParticleTriMesh extends ParticleMesh {
     private boolean uniqueTexCoords = false;
 //    private ParticleComparator comparator = new ParticleComparator();
     private ParticleEmitter emitter;
+    private int lastNumParticles;
 //    private Particle[] particlesCopy;
 
     @Override
@@ -59,6 +60,7 @@ public class ParticleTriMesh extends ParticleMesh {
         setMode(Mode.Triangles);
 
         this.emitter = emitter;
+        lastNumParticles = numParticles;
 
 //        particlesCopy = new Particle[numParticles];
 
@@ -284,6 +286,130 @@ public class ParticleTriMesh extends ParticleMesh {
         // force renderer to re-send data to GPU
         pvb.updateData(positions);
         cvb.updateData(colors);
+        lastNumParticles = particles.length;
+    }
+
+    @Override
+    public void updateParticleData(ParticleData data, Camera cam, Matrix3f inverseRotation) {
+        VertexBuffer pvb = getBuffer(VertexBuffer.Type.Position);
+        FloatBuffer positions = (FloatBuffer) pvb.getData();
+
+        VertexBuffer cvb = getBuffer(VertexBuffer.Type.Color);
+        ByteBuffer colors = (ByteBuffer) cvb.getData();
+
+        VertexBuffer tvb = getBuffer(VertexBuffer.Type.TexCoord);
+        FloatBuffer texcoords = (FloatBuffer) tvb.getData();
+
+        Vector3f camUp   = cam.getUp();
+        Vector3f camLeft = cam.getLeft();
+        Vector3f camDir  = cam.getDirection();
+
+        inverseRotation.multLocal(camUp);
+        inverseRotation.multLocal(camLeft);
+        inverseRotation.multLocal(camDir);
+
+        boolean facingVelocity = emitter.isFacingVelocity();
+        Vector3f faceNormal = emitter.getFaceNormal();
+
+        float[] px = data.positionX, py = data.positionY, pz = data.positionZ;
+        float[] sizes = data.size, angles = data.angle;
+        int count = data.getNumParticles();
+
+        TempVars vars = TempVars.get();
+        Vector3f up = vars.vect1, left = vars.vect2;
+        Vector3f normal = vars.vect3;
+        if (faceNormal != null) {
+            normal.set(faceNormal).normalizeLocal();
+        }
+
+        for (int i = 0; i < count; i++) {
+            float size = sizes[i];
+            float angle = angles[i];
+            if (facingVelocity) {
+                left.set(data.velocityX[i], data.velocityY[i], data.velocityZ[i]).normalizeLocal();
+                camDir.cross(left, up);
+                up.multLocal(size);
+                left.multLocal(size);
+            } else if (faceNormal != null) {
+                up.set(faceNormal).crossLocal(Vector3f.UNIT_X);
+                faceNormal.cross(up, left);
+                up.multLocal(size);
+                left.multLocal(size);
+                if (angle != 0) {
+                    vars.quat1.fromAngleNormalAxis(angle, normal);
+                    vars.quat1.multLocal(left);
+                    vars.quat1.multLocal(up);
+                }
+            } else if (angle != 0) {
+                float cos = FastMath.cos(angle) * size;
+                float sin = FastMath.sin(angle) * size;
+
+                left.x = camLeft.x * cos + camUp.x * sin;
+                left.y = camLeft.y * cos + camUp.y * sin;
+                left.z = camLeft.z * cos + camUp.z * sin;
+
+                up.x = camLeft.x * -sin + camUp.x * cos;
+                up.y = camLeft.y * -sin + camUp.y * cos;
+                up.z = camLeft.z * -sin + camUp.z * cos;
+            } else {
+                up.set(camUp).multLocal(size);
+                left.set(camLeft).multLocal(size);
+            }
+
+            float x = px[i], y = py[i], z = pz[i];
+            int p = i * 12;
+            positions.put(p,      x + left.x + up.x);
+            positions.put(p + 1,  y + left.y + up.y);
+            positions.put(p + 2,  z + left.z + up.z);
+            positions.put(p + 3,  x - left.x + up.x);
+            positions.put(p + 4,  y - left.y + up.y);
+            positions.put(p + 5,  z - left.z + up.z);
+            positions.put(p + 6,  x + left.x - up.x);
+            positions.put(p + 7,  y + left.y - up.y);
+            positions.put(p + 8,  z + left.z - up.z);
+            positions.put(p + 9,  x - left.x - up.x);
+            positions.put(p + 10, y - left.y - up.y);
+            positions.put(p + 11, z - left.z - up.z);
+
+            if (uniqueTexCoords) {
+                int imageIndex = data.imageIndex[i];
+                int imgX = imageIndex % imagesX;
+                int imgY = (imageIndex - imgX) / imagesY;
+
+                float startX = ((float) imgX) / imagesX;
+                float startY = ((float) imgY) / imagesY;
+                float endX   = startX + (1f / imagesX);
+                float endY   = startY + (1f / imagesY);
+
+                int t = i * 8;
+                texcoords.put(t, startX).put(t + 1, endY);
+                texcoords.put(t + 2, endX).put(t + 3, endY);
+                texcoords.put(t + 4, startX).put(t + 5, startY);
+                texcoords.put(t + 6, endX).put(t + 7, startY);
+            }
+
+            int abgr = data.getColorABGR(i);
+            int c = i * 16;
+            colors.putInt(c, abgr);
+            colors.putInt(c + 4, abgr);
+            colors.putInt(c + 8, abgr);
+            colors.putInt(c + 12, abgr);
+        }
+        vars.release();
+
+        // collapse the quads of particles that died since the last update
+        for (int i = count * 12; i < lastNumParticles * 12; i++) {
+            positions.put(i, 0);
+        }
+
+        // only send the range that contains particles to the GPU
+        int numVertices = Math.max(count, lastNumParticles) * 4;
+        pvb.setUpdateNeeded(0, numVertices);
+        cvb.setUpdateNeeded(0, numVertices);
+        if (uniqueTexCoords) {
+            tvb.setUpdateNeeded(0, numVertices);
+        }
+        lastNumParticles = count;
     }
 
 }
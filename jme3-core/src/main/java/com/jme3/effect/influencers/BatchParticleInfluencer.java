@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.effect.influencers;
+
+import com.jme3.effect.ParticleData;
+import com.jme3.effect.shapes.EmitterShape;
+
+/**
+ * A {@link ParticleInfluencer} that can influence many particles stored
+ * in a {@link ParticleData} at once.
+ * <p>
+ * Used by emitters with 
+ * {@link com.jme3.effect.ParticleEmitter#setBatchSimulation(boolean) batch simulation}
+ * enabled. Implementations must give particles the same initial state as
+ * {@link #influenceParticle(com.jme3.effect.Particle, com.jme3.effect.shapes.EmitterShape) }
+ * would, so subclasses overriding one method should override the other.
+ * Influencers that do not implement this interface are called once per 
+ * particle through a temporary {@link com.jme3.effect.Particle}.
+ */
+public interface BatchParticleInfluencer extends ParticleInfluencer {
+
+    /**
+     * Influences the newly spawned particles in the given range, setting
+     * their initial position and velocity. All other attributes are
+     * already set by the emitter.
+     * 
+     * @param data The particle data
+     * @param start The index of the first particle to influence
+     * @param end The index after the last particle to influence
+     * @param emitterShape The shape of the emitter
+     */
+    void influenceParticles(ParticleData data, int start, int end, EmitterShape emitterShape);
+}
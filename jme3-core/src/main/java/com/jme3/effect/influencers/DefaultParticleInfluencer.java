@@ -32,6 +32,7 @@
 package com.jme3.effect.influencers;
 
 import com.jme3.effect.Particle;
+import com.jme3.effect.ParticleData;
 import com.jme3.effect.shapes.EmitterShape;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
@@ -49,7 +50,7 @@ import java.io.IOException;
  * This influencer is default for the particle emitter.
  * @author Marcin Roguski (Kaelthas)
  */
-public class DefaultParticleInfluencer implements ParticleInfluencer {
+public class DefaultParticleInfluencer implements BatchParticleInfluencer {
 
     //Version #1 : changed startVelocity to initialvelocity for consistency with accessors
     //and also changed it in serialization
@@ -67,6 +68,17 @@ public class DefaultParticleInfluencer implements ParticleInfluencer {
         this.applyVelocityVariation(particle);
     }
 
+    @Override
+    public void influenceParticles(ParticleData data, int start, int end, EmitterShape emitterShape) {
+        for (int i = start; i < end; i++) {
+            emitterShape.getRandomPoint(temp);
+            data.positionX[i] = temp.x;
+            data.positionY[i] = temp.y;
+            data.positionZ[i] = temp.z;
+            this.applyVelocityVariation(data, i);
+        }
+    }
+
     /**
      * This method applies the variation to the particle with already set velocity.
      * @param particle
@@ -81,6 +93,22 @@ public class DefaultParticleInfluencer implements ParticleInfluencer {
         particle.velocity.interpolateLocal(temp, velocityVariation);
     }
 
+    /**
+     * This method applies the variation to the velocity of a particle
+     * stored in particle data.
+     * @param data
+     *        the particle data
+     * @param i
+     *        the index of the particle to be affected
+     */
+    protected void applyVelocityVariation(ParticleData data, int i) {
+        float length = initialVelocity.length();
+        float keep = 1f - velocityVariation;
+        data.velocityX[i] = keep * initialVelocity.x + velocityVariation * (FastMath.nextRandomFloat() * 2f - 1f) * length;
+        data.velocityY[i] = keep * initialVelocity.y + velocityVariation * (FastMath.nextRandomFloat() * 2f - 1f) * length;
+        data.velocityZ[i] = keep * initialVelocity.z + velocityVariation * (FastMath.nextRandomFloat() * 2f - 1f) * length;
+    }
+
     @Override
     public void write(JmeExporter ex) throws IOException {
         OutputCapsule oc = ex.getCapsule(this);
@@ -32,6 +32,7 @@
 package com.jme3.effect.influencers;
 
 import com.jme3.effect.Particle;
+import com.jme3.effect.ParticleData;
 import com.jme3.effect.shapes.EmitterShape;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
@@ -39,6 +40,7 @@ import com.jme3.export.JmeImporter;
 import com.jme3.export.OutputCapsule;
 import com.jme3.math.FastMath;
 import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
 
 import java.io.IOException;
 
@@ -86,6 +88,40 @@ public class NewtonianParticleInfluencer extends DefaultParticleInfluencer {
         }
     }
 
+    @Override
+    public void influenceParticles(ParticleData data, int start, int end, EmitterShape emitterShape) {
+        Vector3f position = new Vector3f();
+        Vector3f velocity = new Vector3f();
+        Matrix3f m = surfaceTangentRotation != 0.0f ? new Matrix3f() : null;
+        for (int i = start; i < end; i++) {
+            emitterShape.getRandomPointAndNormal(position, velocity);
+            // influencing the particle's velocity
+            if (surfaceTangentFactor == 0.0f) {
+                velocity.multLocal(normalVelocity);
+            } else {
+                // calculating surface tangent (velocity contains the 'normal' value)
+                temp.set(velocity.z * surfaceTangentFactor, velocity.y * surfaceTangentFactor, -velocity.x * surfaceTangentFactor);
+                if (m != null) {// rotating the tangent
+                    m.fromAngleNormalAxis(FastMath.PI * surfaceTangentRotation, velocity);
+                    m.multLocal(temp);
+                }
+                // applying normal factor (this must be done first)
+                velocity.multLocal(normalVelocity);
+                // adding tangent vector
+                velocity.addLocal(temp);
+            }
+            data.positionX[i] = position.x;
+            data.positionY[i] = position.y;
+            data.positionZ[i] = position.z;
+            data.velocityX[i] = velocity.x;
+            data.velocityY[i] = velocity.y;
+            data.velocityZ[i] = velocity.z;
+            if (velocityVariation != 0.0f) {
+                this.applyVelocityVariation(data, i);
+            }
+        }
+    }
+
     /**
      * This method returns the normal velocity factor.
      * @return the normal velocity factor
@@ -143,6 +179,13 @@ public class NewtonianParticleInfluencer extends DefaultParticleInfluencer {
         particle.velocity.addLocal(temp);
     }
 
+    @Override
+    protected void applyVelocityVariation(ParticleData data, int i) {
+        data.velocityX[i] += FastMath.nextRandomFloat() * velocityVariation;
+        data.velocityY[i] += FastMath.nextRandomFloat() * velocityVariation;
+        data.velocityZ[i] += FastMath.nextRandomFloat() * velocityVariation;
+    }
+
     @Override
     public ParticleInfluencer clone() {
         NewtonianParticleInfluencer result = new NewtonianParticleInfluencer();
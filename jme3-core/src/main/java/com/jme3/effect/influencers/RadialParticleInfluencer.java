@@ -32,6 +32,7 @@
 package com.jme3.effect.influencers;
 
 import com.jme3.effect.Particle;
+import com.jme3.effect.ParticleData;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -73,6 +74,24 @@ public class RadialParticleInfluencer extends DefaultParticleInfluencer {
         particle.velocity.interpolateLocal(temp, velocityVariation);
     }
 
+    @Override
+    protected void applyVelocityVariation(ParticleData data, int i) {
+        temp.set(data.positionX[i], data.positionY[i], data.positionZ[i]);
+        temp.subtractLocal(origin).normalizeLocal().multLocal(radialVelocity);
+        if (horizontal) {
+            temp.y = 0;
+        }
+        float vx = initialVelocity.x + temp.x;
+        float vy = initialVelocity.y + temp.y;
+        float vz = initialVelocity.z + temp.z;
+
+        float length = initialVelocity.length();
+        float keep = 1f - velocityVariation;
+        data.velocityX[i] = keep * vx + velocityVariation * (FastMath.nextRandomFloat() * 2f - 1f) * length;
+        data.velocityY[i] = keep * vy + velocityVariation * (FastMath.nextRandomFloat() * 2f - 1f) * length;
+        data.velocityZ[i] = keep * vz + velocityVariation * (FastMath.nextRandomFloat() * 2f - 1f) * length;
+    }
+
     /**
      * the origin used for computing the radial velocity direction
      * @return the origin
@@ -0,0 +1,965 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.export;
+
+import com.jme3.animation.AnimControl;
+import com.jme3.animation.Animation;
+import com.jme3.animation.AudioTrack;
+import com.jme3.animation.Bone;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.CompactQuaternionArray;
+import com.jme3.animation.CompactVector3Array;
+import com.jme3.animation.EffectTrack;
+import com.jme3.animation.Pose;
+import com.jme3.animation.PoseTrack;
+import com.jme3.animation.Skeleton;
+import com.jme3.animation.SkeletonControl;
+import com.jme3.animation.SpatialTrack;
+import com.jme3.animation.TrackInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.FilterKey;
+import com.jme3.asset.MaterialKey;
+import com.jme3.asset.ModelKey;
+import com.jme3.asset.ShaderNodeDefinitionKey;
+import com.jme3.asset.TextureKey;
+import com.jme3.audio.AudioKey;
+import com.jme3.audio.AudioNode;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.cinematic.Cinematic;
+import com.jme3.cinematic.KeyFrame;
+import com.jme3.cinematic.MotionPath;
+import com.jme3.cinematic.TimeLine;
+import com.jme3.cinematic.events.AnimationEvent;
+import com.jme3.cinematic.events.MotionEvent;
+import com.jme3.cinematic.events.SoundEvent;
+import com.jme3.collision.bih.BIHNode;
+import com.jme3.collision.bih.BIHTree;
+import com.jme3.effect.ParticleEmitter;
+import com.jme3.effect.ParticlePointMesh;
+import com.jme3.effect.ParticleTriMesh;
+import com.jme3.effect.influencers.DefaultParticleInfluencer;
+import com.jme3.effect.influencers.EmptyParticleInfluencer;
+import com.jme3.effect.influencers.NewtonianParticleInfluencer;
+import com.jme3.effect.influencers.RadialParticleInfluencer;
+import com.jme3.effect.shapes.EmitterBoxShape;
+import com.jme3.effect.shapes.EmitterMeshConvexHullShape;
+import com.jme3.effect.shapes.EmitterMeshFaceShape;
+import com.jme3.effect.shapes.EmitterMeshVertexShape;
+import com.jme3.effect.shapes.EmitterPointShape;
+import com.jme3.effect.shapes.EmitterSphereShape;
+import com.jme3.environment.util.BoundingSphereDebug;
+import com.jme3.font.BitmapCharacter;
+import com.jme3.font.BitmapCharacterSet;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.Kerning;
+import com.jme3.light.AmbientLight;
+import com.jme3.light.DirectionalLight;
+import com.jme3.light.LightList;
+import com.jme3.light.LightProbe;
+import com.jme3.light.PointLight;
+import com.jme3.light.SpotLight;
+import com.jme3.material.MatParam;
+import com.jme3.material.MatParamOverride;
+import com.jme3.material.MatParamTexture;
+import com.jme3.material.Material;
+import com.jme3.material.RenderStateImpl;
+import com.jme3.material.ShaderGenerationInfo;
+import com.jme3.material.TechniqueDef;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Line;
+import com.jme3.math.LineSegment;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Plane;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Ray;
+import com.jme3.math.Rectangle;
+import com.jme3.math.Ring;
+import com.jme3.math.Spline;
+import com.jme3.math.Transform;
+import com.jme3.math.Triangle;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.math.Vector4f;
+import com.jme3.post.FilterPostProcessor;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.AssetLinkNode;
+import com.jme3.scene.BatchNode;
+import com.jme3.scene.CameraNode;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.LightNode;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.SimpleBatchNode;
+import com.jme3.scene.UserData;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.control.BillboardControl;
+import com.jme3.scene.control.CameraControl;
+import com.jme3.scene.control.LightControl;
+import com.jme3.scene.control.LodControl;
+import com.jme3.scene.control.UpdateControl;
+import com.jme3.scene.debug.Arrow;
+import com.jme3.scene.debug.SkeletonDebugger;
+import com.jme3.scene.debug.WireBox;
+import com.jme3.scene.debug.WireSphere;
+import com.jme3.scene.instancing.InstancedGeometry;
+import com.jme3.scene.instancing.InstancedNode;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Curve;
+import com.jme3.scene.shape.Cylinder;
+import com.jme3.scene.shape.Dome;
+import com.jme3.scene.shape.PQTorus;
+import com.jme3.scene.shape.Quad;
+import com.jme3.scene.shape.Sphere;
+import com.jme3.scene.shape.StripBox;
+import com.jme3.scene.shape.Torus;
+import com.jme3.shader.ShaderNode;
+import com.jme3.shader.ShaderNodeDefinition;
+import com.jme3.shader.VariableMapping;
+import com.jme3.shadow.DirectionalLightShadowRenderer;
+import com.jme3.shadow.PointLightShadowRenderer;
+import com.jme3.shadow.SpotLightShadowRenderer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.Texture3D;
+import com.jme3.texture.TextureArray;
+import com.jme3.texture.TextureCubeMap;
+import com.jme3.ui.Picture;
+
+/**
+ * Registers a {@link SavableFactory} for every engine savable that can be
+ * created with its public no-arg constructor.
+ */
+final class EngineSavables {
+
+    private EngineSavables() {
+    }
+
+    // the deprecated cinematic tracks are named in full, imports of
+    // deprecated classes cannot have their warnings suppressed
+    @SuppressWarnings("deprecation")
+    static void registerAll() {
+        SavableClassUtil.registerFactory(AnimControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new AnimControl();
+            }
+        });
+        SavableClassUtil.registerFactory(Animation.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Animation();
+            }
+        });
+        SavableClassUtil.registerFactory(AudioTrack.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new AudioTrack();
+            }
+        });
+        SavableClassUtil.registerFactory(Bone.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Bone();
+            }
+        });
+        SavableClassUtil.registerFactory(BoneTrack.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BoneTrack();
+            }
+        });
+        SavableClassUtil.registerFactory(CompactQuaternionArray.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new CompactQuaternionArray();
+            }
+        });
+        SavableClassUtil.registerFactory(CompactVector3Array.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new CompactVector3Array();
+            }
+        });
+        SavableClassUtil.registerFactory(EffectTrack.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EffectTrack();
+            }
+        });
+        SavableClassUtil.registerFactory(EffectTrack.KillParticleControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EffectTrack.KillParticleControl();
+            }
+        });
+        SavableClassUtil.registerFactory(Pose.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Pose();
+            }
+        });
+        SavableClassUtil.registerFactory(PoseTrack.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new PoseTrack();
+            }
+        });
+        SavableClassUtil.registerFactory(PoseTrack.PoseFrame.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new PoseTrack.PoseFrame();
+            }
+        });
+        SavableClassUtil.registerFactory(Skeleton.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Skeleton();
+            }
+        });
+        SavableClassUtil.registerFactory(SkeletonControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new SkeletonControl();
+            }
+        });
+        SavableClassUtil.registerFactory(SpatialTrack.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new SpatialTrack();
+            }
+        });
+        SavableClassUtil.registerFactory(TrackInfo.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new TrackInfo();
+            }
+        });
+        SavableClassUtil.registerFactory(AssetKey.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new AssetKey<Object>();
+            }
+        });
+        SavableClassUtil.registerFactory(FilterKey.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new FilterKey();
+            }
+        });
+        SavableClassUtil.registerFactory(MaterialKey.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new MaterialKey();
+            }
+        });
+        SavableClassUtil.registerFactory(ModelKey.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ModelKey();
+            }
+        });
+        SavableClassUtil.registerFactory(ShaderNodeDefinitionKey.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ShaderNodeDefinitionKey();
+            }
+        });
+        SavableClassUtil.registerFactory(TextureKey.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new TextureKey();
+            }
+        });
+        SavableClassUtil.registerFactory(AudioKey.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new AudioKey();
+            }
+        });
+        SavableClassUtil.registerFactory(AudioNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new AudioNode();
+            }
+        });
+        SavableClassUtil.registerFactory(BoundingBox.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BoundingBox();
+            }
+        });
+        SavableClassUtil.registerFactory(BoundingSphere.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BoundingSphere();
+            }
+        });
+        SavableClassUtil.registerFactory(Cinematic.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Cinematic();
+            }
+        });
+        SavableClassUtil.registerFactory(KeyFrame.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new KeyFrame();
+            }
+        });
+        SavableClassUtil.registerFactory(MotionPath.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new MotionPath();
+            }
+        });
+        SavableClassUtil.registerFactory(TimeLine.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new TimeLine();
+            }
+        });
+        SavableClassUtil.registerFactory(AnimationEvent.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new AnimationEvent();
+            }
+        });
+        SavableClassUtil.registerFactory(com.jme3.cinematic.events.AnimationTrack.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new com.jme3.cinematic.events.AnimationTrack();
+            }
+        });
+        SavableClassUtil.registerFactory(MotionEvent.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new MotionEvent();
+            }
+        });
+        SavableClassUtil.registerFactory(com.jme3.cinematic.events.MotionTrack.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new com.jme3.cinematic.events.MotionTrack();
+            }
+        });
+        SavableClassUtil.registerFactory(SoundEvent.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new SoundEvent();
+            }
+        });
+        SavableClassUtil.registerFactory(com.jme3.cinematic.events.SoundTrack.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new com.jme3.cinematic.events.SoundTrack();
+            }
+        });
+        SavableClassUtil.registerFactory(BIHNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BIHNode();
+            }
+        });
+        SavableClassUtil.registerFactory(BIHTree.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BIHTree();
+            }
+        });
+        SavableClassUtil.registerFactory(ParticleEmitter.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ParticleEmitter();
+            }
+        });
+        SavableClassUtil.registerFactory(ParticleEmitter.ParticleEmitterControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ParticleEmitter.ParticleEmitterControl();
+            }
+        });
+        SavableClassUtil.registerFactory(ParticlePointMesh.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ParticlePointMesh();
+            }
+        });
+        SavableClassUtil.registerFactory(ParticleTriMesh.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ParticleTriMesh();
+            }
+        });
+        SavableClassUtil.registerFactory(DefaultParticleInfluencer.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new DefaultParticleInfluencer();
+            }
+        });
+        SavableClassUtil.registerFactory(EmptyParticleInfluencer.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EmptyParticleInfluencer();
+            }
+        });
+        SavableClassUtil.registerFactory(NewtonianParticleInfluencer.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new NewtonianParticleInfluencer();
+            }
+        });
+        SavableClassUtil.registerFactory(RadialParticleInfluencer.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new RadialParticleInfluencer();
+            }
+        });
+        SavableClassUtil.registerFactory(EmitterBoxShape.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EmitterBoxShape();
+            }
+        });
+        SavableClassUtil.registerFactory(EmitterMeshConvexHullShape.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EmitterMeshConvexHullShape();
+            }
+        });
+        SavableClassUtil.registerFactory(EmitterMeshFaceShape.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EmitterMeshFaceShape();
+            }
+        });
+        SavableClassUtil.registerFactory(EmitterMeshVertexShape.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EmitterMeshVertexShape();
+            }
+        });
+        SavableClassUtil.registerFactory(EmitterPointShape.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EmitterPointShape();
+            }
+        });
+        SavableClassUtil.registerFactory(EmitterSphereShape.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new EmitterSphereShape();
+            }
+        });
+        SavableClassUtil.registerFactory(BoundingSphereDebug.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BoundingSphereDebug();
+            }
+        });
+        SavableClassUtil.registerFactory(NullSavable.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new NullSavable();
+            }
+        });
+        SavableClassUtil.registerFactory(BitmapCharacter.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BitmapCharacter();
+            }
+        });
+        SavableClassUtil.registerFactory(BitmapCharacterSet.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BitmapCharacterSet();
+            }
+        });
+        SavableClassUtil.registerFactory(BitmapFont.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BitmapFont();
+            }
+        });
+        SavableClassUtil.registerFactory(Kerning.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Kerning();
+            }
+        });
+        SavableClassUtil.registerFactory(AmbientLight.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new AmbientLight();
+            }
+        });
+        SavableClassUtil.registerFactory(DirectionalLight.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new DirectionalLight();
+            }
+        });
+        SavableClassUtil.registerFactory(LightList.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new LightList();
+            }
+        });
+        SavableClassUtil.registerFactory(LightProbe.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new LightProbe();
+            }
+        });
+        SavableClassUtil.registerFactory(PointLight.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new PointLight();
+            }
+        });
+        SavableClassUtil.registerFactory(SpotLight.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new SpotLight();
+            }
+        });
+        SavableClassUtil.registerFactory(MatParam.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new MatParam();
+            }
+        });
+        SavableClassUtil.registerFactory(MatParamOverride.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new MatParamOverride();
+            }
+        });
+        SavableClassUtil.registerFactory(MatParamTexture.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new MatParamTexture();
+            }
+        });
+        SavableClassUtil.registerFactory(Material.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Material();
+            }
+        });
+        SavableClassUtil.registerFactory(RenderStateImpl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new RenderStateImpl();
+            }
+        });
+        SavableClassUtil.registerFactory(ShaderGenerationInfo.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ShaderGenerationInfo();
+            }
+        });
+        SavableClassUtil.registerFactory(TechniqueDef.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new TechniqueDef();
+            }
+        });
+        SavableClassUtil.registerFactory(ColorRGBA.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ColorRGBA();
+            }
+        });
+        SavableClassUtil.registerFactory(Line.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Line();
+            }
+        });
+        SavableClassUtil.registerFactory(LineSegment.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new LineSegment();
+            }
+        });
+        SavableClassUtil.registerFactory(Matrix3f.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Matrix3f();
+            }
+        });
+        SavableClassUtil.registerFactory(Matrix4f.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Matrix4f();
+            }
+        });
+        SavableClassUtil.registerFactory(Plane.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Plane();
+            }
+        });
+        SavableClassUtil.registerFactory(Quaternion.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Quaternion();
+            }
+        });
+        SavableClassUtil.registerFactory(Ray.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Ray();
+            }
+        });
+        SavableClassUtil.registerFactory(Rectangle.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Rectangle();
+            }
+        });
+        SavableClassUtil.registerFactory(Ring.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Ring();
+            }
+        });
+        SavableClassUtil.registerFactory(Spline.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Spline();
+            }
+        });
+        SavableClassUtil.registerFactory(Transform.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Transform();
+            }
+        });
+        SavableClassUtil.registerFactory(Triangle.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Triangle();
+            }
+        });
+        SavableClassUtil.registerFactory(Vector2f.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Vector2f();
+            }
+        });
+        SavableClassUtil.registerFactory(Vector3f.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Vector3f();
+            }
+        });
+        SavableClassUtil.registerFactory(Vector4f.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Vector4f();
+            }
+        });
+        SavableClassUtil.registerFactory(FilterPostProcessor.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new FilterPostProcessor();
+            }
+        });
+        SavableClassUtil.registerFactory(Camera.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Camera();
+            }
+        });
+        SavableClassUtil.registerFactory(AssetLinkNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new AssetLinkNode();
+            }
+        });
+        SavableClassUtil.registerFactory(BatchNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BatchNode();
+            }
+        });
+        SavableClassUtil.registerFactory(CameraNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new CameraNode();
+            }
+        });
+        SavableClassUtil.registerFactory(Geometry.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Geometry();
+            }
+        });
+        SavableClassUtil.registerFactory(LightNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new LightNode();
+            }
+        });
+        SavableClassUtil.registerFactory(Mesh.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Mesh();
+            }
+        });
+        SavableClassUtil.registerFactory(Node.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Node();
+            }
+        });
+        SavableClassUtil.registerFactory(SimpleBatchNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new SimpleBatchNode();
+            }
+        });
+        SavableClassUtil.registerFactory(UserData.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new UserData();
+            }
+        });
+        SavableClassUtil.registerFactory(VertexBuffer.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new VertexBuffer();
+            }
+        });
+        SavableClassUtil.registerFactory(BillboardControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new BillboardControl();
+            }
+        });
+        SavableClassUtil.registerFactory(CameraControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new CameraControl();
+            }
+        });
+        SavableClassUtil.registerFactory(LightControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new LightControl();
+            }
+        });
+        SavableClassUtil.registerFactory(LodControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new LodControl();
+            }
+        });
+        SavableClassUtil.registerFactory(UpdateControl.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new UpdateControl();
+            }
+        });
+        SavableClassUtil.registerFactory(Arrow.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Arrow();
+            }
+        });
+        SavableClassUtil.registerFactory(SkeletonDebugger.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new SkeletonDebugger();
+            }
+        });
+        SavableClassUtil.registerFactory(WireBox.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new WireBox();
+            }
+        });
+        SavableClassUtil.registerFactory(WireSphere.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new WireSphere();
+            }
+        });
+        SavableClassUtil.registerFactory(InstancedGeometry.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new InstancedGeometry();
+            }
+        });
+        SavableClassUtil.registerFactory(InstancedNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new InstancedNode();
+            }
+        });
+        SavableClassUtil.registerFactory(Box.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Box();
+            }
+        });
+        SavableClassUtil.registerFactory(Curve.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Curve();
+            }
+        });
+        SavableClassUtil.registerFactory(Cylinder.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Cylinder();
+            }
+        });
+        SavableClassUtil.registerFactory(Dome.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Dome();
+            }
+        });
+        SavableClassUtil.registerFactory(com.jme3.scene.shape.Line.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new com.jme3.scene.shape.Line();
+            }
+        });
+        SavableClassUtil.registerFactory(PQTorus.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new PQTorus();
+            }
+        });
+        SavableClassUtil.registerFactory(Quad.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Quad();
+            }
+        });
+        SavableClassUtil.registerFactory(Sphere.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Sphere();
+            }
+        });
+        SavableClassUtil.registerFactory(StripBox.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new StripBox();
+            }
+        });
+        SavableClassUtil.registerFactory(Torus.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Torus();
+            }
+        });
+        SavableClassUtil.registerFactory(ShaderNode.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ShaderNode();
+            }
+        });
+        SavableClassUtil.registerFactory(ShaderNodeDefinition.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new ShaderNodeDefinition();
+            }
+        });
+        SavableClassUtil.registerFactory(VariableMapping.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new VariableMapping();
+            }
+        });
+        SavableClassUtil.registerFactory(DirectionalLightShadowRenderer.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new DirectionalLightShadowRenderer();
+            }
+        });
+        SavableClassUtil.registerFactory(PointLightShadowRenderer.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new PointLightShadowRenderer();
+            }
+        });
+        SavableClassUtil.registerFactory(SpotLightShadowRenderer.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new SpotLightShadowRenderer();
+            }
+        });
+        SavableClassUtil.registerFactory(Image.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Image();
+            }
+        });
+        SavableClassUtil.registerFactory(Texture2D.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Texture2D();
+            }
+        });
+        SavableClassUtil.registerFactory(Texture3D.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Texture3D();
+            }
+        });
+        SavableClassUtil.registerFactory(TextureArray.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new TextureArray();
+            }
+        });
+        SavableClassUtil.registerFactory(TextureCubeMap.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new TextureCubeMap();
+            }
+        });
+        SavableClassUtil.registerFactory(Picture.class, new SavableFactory() {
+            @Override
+            public Savable newInstance() {
+                return new Picture();
+            }
+        });
+    }
+}
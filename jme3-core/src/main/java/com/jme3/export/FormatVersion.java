@@ -39,9 +39,16 @@ package com.jme3.export;
 public final class FormatVersion {
     
     /**
-     * Version number of the format
+     * Version number of the format, the latest version that can be read.
+     * <p>
+     * Version 3 writes the objects first, in compressed chunks, followed by
+     * the class and location tables, so that files can be written in a
+     * single pass. Older versions hold the tables first and the object data
+     * uncompressed. The {@link com.jme3.export.binary.BinaryExporter} writes
+     * version 2 unless asked otherwise, so that files can be read by released
+     * engines.
      */
-    public static final int VERSION = 2;
+    public static final int VERSION = 3;
     
     /**
      * Signature of the format. Currently "JME3" as ASCII
@@ -45,6 +45,7 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +55,10 @@ import java.util.logging.Logger;
  * particular implementation.
  * Currently it will remap any classes from old paths to new paths
  * so that old J3O models can still be loaded.
+ * <p>
+ * Savables are created through the {@link SavableFactory} registered for
+ * their class name when there is one, all engine savables have one. Other
+ * classes are looked up and instantiated through reflection.
  *
  * @author mpowell
  * @author Kirill Vainer
@@ -61,6 +66,8 @@ import java.util.logging.Logger;
 public class SavableClassUtil {
 
     private final static HashMap<String, String> CLASS_REMAPPINGS = new HashMap<>();
+    private final static ConcurrentHashMap<String, SavableFactory> FACTORIES = new ConcurrentHashMap<>();
+    private final static ConcurrentHashMap<Class<?>, int[]> VERSIONS = new ConcurrentHashMap<>();
     
     private static void addRemapping(String oldClass, Class<? extends Savable> newClass){
         CLASS_REMAPPINGS.put(oldClass, newClass.getName());
@@ -77,9 +84,11 @@ public class SavableClassUtil {
         addRemapping("com.jme3.animation.BoneAnimation", Animation.class);
         addRemapping("com.jme3.animation.SpatialAnimation", Animation.class);
         addRemapping("com.jme3.scene.plugins.blender.objects.Properties", NullSavable.class);
+
+        EngineSavables.registerAll();
     }
     
-    private static String remapClass(String className) throws ClassNotFoundException {
+    private static String remapClass(String className) {
         String result = CLASS_REMAPPINGS.get(className);
         if (result == null) {
             return className;
@@ -93,7 +102,56 @@ public class SavableClassUtil {
         return result;
     }
 
+    /**
+     * Registers a factory used to create the savables saved with the given
+     * class name, replacing any factory previously registered for it.
+     * 
+     * @param className the class name, as written in the binary files.
+     * @param factory the factory creating instances of the class.
+     */
+    public static void registerFactory(String className, SavableFactory factory) {
+        if (className == null || factory == null) {
+            throw new IllegalArgumentException("className and factory cannot be null");
+        }
+        FACTORIES.put(className, factory);
+    }
+
+    /**
+     * Registers a factory used to create the savables of the given class.
+     * 
+     * @see #registerFactory(java.lang.String, com.jme3.export.SavableFactory) 
+     */
+    public static void registerFactory(Class<? extends Savable> clazz, SavableFactory factory) {
+        registerFactory(clazz.getName(), factory);
+    }
+
+    /**
+     * Removes the factory registered for the given class name, the class
+     * will be instantiated through reflection again.
+     * 
+     * @param className the class name.
+     * @return the factory that was registered, or null if there was none.
+     */
+    public static SavableFactory unregisterFactory(String className) {
+        return FACTORIES.remove(className);
+    }
+
+    /**
+     * Returns the factory for the given class name, after remapping
+     * old class names.
+     * 
+     * @param className the class name, as written in the binary files.
+     * @return the factory, or null if there is none registered for the class.
+     */
+    public static SavableFactory getFactory(String className) {
+        return FACTORIES.get(remapClass(className));
+    }
+
     public static int[] getSavableVersions(Class<? extends Savable> clazz) throws IOException{
+        int[] cached = VERSIONS.get(clazz);
+        if (cached != null) {
+            return cached.clone();
+        }
         ArrayList<Integer> versionList = new ArrayList<Integer>();
         Class superclass = clazz;
         do {
@@ -105,6 +163,7 @@ public class SavableClassUtil {
         for (int i = 0; i < versionList.size(); i++){
             versions[i] = versionList.get(i);
         }
+        VERSIONS.put(clazz, versions.clone());
         return versions;
     }
     
@@ -159,9 +218,9 @@ public class SavableClassUtil {
     }
     
     /**
-     * fromName creates a new Savable from the provided class name. First registered modules
-     * are checked to handle special cases, if the modules do not handle the class name, the
-     * class is instantiated directly. 
+     * fromName creates a new Savable from the provided class name. First registered factories
+     * are checked, if there is no factory for the class name, the class is instantiated
+     * directly. 
      * @param className the class name to create.
      * @return the Savable instance of the class.
      * @throws InstantiationException thrown if the class does not have an empty constructor.
@@ -172,9 +231,49 @@ public class SavableClassUtil {
     public static Savable fromName(String className) throws InstantiationException,
             IllegalAccessException, ClassNotFoundException, IOException {
 
+        SavableFactory factory = getFactory(className);
+        if (factory != null) {
+            return factory.newInstance();
+        }
+        return newInstance(Class.forName(remapClass(className)));
+    }
+
+    /**
+     * Finds the class for the provided class name, remapping old class names.
+     * The class loaders are searched in order before the default one.
+     * 
+     * @param className the class name to find.
+     * @param loaders the class loaders to search, can be null.
+     * @return the class.
+     * @throws ClassNotFoundException thrown if the class name is not in the classpath.
+     */
+    public static Class<?> findClass(String className, List<ClassLoader> loaders) throws ClassNotFoundException {
         className = remapClass(className);
+        if (loaders != null) {
+            synchronized (loaders) {
+                for (ClassLoader classLoader : loaders) {
+                    try {
+                        return classLoader.loadClass(className);
+                    } catch (ClassNotFoundException e) {
+                    }
+                }
+            }
+        }
+        return Class.forName(className);
+    }
+
+    /**
+     * Creates a new Savable of the provided class through reflection.
+     * 
+     * @param clazz the class to instantiate.
+     * @return the Savable instance of the class.
+     * @throws InstantiationException thrown if the class does not have an empty constructor.
+     * @throws IllegalAccessException thrown if the class is not accessable.
+     */
+    public static Savable newInstance(Class<?> clazz) throws InstantiationException, IllegalAccessException {
+        String className = clazz.getName();
         try {
-            return (Savable) Class.forName(className).newInstance();
+            return (Savable) clazz.newInstance();
         } catch (InstantiationException e) {
             Logger.getLogger(SavableClassUtil.class.getName()).log(
                     Level.SEVERE, "Could not access constructor of class ''{0}" + "''! \n"
@@ -193,6 +292,11 @@ public class SavableClassUtil {
         if (loaders == null) {
             return fromName(className);
         }
+
+        SavableFactory factory = getFactory(className);
+        if (factory != null) {
+            return factory.newInstance();
+        }
         
         String newClassName = remapClass(className);
         synchronized(loaders) {
@@ -0,0 +1,600 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.light;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.math.FastMath;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.util.TempVars;
+import com.jme3.util.WorkerPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@link LightFilter} that assigns lights to a clustered grid.
+ * <p>
+ * The view frustum of the camera is split into a grid of clusters, tiles
+ * on screen and exponential slices in depth. Point and spot lights are 
+ * inserted into every cluster their range overlaps, the grid is built once
+ * per {@link #setCamera(com.jme3.renderer.Camera) camera} and filled in
+ * parallel on the {@link WorkerPool}. Filtering a geometry then merges the
+ * clusters its bound overlaps, and only the lights found there are tested
+ * against the bound exactly. Lights that don't intersect the frustum are
+ * never inserted.
+ * <p>
+ * The lights of a geometry are looked up through the nearest spatial above
+ * it, or the geometry itself, that has local lights: its world light list
+ * holds the same lights as the one of the geometry. The world light lists
+ * of geometries are therefore not read, nor sorted, while filtering. The
+ * filtered lists hold the same lights as with {@link DefaultLightFilter}, 
+ * sorted by distance to the geometry. Geometries whose bound is not inside
+ * the view frustum, or covers many clusters, are tested against all their
+ * lights.
+ * <p>
+ * All state is kept by the filter, lights may be shared between scenes
+ * and filters.
+ */
+public final class ClusteredLightFilter implements LightFilter {
+
+    private static final int MIN_PARALLEL_LIGHTS = 64;
+    private static final int MIN_CLUSTERED_LIGHTS = 8;
+    // merging more clusters costs more than testing the lights
+    private static final int MAX_MERGED_CLUSTERS = 256;
+
+    private final int tilesX;
+    private final int tilesY;
+    private final int slices;
+    private final LightProbeBlendingStrategy probeBlendStrat;
+
+    private Camera camera;
+    private boolean gridValid;
+    private int numLights;
+    private int words;
+    private long[] clusters;
+    private long[] mask;
+    private Light[] lights = new Light[16];
+    private boolean[] global = new boolean[16];
+    private boolean[] inFrustum = new boolean[16];
+    // the lights in the frustum and the lights that are not clustered
+    private long[] frustumBits = new long[1];
+    private long[] globalBits = new long[1];
+    // view space bounds of the lights in the grid: center x, y, depth, radius
+    private float[] bounds = new float[64];
+
+    // open addressing table from light to its index in the grid
+    private Light[] indexKeys = new Light[32];
+    private int[] indexValues = new int[32];
+
+    // bit sets of the lights in the world light list of each light scope
+    private final IdentityHashMap<Spatial, long[]> scopes = new IdentityHashMap<Spatial, long[]>();
+    private final ArrayList<long[]> scopePool = new ArrayList<long[]>();
+    private int scopesUsed;
+
+    private Light[] sorted = new Light[16];
+
+    private final Matrix4f viewMatrix = new Matrix4f();
+    private boolean parallelProjection;
+    private float near, far, logDepthScale;
+    private float left, right, bottom, top;
+
+    /**
+     * Creates a filter with a grid of 16 by 9 tiles and 24 depth slices.
+     */
+    public ClusteredLightFilter() {
+        this(16, 9, 24, new BasicProbeBlendingStrategy());
+    }
+
+    /**
+     * Creates a filter.
+     * 
+     * @param tilesX The number of clusters along the screen width.
+     * @param tilesY The number of clusters along the screen height.
+     * @param slices The number of clusters along the depth.
+     * @param probeBlendStrat The strategy used to blend light probes.
+     */
+    public ClusteredLightFilter(int tilesX, int tilesY, int slices, LightProbeBlendingStrategy probeBlendStrat) {
+        if (tilesX <= 0 || tilesY <= 0 || slices <= 0) {
+            throw new IllegalArgumentException("Grid size must be positive");
+        }
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.slices = slices;
+        this.probeBlendStrat = probeBlendStrat;
+    }
+
+    public int getTilesX() {
+        return tilesX;
+    }
+
+    public int getTilesY() {
+        return tilesY;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    /**
+     * @return The number of lights added to the grid since the camera was set.
+     */
+    public int getNumLights() {
+        return numLights;
+    }
+
+    @Override
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+        // lights and camera may have moved, rebuild on first use
+        gridValid = false;
+    }
+
+    @Override
+    public void filterLights(Geometry geometry, LightList filteredLightList) {
+        Spatial scope = lightScope(geometry);
+        if (!gridValid) {
+            buildGrid(scope.getWorldLightList());
+        }
+
+        TempVars vars = TempVars.get();
+        try {
+            long[] scopeBits = scopeBits(scope, vars);
+
+            BoundingVolume bv = geometry.getWorldBound();
+            boolean infinite = bv instanceof BoundingSphere
+                    && Float.isInfinite(((BoundingSphere) bv).getRadius());
+            // bounds that are not inside the grid test all lights, as do
+            // geometries with few lights
+            boolean clustered = !infinite && geometry.getWorldLightList().size() >= MIN_CLUSTERED_LIGHTS
+                    && collectClusters(bv, vars);
+
+            int count = 0;
+            int n = Math.min(scopeBits.length, frustumBits.length);
+            for (int k = 0; k < n; k++) {
+                long bits = scopeBits[k] & frustumBits[k];
+                if (clustered) {
+                    bits &= mask[k] | globalBits[k];
+                }
+                while (bits != 0) {
+                    int index = (k << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    Light light = lights[index];
+
+                    // If this light is not enabled it will be ignored.
+                    if (!light.isEnabled()) {
+                        continue;
+                    }
+                    if (!infinite) {
+                        if (bv instanceof BoundingBox) {
+                            if (!light.intersectsBox((BoundingBox) bv, vars)) {
+                                continue;
+                            }
+                        } else if (bv instanceof BoundingSphere) {
+                            if (!light.intersectsSphere((BoundingSphere) bv, vars)) {
+                                continue;
+                            }
+                        }
+                    }
+
+                    if (light.getType() == Light.Type.Probe) {
+                        probeBlendStrat.registerProbe((LightProbe) light);
+                    } else {
+                        if (count == sorted.length) {
+                            sorted = Arrays.copyOf(sorted, count * 2);
+                        }
+                        sorted[count++] = light;
+                    }
+                }
+            }
+
+            // sorts the few filtered lights by distance like the world
+            // light lists are sorted
+            for (int i = 0; i < count; i++) {
+                sorted[i].computeLastDistance(geometry);
+            }
+            for (int i = 1; i < count; i++) {
+                Light light = sorted[i];
+                int j = i - 1;
+                while (j >= 0 && sorted[j].lastDistance > light.lastDistance) {
+                    sorted[j + 1] = sorted[j];
+                    j--;
+                }
+                sorted[j + 1] = light;
+            }
+            for (int i = 0; i < count; i++) {
+                filteredLightList.add(sorted[i]);
+                sorted[i] = null;
+            }
+
+            probeBlendStrat.populateProbes(geometry, filteredLightList);
+        } finally {
+            vars.release();
+        }
+    }
+
+    // the nearest spatial with local lights, its world light list holds
+    // the same lights as the one of the geometry
+    private static Spatial lightScope(Geometry geometry) {
+        Spatial scope = geometry;
+        while (scope.getLocalLightList().size() == 0 && scope.getParent() != null) {
+            scope = scope.getParent();
+        }
+        return scope;
+    }
+
+    // returns the bit set of the lights of the scope, adding the lights
+    // that are not in the grid yet
+    private long[] scopeBits(Spatial scope, TempVars vars) {
+        long[] bits = scopes.get(scope);
+        if (bits != null) {
+            return bits;
+        }
+        LightList scopeLights = scope.getWorldLightList();
+        for (int i = 0; i < scopeLights.size(); i++) {
+            Light light = scopeLights.get(i);
+            if (indexOf(light) < 0) {
+                addLight(light, vars);
+            }
+        }
+
+        if (scopesUsed < scopePool.size() && scopePool.get(scopesUsed).length >= words) {
+            bits = scopePool.get(scopesUsed);
+            Arrays.fill(bits, 0L);
+        } else {
+            bits = new long[words];
+            if (scopesUsed < scopePool.size()) {
+                scopePool.set(scopesUsed, bits);
+            } else {
+                scopePool.add(bits);
+            }
+        }
+        scopesUsed++;
+        for (int i = 0; i < scopeLights.size(); i++) {
+            int index = indexOf(scopeLights.get(i));
+            bits[index >>> 6] |= 1L << index;
+        }
+        scopes.put(scope, bits);
+        return bits;
+    }
+
+    private int indexOf(Light light) {
+        int m = indexKeys.length - 1;
+        for (int i = hash(light) & m; indexKeys[i] != null; i = (i + 1) & m) {
+            if (indexKeys[i] == light) {
+                return indexValues[i];
+            }
+        }
+        return -1;
+    }
+
+    private void putIndex(Light light, int index) {
+        if (index * 2 >= indexKeys.length) {
+            // rehash the lights of the grid into a larger table
+            indexKeys = new Light[indexKeys.length * 2];
+            indexValues = new int[indexKeys.length];
+            for (int i = 0; i < index; i++) {
+                putIndex(lights[i], i);
+            }
+        }
+        int m = indexKeys.length - 1;
+        int i = hash(light) & m;
+        while (indexKeys[i] != null) {
+            i = (i + 1) & m;
+        }
+        indexKeys[i] = light;
+        indexValues[i] = index;
+    }
+
+    private static int hash(Light light) {
+        int h = System.identityHashCode(light);
+        return h ^ (h >>> 16);
+    }
+
+    private void buildGrid(LightList initialLights) {
+        gridValid = true;
+        Arrays.fill(lights, 0, numLights, null);
+        Arrays.fill(indexKeys, null);
+        numLights = 0;
+        scopes.clear();
+        scopesUsed = 0;
+
+        viewMatrix.set(camera.getViewMatrix());
+        parallelProjection = camera.isParallelProjection();
+        near = camera.getFrustumNear();
+        far = camera.getFrustumFar();
+        logDepthScale = slices / FastMath.log(far / near);
+        left = camera.getFrustumLeft();
+        right = camera.getFrustumRight();
+        bottom = camera.getFrustumBottom();
+        top = camera.getFrustumTop();
+
+        TempVars vars = TempVars.get();
+        for (int i = 0; i < initialLights.size(); i++) {
+            Light light = initialLights.get(i);
+            if (indexOf(light) < 0) {
+                prepareLight(light, vars);
+            }
+        }
+        vars.release();
+
+        words = Math.max(1, (numLights + 63) >>> 6);
+        int size = tilesX * tilesY * slices * words;
+        if (clusters == null || clusters.length < size) {
+            clusters = new long[size];
+        } else {
+            Arrays.fill(clusters, 0, size, 0L);
+        }
+        if (mask == null || mask.length < words) {
+            mask = new long[words];
+        }
+
+        SliceTask task = new SliceTask(0, slices, 0, numLights);
+        if (numLights >= MIN_PARALLEL_LIGHTS) {
+            WorkerPool.get().invoke(task);
+        } else {
+            task.fill();
+        }
+    }
+
+    // adds a light referenced after the grid was built
+    private void addLight(Light light, TempVars vars) {
+        int index = prepareLight(light, vars);
+        int needed = (numLights + 63) >>> 6;
+        if (needed > words) {
+            // grow the bit sets of all clusters
+            int numClusters = tilesX * tilesY * slices;
+            int newWords = Math.max(needed, words * 2);
+            long[] grown = new long[numClusters * newWords];
+            for (int c = 0; c < numClusters; c++) {
+                System.arraycopy(clusters, c * words, grown, c * newWords, words);
+            }
+            clusters = grown;
+            words = newWords;
+            mask = new long[words];
+        }
+        new SliceTask(0, slices, index, index + 1).fill();
+    }
+
+    // registers the light and computes its view space bounds
+    private int prepareLight(Light light, TempVars vars) {
+        int index = numLights++;
+        if (index == lights.length) {
+            int capacity = index * 2;
+            lights = Arrays.copyOf(lights, capacity);
+            global = Arrays.copyOf(global, capacity);
+            inFrustum = Arrays.copyOf(inFrustum, capacity);
+            bounds = Arrays.copyOf(bounds, capacity * 4);
+        }
+        int word = index >>> 6;
+        if (word == frustumBits.length) {
+            frustumBits = Arrays.copyOf(frustumBits, word * 2);
+            globalBits = Arrays.copyOf(globalBits, word * 2);
+        }
+        if ((index & 63) == 0) {
+            frustumBits[word] = 0L;
+            globalBits[word] = 0L;
+        }
+        lights[index] = light;
+        putIndex(light, index);
+        inFrustum[index] = light.intersectsFrustum(camera, vars);
+
+        Vector3f position;
+        float radius;
+        if (light instanceof PointLight) {
+            position = ((PointLight) light).getPosition();
+            radius = ((PointLight) light).getRadius();
+        } else if (light instanceof SpotLight) {
+            position = ((SpotLight) light).getPosition();
+            radius = ((SpotLight) light).getSpotRange();
+        } else {
+            position = null;
+            radius = 0;
+        }
+        global[index] = position == null || radius == 0;
+        if (!global[index]) {
+            Vector3f center = viewMatrix.mult(position, vars.vect1);
+            bounds[index * 4] = center.x;
+            bounds[index * 4 + 1] = center.y;
+            bounds[index * 4 + 2] = -center.z;
+            bounds[index * 4 + 3] = radius;
+        }
+        if (inFrustum[index]) {
+            frustumBits[word] |= 1L << index;
+        }
+        if (global[index]) {
+            globalBits[word] |= 1L << index;
+        }
+        return index;
+    }
+
+    // merges the bit sets of the clusters overlapped by the bound into
+    // mask, returns false if the bound is not inside the grid
+    private boolean collectClusters(BoundingVolume bv, TempVars vars) {
+        if (bv == null) {
+            return false;
+        }
+
+        Vector3f center = viewMatrix.mult(bv.getCenter(), vars.vect1);
+        float ex, ey, ez;
+        if (bv instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bv;
+            Matrix4f m = viewMatrix;
+            float bx = box.getXExtent(), by = box.getYExtent(), bz = box.getZExtent();
+            ex = FastMath.abs(m.m00) * bx + FastMath.abs(m.m01) * by + FastMath.abs(m.m02) * bz;
+            ey = FastMath.abs(m.m10) * bx + FastMath.abs(m.m11) * by + FastMath.abs(m.m12) * bz;
+            ez = FastMath.abs(m.m20) * bx + FastMath.abs(m.m21) * by + FastMath.abs(m.m22) * bz;
+        } else if (bv instanceof BoundingSphere) {
+            ex = ey = ez = ((BoundingSphere) bv).getRadius();
+        } else {
+            return false;
+        }
+
+        float d0 = -center.z - ez;
+        float d1 = -center.z + ez;
+        if (d0 < near || d1 > far) {
+            return false;
+        }
+        int tx0 = tile(screenMin(center.x - ex, d0, d1), left, right, tilesX);
+        int tx1 = tile(screenMax(center.x + ex, d0, d1), left, right, tilesX);
+        int ty0 = tile(screenMin(center.y - ey, d0, d1), bottom, top, tilesY);
+        int ty1 = tile(screenMax(center.y + ey, d0, d1), bottom, top, tilesY);
+        if (tx0 < 0 || ty0 < 0 || tx1 >= tilesX || ty1 >= tilesY) {
+            return false;
+        }
+        int s0 = slice(d0), s1 = slice(d1);
+        if ((s1 - s0 + 1) * (ty1 - ty0 + 1) * (tx1 - tx0 + 1) > MAX_MERGED_CLUSTERS) {
+            return false;
+        }
+
+        Arrays.fill(mask, 0, words, 0L);
+
+        long[] c = clusters;
+        int w = words;
+        for (int s = s0; s <= s1; s++) {
+            for (int y = ty0; y <= ty1; y++) {
+                int base = ((s * tilesY + y) * tilesX + tx0) * w;
+                for (int x = tx0; x <= tx1; x++, base += w) {
+                    for (int k = 0; k < w; k++) {
+                        mask[k] |= c[base + k];
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private int slice(float depth) {
+        int s = (int) (FastMath.log(depth / near) * logDepthScale);
+        return Math.max(0, Math.min(slices - 1, s));
+    }
+
+    private float sliceNear(int s) {
+        return near * FastMath.exp(s / logDepthScale);
+    }
+
+    // smallest position on the near plane of a view space coordinate
+    // between the depths d0 and d1
+    private float screenMin(float v, float d0, float d1) {
+        if (parallelProjection) {
+            return v;
+        }
+        return Math.min(near * v / d0, near * v / d1);
+    }
+
+    private float screenMax(float v, float d0, float d1) {
+        if (parallelProjection) {
+            return v;
+        }
+        return Math.max(near * v / d0, near * v / d1);
+    }
+
+    // tile index of a position on the near plane, -1 if the position
+    // is before the first tile and count if after the last
+    private static int tile(float v, float min, float max, int count) {
+        float t = (v - min) / (max - min) * count;
+        if (t < 0) {
+            return -1;
+        }
+        return Math.min(count, (int) t);
+    }
+
+    /**
+     * Inserts a range of lights into a range of depth slices. Slices are
+     * split between tasks so that each task writes its own clusters.
+     */
+    private final class SliceTask extends RecursiveAction {
+
+        static final long serialVersionUID = 1;
+
+        private final int sliceStart, sliceEnd;
+        private final int lightStart, lightEnd;
+
+        SliceTask(int sliceStart, int sliceEnd, int lightStart, int lightEnd) {
+            this.sliceStart = sliceStart;
+            this.sliceEnd = sliceEnd;
+            this.lightStart = lightStart;
+            this.lightEnd = lightEnd;
+        }
+
+        @Override
+        protected void compute() {
+            if (sliceEnd - sliceStart > 1) {
+                int mid = (sliceStart + sliceEnd) >>> 1;
+                invokeAll(new SliceTask(sliceStart, mid, lightStart, lightEnd),
+                        new SliceTask(mid, sliceEnd, lightStart, lightEnd));
+            } else {
+                fill();
+            }
+        }
+
+        void fill() {
+            long[] c = clusters;
+            int w = words;
+            for (int s = sliceStart; s < sliceEnd; s++) {
+                float sNear = s == 0 ? near : sliceNear(s);
+                float sFar = s == slices - 1 ? far : sliceNear(s + 1);
+                for (int i = lightStart; i < lightEnd; i++) {
+                    if (global[i] || !inFrustum[i]) {
+                        continue;
+                    }
+                    float cx = bounds[i * 4], cy = bounds[i * 4 + 1];
+                    float cd = bounds[i * 4 + 2], r = bounds[i * 4 + 3];
+                    float d0 = Math.max(cd - r, sNear);
+                    float d1 = Math.min(cd + r, sFar);
+                    if (d0 > d1) {
+                        continue;
+                    }
+                    int tx0 = Math.max(0, tile(screenMin(cx - r, d0, d1), left, right, tilesX));
+                    int tx1 = Math.min(tilesX - 1, tile(screenMax(cx + r, d0, d1), left, right, tilesX));
+                    int ty0 = Math.max(0, tile(screenMin(cy - r, d0, d1), bottom, top, tilesY));
+                    int ty1 = Math.min(tilesY - 1, tile(screenMax(cy + r, d0, d1), bottom, top, tilesY));
+                    long bit = 1L << i;
+                    int word = i >>> 6;
+                    for (int y = ty0; y <= ty1; y++) {
+                        int base = ((s * tilesY + y) * tilesX + tx0) * w + word;
+                        for (int x = tx0; x <= tx1; x++, base += w) {
+                            c[base] |= bit;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
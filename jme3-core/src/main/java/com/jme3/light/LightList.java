@@ -61,6 +61,8 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
     private float[] distToOwner;
     private int listSize;
     private Spatial owner;
+    private boolean sortNeeded;
+    private boolean distancesNeeded;
 
     private static final int DEFAULT_SIZE = 1;
 
@@ -121,6 +123,7 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
      *            The light to add.
      */
     public void add(Light l) {
+        ensureSorted();
         if (listSize == list.length) {
             doubleSize();
         }
@@ -137,6 +140,7 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
         if (index >= listSize || index < 0)
             throw new IndexOutOfBoundsException();
 
+        ensureSorted();
         listSize --;
         if (index == listSize){
             list[listSize] = null;
@@ -155,6 +159,8 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
      * @param l the light to remove
      */
     public void remove(Light l){
+        // remove(int) sorts first, find the index in the sorted list
+        ensureSorted();
         for (int i = 0; i < listSize; i++){
             if (list[i] == l){
                 remove(i);
@@ -178,6 +184,7 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
         if (num >= listSize || num < 0)
             throw new IndexOutOfBoundsException();
 
+        ensureSorted();
         return list[num];
     }
 
@@ -185,6 +192,8 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
      * Resets list size to 0.
      */
     public void clear() {
+        sortNeeded = false;
+        distancesNeeded = false;
         if (listSize == 0)
             return;
 
@@ -204,12 +213,25 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
      * the spatial changed.
      * Second, if the spatial itself moved, it means the distance from it to
      * the individual lights might have changed.
-     *
+     * <p>
+     * The list is sorted the next time its lights are accessed, lists 
+     * that are only filtered through the scene graph, e.g. by a 
+     * {@link ClusteredLightFilter}, are never sorted.
      *
      * @param transformChanged Whether the spatial's transform has changed
      */
     public void sort(boolean transformChanged) {
         if (listSize > 1) {
+            sortNeeded = true;
+            distancesNeeded |= transformChanged;
+        }
+    }
+
+    private void ensureSorted() {
+        if (sortNeeded) {
+            boolean transformChanged = distancesNeeded;
+            sortNeeded = false;
+            distancesNeeded = false;
             // resize or populate our temporary array as necessary
             if (tlist == null || tlist.length != list.length) {
                 tlist = list.clone();
@@ -277,6 +299,7 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
      * @return an iterator that can be used to iterate over this LightList.
      */
     public Iterator<Light> iterator() {
+        ensureSorted();
         return new Iterator<Light>(){
 
             int index = 0;
@@ -301,6 +324,7 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
     @Override
     public LightList clone(){
         try{
+            ensureSorted();
             LightList clone = (LightList) super.clone();
 
             clone.owner = null;
@@ -317,6 +341,7 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
     @Override
     public LightList jmeClone() {
         try{
+            ensureSorted();
             LightList clone = (LightList)super.clone();
             clone.tlist = null; // list used for sorting only
             return clone;
@@ -335,6 +360,7 @@ public final class LightList implements Iterable<Light>, Savable, Cloneable, Jme
     public void write(JmeExporter ex) throws IOException {
         OutputCapsule oc = ex.getCapsule(this);
 //        oc.write(owner, "owner", null);
+        ensureSorted();
 
         ArrayList<Light> lights = new ArrayList<Light>();
         for (int i = 0; i < listSize; i++){
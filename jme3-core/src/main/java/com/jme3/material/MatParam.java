@@ -44,6 +44,7 @@ import com.jme3.math.Quaternion;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.math.Vector4f;
+import com.jme3.shader.Shader;
 import com.jme3.shader.VarType;
 import com.jme3.texture.Texture;
 import com.jme3.texture.Texture.WrapMode;
@@ -62,6 +63,11 @@ public class MatParam implements Savable, Cloneable {
     protected String name;
     protected String prefixedName;
     protected Object value;
+    private transient int uniformSlot = -1;
+    /**
+     * The material holding this parameter, told about value changes.
+     */
+    transient Material owner;
 
     /**
      * Create a new material parameter. For internal use only.
@@ -105,6 +111,20 @@ public class MatParam implements Savable, Cloneable {
         return prefixedName;
     }
 
+    /**
+     * Returns the {@link Shader#getUniformSlot(java.lang.String) uniform slot}
+     * of the prefixed name, used to find the uniform for this parameter
+     * without a name lookup.
+     *
+     * @return the uniform slot of this parameter
+     */
+    public int getUniformSlot() {
+        if (uniformSlot == -1) {
+            uniformSlot = Shader.getUniformSlot(prefixedName);
+        }
+        return uniformSlot;
+    }
+
     /**
      * Used internally
      * @param name
@@ -112,6 +132,7 @@ public class MatParam implements Savable, Cloneable {
     void setName(String name) {
         this.name = name;
         this.prefixedName = "m_" + name;
+        this.uniformSlot = -1;
     }
 
     /**
@@ -137,6 +158,16 @@ public class MatParam implements Savable, Cloneable {
      */
     public void setValue(Object value) {
         this.value = value;
+        valueChanged();
+    }
+
+    /**
+     * Tells the material holding this parameter that the value changed.
+     */
+    protected void valueChanged() {
+        if (owner != null) {
+            owner.paramValueChanged();
+        }
     }
 
 
@@ -298,6 +329,7 @@ When arrays can be inserted in J3M files
     public MatParam clone() {
         try {
             MatParam param = (MatParam) super.clone();
+            param.owner = null;
             return param;
         } catch (CloneNotSupportedException ex) {
             throw new AssertionError();
@@ -330,6 +362,7 @@ When arrays can be inserted in J3M files
         type = ic.readEnum("varType", VarType.class, null);
         name = ic.readString("name", null);
         prefixedName = "m_" + name;
+        uniformSlot = -1;
         switch (getVarType()) {
             case Boolean:
                 value = ic.readBoolean("value_bool", false);
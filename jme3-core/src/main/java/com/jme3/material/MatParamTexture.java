@@ -62,6 +62,7 @@ public class MatParamTexture extends MatParam {
     public void setTextureValue(Texture value) {
         this.value = value;
         this.texture = value;
+        valueChanged();
     }
     
     @Override
@@ -71,6 +72,7 @@ public class MatParamTexture extends MatParam {
         }
         this.value = value;
         this.texture = (Texture) value;
+        valueChanged();
     }
 
     /**
@@ -57,6 +57,8 @@ import com.jme3.scene.Geometry;
 import com.jme3.shader.Shader;
 import com.jme3.shader.Uniform;
 import com.jme3.shader.UniformBindingManager;
+import com.jme3.shader.UniformBlock;
+import com.jme3.shader.UniformBlockLayout;
 import com.jme3.shader.VarType;
 import com.jme3.texture.Image;
 import com.jme3.texture.Texture;
@@ -65,6 +67,7 @@ import com.jme3.util.ListMap;
 import com.jme3.util.SafeArrayList;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -102,6 +105,19 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
     private boolean receivesShadows = false;
     private int sortingId = -1;
 
+    /**
+     * Incremented whenever a parameter is set, cleared or its value changed
+     * through {@link MatParam#setValue(java.lang.Object)}, used to skip
+     * re-applying parameters that cannot have changed since the last time
+     * this material was rendered with the same shader.
+     */
+    private int paramsVersion = 0;
+
+    /**
+     * Data of the {@link UniformBlock#Material} block, created on first use.
+     */
+    private ByteBuffer materialBlock;
+
     public Material(MaterialDef def) {
         if (def == null) {
             throw new NullPointerException("Material definition cannot be null");
@@ -217,10 +233,13 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
             mat.paramValues = new ListMap<String, MatParam>();
             for (int i = 0; i < paramValues.size(); i++) {
                 Map.Entry<String, MatParam> entry = paramValues.getEntry(i);
-                mat.paramValues.put(entry.getKey(), entry.getValue().clone());
+                MatParam param = entry.getValue().clone();
+                param.owner = mat;
+                mat.paramValues.put(entry.getKey(), param);
             }
 
             mat.sortingId = -1;
+            mat.materialBlock = null;
             
             return mat;
         } catch (CloneNotSupportedException ex) {
@@ -413,6 +432,13 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
         return def;
     }
 
+    /**
+     * Called by the parameters of this material when their value changed.
+     */
+    void paramValueChanged() {
+        paramsVersion++;
+    }
+
     /**
      * Returns the parameter set on this material with the given name,
      * returns <code>null</code> if the parameter is not set.
@@ -486,14 +512,17 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
      */
     public void setParam(String name, VarType type, Object value) {
         checkSetParam(type, name);
+        paramsVersion++;
 
         if (type.isTextureType()) {
             setTextureParam(name, type, (Texture)value);
         } else {
-            MatParam val = getParam(name);
+            MatParam val = paramValues.get(name);
             if (val == null) {
                 MatParam paramDef = def.getMaterialParam(name);
-                paramValues.put(name, new MatParam(type, name, value));
+                MatParam param = new MatParam(type, name, value);
+                param.owner = this;
+                paramValues.put(name, param);
             } else {
                 val.setValue(value);
             }
@@ -516,6 +545,8 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
         }
 
         paramValues.remove(name);
+        matParam.owner = null;
+        paramsVersion++;
         if (matParam instanceof MatParamTexture) {
             sortingId = -1;
         }
@@ -540,6 +571,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
 
         checkSetParam(type, name);
         MatParamTexture val = getTextureParam(name);
+        paramsVersion++;
         if (val == null) {
             MatParamTexture paramDef = (MatParamTexture) def.getMaterialParam(name);
             if (paramDef.getColorSpace() != null && paramDef.getColorSpace() != value.getImage().getColorSpace()) {
@@ -559,7 +591,9 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
                         + "Linear using texture.getImage.setColorSpace().",
                         new Object[]{value.getName(), value.getImage().getColorSpace().name(), name});
             }
-            paramValues.put(name, new MatParamTexture(type, name, value, null));
+            MatParamTexture param = new MatParamTexture(type, name, value, null);
+            param.owner = this;
+            paramValues.put(name, param);
         } else {
             val.setTextureValue(value);
         }
@@ -773,7 +807,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
                 continue;
             }
 
-            Uniform uniform = shader.getUniform(override.getPrefixedName());
+            Uniform uniform = shader.getUniform(override.getUniformSlot());
 
             if (override.getValue() != null) {
                 if (type.isTextureType()) {
@@ -804,7 +838,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
         for (int i = 0; i < paramValues.size(); i++) {
             MatParam param = paramValues.getValue(i);
             VarType type = param.getVarType();
-            Uniform uniform = shader.getUniform(param.getPrefixedName());
+            Uniform uniform = shader.getUniform(param.getUniformSlot());
 
             if (uniform.isSetByCurrentMaterial()) {
                 continue;
@@ -823,6 +857,67 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
         return unit;
     }
 
+    /**
+     * Fast path of {@link #updateShaderMaterialParameters} for when the
+     * shader uniforms still hold the parameters of this material: textures
+     * are rebound and only parameters whose value objects may have been
+     * modified in place are applied again.
+     */
+    private int updateMutableShaderMaterialParameters(Renderer renderer, Shader shader) {
+        int unit = 0;
+        for (int i = 0; i < paramValues.size(); i++) {
+            MatParam param = paramValues.getValue(i);
+            VarType type = param.getVarType();
+            if (type.isTextureType()) {
+                renderer.setTexture(unit, (Texture) param.getValue());
+                unit++;
+            } else if (type != VarType.Int && type != VarType.Float && type != VarType.Boolean) {
+                shader.getUniform(param.getUniformSlot()).setValue(type, param.getValue());
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * Fills the {@link UniformBlock#Material} block from the material 
+     * parameters and overrides, using the same precedence as the uniforms,
+     * and uploads it.
+     */
+    private void updateMaterialBlock(Renderer renderer, 
+                 SafeArrayList<MatParamOverride> worldOverrides, SafeArrayList<MatParamOverride> forcedOverrides) {
+        UniformBlockLayout layout = def.getMaterialBlockLayout();
+        if (materialBlock == null || materialBlock.capacity() < layout.getSize()) {
+            materialBlock = layout.createBuffer();
+        }
+        layout.clear(materialBlock);
+
+        for (int i = 0; i < paramValues.size(); i++) {
+            MatParam param = paramValues.getValue(i);
+            int index = layout.getMemberIndex(param.getUniformSlot());
+            if (index >= 0) {
+                layout.write(materialBlock, index, param.getValue());
+            }
+        }
+        if (worldOverrides != null) {
+            writeOverrides(layout, worldOverrides);
+        }
+        if (forcedOverrides != null) {
+            writeOverrides(layout, forcedOverrides);
+        }
+
+        renderer.setUniformBlock(UniformBlock.Material, materialBlock);
+    }
+
+    private void writeOverrides(UniformBlockLayout layout, SafeArrayList<MatParamOverride> overrides) {
+        for (MatParamOverride override : overrides.getArray()) {
+            int index = layout.getMemberIndex(override.getUniformSlot());
+            if (index < 0 || layout.getMemberType(index) != override.getVarType() || !override.isEnabled()) {
+                continue;
+            }
+            layout.write(materialBlock, index, override.getValue());
+        }
+    }
+
     private void updateRenderState(RenderManager renderManager, Renderer renderer, TechniqueDef techniqueDef) {
         if (renderManager.getForcedRenderState() != null) {
             renderer.applyRenderState(renderManager.getForcedRenderState());
@@ -858,6 +953,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
 
         Shader shader = technique.makeCurrent(renderManager, null, null, null, rendererCaps);
         updateShaderMaterialParameters(renderer, shader, null, null);
+        shader.setAppliedMaterial(null, 0);
         renderManager.getRenderer().setShader(shader);
     }
 
@@ -963,20 +1059,44 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
         // Get world overrides
         SafeArrayList<MatParamOverride> overrides = geometry.getWorldMatParamOverrides();
 
+        SafeArrayList<MatParamOverride> forcedOverrides = renderManager.getForcedMatParams();
+
         // Select shader to use
-        Shader shader = technique.makeCurrent(renderManager, overrides, renderManager.getForcedMatParams(), lights, rendererCaps);
-        
-        // Begin tracking which uniforms were changed by material.
-        clearUniformsSetByCurrent(shader);
-        
-        // Set uniform bindings
-        renderManager.updateUniformBindings(shader);
-        
-        // Set material parameters
-        int unit = updateShaderMaterialParameters(renderer, shader, overrides, renderManager.getForcedMatParams());
+        Shader shader = technique.makeCurrent(renderManager, overrides, forcedOverrides, lights, rendererCaps);
+
+        if (shader.isUpdateNeeded() && rendererCaps.contains(Caps.UniformBufferObject)) {
+            // Link now, the declared uniform blocks must be known
+            // before they are filled.
+            renderer.setShader(shader);
+        }
 
-        // Clear any uniforms not changed by material.
-        resetUniformsNotSetByCurrent(shader);
+        int unit;
+        boolean noOverrides = (overrides == null || overrides.isEmpty())
+                && (forcedOverrides == null || forcedOverrides.isEmpty());
+        if (noOverrides && shader.isAppliedMaterial(this, paramsVersion)) {
+            // Same material rendered again with the same shader,
+            // the uniforms still hold its parameters.
+            renderManager.updateUniformBindings(shader);
+            unit = updateMutableShaderMaterialParameters(renderer, shader);
+        } else {
+            // Begin tracking which uniforms were changed by material.
+            clearUniformsSetByCurrent(shader);
+
+            // Set uniform bindings
+            renderManager.updateUniformBindings(shader);
+
+            // Set material parameters
+            unit = updateShaderMaterialParameters(renderer, shader, overrides, forcedOverrides);
+
+            // Clear any uniforms not changed by material.
+            resetUniformsNotSetByCurrent(shader);
+
+            shader.setAppliedMaterial(noOverrides ? this : null, paramsVersion);
+        }
+
+        if (shader.isUniformBlockDeclared(UniformBlock.Material)) {
+            updateMaterialBlock(renderer, overrides, forcedOverrides);
+        }
         
         // Delegate rendering to the technique
         technique.render(renderManager, shader, geometry, lights, unit);
@@ -1086,6 +1206,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
                                           param.getName());
             } else {
                 checkSetParam(param.getVarType(), param.getName());
+                param.owner = this;
                 paramValues.put(param.getName(), param);
             }
         }
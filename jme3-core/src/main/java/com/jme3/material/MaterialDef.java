@@ -32,11 +32,14 @@
 package com.jme3.material;
 
 import com.jme3.asset.AssetManager;
+import com.jme3.shader.UniformBlock;
+import com.jme3.shader.UniformBlockLayout;
 import com.jme3.shader.VarType;
 import com.jme3.texture.image.ColorSpace;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +61,7 @@ public class MaterialDef{
 
     private Map<String, List<TechniqueDef>> techniques;
     private Map<String, MatParam> matParams;
+    private UniformBlockLayout materialBlockLayout;
 
     /**
      * Serialization only. Do not use.
@@ -125,6 +129,7 @@ public class MaterialDef{
      */
     public void addMaterialParam(VarType type, String name, Object value) {
         matParams.put(name, new MatParam(type, name, value));
+        materialBlockLayout = null;
     }
     
     /**
@@ -165,6 +170,38 @@ public class MaterialDef{
         return matParams.values();
     }
 
+    /**
+     * Returns the layout of the {@link UniformBlock#Material} block for 
+     * this material definition.
+     * <p>
+     * The block holds every non-texture, non-array parameter as 
+     * <code>m_&lt;name&gt;</code>, sorted by name. A shader declaring
+     * the block must use exactly the 
+     * {@link UniformBlockLayout#getDeclaration() declaration} of this layout.
+     * 
+     * @return The layout of the material block.
+     */
+    public UniformBlockLayout getMaterialBlockLayout() {
+        if (materialBlockLayout == null) {
+            ArrayList<String> names = new ArrayList<String>();
+            for (MatParam param : matParams.values()) {
+                VarType type = param.getVarType();
+                if (!type.isTextureType() && !UniformBlockLayout.isArray(type)) {
+                    names.add(param.getName());
+                }
+            }
+            Collections.sort(names);
+
+            UniformBlockLayout layout = new UniformBlockLayout(UniformBlock.Material.getBlockName());
+            for (String paramName : names) {
+                MatParam param = matParams.get(paramName);
+                layout.addMember(param.getPrefixedName(), param.getVarType());
+            }
+            materialBlockLayout = layout;
+        }
+        return materialBlockLayout;
+    }
+
     /**
      * Adds a new technique definition to this material definition.
      *
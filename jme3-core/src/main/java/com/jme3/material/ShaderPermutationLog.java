@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.material;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.AssetNotFoundException;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Renderer;
+import com.jme3.shader.DefineList;
+import com.jme3.shader.Shader;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>ShaderPermutationLog</code> records which shader permutations
+ * (material definition, technique and define values) were used during a
+ * session, so that a later session can compile all of them up front with
+ * {@link #warmUp(com.jme3.renderer.RenderManager, com.jme3.asset.AssetManager) }
+ * instead of hitching the first time each one is seen.
+ * <p>
+ * Combined with a {@link com.jme3.shader.ProgramBinaryCache} the warm-up
+ * only has to load program binaries from disk.
+ * <p>
+ * To record, set the log on the render manager with
+ * {@link RenderManager#setShaderPermutationLog(com.jme3.material.ShaderPermutationLog) },
+ * play through the content and {@link #save(java.io.OutputStream) } the log.
+ * The log must only be used from the render thread.
+ */
+public class ShaderPermutationLog {
+
+    private static final Logger logger = Logger.getLogger(ShaderPermutationLog.class.getName());
+
+    private static final String HEADER = "# jME3 shader permutations v1";
+
+    /**
+     * A single recorded permutation.
+     */
+    public static final class Permutation {
+
+        private final String materialDef;
+        private final String technique;
+        private final int index;
+        private final String defines;
+
+        Permutation(String materialDef, String technique, int index, String defines) {
+            this.materialDef = materialDef;
+            this.technique = technique;
+            this.index = index;
+            this.defines = defines;
+        }
+
+        /**
+         * @return The asset name of the material definition.
+         */
+        public String getMaterialDef() {
+            return materialDef;
+        }
+
+        /**
+         * @return The technique name.
+         */
+        public String getTechnique() {
+            return technique;
+        }
+
+        /**
+         * @return The index among the technique definitions of the same name.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return The define values, as space separated <code>NAME=value</code> pairs.
+         */
+        public String getDefines() {
+            return defines;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = materialDef.hashCode();
+            hash = 31 * hash + technique.hashCode();
+            hash = 31 * hash + index;
+            hash = 31 * hash + defines.hashCode();
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Permutation)) {
+                return false;
+            }
+            Permutation other = (Permutation) obj;
+            return index == other.index
+                    && materialDef.equals(other.materialDef)
+                    && technique.equals(other.technique)
+                    && defines.equals(other.defines);
+        }
+
+        @Override
+        public String toString() {
+            return materialDef + "/" + technique + "[" + index + "] " + defines;
+        }
+    }
+
+    private final Set<Permutation> permutations = new LinkedHashSet<Permutation>();
+    // weak keys, so unloaded material definitions and their shaders can be collected
+    private final Map<TechniqueDef, Set<DefineList>> seenDefines = new WeakHashMap<TechniqueDef, Set<DefineList>>();
+
+    /**
+     * Records the permutation selected by the given defines.
+     * Only the first use of each permutation is recorded.
+     */
+    void record(MaterialDef matDef, TechniqueDef techniqueDef, DefineList defines) {
+        if (!markSeen(techniqueDef, defines)) {
+            return;
+        }
+
+        String assetName = matDef.getAssetName();
+        if (assetName == null) {
+            // Created in code, cannot be loaded again in a warm-up.
+            return;
+        }
+
+        List<TechniqueDef> techniqueDefs = matDef.getTechniqueDefs(techniqueDef.getName());
+        int index = techniqueDefs != null ? techniqueDefs.indexOf(techniqueDef) : -1;
+        if (index < 0) {
+            return;
+        }
+
+        String[] defineNames = techniqueDef.getDefineNames();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < defineNames.length; i++) {
+            if (defines.isSet(i)) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(defineNames[i]).append('=').append(defines.getInt(i));
+            }
+        }
+
+        permutations.add(new Permutation(assetName, techniqueDef.getName(), index, sb.toString()));
+    }
+
+    private boolean markSeen(TechniqueDef techniqueDef, DefineList defines) {
+        Set<DefineList> seen = seenDefines.get(techniqueDef);
+        if (seen == null) {
+            seen = new HashSet<DefineList>();
+            seenDefines.put(techniqueDef, seen);
+        } else if (seen.contains(defines)) {
+            return false;
+        }
+        seen.add(defines.deepClone());
+        return true;
+    }
+
+    /**
+     * @return The recorded or loaded permutations, in the order they were first seen.
+     */
+    public List<Permutation> getPermutations() {
+        return new ArrayList<Permutation>(permutations);
+    }
+
+    /**
+     * Removes all permutations from the log.
+     */
+    public void clear() {
+        permutations.clear();
+        seenDefines.clear();
+    }
+
+    /**
+     * Writes the log as UTF-8 text, one permutation per line.
+     *
+     * @param out The stream to write to. It is not closed.
+     * @throws IOException If writing fails.
+     */
+    public void save(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Permutation p : permutations) {
+            writer.write(p.materialDef);
+            writer.write('\t');
+            writer.write(p.technique);
+            writer.write('\t');
+            writer.write(Integer.toString(p.index));
+            writer.write('\t');
+            writer.write(p.defines);
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Reads permutations written by {@link #save(java.io.OutputStream) }
+     * and adds them to this log. Malformed lines are skipped.
+     *
+     * @param in The stream to read from. It is not closed.
+     * @throws IOException If reading fails.
+     */
+    public void load(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] split = line.split("\t", -1);
+            if (split.length != 4) {
+                logger.log(Level.WARNING, "Malformed shader permutation: {0}", line);
+                continue;
+            }
+            try {
+                permutations.add(new Permutation(split[0], split[1], Integer.parseInt(split[2]), split[3]));
+            } catch (NumberFormatException ex) {
+                logger.log(Level.WARNING, "Malformed shader permutation: {0}", line);
+            }
+        }
+    }
+
+    /**
+     * Compiles and links the shader of every permutation in the log.
+     * Must be called from the render thread, typically from
+     * <code>simpleInitApp</code> or behind a loading screen.
+     * <p>
+     * The shaders are cached in their {@link TechniqueDef}, so as long as
+     * the material definitions stay in the asset cache, rendering with
+     * those permutations later will not compile anything.
+     *
+     * @param renderManager The render manager whose renderer compiles the shaders.
+     * @param assetManager The asset manager to load the material definitions with.
+     * @return The number of permutations compiled.
+     */
+    public int warmUp(RenderManager renderManager, AssetManager assetManager) {
+        Renderer renderer = renderManager.getRenderer();
+        EnumSet<Caps> caps = renderer.getCaps();
+        int compiled = 0;
+
+        for (Permutation p : permutations) {
+            TechniqueDef techniqueDef = findTechniqueDef(assetManager, p);
+            if (techniqueDef == null || !caps.containsAll(techniqueDef.getRequiredCaps())) {
+                continue;
+            }
+
+            DefineList defines = parseDefines(techniqueDef, p);
+            if (defines == null) {
+                continue;
+            }
+
+            Shader shader = techniqueDef.getShader(assetManager, caps, defines);
+            renderer.setShader(shader);
+            markSeen(techniqueDef, defines);
+            compiled++;
+        }
+
+        return compiled;
+    }
+
+    private TechniqueDef findTechniqueDef(AssetManager assetManager, Permutation p) {
+        MaterialDef matDef;
+        try {
+            matDef = assetManager.loadAsset(new AssetKey<MaterialDef>(p.materialDef));
+        } catch (AssetNotFoundException ex) {
+            logger.log(Level.WARNING, "Skipping shader permutation, material definition not found: {0}", p);
+            return null;
+        }
+
+        List<TechniqueDef> techniqueDefs = matDef.getTechniqueDefs(p.technique);
+        if (techniqueDefs == null || p.index >= techniqueDefs.size()) {
+            logger.log(Level.WARNING, "Skipping shader permutation, technique not found: {0}", p);
+            return null;
+        }
+        return techniqueDefs.get(p.index);
+    }
+
+    private DefineList parseDefines(TechniqueDef techniqueDef, Permutation p) {
+        DefineList defines = techniqueDef.createDefineList();
+        if (p.defines.isEmpty()) {
+            return defines;
+        }
+
+        String[] defineNames = techniqueDef.getDefineNames();
+        for (String pair : p.defines.split(" ")) {
+            int eq = pair.indexOf('=');
+            int id = -1;
+            if (eq > 0) {
+                String name = pair.substring(0, eq);
+                for (int i = 0; i < defineNames.length; i++) {
+                    if (defineNames[i].equals(name)) {
+                        id = i;
+                        break;
+                    }
+                }
+            }
+            if (id < 0) {
+                // The material definition changed since the log was recorded.
+                logger.log(Level.WARNING, "Skipping shader permutation, unknown define {0}: {1}",
+                        new Object[]{pair, p});
+                return null;
+            }
+            try {
+                defines.set(id, Integer.parseInt(pair.substring(eq + 1)));
+            } catch (NumberFormatException ex) {
+                logger.log(Level.WARNING, "Skipping shader permutation, malformed define {0}: {1}",
+                        new Object[]{pair, p});
+                return null;
+            }
+        }
+        return defines;
+    }
+}
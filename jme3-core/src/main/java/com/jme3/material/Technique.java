@@ -150,7 +150,14 @@ public final class Technique {
             applyOverrides(dynamicDefines, forcedOverrides);
         }
 
-        return logic.makeCurrent(assetManager, renderManager, rendererCaps, lights, dynamicDefines);
+        Shader shader = logic.makeCurrent(assetManager, renderManager, rendererCaps, lights, dynamicDefines);
+
+        ShaderPermutationLog permutationLog = renderManager.getShaderPermutationLog();
+        if (permutationLog != null) {
+            permutationLog.record(owner.getMaterialDef(), def, dynamicDefines);
+        }
+
+        return shader;
     }
     
     /**
@@ -55,6 +55,10 @@ import com.jme3.util.TempVars;
 public final class MultiPassLightingLogic extends DefaultTechniqueDefLogic {
 
     private static final RenderState ADDITIVE_LIGHT = new RenderStateImpl();
+    private static final int AMBIENT_LIGHT_COLOR_SLOT = Shader.getUniformSlot("g_AmbientLightColor");
+    private static final int LIGHT_DIRECTION_SLOT = Shader.getUniformSlot("g_LightDirection");
+    private static final int LIGHT_COLOR_SLOT = Shader.getUniformSlot("g_LightColor");
+    private static final int LIGHT_POSITION_SLOT = Shader.getUniformSlot("g_LightPosition");
     private static final Quaternion NULL_DIR_LIGHT = new Quaternion(0, -1, 0, -1);
     
     private final ColorRGBA ambientLightColor = new ColorRGBA(0, 0, 0, 1);
@@ -71,10 +75,10 @@ public final class MultiPassLightingLogic extends DefaultTechniqueDefLogic {
     @Override
     public void render(RenderManager renderManager, Shader shader, Geometry geometry, LightList lights, int lastTexUnit) {
         Renderer r = renderManager.getRenderer();
-        Uniform lightDir = shader.getUniform("g_LightDirection");
-        Uniform lightColor = shader.getUniform("g_LightColor");
-        Uniform lightPos = shader.getUniform("g_LightPosition");
-        Uniform ambientColor = shader.getUniform("g_AmbientLightColor");
+        Uniform lightDir = shader.getUniform(LIGHT_DIRECTION_SLOT);
+        Uniform lightColor = shader.getUniform(LIGHT_COLOR_SLOT);
+        Uniform lightPos = shader.getUniform(LIGHT_POSITION_SLOT);
+        Uniform ambientColor = shader.getUniform(AMBIENT_LIGHT_COLOR_SLOT);
         boolean isFirstLight = true;
         boolean isSecondLight = false;
         
@@ -65,6 +65,11 @@ public final class SinglePassAndImageBasedLightingLogic extends DefaultTechnique
     private static final String DEFINE_NB_LIGHTS = "NB_LIGHTS";
     private static final String DEFINE_INDIRECT_LIGHTING = "INDIRECT_LIGHTING";
     private static final RenderState ADDITIVE_LIGHT = new RenderStateImpl();
+    private static final int LIGHT_DATA_SLOT = Shader.getUniformSlot("g_LightData");
+    private static final int AMBIENT_LIGHT_COLOR_SLOT = Shader.getUniformSlot("g_AmbientLightColor");
+    private static final int LIGHT_PROBE_DATA_SLOT = Shader.getUniformSlot("g_LightProbeData");
+    private static final int IRRADIANCE_MAP_SLOT = Shader.getUniformSlot("g_IrradianceMap");
+    private static final int PREF_ENV_MAP_SLOT = Shader.getUniformSlot("g_PrefEnvMap");
 
     private final ColorRGBA ambientLightColor = new ColorRGBA(0, 0, 0, 1);
     private LightProbe lightProbe = null;
@@ -125,13 +130,13 @@ public final class SinglePassAndImageBasedLightingLogic extends DefaultTechnique
             return 0;
         }
 
-        Uniform lightData = shader.getUniform("g_LightData");
+        Uniform lightData = shader.getUniform(LIGHT_DATA_SLOT);
         lightData.setVector4Length(lightListDetails.getNumLights() * 3);//8 lights * max 3
-        Uniform ambientColor = shader.getUniform("g_AmbientLightColor");
-        Uniform lightProbeData = shader.getUniform("g_LightProbeData");
+        Uniform ambientColor = shader.getUniform(AMBIENT_LIGHT_COLOR_SLOT);
+        Uniform lightProbeData = shader.getUniform(LIGHT_PROBE_DATA_SLOT);
         lightProbeData.setVector4Length(1);
-        Uniform lightProbeIrrMap = shader.getUniform("g_IrradianceMap");
-        Uniform lightProbePemMap = shader.getUniform("g_PrefEnvMap");
+        Uniform lightProbeIrrMap = shader.getUniform(IRRADIANCE_MAP_SLOT);
+        Uniform lightProbePemMap = shader.getUniform(PREF_ENV_MAP_SLOT);
 
         lightProbe = null;
         if (lightListDetails.getStartIndex() != 0) {
@@ -51,9 +51,12 @@ import com.jme3.scene.Geometry;
 import com.jme3.shader.DefineList;
 import com.jme3.shader.Shader;
 import com.jme3.shader.Uniform;
+import com.jme3.shader.UniformBlock;
+import com.jme3.shader.UniformBlockLayout;
 import com.jme3.shader.VarType;
 import com.jme3.util.TempVars;
 
+import java.nio.ByteBuffer;
 import java.util.EnumSet;
 
 public final class SinglePassLightingLogic extends DefaultTechniqueDefLogic {
@@ -61,9 +64,21 @@ public final class SinglePassLightingLogic extends DefaultTechniqueDefLogic {
     private static final String DEFINE_SINGLE_PASS_LIGHTING = "SINGLE_PASS_LIGHTING";
     private static final String DEFINE_NB_LIGHTS = "NB_LIGHTS";
     private static final RenderState ADDITIVE_LIGHT = new RenderStateImpl();
+    private static final int LIGHT_DATA_SLOT = Shader.getUniformSlot("g_LightData");
+    private static final int AMBIENT_LIGHT_COLOR_SLOT = Shader.getUniformSlot("g_AmbientLightColor");
 
     private final ColorRGBA ambientLightColor = new ColorRGBA(0, 0, 0, 1);
 
+    /**
+     * Stand-ins for the light uniforms when the shader declares the 
+     * {@link UniformBlock#Lights} block, their values are copied into the
+     * block once the light set is filled.
+     */
+    private final Uniform blockLightData = new Uniform();
+    private final Uniform blockAmbientColor = new Uniform();
+    private UniformBlockLayout lightBlockLayout;
+    private ByteBuffer lightBlock;
+
     static {
         ADDITIVE_LIGHT.setBlendMode(BlendMode.AlphaAdditive);
         ADDITIVE_LIGHT.setDepthWrite(false);
@@ -98,15 +113,20 @@ public final class SinglePassLightingLogic extends DefaultTechniqueDefLogic {
      * // or the direction of the light (for directional lights).<br/> //
      * g_LightPosition.w is the inverse radius (1/r) of the light (for
      * attenuation) <br/> </p>
+     * If the shader declares the {@link UniformBlock#Lights} block, the
+     * same data is uploaded once per light set as 
+     * <code>vec4 g_AmbientLightColor; vec4 g_LightData[NB_LIGHTS];</code>
+     * instead.
      */
     protected int updateLightListUniforms(Shader shader, Geometry g, LightList lightList, int numLights, RenderManager rm, int startIndex) {
         if (numLights == 0) { // this shader does not do lighting, ignore.
             return 0;
         }
 
-        Uniform lightData = shader.getUniform("g_LightData");
+        boolean useBlock = shader.isUniformBlockDeclared(UniformBlock.Lights);
+        Uniform lightData = useBlock ? blockLightData : shader.getUniform(LIGHT_DATA_SLOT);
         lightData.setVector4Length(numLights * 3);//8 lights * max 3
-        Uniform ambientColor = shader.getUniform("g_AmbientLightColor");
+        Uniform ambientColor = useBlock ? blockAmbientColor : shader.getUniform(AMBIENT_LIGHT_COLOR_SLOT);
 
 
         if (startIndex != 0) {
@@ -199,9 +219,26 @@ public final class SinglePassLightingLogic extends DefaultTechniqueDefLogic {
             lightData.setVector4InArray(0f, 0f, 0f, 0f, lightDataIndex);
             lightDataIndex++;
         }
+        if (useBlock) {
+            uploadLightBlock(rm.getRenderer(), numLights * 3);
+        }
         return curIndex;
     }
 
+    private void uploadLightBlock(Renderer renderer, int lightDataLength) {
+        if (lightBlockLayout == null || lightBlockLayout.getMemberArrayLength(1) != lightDataLength) {
+            UniformBlockLayout layout = new UniformBlockLayout(UniformBlock.Lights.getBlockName());
+            layout.addMember("g_AmbientLightColor", VarType.Vector4);
+            layout.addMember("g_LightData", VarType.Vector4Array, lightDataLength);
+            lightBlockLayout = layout;
+            lightBlock = layout.createBuffer();
+        }
+        lightBlockLayout.clear(lightBlock);
+        lightBlockLayout.write(lightBlock, 0, blockAmbientColor.getValue());
+        lightBlockLayout.write(lightBlock, 1, blockLightData.getValue());
+        renderer.setUniformBlock(UniformBlock.Lights, lightBlock);
+    }
+
     @Override
     public void render(RenderManager renderManager, Shader shader, Geometry geometry, LightList lights, int lastTexUnit) {
         int nbRenderedLights = 0;
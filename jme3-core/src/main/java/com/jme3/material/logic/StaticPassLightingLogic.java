@@ -61,6 +61,8 @@ import java.util.EnumSet;
 public final class StaticPassLightingLogic extends DefaultTechniqueDefLogic {
 
     private static final String DEFINE_NUM_DIR_LIGHTS = "NUM_DIR_LIGHTS";
+    private static final int LIGHT_DATA_SLOT = Shader.getUniformSlot("g_LightData");
+    private static final int AMBIENT_LIGHT_COLOR_SLOT = Shader.getUniformSlot("g_AmbientLightColor");
     private static final String DEFINE_NUM_POINT_LIGHTS = "NUM_POINT_LIGHTS";
     private static final String DEFINE_NUM_SPOT_LIGHTS = "NUM_SPOT_LIGHTS";
 
@@ -125,10 +127,10 @@ public final class StaticPassLightingLogic extends DefaultTechniqueDefLogic {
     }
 
     private void updateLightListUniforms(Matrix4f viewMatrix, Shader shader, LightList lights) {
-        Uniform ambientColor = shader.getUniform("g_AmbientLightColor");
+        Uniform ambientColor = shader.getUniform(AMBIENT_LIGHT_COLOR_SLOT);
         ambientColor.setValue(VarType.Vector4, getAmbientColor(lights, true, ambientLightColor));
 
-        Uniform lightData = shader.getUniform("g_LightData");
+        Uniform lightData = shader.getUniform(LIGHT_DATA_SLOT);
 
         int totalSize = tempDirLights.size() * 2
                 + tempPointLights.size() * 2
@@ -38,6 +38,7 @@ import com.jme3.export.JmeImporter;
 import com.jme3.export.OutputCapsule;
 import com.jme3.export.Savable;
 import com.jme3.material.Material;
+import com.jme3.profile.TimelineProfiler;
 import com.jme3.renderer.Camera;
 import com.jme3.renderer.Caps;
 import com.jme3.renderer.RenderManager;
@@ -254,65 +255,70 @@ public class FilterPostProcessor implements SceneProcessor, Savable {
         for (int i = 0; i < filters.size(); i++) {
             Filter filter = filters.get(i);
             if (filter.isEnabled()) {
-                if (filter.getPostRenderPasses() != null) {
-                    for (Iterator<Filter.Pass> it1 = filter.getPostRenderPasses().iterator(); it1.hasNext();) {
-                        Filter.Pass pass = it1.next();
-                        pass.beforeRender();
-                        if (pass.requiresSceneAsTexture()) {
-                            pass.getPassMaterial().setTexture("Texture", tex);
-                            if (tex.getImage().getMultiSamples() > 1) {
-                                pass.getPassMaterial().setInt("NumSamples", tex.getImage().getMultiSamples());
-                            } else {
-                                pass.getPassMaterial().clearParam("NumSamples");
-
+                TimelineProfiler.begin("Filter", filter.getName());
+                try {
+                    if (filter.getPostRenderPasses() != null) {
+                        for (Iterator<Filter.Pass> it1 = filter.getPostRenderPasses().iterator(); it1.hasNext();) {
+                            Filter.Pass pass = it1.next();
+                            pass.beforeRender();
+                            if (pass.requiresSceneAsTexture()) {
+                                pass.getPassMaterial().setTexture("Texture", tex);
+                                if (tex.getImage().getMultiSamples() > 1) {
+                                    pass.getPassMaterial().setInt("NumSamples", tex.getImage().getMultiSamples());
+                                } else {
+                                    pass.getPassMaterial().clearParam("NumSamples");
+
+                                }
                             }
-                        }
-                        if (pass.requiresDepthAsTexture()) {
-                            pass.getPassMaterial().setTexture("DepthTexture", depthTexture);
-                            if (msDepth) {
-                                pass.getPassMaterial().setInt("NumSamplesDepth", depthTexture.getImage().getMultiSamples());
-                            } else {
-                                pass.getPassMaterial().clearParam("NumSamplesDepth");
+                            if (pass.requiresDepthAsTexture()) {
+                                pass.getPassMaterial().setTexture("DepthTexture", depthTexture);
+                                if (msDepth) {
+                                    pass.getPassMaterial().setInt("NumSamplesDepth", depthTexture.getImage().getMultiSamples());
+                                } else {
+                                    pass.getPassMaterial().clearParam("NumSamplesDepth");
+                                }
                             }
+                            renderProcessing(r, pass.getRenderFrameBuffer(), pass.getPassMaterial());
                         }
-                        renderProcessing(r, pass.getRenderFrameBuffer(), pass.getPassMaterial());
                     }
-                }
 
-                filter.postFrame(renderManager, viewPort, buff, sceneFb);
+                    filter.postFrame(renderManager, viewPort, buff, sceneFb);
 
-                Material mat = filter.getMaterial();
-                if (msDepth && filter.isRequiresDepthTexture()) {
-                    mat.setInt("NumSamplesDepth", depthTexture.getImage().getMultiSamples());
-                }
+                    Material mat = filter.getMaterial();
+                    if (msDepth && filter.isRequiresDepthTexture()) {
+                        mat.setInt("NumSamplesDepth", depthTexture.getImage().getMultiSamples());
+                    }
 
-                if (filter.isRequiresSceneTexture()) {
-                    mat.setTexture("Texture", tex);
-                    if (tex.getImage().getMultiSamples() > 1) {
-                        mat.setInt("NumSamples", tex.getImage().getMultiSamples());
-                    } else {
-                        mat.clearParam("NumSamples");
+                    if (filter.isRequiresSceneTexture()) {
+                        mat.setTexture("Texture", tex);
+                        if (tex.getImage().getMultiSamples() > 1) {
+                            mat.setInt("NumSamples", tex.getImage().getMultiSamples());
+                        } else {
+                            mat.clearParam("NumSamples");
+                        }
                     }
-                }
                 
-                boolean wantsBilinear = filter.isRequiresBilinear();
-                if (wantsBilinear) {
-                    tex.setMagFilter(Texture.MagFilter.Bilinear);
-                    tex.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
-                }
+                    boolean wantsBilinear = filter.isRequiresBilinear();
+                    if (wantsBilinear) {
+                        tex.setMagFilter(Texture.MagFilter.Bilinear);
+                        tex.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
+                    }
 
-                buff = outputBuffer;
-                if (i != lastFilterIndex) {
-                    buff = filter.getRenderFrameBuffer();
-                    tex = filter.getRenderedTexture();
+                    buff = outputBuffer;
+                    if (i != lastFilterIndex) {
+                        buff = filter.getRenderFrameBuffer();
+                        tex = filter.getRenderedTexture();
 
-                }
-                renderProcessing(r, buff, mat);
-                filter.postFilter(r, buff);
+                    }
+                    renderProcessing(r, buff, mat);
+                    filter.postFilter(r, buff);
                 
-                if (wantsBilinear) {
-                    tex.setMagFilter(Texture.MagFilter.Nearest);
-                    tex.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+                    if (wantsBilinear) {
+                        tex.setMagFilter(Texture.MagFilter.Nearest);
+                        tex.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+                    }
+                } finally {
+                    TimelineProfiler.end();
                 }
             }
         }
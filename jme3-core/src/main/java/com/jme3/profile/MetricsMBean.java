@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import java.util.ArrayList;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes the metrics of a registry as read-only JMX attributes. The
+ * attributes follow the metrics registered at the time of the request.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private static final String[] HISTOGRAM_SUFFIXES = {
+        ".count", ".mean", ".min", ".p50", ".p90", ".p99", ".p999", ".max"
+    };
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = getValue(registry.snapshot(), attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    private static Object getValue(MetricsSnapshot snapshot, String attribute) {
+        Long value = snapshot.getCounters().get(attribute);
+        if (value == null) {
+            value = snapshot.getGauges().get(attribute);
+        }
+        if (value != null) {
+            return value;
+        }
+        int dot = attribute.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        Histogram.Snapshot h = snapshot.getHistograms().get(attribute.substring(0, dot));
+        if (h == null) {
+            return null;
+        }
+        String suffix = attribute.substring(dot);
+        if (suffix.equals(".count")) {
+            return h.getCount();
+        } else if (suffix.equals(".mean")) {
+            return h.getMean();
+        } else if (suffix.equals(".min")) {
+            return h.getMin();
+        } else if (suffix.equals(".max")) {
+            return h.getMax();
+        } else if (suffix.equals(".p50")) {
+            return h.getValueAtPercentile(50);
+        } else if (suffix.equals(".p90")) {
+            return h.getValueAtPercentile(90);
+        } else if (suffix.equals(".p99")) {
+            return h.getValueAtPercentile(99);
+        } else if (suffix.equals(".p999")) {
+            return h.getValueAtPercentile(99.9);
+        }
+        return null;
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        MetricsSnapshot snapshot = registry.snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Object value = getValue(snapshot, attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        MetricsSnapshot snapshot = registry.snapshot();
+        ArrayList<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for (String name : snapshot.getCounters().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "java.lang.Long", "Counter", true, false, false));
+        }
+        for (String name : snapshot.getGauges().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "java.lang.Long", "Gauge", true, false, false));
+        }
+        for (Map.Entry<String, Histogram.Snapshot> e : snapshot.getHistograms().entrySet()) {
+            for (String suffix : HISTOGRAM_SUFFIXES) {
+                String type = suffix.equals(".mean") ? "java.lang.Double" : "java.lang.Long";
+                attributes.add(new MBeanAttributeInfo(e.getKey() + suffix, type, "Histogram", true, false, false));
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "jME3 engine metrics",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                null, new MBeanOperationInfo[0], null);
+    }
+}
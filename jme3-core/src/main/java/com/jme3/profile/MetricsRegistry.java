@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A registry of named counters, gauges and histograms.
+ * 
+ * <p>The engine reports into the {@link #getDefault() default registry},
+ * among others:</p>
+ * <ul>
+ * <li><code>asset.cache.hits</code>, <code>asset.cache.misses</code>: 
+ * asset cache lookups</li>
+ * <li><code>asset.load.time</code>: time to load an asset, in nanoseconds</li>
+ * <li><code>asset.async.queued</code>: asynchronous loads waiting for a 
+ * loading thread</li>
+ * <li><code>asset.async.latency</code>: time from queueing an asynchronous
+ * load to its completion, in nanoseconds</li>
+ * <li><code>buffer.direct.allocations</code>, <code>buffer.direct.allocatedBytes</code>,
+ * <code>buffer.direct.destroyedBytes</code>: direct buffers created and 
+ * explicitly destroyed by BufferUtils. Buffers released by the garbage
+ * collector are not counted as destroyed, the allocated minus the destroyed
+ * bytes is therefore not the direct memory in use, see
+ * {@link com.jme3.util.BufferUtils#setTrackDirectMemoryEnabled(boolean)}
+ * to track that</li>
+ * <li><code>native.objects.live</code>: native objects registered with
+ * NativeObjectManagers and not deleted yet</li>
+ * <li><code>native.objects.collected</code>: native objects deleted because
+ * they were garbage collected</li>
+ * <li><code>audio.sources.active</code>: OpenAL sources in use</li>
+ * </ul>
+ * 
+ * <p>Metrics can be read with {@link #snapshot() }, periodically with 
+ * {@link #startSnapshots(long, java.util.concurrent.TimeUnit, com.jme3.profile.MetricsListener) },
+ * or through JMX after calling {@link #registerMBean() }.</p>
+ */
+public class MetricsRegistry {
+
+    private static final Logger logger = Logger.getLogger(MetricsRegistry.class.getName());
+    private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> snapshotTask;
+    private volatile MetricsSnapshot lastSnapshot;
+    private ObjectName mbeanName;
+
+    /**
+     * @return The registry the engine reports into.
+     */
+    public static MetricsRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     * Callers should keep the counter rather than looking it up for every
+     * update.
+     * 
+     * @param name The name of the counter.
+     * @return The counter.
+     */
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter(name);
+            Counter existing = counters.putIfAbsent(name, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     * 
+     * @param name The name of the histogram.
+     * @return The histogram.
+     */
+    public Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram(name);
+            Histogram existing = histograms.putIfAbsent(name, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Sets the gauge with the given name, replacing the previous one.
+     * 
+     * @param name The name of the gauge.
+     * @param gauge The gauge, or null to remove it.
+     */
+    public void setGauge(String name, Gauge gauge) {
+        if (gauge == null) {
+            gauges.remove(name);
+        } else {
+            gauges.put(name, gauge);
+        }
+    }
+
+    /**
+     * Removes the gauge if it is still registered under the given name.
+     * 
+     * @param name The name of the gauge.
+     * @param gauge The gauge to remove.
+     */
+    public void removeGauge(String name, Gauge gauge) {
+        gauges.remove(name, gauge);
+    }
+
+    /**
+     * Reads all metrics. Gauges are called on the current thread, a gauge
+     * that throws is left out of the snapshot.
+     * 
+     * @return The snapshot.
+     */
+    public MetricsSnapshot snapshot() {
+        TreeMap<String, Long> counterValues = new TreeMap<String, Long>();
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            counterValues.put(e.getKey(), e.getValue().get());
+        }
+        TreeMap<String, Long> gaugeValues = new TreeMap<String, Long>();
+        for (Map.Entry<String, Gauge> e : gauges.entrySet()) {
+            try {
+                gaugeValues.put(e.getKey(), e.getValue().getValue());
+            } catch (RuntimeException ex) {
+                logger.log(Level.WARNING, "Gauge " + e.getKey() + " failed", ex);
+            }
+        }
+        TreeMap<String, Histogram.Snapshot> histogramValues = new TreeMap<String, Histogram.Snapshot>();
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            histogramValues.put(e.getKey(), e.getValue().getSnapshot());
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+    }
+
+    /**
+     * Takes a snapshot at a fixed rate on a background thread, replacing
+     * snapshots started before.
+     * 
+     * @param period The time between snapshots.
+     * @param unit The unit of the period.
+     * @param listener Receives the snapshots, may be null if the snapshots
+     * are only read with {@link #getLastSnapshot() }.
+     */
+    public synchronized void startSnapshots(long period, TimeUnit unit, final MetricsListener listener) {
+        stopSnapshots();
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "jME3 Metrics");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        snapshotTask = scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                try {
+                    MetricsSnapshot snapshot = snapshot();
+                    lastSnapshot = snapshot;
+                    if (listener != null) {
+                        listener.onSnapshot(snapshot);
+                    }
+                } catch (RuntimeException ex) {
+                    logger.log(Level.WARNING, "Metrics snapshot failed", ex);
+                }
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * Stops taking periodic snapshots.
+     */
+    public synchronized void stopSnapshots() {
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+            snapshotTask = null;
+        }
+    }
+
+    /**
+     * @return The last periodic snapshot, or null if none was taken.
+     */
+    public MetricsSnapshot getLastSnapshot() {
+        return lastSnapshot;
+    }
+
+    /**
+     * Registers the registry with the platform MBean server as 
+     * <code>com.jme3:type=Metrics</code>.
+     * 
+     * @see #registerMBean(javax.management.ObjectName) 
+     */
+    public void registerMBean() {
+        try {
+            registerMBean(new ObjectName("com.jme3:type=Metrics"));
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot register metrics MBean", ex);
+        }
+    }
+
+    /**
+     * Registers the registry with the platform MBean server. Counters and
+     * gauges are attributes named like the metric, histograms are exposed
+     * as several attributes, e.g. <code>asset.load.time.p99</code>.
+     * 
+     * @param name The name of the MBean.
+     * @throws JMException If the registration fails.
+     */
+    public synchronized void registerMBean(ObjectName name) throws JMException {
+        unregisterMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(new MetricsMBean(this), name);
+        mbeanName = name;
+    }
+
+    /**
+     * Unregisters the MBean registered before, if any.
+     */
+    public synchronized void unregisterMBean() {
+        if (mbeanName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+        } catch (JMException ex) {
+            logger.log(Level.WARNING, "Cannot unregister metrics MBean", ex);
+        }
+        mbeanName = null;
+    }
+}
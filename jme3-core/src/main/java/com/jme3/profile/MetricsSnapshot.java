@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * The values of all metrics of a {@link MetricsRegistry} at a point in 
+ * time. Counters are cumulative, the difference between two snapshots 
+ * gives the rate.
+ */
+public final class MetricsSnapshot {
+
+    private final long time;
+    private final SortedMap<String, Long> counters;
+    private final SortedMap<String, Long> gauges;
+    private final SortedMap<String, Histogram.Snapshot> histograms;
+
+    MetricsSnapshot(long time, SortedMap<String, Long> counters, SortedMap<String, Long> gauges,
+            SortedMap<String, Histogram.Snapshot> histograms) {
+        this.time = time;
+        this.counters = Collections.unmodifiableSortedMap(counters);
+        this.gauges = Collections.unmodifiableSortedMap(gauges);
+        this.histograms = Collections.unmodifiableSortedMap(histograms);
+    }
+
+    /**
+     * @return The time the snapshot was taken at, in milliseconds since 
+     * the epoch.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return The counter values by name.
+     */
+    public SortedMap<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return The gauge values by name.
+     */
+    public SortedMap<String, Long> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * @return The histograms by name.
+     */
+    public SortedMap<String, Histogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * Returns the value of a counter or gauge.
+     * 
+     * @param name The name of the counter or gauge.
+     * @return The value, or 0 if there is no such metric.
+     */
+    public long getValue(String name) {
+        Long value = counters.get(name);
+        if (value == null) {
+            value = gauges.get(name);
+        }
+        return value == null ? 0 : value;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("MetricsSnapshot[time=").append(time).append("]\n");
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            sb.append(e.getKey()).append(" = ").append(e.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> e : gauges.entrySet()) {
+            sb.append(e.getKey()).append(" = ").append(e.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Histogram.Snapshot> e : histograms.entrySet()) {
+            sb.append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+}
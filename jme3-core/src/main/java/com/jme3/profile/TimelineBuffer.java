@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ring buffer of completed scopes recorded by a single thread for the
+ * {@link TimelineProfiler}. Only the owning thread writes, other threads
+ * may read a consistent snapshot at any time without locking.
+ */
+final class TimelineBuffer {
+
+    final long threadId;
+    final String threadName;
+
+    private final int mask;
+    private final String[] categories;
+    private final String[] names;
+    private final long[] starts;
+    private final long[] durations;
+    private final int[] depths;
+    // number of scopes written so far, published after each write
+    private final AtomicLong written = new AtomicLong();
+    // scopes written before this count were discarded
+    private volatile long cleared;
+
+    // scopes begun but not ended yet, only used by the owning thread
+    private String[] openCategories = new String[16];
+    private String[] openNames = new String[16];
+    private long[] openStarts = new long[16];
+    private int depth;
+    private int session;
+
+    TimelineBuffer(Thread thread, int capacity) {
+        this.threadId = thread.getId();
+        this.threadName = thread.getName();
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.categories = new String[size];
+        this.names = new String[size];
+        this.starts = new long[size];
+        this.durations = new long[size];
+        this.depths = new int[size];
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    void begin(int session, String category, String name, long time) {
+        if (this.session != session) {
+            // scopes left open by a previous recording
+            this.session = session;
+            depth = 0;
+        }
+        if (depth == openNames.length) {
+            openCategories = Arrays.copyOf(openCategories, depth * 2);
+            openNames = Arrays.copyOf(openNames, depth * 2);
+            openStarts = Arrays.copyOf(openStarts, depth * 2);
+        }
+        openCategories[depth] = category;
+        openNames[depth] = name;
+        openStarts[depth] = time;
+        depth++;
+    }
+
+    void end(int session, long time) {
+        if (this.session != session || depth == 0) {
+            return;
+        }
+        depth--;
+        long n = written.get();
+        int i = (int) n & mask;
+        categories[i] = openCategories[depth];
+        names[i] = openNames[depth];
+        starts[i] = openStarts[depth];
+        durations[i] = time - openStarts[depth];
+        depths[i] = depth;
+        openCategories[depth] = null;
+        openNames[depth] = null;
+        written.lazySet(n + 1);
+    }
+
+    /**
+     * Ends scopes until only the given number of scopes are open.
+     */
+    void endTo(int session, int targetDepth, long time) {
+        if (this.session != session) {
+            return;
+        }
+        while (depth > targetDepth) {
+            end(session, time);
+        }
+    }
+
+    /**
+     * Discards all recorded scopes.
+     */
+    void clear() {
+        cleared = written.get();
+    }
+
+    /**
+     * Calls the visitor for every recorded scope still in the buffer, 
+     * oldest first.
+     */
+    void read(TimelineProfiler.ScopeVisitor visitor) {
+        long end = written.get();
+        long start = Math.max(cleared, end - mask - 1);
+        int count = (int) (end - start);
+        String[] c = new String[count];
+        String[] n = new String[count];
+        long[] s = new long[count];
+        long[] d = new long[count];
+        int[] l = new int[count];
+        for (int k = 0; k < count; k++) {
+            int i = (int) (start + k) & mask;
+            c[k] = categories[i];
+            n[k] = names[i];
+            s[k] = starts[i];
+            d[k] = durations[i];
+            l[k] = depths[i];
+        }
+        // skip the entries the writer may have overwritten while copying
+        long valid = Math.max(start, written.get() - mask);
+        for (int k = (int) (valid - start); k < count; k++) {
+            visitor.visit(threadId, c[k], n[k], s[k], d[k], l[k]);
+        }
+    }
+}
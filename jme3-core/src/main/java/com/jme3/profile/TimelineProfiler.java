@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.Bucket;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ *  An AppProfiler implementation that records a timeline of nested
+ *  scopes.
+ *
+ *  <p>The application and viewport steps are recorded as scopes nested in
+ *  a "Frame" scope. Code anywhere in the engine can add its own scopes
+ *  with {@link #begin(java.lang.String, java.lang.String) } and 
+ *  {@link #end() }, the engine records app states, scene processors,
+ *  filters, asset loads and shader links this way. Scopes can be recorded
+ *  from any thread, each thread writes into its own ring buffer without
+ *  locking. When no profiler is recording, <code>begin</code> and
+ *  <code>end</code> only read a static field.</p>
+ *
+ *  <p>The recorded timeline can be written at any time in the Chrome
+ *  trace event format with {@link #writeChromeTrace(java.io.OutputStream) },
+ *  to be opened in chrome://tracing or similar viewers. Frame durations
+ *  are kept separately for {@link #getFrameTimePercentile(float) percentile}
+ *  reporting.</p>
+ *
+ *  <p>Only one profiler records at a time, starting a profiler stops the
+ *  one recording before.</p>
+ */
+public class TimelineProfiler implements AppProfiler {
+
+    private static final String[] BUCKET_NAMES;
+
+    static {
+        Bucket[] buckets = Bucket.values();
+        BUCKET_NAMES = new String[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            BUCKET_NAMES[i] = "RenderBucket " + buckets[i].name();
+        }
+    }
+
+    private static volatile TimelineProfiler recording;
+    private static int sessions;
+
+    /**
+     * Receives the recorded scopes.
+     */
+    interface ScopeVisitor {
+        void visit(long threadId, String category, String name, long start, long duration, int depth);
+    }
+
+    private final int bufferSize;
+    private final CopyOnWriteArrayList<TimelineBuffer> buffers = new CopyOnWriteArrayList<TimelineBuffer>();
+    private final ThreadLocal<TimelineBuffer> localBuffer = new ThreadLocal<TimelineBuffer>() {
+        @Override
+        protected TimelineBuffer initialValue() {
+            TimelineBuffer buffer = new TimelineBuffer(Thread.currentThread(), bufferSize);
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+    private final long startTime = System.nanoTime();
+    private int session;
+
+    private final long[] frameTimes;
+    private int frameIndex;
+    private int numFrames;
+    private long frameStart;
+
+    private int frameDepth;
+    private int[] viewPortDepths = new int[4];
+    private int numViewPorts;
+
+    /**
+     * Creates a profiler that keeps 65536 scopes per thread and the 
+     * durations of the last 1024 frames.
+     */
+    public TimelineProfiler() {
+        this(65536, 1024);
+    }
+
+    /**
+     * Creates a profiler.
+     * 
+     * @param bufferSize The number of scopes kept per thread, the oldest
+     * scopes are overwritten.
+     * @param frameCount The number of frame durations kept.
+     */
+    public TimelineProfiler(int bufferSize, int frameCount) {
+        this.bufferSize = bufferSize;
+        this.frameTimes = new long[frameCount];
+    }
+
+    /**
+     * Starts or stops recording. Starting stops the profiler currently
+     * recording, if any.
+     * 
+     * @param enabled True to record.
+     */
+    public void setRecording(boolean enabled) {
+        synchronized (TimelineProfiler.class) {
+            if (enabled) {
+                session = ++sessions;
+                frameStart = 0;
+                numViewPorts = 0;
+                recording = this;
+            } else if (recording == this) {
+                recording = null;
+            }
+        }
+    }
+
+    public boolean isRecording() {
+        return recording == this;
+    }
+
+    /**
+     * @return True if any profiler is recording. Can be used to skip
+     * building scope names.
+     */
+    public static boolean isActive() {
+        return recording != null;
+    }
+
+    /**
+     * Begins a scope on the current thread. Scopes must be ended in the
+     * reverse order they were begun, on the same thread.
+     * 
+     * @param category The category of the scope, e.g. "Asset".
+     * @param name The name of the scope.
+     */
+    public static void begin(String category, String name) {
+        TimelineProfiler p = recording;
+        if (p != null) {
+            p.localBuffer.get().begin(p.session, category, name, System.nanoTime());
+        }
+    }
+
+    /**
+     * Ends the last scope begun on the current thread.
+     */
+    public static void end() {
+        TimelineProfiler p = recording;
+        if (p != null) {
+            p.localBuffer.get().end(p.session, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void appStep(AppStep step) {
+        if (recording != this) {
+            return;
+        }
+        TimelineBuffer buffer = localBuffer.get();
+        long time = System.nanoTime();
+        switch (step) {
+            case BeginFrame:
+                if (frameStart != 0) {
+                    frameTimes[frameIndex] = time - frameStart;
+                    frameIndex = (frameIndex + 1) % frameTimes.length;
+                    numFrames = Math.min(numFrames + 1, frameTimes.length);
+                }
+                frameStart = time;
+                buffer.endTo(session, 0, time);
+                numViewPorts = 0;
+                frameDepth = buffer.getDepth();
+                buffer.begin(session, "Frame", "Frame", time);
+                break;
+            case EndFrame:
+                buffer.endTo(session, frameDepth, time);
+                break;
+            default:
+                buffer.endTo(session, frameDepth + 1, time);
+                buffer.begin(session, "AppStep", step.name(), time);
+                break;
+        }
+    }
+
+    @Override
+    public void vpStep(VpStep step, ViewPort vp, Bucket bucket) {
+        if (recording != this) {
+            return;
+        }
+        TimelineBuffer buffer = localBuffer.get();
+        long time = System.nanoTime();
+        switch (step) {
+            case BeginRender:
+                if (numViewPorts == viewPortDepths.length) {
+                    viewPortDepths = Arrays.copyOf(viewPortDepths, numViewPorts * 2);
+                }
+                viewPortDepths[numViewPorts++] = buffer.getDepth();
+                buffer.begin(session, "ViewPort", vp.getName(), time);
+                break;
+            case EndRender:
+                if (numViewPorts > 0) {
+                    buffer.endTo(session, viewPortDepths[--numViewPorts], time);
+                }
+                break;
+            default:
+                if (numViewPorts > 0) {
+                    buffer.endTo(session, viewPortDepths[numViewPorts - 1] + 1, time);
+                }
+                String name = step == VpStep.RenderBucket && bucket != null
+                        ? BUCKET_NAMES[bucket.ordinal()] : step.name();
+                buffer.begin(session, "VpStep", name, time);
+                break;
+        }
+    }
+
+    /**
+     * Discards the recorded scopes and frame durations.
+     */
+    public void clear() {
+        for (TimelineBuffer buffer : buffers) {
+            buffer.clear();
+        }
+        numFrames = 0;
+        frameIndex = 0;
+    }
+
+    /**
+     * @return The number of frame durations available.
+     */
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    /**
+     * Returns a frame duration percentile over the recorded frames.
+     * 
+     * @param percentile The percentile, between 0 and 100.
+     * @return The frame duration in nanoseconds, or 0 if no frame was 
+     * recorded.
+     */
+    public long getFrameTimePercentile(float percentile) {
+        return getFrameTimePercentiles(percentile)[0];
+    }
+
+    /**
+     * Returns frame duration percentiles over the recorded frames.
+     * 
+     * @param percentiles The percentiles, between 0 and 100.
+     * @return The frame durations in nanoseconds, 0 if no frame was 
+     * recorded.
+     */
+    public long[] getFrameTimePercentiles(float... percentiles) {
+        long[] sorted = Arrays.copyOf(frameTimes, numFrames);
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        if (sorted.length == 0) {
+            return result;
+        }
+        for (int i = 0; i < percentiles.length; i++) {
+            // nearest rank
+            int rank = (int) Math.ceil(percentiles[i] / 100f * sorted.length);
+            result[i] = sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a one line summary of the frame durations: the number of 
+     * frames, the 50th, 90th, 99th percentiles and the maximum in 
+     * milliseconds.
+     * 
+     * @return The summary.
+     */
+    public String getFrameTimeSummary() {
+        long[] p = getFrameTimePercentiles(50, 90, 99, 100);
+        return String.format("frames: %d, p50: %.2f ms, p90: %.2f ms, p99: %.2f ms, max: %.2f ms",
+                numFrames, p[0] / 1e6, p[1] / 1e6, p[2] / 1e6, p[3] / 1e6);
+    }
+
+    /**
+     * Writes the recorded scopes of all threads in the Chrome trace event
+     * JSON format. Can be called while recording, scopes that are still
+     * open are not written.
+     * 
+     * @param out The stream to write to, it is not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeChromeTrace(OutputStream out) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charset.forName("UTF-8")));
+        writer.write("{\"traceEvents\":[");
+        boolean first = true;
+        for (TimelineBuffer buffer : buffers) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+            writer.write(Long.toString(buffer.threadId));
+            writer.write(",\"args\":{\"name\":");
+            writeString(writer, buffer.threadName);
+            writer.write("}}");
+        }
+        final IOException[] error = new IOException[1];
+        for (TimelineBuffer buffer : buffers) {
+            buffer.read(new ScopeVisitor() {
+                public void visit(long threadId, String category, String name, long start, long duration, int depth) {
+                    if (error[0] != null) {
+                        return;
+                    }
+                    try {
+                        writer.write(",\n{\"name\":");
+                        writeString(writer, name);
+                        writer.write(",\"cat\":");
+                        writeString(writer, category);
+                        writer.write(",\"ph\":\"X\",\"ts\":");
+                        writer.write(Double.toString((start - startTime) / 1000.0));
+                        writer.write(",\"dur\":");
+                        writer.write(Double.toString(duration / 1000.0));
+                        writer.write(",\"pid\":1,\"tid\":");
+                        writer.write(Long.toString(threadId));
+                        writer.write('}');
+                    } catch (IOException ex) {
+                        error[0] = ex;
+                    }
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    private static void writeString(Writer writer, String s) throws IOException {
+        writer.write('"');
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                        break;
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -355,7 +355,15 @@ public enum Caps {
     /**
      * GPU can provide and accept binary shaders.
      */
-    BinaryShader;
+    BinaryShader,
+
+    /**
+     * Supports uniform buffer objects, shaders can declare
+     * <code>uniform</code> blocks backed by buffer storage.
+     * 
+     * @see com.jme3.shader.UniformBlock
+     */
+    UniformBufferObject;
 
     /**
      * Returns true if given the renderer capabilities, the texture
@@ -0,0 +1,577 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.UserData;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.util.WorkerPool;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Software occlusion culling.
+ * <p>
+ * Geometries flagged as occluders, by setting the 
+ * {@link UserData#JME_OCCLUDER} user data to <code>true</code> on them or
+ * on one of their parents, are rasterized into a low resolution depth 
+ * buffer on the CPU. Bounds of other spatials can then be tested against
+ * that buffer with {@link #isOccluded(com.jme3.bounding.BoundingVolume) },
+ * a bound is occluded if every pixel its screen rectangle covers holds
+ * an occluder nearer than the nearest point of the bound.
+ * <p>
+ * The rasterization is conservative: a pixel only holds the depth of a 
+ * triangle that covers the whole pixel, and that depth is the farthest
+ * depth of the triangle inside the pixel. Pixels on the silhouette of an
+ * occluder, or only covered by several triangles together, do not occlude.
+ * <p>
+ * The occluder rasterization runs on the {@link WorkerPool}, the screen
+ * is split into bands of rows that are rasterized in parallel. Occluders
+ * should be simple meshes that lie inside the visible geometry they 
+ * stand for, e.g. the walls of a building without windows and details.
+ * <p>
+ * Set on a {@link RenderManager} with 
+ * {@link RenderManager#setOcclusionCuller(com.jme3.renderer.OcclusionCuller) }.
+ */
+public class OcclusionCuller {
+
+    public static final int DEFAULT_WIDTH = 256;
+    public static final int DEFAULT_HEIGHT = 128;
+
+    private static final int ROWS_PER_TASK = 16;
+    private static final int MIN_PARALLEL_TRIANGLES = 256;
+
+    /**
+     * Scratch data of the threads transforming occluders.
+     */
+    private static final class Scratch {
+
+        final Matrix4f matrix = new Matrix4f();
+        final float[] poly = new float[4 * 4];
+        float[] clip = new float[1024];
+    }
+
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private final int width;
+    private final int height;
+    private final float[] depth;
+    private final Matrix4f viewProj = new Matrix4f();
+    private final ArrayList<Geometry> occluders = new ArrayList<Geometry>();
+    private float[][] triangles = new float[0][];
+    private int[] triangleCounts = new int[0];
+    private int numTriangles;
+    private boolean hasOccluders = false;
+    private boolean parallel = true;
+
+    /**
+     * Creates an occlusion culler with a depth buffer of
+     * {@link #DEFAULT_WIDTH} by {@link #DEFAULT_HEIGHT} pixels.
+     */
+    public OcclusionCuller() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    /**
+     * Creates an occlusion culler.
+     * 
+     * @param width The width of the depth buffer in pixels.
+     * @param height The height of the depth buffer in pixels.
+     */
+    public OcclusionCuller(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Depth buffer size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.depth = new float[width * height];
+    }
+
+    /**
+     * @return True if the last call to 
+     * {@link #renderOccluders(com.jme3.renderer.Camera, com.jme3.scene.Spatial) }
+     * found any occluders.
+     */
+    public boolean hasOccluders() {
+        return hasOccluders;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Rasterize occluders on the {@link WorkerPool} (default) or on the 
+     * calling thread.
+     * 
+     * @param parallel True to rasterize in parallel.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @return The number of occluders rasterized by the last call to 
+     * {@link #renderOccluders(com.jme3.renderer.Camera, com.jme3.scene.Spatial) }.
+     */
+    public int getNumOccluders() {
+        return occluders.size();
+    }
+
+    /**
+     * @return The number of occluder triangles rasterized by the last call
+     * to {@link #renderOccluders(com.jme3.renderer.Camera, com.jme3.scene.Spatial) }.
+     */
+    public int getNumOccluderTriangles() {
+        return numTriangles;
+    }
+
+    /**
+     * Returns the depth stored in the depth buffer, as normalized device
+     * coordinate, or positive infinity if no occluder covers the pixel.
+     * 
+     * @param x The pixel column, 0 is the left edge of the screen.
+     * @param y The pixel row, 0 is the bottom edge of the screen.
+     * @return The depth of the nearest occluder.
+     */
+    public float getDepth(int x, int y) {
+        return depth[y * width + x];
+    }
+
+    /**
+     * Returns true if the spatial is flagged as occluder.
+     * 
+     * @param spatial The spatial to check.
+     * @return True if {@link UserData#JME_OCCLUDER} is set to true.
+     */
+    public static boolean isOccluder(Spatial spatial) {
+        return Boolean.TRUE.equals(spatial.getUserData(UserData.JME_OCCLUDER));
+    }
+
+    /**
+     * Rasterizes the occluders of the scene as seen by the camera. Must 
+     * be called before testing bounds, the buffer is kept until the next
+     * call.
+     * 
+     * @param cam The camera the scene is rendered with.
+     * @param scene The scene containing the occluders.
+     */
+    public void renderOccluders(Camera cam, Spatial scene) {
+        occluders.clear();
+        collectOccluders(scene, false);
+        viewProj.set(cam.getViewProjectionMatrix());
+        numTriangles = 0;
+        hasOccluders = !occluders.isEmpty();
+        if (!hasOccluders) {
+            return;
+        }
+
+        int count = occluders.size();
+        if (triangles.length < count) {
+            triangles = Arrays.copyOf(triangles, count);
+            triangleCounts = new int[count];
+        }
+        Arrays.fill(depth, Float.POSITIVE_INFINITY);
+
+        int totalIndices = 0;
+        for (int i = 0; i < count; i++) {
+            totalIndices += occluders.get(i).getMesh().getIndicesAsList().size();
+        }
+        boolean runParallel = parallel && totalIndices / 3 >= MIN_PARALLEL_TRIANGLES;
+
+        TransformTask transform = new TransformTask(0, count);
+        if (runParallel) {
+            WorkerPool.get().invoke(transform);
+        } else {
+            transform.compute();
+        }
+        for (int i = 0; i < count; i++) {
+            numTriangles += triangleCounts[i];
+        }
+
+        RasterTask raster = new RasterTask(0, height);
+        if (runParallel) {
+            WorkerPool.get().invoke(raster);
+        } else {
+            raster.rasterize();
+        }
+    }
+
+    private void collectOccluders(Spatial spatial, boolean inherited) {
+        if (spatial.getCullHint() == Spatial.CullHint.Always) {
+            return;
+        }
+        boolean occluder = inherited || isOccluder(spatial);
+        if (spatial instanceof Node) {
+            List<Spatial> children = ((Node) spatial).getChildren();
+            for (int i = 0; i < children.size(); i++) {
+                collectOccluders(children.get(i), occluder);
+            }
+        } else if (occluder && spatial instanceof Geometry) {
+            Geometry geom = (Geometry) spatial;
+            Mesh mesh = geom.getMesh();
+            if (mesh != null && mesh.getBuffer(Type.Position) != null) {
+                switch (mesh.getMode()) {
+                    case Triangles:
+                    case TriangleStrip:
+                    case TriangleFan:
+                        occluders.add(geom);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms the triangles of an occluder to screen space, clipping
+     * them against the near plane.
+     */
+    private void transformOccluder(int index) {
+        Geometry geom = occluders.get(index);
+        Mesh mesh = geom.getMesh();
+        FloatBuffer pos = mesh.getFloatBuffer(Type.Position);
+        IndexBuffer ib = mesh.getIndicesAsList();
+        int vertCount = pos.limit() / 3;
+
+        Scratch s = scratch.get();
+        Matrix4f m = s.matrix.set(viewProj);
+        m.multLocal(geom.getWorldMatrix());
+
+        if (s.clip.length < vertCount * 4) {
+            s.clip = new float[vertCount * 4];
+        }
+        float[] clip = s.clip;
+        for (int v = 0; v < vertCount; v++) {
+            float x = pos.get(v * 3);
+            float y = pos.get(v * 3 + 1);
+            float z = pos.get(v * 3 + 2);
+            clip[v * 4] = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+            clip[v * 4 + 1] = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+            clip[v * 4 + 2] = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+            clip[v * 4 + 3] = m.m30 * x + m.m31 * y + m.m32 * z + m.m33;
+        }
+
+        float[] out = triangles[index];
+        int numIndices = ib.size();
+        int maxFloats = (numIndices / 3) * 2 * 9;
+        if (out == null || out.length < maxFloats) {
+            out = new float[maxFloats];
+            triangles[index] = out;
+        }
+
+        float[] poly = s.poly;
+        int n = 0;
+        for (int t = 0; t + 2 < numIndices; t += 3) {
+            int a = ib.get(t) * 4;
+            int b = ib.get(t + 1) * 4;
+            int c = ib.get(t + 2) * 4;
+
+            // trivially outside one of the side planes
+            if ((clip[a] > clip[a + 3] && clip[b] > clip[b + 3] && clip[c] > clip[c + 3])
+                    || (clip[a] < -clip[a + 3] && clip[b] < -clip[b + 3] && clip[c] < -clip[c + 3])
+                    || (clip[a + 1] > clip[a + 3] && clip[b + 1] > clip[b + 3] && clip[c + 1] > clip[c + 3])
+                    || (clip[a + 1] < -clip[a + 3] && clip[b + 1] < -clip[b + 3] && clip[c + 1] < -clip[c + 3])) {
+                continue;
+            }
+
+            float da = clip[a + 2] + clip[a + 3];
+            float db = clip[b + 2] + clip[b + 3];
+            float dc = clip[c + 2] + clip[c + 3];
+            if (da >= 0 && db >= 0 && dc >= 0) {
+                n = emit(out, n, clip, a, clip, b, clip, c);
+                continue;
+            } else if (da < 0 && db < 0 && dc < 0) {
+                continue;
+            }
+
+            // clip the triangle against the near plane (z = -w)
+            int verts = clipEdge(clip, poly, 0, a, da, b, db);
+            verts = clipEdge(clip, poly, verts, b, db, c, dc);
+            verts = clipEdge(clip, poly, verts, c, dc, a, da);
+            n = emit(out, n, poly, 0, poly, 4, poly, 8);
+            if (verts == 4) {
+                n = emit(out, n, poly, 0, poly, 8, poly, 12);
+            }
+        }
+        triangleCounts[index] = n / 9;
+    }
+
+    // adds the start of the edge if in front of the near plane, and the
+    // intersection of the edge with the plane if it crosses it
+    private static int clipEdge(float[] clip, float[] poly, int verts, int i, float di, int j, float dj) {
+        if (di >= 0) {
+            System.arraycopy(clip, i, poly, verts * 4, 4);
+            verts++;
+        }
+        if ((di >= 0) != (dj >= 0)) {
+            float s = di / (di - dj);
+            for (int k = 0; k < 4; k++) {
+                float p = clip[i + k];
+                poly[verts * 4 + k] = p + (clip[j + k] - p) * s;
+            }
+            verts++;
+        }
+        return verts;
+    }
+
+    private int emit(float[] out, int n, float[] pa, int a, float[] pb, int b, float[] pc, int c) {
+        n = toScreen(out, n, pa, a);
+        n = toScreen(out, n, pb, b);
+        return toScreen(out, n, pc, c);
+    }
+
+    private int toScreen(float[] out, int n, float[] clip, int v) {
+        float invW = 1f / clip[v + 3];
+        out[n] = (clip[v] * invW * 0.5f + 0.5f) * width;
+        out[n + 1] = (clip[v + 1] * invW * 0.5f + 0.5f) * height;
+        out[n + 2] = clip[v + 2] * invW;
+        return n + 3;
+    }
+
+    /**
+     * Rasterizes all occluder triangles into the rows [y0, y1) of the 
+     * depth buffer, keeping the nearest depth of the fully covered pixels.
+     */
+    private void rasterizeRows(int y0, int y1) {
+        for (int o = 0; o < occluders.size(); o++) {
+            float[] tris = triangles[o];
+            int end = triangleCounts[o] * 9;
+            for (int t = 0; t < end; t += 9) {
+                rasterizeTriangle(tris, t, y0, y1);
+            }
+        }
+    }
+
+    private void rasterizeTriangle(float[] tri, int t, int rowStart, int rowEnd) {
+        float x0 = tri[t], y0 = tri[t + 1], z0 = tri[t + 2];
+        float x1 = tri[t + 3], y1 = tri[t + 4], z1 = tri[t + 5];
+        float x2 = tri[t + 6], y2 = tri[t + 7], z2 = tri[t + 8];
+
+        float minY = Math.min(y0, Math.min(y1, y2));
+        float maxY = Math.max(y0, Math.max(y1, y2));
+        int py0 = Math.max(rowStart, (int) Math.floor(minY));
+        int py1 = Math.min(rowEnd - 1, (int) Math.floor(maxY));
+        if (py0 > py1) {
+            return;
+        }
+        float minX = Math.min(x0, Math.min(x1, x2));
+        float maxX = Math.max(x0, Math.max(x1, x2));
+        int px0 = Math.max(0, (int) Math.floor(minX));
+        int px1 = Math.min(width - 1, (int) Math.floor(maxX));
+        if (px0 > px1) {
+            return;
+        }
+
+        float area = (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+        if (area == 0) {
+            return;
+        }
+        float sign = area > 0 ? 1 : -1;
+        float invArea = 1f / (area * sign);
+
+        // the edge functions are evaluated at the pixel centers, a pixel is
+        // fully covered if they stay positive at its farthest corner, half
+        // a pixel away along each axis
+        float e0 = 0.5f * (Math.abs(x2 - x1) + Math.abs(y2 - y1));
+        float e1 = 0.5f * (Math.abs(x0 - x2) + Math.abs(y0 - y2));
+        float e2 = 0.5f * (Math.abs(x1 - x0) + Math.abs(y1 - y0));
+        // farthest depth of the triangle plane inside a pixel
+        float dzdx = sign * (-(y2 - y1) * z0 - (y0 - y2) * z1 - (y1 - y0) * z2) * invArea;
+        float dzdy = sign * ((x2 - x1) * z0 + (x0 - x2) * z1 + (x1 - x0) * z2) * invArea;
+        float dz = 0.5f * (Math.abs(dzdx) + Math.abs(dzdy));
+
+        for (int py = py0; py <= py1; py++) {
+            float sy = py + 0.5f;
+            int row = py * width;
+            for (int px = px0; px <= px1; px++) {
+                float sx = px + 0.5f;
+                float w0 = sign * ((x2 - x1) * (sy - y1) - (y2 - y1) * (sx - x1));
+                float w1 = sign * ((x0 - x2) * (sy - y2) - (y0 - y2) * (sx - x2));
+                float w2 = sign * ((x1 - x0) * (sy - y0) - (y1 - y0) * (sx - x0));
+                if (w0 < e0 || w1 < e1 || w2 < e2) {
+                    continue;
+                }
+                float z = (w0 * z0 + w1 * z1 + w2 * z2) * invArea + dz;
+                if (z < depth[row + px]) {
+                    depth[row + px] = z;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests a bound against the occluders rasterized by the last call to
+     * {@link #renderOccluders(com.jme3.renderer.Camera, com.jme3.scene.Spatial) }.
+     * Can be called from multiple threads.
+     * 
+     * @param bound The world bound to test.
+     * @return True if the bound is completely hidden behind occluders.
+     */
+    public boolean isOccluded(BoundingVolume bound) {
+        if (!hasOccluders || bound == null) {
+            return false;
+        }
+
+        Vector3f center = bound.getCenter();
+        float ex, ey, ez;
+        if (bound instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bound;
+            ex = box.getXExtent();
+            ey = box.getYExtent();
+            ez = box.getZExtent();
+        } else if (bound instanceof BoundingSphere) {
+            ex = ey = ez = ((BoundingSphere) bound).getRadius();
+        } else {
+            return false;
+        }
+
+        Matrix4f m = viewProj;
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        float minZ = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < 8; i++) {
+            float x = center.x + ((i & 1) == 0 ? -ex : ex);
+            float y = center.y + ((i & 2) == 0 ? -ey : ey);
+            float z = center.z + ((i & 4) == 0 ? -ez : ez);
+            float cz = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+            float cw = m.m30 * x + m.m31 * y + m.m32 * z + m.m33;
+            if (cz < -cw || cw <= 0) {
+                // crosses the near plane, assume visible
+                return false;
+            }
+            float invW = 1f / cw;
+            float sx = ((m.m00 * x + m.m01 * y + m.m02 * z + m.m03) * invW * 0.5f + 0.5f) * width;
+            float sy = ((m.m10 * x + m.m11 * y + m.m12 * z + m.m13) * invW * 0.5f + 0.5f) * height;
+            minX = Math.min(minX, sx);
+            maxX = Math.max(maxX, sx);
+            minY = Math.min(minY, sy);
+            maxY = Math.max(maxY, sy);
+            minZ = Math.min(minZ, cz * invW);
+        }
+
+        int px0 = Math.max(0, (int) Math.floor(minX));
+        int px1 = Math.min(width - 1, (int) Math.floor(maxX));
+        int py0 = Math.max(0, (int) Math.floor(minY));
+        int py1 = Math.min(height - 1, (int) Math.floor(maxY));
+        if (px0 > px1 || py0 > py1) {
+            return false;
+        }
+
+        for (int py = py0; py <= py1; py++) {
+            int row = py * width;
+            for (int px = px0; px <= px1; px++) {
+                if (depth[row + px] >= minZ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private final class TransformTask extends RecursiveAction {
+
+        static final long serialVersionUID = 1;
+
+        private final int start;
+        private final int end;
+
+        TransformTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new TransformTask(start, mid), new TransformTask(mid, end));
+            } else if (end > start) {
+                transformOccluder(start);
+            }
+        }
+    }
+
+    private final class RasterTask extends RecursiveAction {
+
+        static final long serialVersionUID = 1;
+
+        private final int rowStart;
+        private final int rowEnd;
+
+        RasterTask(int rowStart, int rowEnd) {
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowEnd - rowStart > ROWS_PER_TASK) {
+                int mid = (rowStart + rowEnd) >>> 1;
+                invokeAll(new RasterTask(rowStart, mid), new RasterTask(mid, rowEnd));
+            } else {
+                rasterizeRows(rowStart, rowEnd);
+            }
+        }
+
+        void rasterize() {
+            rasterizeRows(rowStart, rowEnd);
+        }
+    }
+}
@@ -39,12 +39,14 @@ import com.jme3.material.Material;
 import com.jme3.material.MaterialDef;
 import com.jme3.material.RenderState;
 import com.jme3.material.RenderStateImpl;
+import com.jme3.material.ShaderPermutationLog;
 import com.jme3.material.Technique;
 import com.jme3.material.TechniqueDef;
 import com.jme3.math.Matrix4f;
 import com.jme3.post.SceneProcessor;
 import com.jme3.profile.AppProfiler;
 import com.jme3.profile.AppStep;
+import com.jme3.profile.TimelineProfiler;
 import com.jme3.profile.VpStep;
 import com.jme3.renderer.queue.GeometryList;
 import com.jme3.renderer.queue.RenderQueue;
@@ -55,16 +57,20 @@ import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.control.Control;
 import com.jme3.shader.Shader;
 import com.jme3.shader.UniformBinding;
 import com.jme3.shader.UniformBindingManager;
 import com.jme3.system.NullRenderer;
 import com.jme3.system.Timer;
 import com.jme3.util.SafeArrayList;
+import com.jme3.util.WorkerPool;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Logger;
 
 /**
@@ -93,11 +99,24 @@ public class RenderManager {
     private int viewX, viewY, viewWidth, viewHeight;
     private final Matrix4f orthoMatrix = new Matrix4f();
     private final LightList filteredLightList = new LightList(null);
+    private final ArrayList<ForkJoinTask<?>> sceneTasks = new ArrayList<ForkJoinTask<?>>();
     private boolean handleTranlucentBucket = true;
     private AppProfiler prof;
     private LightFilter lightFilter = new DefaultLightFilter();
     private TechniqueDef.LightMode preferredLightMode = TechniqueDef.LightMode.MultiPass;
     private int singlePassLightBatchSize = 1;
+    private ShaderPermutationLog shaderPermutationLog;
+    private boolean parallelCulling = false;
+    private OcclusionCuller occlusionCuller;
+    private int numOcclusionTests;
+    private int numOcclusionCulled;
+
+    /**
+     * Nodes with at least this many children have their children culled
+     * by a separate task when {@link #setParallelCulling(boolean) parallel culling}
+     * is enabled, ranges larger than this are split in two halves.
+     */
+    private static final int PARALLEL_CULLING_MIN_CHILDREN = 64;
 
 
     /**
@@ -531,6 +550,7 @@ public class RenderManager {
      */
     public void updateUniformBindings(Shader shader) {
         uniformBindingManager.updateUniformBindings(shader);
+        uniformBindingManager.updateUniformBlocks(shader, renderer);
     }
 
     /**
@@ -565,6 +585,9 @@ public class RenderManager {
      * @see Material#render(com.jme3.scene.Geometry, com.jme3.renderer.RenderManager) 
      */
     public void renderGeometry(Geometry geom) {
+        if (!sceneTasks.isEmpty()) {
+            joinSceneTasks();
+        }
         if (geom.isIgnoreTransform()) {
             setWorldMatrix(Matrix4f.IDENTITY);
         } else {
@@ -714,8 +737,83 @@ public class RenderManager {
     public void renderScene(Spatial scene, ViewPort vp) {
         //reset of the camera plane state for proper culling (must be 0 for the first note of the scene to be rendered)
         vp.getCamera().setPlaneState(0);
+        if (occlusionCuller != null) {
+            occlusionCuller.renderOccluders(vp.getCamera(), scene);
+            numOcclusionTests = 0;
+            numOcclusionCulled = 0;
+        }
         //rendering the scene
-        renderSubScene(scene, vp);
+        if (parallelCulling && scene instanceof Node
+                && ((Node) scene).getQuantity() >= PARALLEL_CULLING_MIN_CHILDREN) {
+            renderSceneParallel((Node) scene, vp);
+        } else {
+            renderSubScene(scene, vp);
+        }
+        if (occlusionCuller != null) {
+            renderer.getStatistics().onOcclusionCulling(numOcclusionTests, numOcclusionCulled);
+        }
+        joinSceneTasks();
+    }
+
+    /**
+     * Starts work on the {@link WorkerPool} that prepares geometries of the
+     * scene being rendered, e.g. software skinning started by a control
+     * from its render callback. The work runs while the rest of the scene is
+     * traversed and is joined at the end of 
+     * {@link #renderScene(com.jme3.scene.Spatial, com.jme3.renderer.ViewPort) },
+     * or before the next geometry is rendered.
+     *
+     * @param task The work, it must only touch the state of its submitter.
+     */
+    public void forkSceneTask(ForkJoinTask<?> task) {
+        WorkerPool.get().execute(task);
+        sceneTasks.add(task);
+    }
+
+    /**
+     * Waits for the work started with 
+     * {@link #forkSceneTask(java.util.concurrent.ForkJoinTask) }.
+     */
+    public void joinSceneTasks() {
+        RuntimeException error = null;
+        for (int i = 0; i < sceneTasks.size(); i++) {
+            try {
+                sceneTasks.get(i).join();
+            } catch (RuntimeException ex) {
+                if (error == null) {
+                    error = ex;
+                }
+            }
+        }
+        sceneTasks.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // true if the spatial's bound is hidden behind the occluders
+    private static boolean isOccluded(OcclusionCuller culler, Spatial scene) {
+        return scene.getCullHint() != Spatial.CullHint.Never
+                && !OcclusionCuller.isOccluder(scene)
+                && culler.isOccluded(scene.getWorldBound());
+    }
+
+    // culls the children of the scene on the worker pool, then runs the
+    // control callbacks and fills the queue on this thread
+    private void renderSceneParallel(Node scene, ViewPort vp) {
+        Camera cam = vp.getCamera();
+        if (!scene.checkCulling(cam)) {
+            return;
+        }
+
+        scene.runControlRender(this, vp);
+
+        OcclusionCuller culler = occlusionCuller != null && occlusionCuller.hasOccluders() ? occlusionCuller : null;
+        CullTask task = new CullTask(cam, culler, scene.getChildren(), 0, scene.getQuantity(), cam.getPlaneState());
+        WorkerPool.get().invoke(task);
+        task.drainTo(this, vp);
+        numOcclusionTests += task.numOcclusionTests;
+        numOcclusionCulled += task.numOcclusionCulled;
     }
     
     // recursively renders the scene
@@ -725,6 +823,13 @@ public class RenderManager {
         if (!scene.checkCulling(vp.getCamera())) {
             return;
         }
+        if (occlusionCuller != null && occlusionCuller.hasOccluders()) {
+            numOcclusionTests++;
+            if (isOccluded(occlusionCuller, scene)) {
+                numOcclusionCulled++;
+                return;
+            }
+        }
 
         scene.runControlRender(this, vp);
         if (scene instanceof Node) {
@@ -749,6 +854,225 @@ public class RenderManager {
         }
     }
 
+    /**
+     * Enable or disable parallel culling.
+     * <p>
+     * When enabled, scenes whose root has many children are culled on the
+     * {@link WorkerPool}. Each task culls part of the graph and collects the
+     * visible geometries in its own lists, which are merged into the
+     * viewport's queue in scene graph order. Control render callbacks are
+     * still made on the render thread, in the same order as the serial
+     * path, but only after the scene has been culled: controls that change
+     * the scene graph in {@link Control#render(com.jme3.renderer.RenderManager, com.jme3.renderer.ViewPort) }
+     * must not rely on the change affecting culling of the same frame.
+     * <p>
+     * Disabled by default.
+     *
+     * @param parallelCulling True to cull scenes in parallel.
+     */
+    public void setParallelCulling(boolean parallelCulling) {
+        this.parallelCulling = parallelCulling;
+    }
+
+    /**
+     * @return True if scenes are culled in parallel.
+     * @see #setParallelCulling(boolean)
+     */
+    public boolean isParallelCulling() {
+        return parallelCulling;
+    }
+
+    /**
+     * Sets the occlusion culler used by {@link #renderScene(com.jme3.scene.Spatial, com.jme3.renderer.ViewPort) }.
+     * <p>
+     * When set, the occluders of each scene are rasterized before the
+     * scene is culled, and spatials that pass frustum culling are tested
+     * against them before being added to the queue. Spatials hidden by
+     * occluders are skipped along with their children and their control
+     * render callbacks, for that viewport only. Spatials with
+     * {@link Spatial.CullHint#Never} are never occlusion culled.
+     * The number of tests and culled spatials are reported in the
+     * renderer's {@link Statistics}.
+     * <p>
+     * Null by default, which disables occlusion culling.
+     *
+     * @param occlusionCuller The occlusion culler, or null to disable.
+     */
+    public void setOcclusionCuller(OcclusionCuller occlusionCuller) {
+        this.occlusionCuller = occlusionCuller;
+    }
+
+    /**
+     * @return The occlusion culler, or null if occlusion culling is disabled.
+     * @see #setOcclusionCuller(com.jme3.renderer.OcclusionCuller)
+     */
+    public OcclusionCuller getOcclusionCuller() {
+        return occlusionCuller;
+    }
+
+    /**
+     * Per task output of parallel culling: spatials with controls and
+     * visible geometries, in scene graph order.
+     */
+    private static final class CullBuffer {
+
+        private static final Bucket[] BUCKETS = Bucket.values();
+
+        private final ArrayList<Spatial> controlled = new ArrayList<Spatial>();
+        private final GeometryList[] lists = new GeometryList[BUCKETS.length];
+
+        void add(Geometry g, Bucket bucket) {
+            GeometryList list = lists[bucket.ordinal()];
+            if (list == null) {
+                list = new GeometryList(null);
+                lists[bucket.ordinal()] = list;
+            }
+            list.add(g);
+        }
+
+        void drainTo(RenderManager rm, ViewPort vp) {
+            for (int i = 0; i < controlled.size(); i++) {
+                controlled.get(i).runControlRender(rm, vp);
+            }
+            RenderQueue queue = vp.getQueue();
+            for (int i = 0; i < lists.length; i++) {
+                if (lists[i] != null) {
+                    queue.addToQueue(lists[i], BUCKETS[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Culls a range of children of a node. Ranges larger than
+     * {@link #PARALLEL_CULLING_MIN_CHILDREN} are split in two halves and
+     * large nodes found while traversing are forked as new tasks. The
+     * output is kept as an ordered list of segments (buffers and subtasks)
+     * so that merging it yields the same order as a serial traversal.
+     * <p>
+     * Culling updates the plane state of the camera, so each worker culls
+     * with its own copy of the viewport camera.
+     */
+    private static final class CullTask extends RecursiveAction {
+
+        static final long serialVersionUID = 1;
+
+        private static final ThreadLocal<Camera> localCamera = new ThreadLocal<Camera>() {
+            @Override
+            protected Camera initialValue() {
+                return new Camera(1, 1);
+            }
+        };
+
+        private final Camera source;
+        private final OcclusionCuller culler;
+        private final List<Spatial> children;
+        private final int start;
+        private final int end;
+        private final int planeState;
+        private final ArrayList<Object> segments = new ArrayList<Object>();
+        private CullBuffer current;
+        private int numOcclusionTests;
+        private int numOcclusionCulled;
+
+        CullTask(Camera source, OcclusionCuller culler, List<Spatial> children, int start, int end, int planeState) {
+            this.source = source;
+            this.culler = culler;
+            this.children = children;
+            this.start = start;
+            this.end = end;
+            this.planeState = planeState;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > PARALLEL_CULLING_MIN_CHILDREN) {
+                int mid = (start + end) >>> 1;
+                CullTask left = new CullTask(source, culler, children, start, mid, planeState);
+                CullTask right = new CullTask(source, culler, children, mid, end, planeState);
+                segments.add(left);
+                segments.add(right);
+                invokeAll(left, right);
+                return;
+            }
+
+            Camera cam = localCamera.get();
+            cam.copyFrom(source);
+            for (int i = start; i < end; i++) {
+                cam.setPlaneState(planeState);
+                cull(children.get(i), cam);
+            }
+
+            for (int i = 0; i < segments.size(); i++) {
+                Object segment = segments.get(i);
+                if (segment instanceof CullTask) {
+                    ((CullTask) segment).join();
+                }
+            }
+        }
+
+        private CullBuffer buffer() {
+            if (current == null) {
+                current = new CullBuffer();
+                segments.add(current);
+            }
+            return current;
+        }
+
+        private void cull(Spatial scene, Camera cam) {
+            if (!scene.checkCulling(cam)) {
+                return;
+            }
+            if (culler != null) {
+                numOcclusionTests++;
+                if (isOccluded(culler, scene)) {
+                    numOcclusionCulled++;
+                    return;
+                }
+            }
+
+            if (scene.getNumControls() > 0) {
+                buffer().controlled.add(scene);
+            }
+            if (scene instanceof Node) {
+                Node n = (Node) scene;
+                List<Spatial> nodeChildren = n.getChildren();
+                int camState = cam.getPlaneState();
+                if (nodeChildren.size() >= PARALLEL_CULLING_MIN_CHILDREN) {
+                    CullTask task = new CullTask(source, culler, nodeChildren, 0, nodeChildren.size(), camState);
+                    segments.add(task);
+                    current = null;
+                    task.fork();
+                } else {
+                    for (int i = 0; i < nodeChildren.size(); i++) {
+                        cam.setPlaneState(camState);
+                        cull(nodeChildren.get(i), cam);
+                    }
+                }
+            } else if (scene instanceof Geometry) {
+                Geometry gm = (Geometry) scene;
+                if (gm.getMaterial() == null) {
+                    throw new IllegalStateException("No material is set for Geometry: " + gm.getName());
+                }
+                buffer().add(gm, scene.getQueueBucket());
+            }
+        }
+
+        void drainTo(RenderManager rm, ViewPort vp) {
+            for (int i = 0; i < segments.size(); i++) {
+                Object segment = segments.get(i);
+                if (segment instanceof CullTask) {
+                    CullTask task = (CullTask) segment;
+                    task.drainTo(rm, vp);
+                    numOcclusionTests += task.numOcclusionTests;
+                    numOcclusionCulled += task.numOcclusionCulled;
+                } else {
+                    ((CullBuffer) segment).drainTo(rm, vp);
+                }
+            }
+        }
+    }
+
     /**
      * Returns the camera currently used for rendering.
      * <p>
@@ -852,6 +1176,24 @@ public class RenderManager {
         // Ensure the batch size is no less than 1
         this.singlePassLightBatchSize = singlePassLightBatchSize < 1 ? 1 : singlePassLightBatchSize;
     }
+
+    /**
+     * Sets the log that records every shader permutation rendered with,
+     * so that it can be precompiled in a later session.
+     *
+     * @param shaderPermutationLog the log, or null to stop recording.
+     * @see ShaderPermutationLog#warmUp(com.jme3.renderer.RenderManager, com.jme3.asset.AssetManager)
+     */
+    public void setShaderPermutationLog(ShaderPermutationLog shaderPermutationLog) {
+        this.shaderPermutationLog = shaderPermutationLog;
+    }
+
+    /**
+     * @return the log recording shader permutations, or null if not recording.
+     */
+    public ShaderPermutationLog getShaderPermutationLog() {
+        return shaderPermutationLog;
+    }
     
     
     /**
@@ -1074,13 +1416,23 @@ public class RenderManager {
         if (processors.isEmpty()) {
             processors = null;
         }
+        boolean timeline = TimelineProfiler.isActive();
 
         if (processors != null) {
             for (SceneProcessor proc : processors.getArray()) {
                 if (!proc.isInitialized()) {
                     proc.initialize(this, vp);
                 }
-                proc.preFrame(tpf);
+                if (timeline) {
+                    TimelineProfiler.begin("SceneProcessor", proc.getClass().getSimpleName());
+                    try {
+                        proc.preFrame(tpf);
+                    } finally {
+                        TimelineProfiler.end();
+                    }
+                } else {
+                    proc.preFrame(tpf);
+                }
             }
         }
 
@@ -1104,7 +1456,16 @@ public class RenderManager {
         if (processors != null) {
             if (prof!=null) prof.vpStep(VpStep.PostQueue, vp, null);
             for (SceneProcessor proc : processors.getArray()) {
-                proc.postQueue(vp.getQueue());
+                if (timeline) {
+                    TimelineProfiler.begin("SceneProcessor", proc.getClass().getSimpleName());
+                    try {
+                        proc.postQueue(vp.getQueue());
+                    } finally {
+                        TimelineProfiler.end();
+                    }
+                } else {
+                    proc.postQueue(vp.getQueue());
+                }
             }
         }
 
@@ -1114,7 +1475,16 @@ public class RenderManager {
         if (processors != null) {
             if (prof!=null) prof.vpStep(VpStep.PostFrame, vp, null);
             for (SceneProcessor proc : processors.getArray()) {
-                proc.postFrame(vp.getOutputFrameBuffer());
+                if (timeline) {
+                    TimelineProfiler.begin("SceneProcessor", proc.getClass().getSimpleName());
+                    try {
+                        proc.postFrame(vp.getOutputFrameBuffer());
+                    } finally {
+                        TimelineProfiler.end();
+                    }
+                } else {
+                    proc.postFrame(vp.getOutputFrameBuffer());
+                }
             }
         }
         //renders the translucent objects queue after processors have been rendered
@@ -38,6 +38,7 @@ import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.shader.Shader;
 import com.jme3.shader.Shader.ShaderSource;
+import com.jme3.shader.UniformBlock;
 import com.jme3.system.AppSettings;
 import com.jme3.texture.FrameBuffer;
 import com.jme3.texture.Image;
@@ -185,6 +186,22 @@ public interface Renderer {
      */
     public void deleteShaderSource(ShaderSource source);
 
+    /**
+     * Uploads the data of a uniform block and binds it to the block's
+     * binding point, the data is used by all following draw calls of 
+     * shaders that {@link Shader#isUniformBlockDeclared(com.jme3.shader.UniformBlock) declare}
+     * the block, until the block is set again.
+     * <p>
+     * The data between the buffer's position and limit is copied,
+     * the buffer can be reused after the call returns.
+     * Has no effect unless the renderer supports 
+     * {@link Caps#UniformBufferObject}.
+     * 
+     * @param block The block to set.
+     * @param data The std140 data of the block.
+     */
+    public void setUniformBlock(UniformBlock block, ByteBuffer data);
+
     /**
      * Copies contents from src to dst, scaling if necessary.
      * set copyDepth to false to only copy the color buffers.
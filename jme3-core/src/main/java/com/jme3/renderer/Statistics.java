@@ -55,6 +55,9 @@ public class Statistics {
     protected int numTextureBinds;
     protected int numFboSwitches;
     protected int numUniformsSet;
+    protected int numBufferBytesUploaded;
+    protected int numOcclusionTests;
+    protected int numOcclusionCulled;
 
     protected int memoryShaders;
     protected int memoryFrameBuffers;
@@ -90,7 +93,12 @@ public class Statistics {
 
                              "FrameBuffers (S)",
                              "FrameBuffers (F)",
-                             "FrameBuffers (M)" };
+                             "FrameBuffers (M)",
+
+                             "Buffer Uploads (B)",
+
+                             "Occlusion Tests",
+                             "Occlusion Culled" };
 
     }
 
@@ -118,6 +126,11 @@ public class Statistics {
         data[10] = numFboSwitches;
         data[11] = fbosUsed.size();
         data[12] = memoryFrameBuffers;
+
+        data[13] = numBufferBytesUploaded;
+
+        data[14] = numOcclusionTests;
+        data[15] = numOcclusionCulled;
     }
 
     /**
@@ -173,6 +186,31 @@ public class Statistics {
         numUniformsSet ++;
     }
 
+    /**
+     * Called by the Renderer when vertex buffer data was sent to the GPU.
+     * 
+     * @param bytes The number of bytes uploaded
+     */
+    public void onBufferUpload(int bytes){
+        if( !enabled )
+            return;
+        numBufferBytesUploaded += bytes;
+    }
+
+    /**
+     * Called by the RenderManager after spatials were tested against 
+     * the {@link OcclusionCuller}.
+     * 
+     * @param tested The number of bounds tested
+     * @param culled The number of bounds found to be occluded
+     */
+    public void onOcclusionCulling(int tested, int culled){
+        if( !enabled )
+            return;
+        numOcclusionTests += tested;
+        numOcclusionCulled += culled;
+    }
+
     /**
      * Called by the Renderer when a texture has been set.
      * 
@@ -228,6 +266,9 @@ public class Statistics {
         numTextureBinds = 0;
         numFboSwitches = 0;
         numUniformsSet = 0;
+        numBufferBytesUploaded = 0;
+        numOcclusionTests = 0;
+        numOcclusionCulled = 0;
         
         lastShader = -1;
     }
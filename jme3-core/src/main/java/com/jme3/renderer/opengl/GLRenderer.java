@@ -42,6 +42,7 @@ import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.math.Vector4f;
 import com.jme3.opencl.OpenCLObjectManager;
+import com.jme3.profile.TimelineProfiler;
 import com.jme3.renderer.Caps;
 import com.jme3.renderer.IDList;
 import com.jme3.renderer.Limits;
@@ -56,10 +57,12 @@ import com.jme3.scene.VertexBuffer.Format;
 import com.jme3.scene.VertexBuffer.Type;
 import com.jme3.scene.VertexBuffer.Usage;
 import com.jme3.shader.Attribute;
+import com.jme3.shader.ProgramBinaryCache;
 import com.jme3.shader.Shader;
 import com.jme3.shader.Shader.ShaderSource;
 import com.jme3.shader.Shader.ShaderType;
 import com.jme3.shader.Uniform;
+import com.jme3.shader.UniformBlock;
 import com.jme3.texture.FrameBuffer;
 import com.jme3.texture.FrameBuffer.RenderBuffer;
 import com.jme3.texture.Image;
@@ -67,11 +70,13 @@ import com.jme3.texture.Texture;
 import com.jme3.texture.Texture.ShadowCompareMode;
 import com.jme3.texture.Texture.WrapAxis;
 import com.jme3.texture.image.LastTextureState;
+import com.jme3.util.BufferUtils;
 import com.jme3.util.BufferUtilsCreator;
 import com.jme3.util.ListMap;
 import com.jme3.util.MipMapGenerator;
 import com.jme3.util.NativeObjectManager;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -90,6 +95,7 @@ public final class GLRenderer implements Renderer {
 
     private static final Logger logger = Logger.getLogger(GLRenderer.class.getName());
     private static final boolean VALIDATE_SHADER = false;
+    private static final int UNIFORM_RING_SIZE = 1024 * 1024;
     private static final Pattern GLVERSION_PATTERN = Pattern.compile(".*?(\\d+)\\.(\\d+).*");
 
     private final ByteBuffer nameBuf = BufferUtilsCreator.createByteBuffer(250);
@@ -109,12 +115,17 @@ public final class GLRenderer implements Renderer {
     private int defaultAnisotropicFilter = 1;
     private boolean linearizeSrgbImages;
     private HashSet<String> extensions;
+    private ProgramBinaryCache programCache;
+    private String driverString;
+    private UniformBufferRing uniformRing;
+    private int uniformBufferAlignment = 256;
 
     private final GL gl;
     private final GL2 gl2;
     private final GL3 gl3;
     private final GL4 gl4;
     private final GLExt glext;
+    private final GLProgramBinary glbin;
     private final GLFbo glfbo;
     private final TextureUtil texUtil;
 
@@ -125,6 +136,7 @@ public final class GLRenderer implements Renderer {
         this.gl4 = gl instanceof GL4 ? (GL4)gl : null;
         this.glfbo = glfbo;
         this.glext = glext;
+        this.glbin = glext instanceof GLProgramBinary ? (GLProgramBinary) glext : null;
         this.texUtil = new TextureUtil(gl, gl2, glext);
     }
 
@@ -468,6 +480,15 @@ public final class GLRenderer implements Renderer {
             }
         }
 
+        if (gl3 != null && (hasExtension("GL_ARB_uniform_buffer_object") || caps.contains(Caps.OpenGL31))) {
+            caps.add(Caps.UniformBufferObject);
+            uniformBufferAlignment = Math.max(1, getInteger(GL3.GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT));
+        }
+
+        driverString = gl.glGetString(GL.GL_VENDOR) + "\n"
+                + gl.glGetString(GL.GL_RENDERER) + "\n"
+                + gl.glGetString(GL.GL_VERSION);
+
         // Print context information
         logger.log(Level.INFO, "OpenGL Renderer Information\n" +
                         " * Vendor: {0}\n" +
@@ -556,6 +577,9 @@ public final class GLRenderer implements Renderer {
 
     public void invalidateState() {
         context.reset();
+        if (uniformRing != null) {
+            uniformRing.invalidateState();
+        }
         if (gl2 != null) {
             context.initialDrawBuf = getInteger(GL2.GL_DRAW_BUFFER);
             context.initialReadBuf = getInteger(GL2.GL_READ_BUFFER);
@@ -566,6 +590,10 @@ public final class GLRenderer implements Renderer {
         logger.log(Level.FINE, "Reseting objects and invalidating state");
         objManager.resetObjects();
         statistics.clearMemory();
+        if (uniformRing != null) {
+            uniformRing.delete();
+            uniformRing = null;
+        }
         invalidateState();
     }
 
@@ -1162,20 +1190,12 @@ public final class GLRenderer implements Renderer {
         }
     }
 
-    public void updateShaderSourceData(ShaderSource source) {
-        int id = source.getId();
-        if (id == -1) {
-            // Create id
-            id = gl.glCreateShader(convertShaderType(source.getType()));
-            if (id <= 0) {
-                throw new RendererException("Invalid ID received when trying to create shader.");
-            }
-
-            source.setId(id);
-        } else {
-            throw new RendererException("Cannot recompile shader source");
-        }
-
+    /**
+     * Generates the complete source code that is handed to the GLSL
+     * compiler for the given shader source: version header, renderer
+     * defines, technique defines and the source itself.
+     */
+    private String generateShaderSource(ShaderSource source) {
         boolean gles2 = caps.contains(Caps.OpenGLES20);
         String language = source.getLanguage();
 
@@ -1221,10 +1241,30 @@ public final class GLRenderer implements Renderer {
 
         stringBuf.append(source.getDefines());
         stringBuf.append(source.getSource());
+        return stringBuf.toString();
+    }
+
+    public void updateShaderSourceData(ShaderSource source) {
+        updateShaderSourceData(source, generateShaderSource(source));
+    }
+
+    private void updateShaderSourceData(ShaderSource source, String sourceCode) {
+        int id = source.getId();
+        if (id == -1) {
+            // Create id
+            id = gl.glCreateShader(convertShaderType(source.getType()));
+            if (id <= 0) {
+                throw new RendererException("Invalid ID received when trying to create shader.");
+            }
+
+            source.setId(id);
+        } else {
+            throw new RendererException("Cannot recompile shader source");
+        }
 
         intBuf1.clear();
-        intBuf1.put(0, stringBuf.length());
-        gl.glShaderSource(id, new String[]{ stringBuf.toString() }, intBuf1);
+        intBuf1.put(0, sourceCode.length());
+        gl.glShaderSource(id, new String[]{ sourceCode }, intBuf1);
         gl.glCompileShader(id);
 
         gl.glGetShader(id, GL.GL_COMPILE_STATUS, intBuf1);
@@ -1274,36 +1314,65 @@ public final class GLRenderer implements Renderer {
             needRegister = true;
         }
 
-        // If using GLSL 1.5, we bind the outputs for the user
-        // For versions 3.3 and up, user should use layout qualifiers instead.
-        boolean bindFragDataRequired = false;
+        ShaderSource[] sources = shader.getSources().toArray(new ShaderSource[0]);
+        String[] sourceCode = new String[sources.length];
+        String binaryKey = null;
+        boolean linkOK = false;
 
-        for (ShaderSource source : shader.getSources()) {
-            if (source.isUpdateNeeded()) {
-                updateShaderSourceData(source);
-            }
-            if (source.getType() == ShaderType.Fragment
-                    && source.getLanguage().equals("GLSL150")) {
-                bindFragDataRequired = true;
+        if (programCache != null && programCache.isEnabled() && glbin != null && caps.contains(Caps.BinaryShader)) {
+            for (int i = 0; i < sourceCode.length; i++) {
+                sourceCode[i] = generateShaderSource(sources[i]);
             }
-            gl.glAttachShader(id, source.getId());
+            binaryKey = programCache.computeKey(driverString, sourceCode);
+            linkOK = loadProgramBinary(id, binaryKey);
         }
 
-        if (bindFragDataRequired) {
-            // Check if GLSL version is 1.5 for shader
-            gl3.glBindFragDataLocation(id, 0, "outFragColor");
-            // For MRT
-            for (int i = 0; i < limits.get(Limits.FrameBufferMrtAttachments); i++) {
-                gl3.glBindFragDataLocation(id, i, "outFragData[" + i + "]");
+        if (!linkOK) {
+            // If using GLSL 1.5, we bind the outputs for the user
+            // For versions 3.3 and up, user should use layout qualifiers instead.
+            boolean bindFragDataRequired = false;
+
+            for (int i = 0; i < sourceCode.length; i++) {
+                ShaderSource source = sources[i];
+                if (source.isUpdateNeeded()) {
+                    if (sourceCode[i] != null) {
+                        updateShaderSourceData(source, sourceCode[i]);
+                    } else {
+                        updateShaderSourceData(source);
+                    }
+                }
+                if (source.getType() == ShaderType.Fragment
+                        && source.getLanguage().equals("GLSL150")) {
+                    bindFragDataRequired = true;
+                }
+                gl.glAttachShader(id, source.getId());
             }
-        }
 
-        // Link shaders to program
-        gl.glLinkProgram(id);
+            if (bindFragDataRequired) {
+                // Check if GLSL version is 1.5 for shader
+                gl3.glBindFragDataLocation(id, 0, "outFragColor");
+                // For MRT
+                for (int i = 0; i < limits.get(Limits.FrameBufferMrtAttachments); i++) {
+                    gl3.glBindFragDataLocation(id, i, "outFragData[" + i + "]");
+                }
+            }
+
+            if (binaryKey != null) {
+                glbin.glProgramParameteri(id, GLProgramBinary.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL.GL_TRUE);
+            }
+
+            // Link shaders to program
+            gl.glLinkProgram(id);
+
+            // Check link status
+            gl.glGetProgram(id, GL.GL_LINK_STATUS, intBuf1);
+            linkOK = intBuf1.get(0) == GL.GL_TRUE;
+
+            if (linkOK && binaryKey != null) {
+                storeProgramBinary(id, binaryKey);
+            }
+        }
 
-        // Check link status
-        gl.glGetProgram(id, GL.GL_LINK_STATUS, intBuf1);
-        boolean linkOK = intBuf1.get(0) == GL.GL_TRUE;
         String infoLog = null;
 
         if (VALIDATE_SHADER || !linkOK) {
@@ -1321,6 +1390,7 @@ public final class GLRenderer implements Renderer {
             } else {
                 logger.fine("Shader linked successfully.");
             }
+            updateUniformBlockBindings(shader);
             shader.clearUpdateNeeded();
             if (needRegister) {
                 // Register shader for clean up if it was created in this method.
@@ -1339,12 +1409,112 @@ public final class GLRenderer implements Renderer {
         }
     }
 
+    /**
+     * Binds the {@link UniformBlock}s declared by the linked program to
+     * their binding points.
+     */
+    private void updateUniformBlockBindings(Shader shader) {
+        if (!caps.contains(Caps.UniformBufferObject)) {
+            return;
+        }
+        int id = shader.getId();
+        for (UniformBlock block : UniformBlock.values()) {
+            int index = gl3.glGetUniformBlockIndex(id, block.getBlockName());
+            boolean declared = index != GL3.GL_INVALID_INDEX;
+            if (declared) {
+                gl3.glUniformBlockBinding(id, index, block.getBindingPoint());
+            }
+            shader.setUniformBlockDeclared(block, declared);
+        }
+    }
+
+    public void setUniformBlock(UniformBlock block, ByteBuffer data) {
+        if (!caps.contains(Caps.UniformBufferObject)) {
+            return;
+        }
+        if (uniformRing == null) {
+            uniformRing = new UniformBufferRing(gl, gl3, UNIFORM_RING_SIZE, uniformBufferAlignment, intBuf1);
+        }
+        uniformRing.bind(block.getBindingPoint(), data);
+    }
+
+    /**
+     * Tries to link the program from a binary in the program cache.
+     *
+     * @return True if the binary was accepted by the driver.
+     */
+    private boolean loadProgramBinary(int programId, String key) {
+        ProgramBinaryCache.Entry entry = programCache.load(key);
+        if (entry == null) {
+            return false;
+        }
+
+        glbin.glProgramBinary(programId, entry.getFormat(), entry.getData());
+        gl.glGetProgram(programId, GL.GL_LINK_STATUS, intBuf1);
+        if (intBuf1.get(0) == GL.GL_TRUE) {
+            logger.log(Level.FINE, "Shader program {0} loaded from binary cache.", key);
+            return true;
+        }
+
+        // Driver or hardware changed in a way not reflected by the
+        // driver string, recompile from source and replace the entry.
+        logger.log(Level.FINE, "Binary for shader program {0} was rejected, recompiling.", key);
+        programCache.invalidate(key);
+        return false;
+    }
+
+    private void storeProgramBinary(int programId, String key) {
+        gl.glGetProgram(programId, GLProgramBinary.GL_PROGRAM_BINARY_LENGTH, intBuf1);
+        int length = intBuf1.get(0);
+        if (length <= 0) {
+            return;
+        }
+
+        ByteBuffer binary = BufferUtilsCreator.createByteBuffer(length);
+        intBuf1.clear();
+        intBuf16.clear();
+        glbin.glGetProgramBinary(programId, intBuf1, intBuf16, binary);
+        binary.position(0).limit(Math.min(intBuf1.get(0), length));
+        programCache.store(key, intBuf16.get(0), binary);
+        BufferUtils.destroyDirectBuffer(binary);
+    }
+
+    /**
+     * Sets the cache used to persist linked shader programs between runs.
+     * <p>
+     * Has no effect unless the driver supports {@link Caps#BinaryShader}
+     * and the {@link GLExt} given to the renderer implements 
+     * {@link GLProgramBinary}.
+     *
+     * @param programCache The program cache, or null to disable caching.
+     */
+    public void setProgramBinaryCache(ProgramBinaryCache programCache) {
+        this.programCache = programCache;
+    }
+
+    /**
+     * @return The cache used to persist linked shader programs, or null.
+     */
+    public ProgramBinaryCache getProgramBinaryCache() {
+        return programCache;
+    }
+
     public void setShader(Shader shader) {
         if (shader == null) {
             throw new IllegalArgumentException("Shader cannot be null");
         } else {
             if (shader.isUpdateNeeded()) {
-                updateShaderData(shader);
+                if (TimelineProfiler.isActive()) {
+                    TimelineProfiler.begin("Shader", shader.getSources().isEmpty()
+                            ? "Shader" : shader.getSources().iterator().next().getName());
+                    try {
+                        updateShaderData(shader);
+                    } finally {
+                        TimelineProfiler.end();
+                    }
+                } else {
+                    updateShaderData(shader);
+                }
             }
 
             // NOTE: might want to check if any of the
@@ -2402,6 +2572,14 @@ public final class GLRenderer implements Renderer {
             }
         }
 
+        if (!created && !vb.hasDataSizeChanged() && vb.getNumUpdateRanges() > 0) {
+            // only some elements changed, stream them into the existing storage
+            updateBufferSubData(target, vb);
+            vb.clearUpdateNeeded();
+            return;
+        }
+
+        // The entire buffer is rewritten, let the driver orphan the old storage
         int usage = convertUsage(vb.getUsage());
         vb.getData().rewind();
 
@@ -2425,9 +2603,52 @@ public final class GLRenderer implements Renderer {
                 throw new UnsupportedOperationException("Unknown buffer format.");
         }
 
+        statistics.onBufferUpload(vb.getData().limit() * vb.getFormat().getComponentSize());
         vb.clearUpdateNeeded();
     }
 
+    private void updateBufferSubData(int target, VertexBuffer vb) {
+        Buffer data = vb.getData();
+        int limit = data.limit();
+        int componentSize = vb.getFormat().getComponentSize();
+        int elementLength = vb.getNumComponents();
+
+        for (int i = 0; i < vb.getNumUpdateRanges(); i++) {
+            int start = vb.getUpdateRangeStart(i) * elementLength;
+            int end = Math.min(vb.getUpdateRangeEnd(i) * elementLength, limit);
+            if (start >= end) {
+                continue;
+            }
+
+            data.limit(end).position(start);
+            long offset = (long) start * componentSize;
+
+            switch (vb.getFormat()) {
+                case Byte:
+                case UnsignedByte:
+                    gl.glBufferSubData(target, offset, (ByteBuffer) data);
+                    break;
+                case Short:
+                case UnsignedShort:
+                    gl.glBufferSubData(target, offset, (ShortBuffer) data);
+                    break;
+                case Int:
+                case UnsignedInt:
+                    glext.glBufferSubData(target, offset, (IntBuffer) data);
+                    break;
+                case Float:
+                    gl.glBufferSubData(target, offset, (FloatBuffer) data);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown buffer format.");
+            }
+
+            statistics.onBufferUpload((end - start) * componentSize);
+        }
+
+        data.limit(limit).position(0);
+    }
+
     public void deleteBuffer(VertexBuffer vb) {
         int bufId = vb.getId();
         if (bufId != -1) {
@@ -105,6 +105,9 @@ public final class GLTracer implements InvocationHandler {
         noEnumArgs("glDeleteBuffers", 0);
         noEnumArgs("glBindVertexArray", 0);
         noEnumArgs("glGenVertexArrays", 0);
+        noEnumArgs("glGetUniformBlockIndex", 0);
+        noEnumArgs("glUniformBlockBinding", 0, 1, 2);
+        noEnumArgs("glBindBufferRange", 1, 2);
         
         noEnumArgs("glBindFramebufferEXT", 1);
         noEnumArgs("glBindRenderbufferEXT", 1);
@@ -122,6 +125,9 @@ public final class GLTracer implements InvocationHandler {
         noEnumArgs("glAttachShader", 0, 1);
         noEnumArgs("glLinkProgram", 0);
         noEnumArgs("glGetProgram", 0);
+        noEnumArgs("glProgramBinary", 0, 1);
+        noEnumArgs("glGetProgramBinary", 0);
+        noEnumArgs("glProgramParameteri", 0);
         noEnumArgs("glUseProgram", 0);
         noEnumArgs("glGetUniformLocation", 0, -1);
         noEnumArgs("glUniformMatrix3", 0);
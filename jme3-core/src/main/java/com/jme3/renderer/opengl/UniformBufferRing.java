@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer.opengl;
+
+import com.jme3.renderer.RendererException;
+import com.jme3.util.BufferUtilsCreator;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A single uniform buffer that uniform block data is sub-allocated from.
+ * <p>
+ * Every upload is appended behind the previous one at the next offset
+ * satisfying <code>GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT</code> and bound with
+ * <code>glBindBufferRange</code>, so blocks of consecutive draw calls
+ * never overwrite each other. When the end of the buffer is reached the
+ * storage is orphaned and allocation restarts at the beginning, the 
+ * driver keeps the old storage alive until the GPU is done reading it.
+ * <p>
+ * Orphaning leaves the ranges bound before pointing into the new, undefined
+ * storage. The ring keeps a copy of the data last bound to each binding
+ * point and uploads it again after orphaning, so blocks that are not set
+ * for every draw call, like the world block, stay valid.
+ */
+final class UniformBufferRing {
+
+    private final GL gl;
+    private final GL3 gl3;
+    private final int capacity;
+    private final int alignment;
+    private final IntBuffer temp;
+    private int id = -1;
+    private int head = 0;
+    private boolean bound = false;
+    // the data last bound to each binding point, uploaded again on wrap
+    private ByteBuffer[] lastData = new ByteBuffer[0];
+
+    UniformBufferRing(GL gl, GL3 gl3, int capacity, int alignment, IntBuffer temp) {
+        this.gl = gl;
+        this.gl3 = gl3;
+        this.capacity = capacity;
+        this.alignment = alignment;
+        this.temp = temp;
+    }
+
+    /**
+     * Copies the data into the ring and binds the copy to the binding point.
+     */
+    void bind(int bindingPoint, ByteBuffer data) {
+        int size = data.remaining();
+        if (size > capacity) {
+            throw new RendererException("Uniform block of " + size 
+                    + " bytes exceeds the uniform buffer size of " + capacity);
+        }
+
+        if (id == -1) {
+            gl.glGenBuffers(temp);
+            id = temp.get(0);
+            gl.glBindBuffer(GL3.GL_UNIFORM_BUFFER, id);
+            gl.glBufferData(GL3.GL_UNIFORM_BUFFER, capacity, GL.GL_STREAM_DRAW);
+            bound = true;
+        } else if (!bound) {
+            gl.glBindBuffer(GL3.GL_UNIFORM_BUFFER, id);
+            bound = true;
+        }
+
+        if (align(head) + size > capacity) {
+            // orphan, the GPU may still be reading the old contents
+            gl.glBufferData(GL3.GL_UNIFORM_BUFFER, capacity, GL.GL_STREAM_DRAW);
+            head = 0;
+            for (int i = 0; i < lastData.length; i++) {
+                if (i != bindingPoint && lastData[i] != null) {
+                    upload(i, lastData[i]);
+                }
+            }
+        }
+
+        upload(bindingPoint, data);
+        keepCopy(bindingPoint, data);
+    }
+
+    private int align(int offset) {
+        return (offset + alignment - 1) / alignment * alignment;
+    }
+
+    private void upload(int bindingPoint, ByteBuffer data) {
+        int offset = align(head);
+        int size = data.remaining();
+        if (offset + size > capacity) {
+            throw new RendererException("Uniform blocks exceed the uniform buffer size of " + capacity);
+        }
+        gl.glBufferSubData(GL3.GL_UNIFORM_BUFFER, offset, data);
+        gl3.glBindBufferRange(GL3.GL_UNIFORM_BUFFER, bindingPoint, id, offset, size);
+        head = offset + size;
+    }
+
+    private void keepCopy(int bindingPoint, ByteBuffer data) {
+        if (bindingPoint >= lastData.length) {
+            ByteBuffer[] newData = new ByteBuffer[bindingPoint + 1];
+            System.arraycopy(lastData, 0, newData, 0, lastData.length);
+            lastData = newData;
+        }
+        ByteBuffer copy = lastData[bindingPoint];
+        if (copy == null || copy.capacity() < data.remaining()) {
+            copy = BufferUtilsCreator.createByteBuffer(data.remaining());
+            lastData[bindingPoint] = copy;
+        }
+        copy.clear();
+        copy.put(data.duplicate());
+        copy.flip();
+    }
+
+    /**
+     * Forgets the buffer binding, e.g. after the GL state was changed 
+     * externally.
+     */
+    void invalidateState() {
+        bound = false;
+    }
+
+    /**
+     * Deletes the buffer.
+     */
+    void delete() {
+        if (id != -1) {
+            temp.put(0, id);
+            temp.position(0).limit(1);
+            gl.glDeleteBuffers(temp);
+            id = -1;
+        }
+        head = 0;
+        bound = false;
+        lastData = new ByteBuffer[0];
+    }
+}
@@ -35,6 +35,7 @@ import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
 import com.jme3.util.ListSort;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -50,8 +51,18 @@ public class GeometryList implements Iterable<Geometry>{
 
     private static final int DEFAULT_SIZE = 32;
 
+    /**
+     * Lists at least this long are radix sorted when the comparator is a
+     * {@link SortKeyComparator}, shorter ones use the comparator directly.
+     */
+    private static final int RADIX_SORT_MIN_SIZE = 64;
+
     private Geometry[] geometries;    
     private ListSort listSort;
+    private long[] keys;
+    private long[] keysTemp;
+    private Geometry[] geometriesTemp;
+    private final int[] histograms = new int[8 * 256];
     private int size;
     private GeometryComparator comparator;
 
@@ -135,6 +146,24 @@ public class GeometryList implements Iterable<Geometry>{
         geometries[size++] = g;
     }
 
+    /**
+     * Adds all geometries of another list to the end of this list,
+     * preserving their order.
+     *
+     * @param other
+     *            The list whose geometries to add.
+     */
+    public void addAll(GeometryList other) {
+        int newSize = size + other.size;
+        if (newSize > geometries.length) {
+            Geometry[] temp = new Geometry[Math.max(newSize, size * 2)];
+            System.arraycopy(geometries, 0, temp, 0, size);
+            geometries = temp;
+        }
+        System.arraycopy(other.geometries, 0, geometries, size, other.size);
+        size = newSize;
+    }
+
     /**
      * Resets list size to 0.
      */
@@ -150,7 +179,9 @@ public class GeometryList implements Iterable<Geometry>{
      * Sorts the elements in the list according to their Comparator.
      */
     public void sort() {
-        if (size > 1) {
+        if (size >= RADIX_SORT_MIN_SIZE && comparator instanceof SortKeyComparator) {
+            radixSort((SortKeyComparator) comparator);
+        } else if (size > 1) {
             // sort the spatial list using the comparator
             if(listSort.getLength() != size){
                 listSort.allocateStack(size);
@@ -159,6 +190,80 @@ public class GeometryList implements Iterable<Geometry>{
         }
     }
 
+    /**
+     * Stable LSD radix sort on the 64-bit keys, one byte per pass. Passes
+     * where every key has the same byte are skipped, so keys that only use
+     * their upper half cost four passes at most.
+     */
+    private void radixSort(SortKeyComparator keyComparator) {
+        if (keys == null || keys.length < size) {
+            keys = new long[geometries.length];
+            keysTemp = new long[geometries.length];
+            geometriesTemp = new Geometry[geometries.length];
+        }
+
+        int[] counts = histograms;
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < size; i++) {
+            long key = keyComparator.getSortKey(geometries[i]);
+            keys[i] = key;
+            for (int b = 0; b < 8; b++) {
+                counts[(b << 8) + ((int) (key >>> (b << 3)) & 0xFF)]++;
+            }
+        }
+
+        Geometry[] src = geometries;
+        Geometry[] dst = geometriesTemp;
+        long[] srcKeys = keys;
+        long[] dstKeys = keysTemp;
+        for (int b = 0; b < 8; b++) {
+            int offset = b << 8;
+            int shift = b << 3;
+            if (counts[offset + ((int) (srcKeys[0] >>> shift) & 0xFF)] == size) {
+                continue;
+            }
+
+            int sum = 0;
+            for (int i = offset; i < offset + 256; i++) {
+                int count = counts[i];
+                counts[i] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < size; i++) {
+                long key = srcKeys[i];
+                int pos = counts[offset + ((int) (key >>> shift) & 0xFF)]++;
+                dstKeys[pos] = key;
+                dst[pos] = src[i];
+            }
+
+            Geometry[] tmp = src;
+            src = dst;
+            dst = tmp;
+            long[] tmpKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tmpKeys;
+        }
+
+        if (src != geometries) {
+            System.arraycopy(src, 0, geometries, 0, size);
+        }
+        Arrays.fill(geometriesTemp, 0, size, null);
+    }
+
+    /**
+     * Converts a float to 32 bits whose unsigned integer order is the
+     * order of the float values, for use in sort keys.
+     *
+     * @param value The value to convert, must not be NaN.
+     * @return The sortable bits, in the lower 32 bits of the result.
+     */
+    public static long floatToSortKey(float value) {
+        // adding 0 turns -0.0 into 0.0 so both get the same key
+        int bits = Float.floatToIntBits(value + 0.0f);
+        bits ^= (bits >> 31) | Integer.MIN_VALUE;
+        return bits & 0xFFFFFFFFL;
+    }
+
     public Iterator<Geometry> iterator() {
         return new Iterator<Geometry>() {
 
@@ -40,7 +40,7 @@ import com.jme3.scene.Geometry;
  *
  * @author Kirill Vainer
  */
-public class GuiComparator implements GeometryComparator {
+public class GuiComparator implements SortKeyComparator {
 
     public int compare(Geometry o1, Geometry o2) {
         float z1 = o1.getWorldTranslation().getZ();
@@ -53,6 +53,10 @@ public class GuiComparator implements GeometryComparator {
             return 0;
     }
 
+    public long getSortKey(Geometry geom) {
+        return GeometryList.floatToSortKey(geom.getWorldTranslation().getZ()) << 32;
+    }
+
     public void setCamera(Camera cam) {
     }
 
@@ -36,7 +36,7 @@ import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
 
-public class OpaqueComparator implements GeometryComparator {
+public class OpaqueComparator implements SortKeyComparator {
 
     private Camera cam;
     private final Vector3f tempVec  = new Vector3f();
@@ -92,4 +92,13 @@ public class OpaqueComparator implements GeometryComparator {
         }
     }
 
+    /**
+     * Sorts by material sort id, then front-to-back.
+     */
+    @Override
+    public long getSortKey(Geometry geom) {
+        long sortId = geom.getMaterial().getSortId() ^ Integer.MIN_VALUE;
+        return (sortId << 32) | GeometryList.floatToSortKey(distanceToCam(geom));
+    }
+
 }
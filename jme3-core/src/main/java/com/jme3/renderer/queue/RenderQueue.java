@@ -257,6 +257,36 @@ public class RenderQueue {
         }
     }
 
+    /**
+     * Adds all geometries of a list to the given bucket, preserving
+     * their order. Used by the {@link RenderManager} to merge the lists
+     * filled by culling workers.
+     * 
+     * @param list The geometries to add
+     * @param bucket The bucket to add to
+     */
+    public void addToQueue(GeometryList list, Bucket bucket) {
+        switch (bucket) {
+            case Gui:
+                guiList.addAll(list);
+                break;
+            case Opaque:
+                opaqueList.addAll(list);
+                break;
+            case Sky:
+                skyList.addAll(list);
+                break;
+            case Transparent:
+                transparentList.addAll(list);
+                break;
+            case Translucent:
+                translucentList.addAll(list);
+                break;
+            default:
+                throw new UnsupportedOperationException("Unknown bucket type: " + bucket);
+        }
+    }
+
     private void renderGeometryList(GeometryList list, RenderManager rm, Camera cam, boolean clear) {
         list.setCamera(cam); // select camera for sorting
         list.sort();
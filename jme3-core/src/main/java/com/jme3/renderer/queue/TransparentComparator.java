@@ -35,7 +35,7 @@ import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
 
-public class TransparentComparator implements GeometryComparator {
+public class TransparentComparator implements SortKeyComparator {
 
     private Camera cam;
     private final Vector3f tempVec = new Vector3f();
@@ -98,4 +98,11 @@ public class TransparentComparator implements GeometryComparator {
         else
             return -1;
     }
+
+    /**
+     * Sorts back-to-front.
+     */
+    public long getSortKey(Geometry geom) {
+        return (~GeometryList.floatToSortKey(distanceToCam(geom)) & 0xFFFFFFFFL) << 32;
+    }
 }
@@ -150,12 +150,12 @@ public class BatchNode extends GeometryGroupNode {
                 VertexBuffer otvb = origMesh.getBuffer(VertexBuffer.Type.Tangent);
                 FloatBuffer otanBuf = (FloatBuffer) otvb.getData();
                 doTransformsTangents(oposBuf, onormBuf, otanBuf, posBuf, normBuf, tanBuf, bg.startIndex, bg.startIndex + bg.getVertexCount(), transformMat);
-                tvb.updateData(tanBuf);
+                tvb.setUpdateNeeded(bg.startIndex, bg.getVertexCount());
             } else {
                 doTransforms(oposBuf, onormBuf, posBuf, normBuf, bg.startIndex, bg.startIndex + bg.getVertexCount(), transformMat);
             }
-            pvb.updateData(posBuf);
-            nvb.updateData(normBuf);
+            pvb.setUpdateNeeded(bg.startIndex, bg.getVertexCount());
+            nvb.setUpdateNeeded(bg.startIndex, bg.getVertexCount());
 
 
             batch.geometry.updateModelBound();
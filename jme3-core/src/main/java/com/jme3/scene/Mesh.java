@@ -976,9 +976,20 @@ public class Mesh implements Savable, Cloneable, JmeCloneable {
      * com.jme3.math.Matrix4f,
      * com.jme3.bounding.BoundingVolume,
      * com.jme3.collision.CollisionResults) }.
+     * Meshes with at least {@link BIHTree#PARALLEL_BUILD_THRESHOLD} triangles
+     * use the parallel {@link BIHTree.BuildMode#SurfaceArea} build.
      */
     public void createCollisionData(){
+        createCollisionData(getTriangleCount() >= BIHTree.PARALLEL_BUILD_THRESHOLD
+                ? BIHTree.BuildMode.SurfaceArea : BIHTree.BuildMode.Midpoint);
+    }
+
+    /**
+     * Generates a collision tree for the mesh using the given build mode.
+     */
+    public void createCollisionData(BIHTree.BuildMode buildMode){
         BIHTree tree = new BIHTree(this);
+        tree.setBuildMode(buildMode);
         tree.construct();
         collisionTree = tree;
     }
@@ -34,9 +34,11 @@ package com.jme3.scene;
 import com.jme3.bounding.BoundingVolume;
 import com.jme3.collision.Collidable;
 import com.jme3.collision.CollisionResults;
+import com.jme3.collision.bvh.SpatialBVH;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
 import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
 import com.jme3.util.SafeArrayList;
 import com.jme3.util.clone.Cloner;
 
@@ -82,6 +84,13 @@ public class Node extends Spatial {
      */
     private boolean updateListValid = false;
 
+    /**
+     * Optional bounding volume hierarchy over the children, used to
+     * speed up collision and proximity queries on nodes with many
+     * children. Null unless enabled with setSpatialIndexEnabled().
+     */
+    private transient SpatialBVH spatialIndex = null;
+
     /**
      * Serialization only. Do not use.
      */
@@ -153,6 +162,10 @@ public class Node extends Spatial {
     @Override
     protected void updateWorldBound(){
         super.updateWorldBound();
+        if (spatialIndex != null) {
+            // child bounds are up to date at this point
+            spatialIndex.refit();
+        }
         // for a node, the world bound is a combination of all it's children
         // bounds
         BoundingVolume resultBound = null;
@@ -351,6 +364,9 @@ public class Node extends Spatial {
             }
             child.setParent(this);
             children.add(index, child);
+            if (spatialIndex != null) {
+                spatialIndex.insert(child);
+            }
             // XXX: Not entirely correct? Forces bound update up the
             // tree stemming from the attached child. Also forces
             // transform update down the tree-
@@ -425,6 +441,9 @@ public class Node extends Spatial {
         Spatial child =  children.remove(index);
         if ( child != null ) {
             child.setParent( null );
+            if (spatialIndex != null) {
+                spatialIndex.remove(child);
+            }
             logger.log(Level.FINE, "{0}: Child removed.", this.toString());
 
             // since a child with a bound was detached;
@@ -569,7 +588,102 @@ public class Node extends Spatial {
         }
     }
 
+    /**
+     * Enables or disables the spatial index of this node. When enabled,
+     * the children of this node are kept in a {@link SpatialBVH} which is
+     * refit as their bounds change, and {@link #collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) }
+     * only visits the children whose bounds are hit. This pays off for
+     * nodes with many children, such as a flat node of scene props.
+     * <p>
+     * The index is not saved, clones build an index of their own.
+     *
+     * @param enabled true to build the index, false to discard it
+     */
+    public void setSpatialIndexEnabled(boolean enabled) {
+        if (enabled == (spatialIndex != null)) {
+            return;
+        }
+        if (enabled) {
+            spatialIndex = new SpatialBVH();
+            for (Spatial child : children.getArray()) {
+                spatialIndex.insert(child);
+            }
+        } else {
+            spatialIndex = null;
+        }
+    }
+
+    /**
+     * @return true if this node keeps a spatial index of its children.
+     * @see #setSpatialIndexEnabled(boolean)
+     */
+    public boolean isSpatialIndexEnabled() {
+        return spatialIndex != null;
+    }
+
+    /**
+     * Returns the spatial index of this node's children, or null if it is
+     * not enabled. The index reflects the children's world bounds as of
+     * the last bound update of this node.
+     *
+     * @return the spatial index or null
+     */
+    public SpatialBVH getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Called by {@link Spatial#setBoundRefresh() } for each ancestor when
+     * the bound of a spatial changes.
+     */
+    void childBoundChanged(Spatial child) {
+        if (spatialIndex != null) {
+            spatialIndex.markDirty(child);
+        }
+    }
+
+    /**
+     * Finds the <code>k</code> children closest to the given world
+     * position, nearest first.
+     *
+     * @param point the position to search from
+     * @param k the maximum number of children to return
+     * @param store the list the children are added to
+     * @return the number of children added to the list
+     * @throws IllegalStateException if the spatial index is not enabled
+     * @see SpatialBVH#findNearest(com.jme3.math.Vector3f, int, java.util.List)
+     */
+    public int findNearestChildren(Vector3f point, int k, List<Spatial> store) {
+        if (spatialIndex == null) {
+            throw new IllegalStateException("Spatial index is not enabled on " + this);
+        }
+        checkDoBoundUpdate();
+        return spatialIndex.findNearest(point, k, store);
+    }
+
+    /**
+     * Finds the children whose world bound intersects the given volume.
+     *
+     * @param volume the volume to test
+     * @param store the list the children are added to
+     * @return the number of children added to the list
+     * @throws IllegalStateException if the spatial index is not enabled
+     */
+    public int findChildrenIntersecting(BoundingVolume volume, List<Spatial> store) {
+        if (spatialIndex == null) {
+            throw new IllegalStateException("Spatial index is not enabled on " + this);
+        }
+        checkDoBoundUpdate();
+        return spatialIndex.findIntersecting(volume, store);
+    }
+
     public int collideWith(Collidable other, CollisionResults results){
+        if (spatialIndex != null) {
+            // make sure the index sees the current child bounds
+            checkDoBoundUpdate();
+            return spatialIndex.collideWith(other, results);
+        }
+
         int total = 0;
         // optimization: try collideWith BoundingVolume to avoid possibly redundant tests on children
         // number 4 in condition is somewhat arbitrary. When there is only one child, the boundingVolume test is redundant at all.
@@ -711,6 +825,10 @@ public class Node extends Spatial {
             childClone.parent = nodeClone;
             nodeClone.children.add(childClone);
         }
+        if (spatialIndex != null) {
+            nodeClone.spatialIndex = null;
+            nodeClone.setSpatialIndexEnabled(true);
+        }
         return nodeClone;
     }
 
@@ -727,6 +845,12 @@ public class Node extends Spatial {
         // or not... after all, we might be cloning a root node in which case
         // cloning this list is fine.
         this.updateList = cloner.clone(updateList);
+
+        // The index refers to the original's children, build a new one
+        if (spatialIndex != null) {
+            spatialIndex = null;
+            setSpatialIndexEnabled(true);
+        }
     }
     @Override
     public void write(JmeExporter e) throws IOException {
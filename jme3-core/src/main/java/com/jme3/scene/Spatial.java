@@ -327,13 +327,18 @@ public abstract class Spatial implements Savable, Cloneable, Collidable, Cloneab
     protected void setBoundRefresh() {
         refreshFlags |= RF_BOUND;
 
-        Spatial p = parent;
+        Spatial child = this;
+        Node p = parent;
         while (p != null) {
+            // let an indexed parent know which child moved, even if
+            // it has already been flagged by one of its other children
+            p.childBoundChanged(child);
             if ((p.refreshFlags & RF_BOUND) != 0) {
                 return;
             }
 
             p.refreshFlags |= RF_BOUND;
+            child = p;
             p = p.parent;
         }
     }
@@ -66,6 +66,13 @@ public final class UserData implements Savable {
      */
     public static final String JME_SHAREDMESH    = "JmeSharedMesh";
 
+    /**
+     * Boolean type on Spatials to indicate that their geometries, and
+     * the geometries of all their children, are occluders for the 
+     * {@link com.jme3.renderer.OcclusionCuller}.
+     */
+    public static final String JME_OCCLUDER      = "JmeOccluder";
+
     private static final int   TYPE_INTEGER      = 0;
     private static final int   TYPE_FLOAT        = 1;
     private static final int   TYPE_BOOLEAN      = 2;
@@ -348,6 +348,20 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
     protected int instanceSpan = 0;
     protected transient boolean dataSizeChanged = false;
 
+    /**
+     * Maximum number of disjoint update ranges tracked before they are
+     * collapsed into a single range.
+     */
+    private static final int MAX_UPDATE_RANGES = 16;
+
+    /**
+     * Element ranges that changed since the last upload, stored as
+     * [start, end) pairs sorted by start. If an update is needed but
+     * no ranges are recorded, the whole buffer must be uploaded.
+     */
+    protected transient int[] updateRanges = null;
+    protected transient int numUpdateRanges = 0;
+
     /**
      * Creates an empty, uninitialized buffer.
      * Must call setupData() to initialize.
@@ -720,10 +734,120 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         return dataSizeChanged;
     }
 
+    @Override
+    public void setUpdateNeeded(){
+        super.setUpdateNeeded();
+        numUpdateRanges = 0;
+    }
+
+    /**
+     * Indicates that only the given range of elements has changed and
+     * needs to be sent to the GPU again. Ranges that overlap or touch
+     * are merged together. If the whole buffer is already marked for
+     * update, this call has no effect.
+     * 
+     * @param startElement The index of the first modified element
+     * @param numElements The number of modified elements
+     * 
+     * @see #setUpdateNeeded() 
+     */
+    public void setUpdateNeeded(int startElement, int numElements){
+        if (startElement < 0 || numElements < 0) {
+            throw new IllegalArgumentException("Range cannot be negative");
+        }
+        if (numElements == 0) {
+            return;
+        }
+        if (updateNeeded && numUpdateRanges == 0) {
+            // whole buffer is already pending
+            return;
+        }
+
+        int start = startElement;
+        int end = startElement + numElements;
+        if (start == 0 && end >= getNumElements()) {
+            setUpdateNeeded();
+            return;
+        }
+
+        if (updateRanges == null) {
+            updateRanges = new int[MAX_UPDATE_RANGES * 2];
+        }
+
+        // Find the ranges that overlap or touch the new one and merge
+        // them into it, keeping the list sorted.
+        int first = 0;
+        while (first < numUpdateRanges && updateRanges[first * 2 + 1] < start) {
+            first++;
+        }
+        int last = first;
+        while (last < numUpdateRanges && updateRanges[last * 2] <= end) {
+            start = Math.min(start, updateRanges[last * 2]);
+            end = Math.max(end, updateRanges[last * 2 + 1]);
+            last++;
+        }
+
+        int merged = last - first;
+        if (merged == 0 && numUpdateRanges == MAX_UPDATE_RANGES) {
+            // Too many disjoint ranges, upload a single span instead
+            start = Math.min(start, updateRanges[0]);
+            end = Math.max(end, updateRanges[numUpdateRanges * 2 - 1]);
+            updateRanges[0] = start;
+            updateRanges[1] = end;
+            numUpdateRanges = 1;
+        } else {
+            int shift = 1 - merged;
+            System.arraycopy(updateRanges, last * 2,
+                             updateRanges, (last + shift) * 2,
+                             (numUpdateRanges - last) * 2);
+            updateRanges[first * 2] = start;
+            updateRanges[first * 2 + 1] = end;
+            numUpdateRanges += shift;
+        }
+
+        updateNeeded = true;
+        if (numUpdateRanges == 1 && start == 0 && end >= getNumElements()) {
+            numUpdateRanges = 0;
+        }
+    }
+
+    /**
+     * Returns the number of element ranges that need to be uploaded.
+     * If zero while {@link #isUpdateNeeded() } is true, the entire
+     * buffer needs to be uploaded.
+     * Internal use only.
+     * 
+     * @return the number of pending update ranges
+     */
+    public int getNumUpdateRanges() {
+        return numUpdateRanges;
+    }
+
+    /**
+     * Internal use only.
+     * 
+     * @param index The index of the update range
+     * @return The first element (inclusive) of the update range
+     */
+    public int getUpdateRangeStart(int index) {
+        return updateRanges[index * 2];
+    }
+
+    /**
+     * Internal use only.
+     * 
+     * @param index The index of the update range
+     * @return The last element (exclusive) of the update range
+     */
+    public int getUpdateRangeEnd(int index) {
+        return updateRanges[index * 2 + 1];
+    }
+
     @Override
     public void clearUpdateNeeded(){
         super.clearUpdateNeeded();
         dataSizeChanged = false;
+        numUpdateRanges = 0;
     }
 
     /**
@@ -1029,6 +1153,8 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         VertexBuffer vb = (VertexBuffer) super.clone();
         vb.handleRef = new Object();
         vb.id = -1;
+        vb.updateRanges = null;
+        vb.numUpdateRanges = 0;
         if (data != null) {
             // Make sure to pass a read-only buffer to clone so that
             // the position information doesn't get clobbered by another
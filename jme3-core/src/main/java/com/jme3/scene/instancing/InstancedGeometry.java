@@ -39,6 +39,9 @@ import com.jme3.export.Savable;
 import com.jme3.math.Matrix3f;
 import com.jme3.math.Matrix4f;
 import com.jme3.math.Quaternion;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.Camera.FrustumIntersect;
+import com.jme3.renderer.queue.RenderQueue.ShadowMode;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.VertexBuffer;
@@ -54,6 +57,7 @@ import java.io.IOException;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 
 public class InstancedGeometry extends Geometry {
 
@@ -65,6 +69,22 @@ public class InstancedGeometry extends Geometry {
 
     private int firstUnusedIndex = 0;
 
+    /**
+     * Encoded transform of each instance, by instance index. Only dirty
+     * instances are encoded again.
+     */
+    private float[] instanceData = new float[0];
+    private BitSet dirtyInstances = new BitSet();
+
+    /**
+     * The instance index whose transform is stored in each slot of the
+     * transform buffer, -1 if unknown. Slots that still hold the right
+     * transform are not uploaded again.
+     */
+    private int[] drawnInstances = new int[0];
+    private int numDrawnInstances = 0;
+    private boolean instanceCulling = false;
+
     /**
      * Serialization only. Do not use.
      */
@@ -205,6 +225,10 @@ public class InstancedGeometry extends Geometry {
                     Format.Float,
                     BufferUtilsCreator.createFloatBuffer(geometries.length * INSTANCE_SIZE));
         }
+
+        instanceData = Arrays.copyOf(instanceData, geometries.length * INSTANCE_SIZE);
+        drawnInstances = new int[geometries.length];
+        Arrays.fill(drawnInstances, -1);
     }
 
     public int getMaxNumInstances() {
@@ -215,6 +239,58 @@ public class InstancedGeometry extends Geometry {
         return firstUnusedIndex;
     }
 
+    /**
+     * Returns the number of instances submitted for rendering. This is the
+     * number of instances that passed the frustum test during the last 
+     * {@link #updateInstances(com.jme3.renderer.Camera) update} if 
+     * {@link #setInstanceCulling(boolean) instance culling} is enabled,
+     * otherwise all instances are submitted.
+     *
+     * @return The number of instances to render.
+     */
+    public int getNumDrawnInstances() {
+        return numDrawnInstances;
+    }
+
+    /**
+     * Enables per-instance frustum culling.
+     * <p>
+     * When enabled, the instances inside the camera frustum are compacted
+     * into the front of the transform buffer on every update and only
+     * those are rendered. The culling uses the camera of the viewport
+     * rendering the {@link InstancedNode}, while shadow maps are rendered
+     * from the same instance data with other cameras. Geometries that
+     * {@link ShadowMode#Cast cast shadows} are therefore never culled, so
+     * that instances outside the view still cast their shadows into it.
+     * Disabled by default.
+     *
+     * @param instanceCulling True to cull instances against the camera.
+     */
+    public void setInstanceCulling(boolean instanceCulling) {
+        this.instanceCulling = instanceCulling;
+    }
+
+    /**
+     * @return True if per-instance frustum culling is enabled.
+     * @see #setInstanceCulling(boolean)
+     */
+    public boolean isInstanceCulling() {
+        return instanceCulling;
+    }
+
+    /**
+     * Marks the transform of an instance as changed, it is encoded and 
+     * uploaded again on the next update.
+     *
+     * @param geom The instance.
+     */
+    public void setInstanceDirty(Geometry geom) {
+        int idx = InstancedNode.getGeometryStartIndex2(geom);
+        if (idx >= 0 && idx < geometries.length && geometries[idx] == geom) {
+            dirtyInstances.set(idx);
+        }
+    }
+
     private void swap(int idx1, int idx2) {
         Geometry g = geometries[idx1];
         geometries[idx1] = geometries[idx2];
@@ -226,6 +302,8 @@ public class InstancedGeometry extends Geometry {
         if (geometries[idx2] != null) {
             InstancedNode.setGeometryStartIndex2(geometries[idx2], idx2);
         }
+        dirtyInstances.set(idx1);
+        dirtyInstances.set(idx2);
     }
 
     private void sanitize(boolean insideEntriesNonNull) {
@@ -250,45 +328,90 @@ public class InstancedGeometry extends Geometry {
     }
 
     public void updateInstances() {
-        FloatBuffer fb = (FloatBuffer) transformInstanceData.getData();
-        fb.limit(fb.capacity());
-        fb.position(0);
-
-        TempVars vars = TempVars.get();
-        {
-            float[] temp = vars.matrixWrite;
-
-            for (int i = 0; i < firstUnusedIndex; i++) {
-                Geometry geom = geometries[i];
-
-                if (geom == null) {
-                    geom = geometries[firstUnusedIndex - 1];
-
-                    if (geom == null) {
-                        throw new AssertionError();
-                    }
+        updateInstances(null);
+    }
 
+    /**
+     * Updates the per-instance transform data.
+     * <p>
+     * Only the transforms of instances marked 
+     * {@link #setInstanceDirty(com.jme3.scene.Geometry) dirty}, added or
+     * moved are encoded again, and only buffer slots whose content 
+     * changed are uploaded.
+     *
+     * @param cam The camera to cull instances against if 
+     * {@link #setInstanceCulling(boolean) instance culling} is enabled,
+     * or null to render all instances.
+     */
+    public void updateInstances(Camera cam) {
+        // Fill the holes left by deleted instances with the last ones.
+        for (int i = 0; i < firstUnusedIndex; i++) {
+            if (geometries[i] == null) {
+                while (firstUnusedIndex > i && geometries[firstUnusedIndex - 1] == null) {
+                    firstUnusedIndex--;
+                }
+                if (firstUnusedIndex > i + 1) {
                     swap(i, firstUnusedIndex - 1);
-
-                    while (geometries[firstUnusedIndex -1] == null) {
-                        firstUnusedIndex--;
-                    }
+                    firstUnusedIndex--;
                 }
-
-                Matrix4f worldMatrix = geom.getWorldMatrix();
-                updateInstance(worldMatrix, temp, 0, vars.tempMat3, vars.quat1);
-                fb.put(temp);
             }
         }
+
+        if (instanceData.length < geometries.length * INSTANCE_SIZE) {
+            instanceData = Arrays.copyOf(instanceData, geometries.length * INSTANCE_SIZE);
+        }
+        if (drawnInstances.length < geometries.length) {
+            drawnInstances = new int[geometries.length];
+            Arrays.fill(drawnInstances, -1);
+        }
+
+        TempVars vars = TempVars.get();
+        for (int i = dirtyInstances.nextSetBit(0); i >= 0 && i < firstUnusedIndex;
+                i = dirtyInstances.nextSetBit(i + 1)) {
+            updateInstance(geometries[i].getWorldMatrix(), instanceData,
+                    i * INSTANCE_SIZE, vars.tempMat3, vars.quat1);
+        }
         vars.release();
 
-        fb.flip();
+        FloatBuffer fb = (FloatBuffer) transformInstanceData.getData();
+        ShadowMode shadowMode = getShadowMode();
+        boolean cull = instanceCulling && cam != null
+                && shadowMode != ShadowMode.Cast && shadowMode != ShadowMode.CastAndReceive;
+        int planeState = cull ? cam.getPlaneState() : 0;
+        int slot = 0;
+        int rangeStart = -1;
+
+        for (int i = 0; i < firstUnusedIndex; i++) {
+            if (cull) {
+                cam.setPlaneState(0);
+                if (cam.contains(geometries[i].getWorldBound()) == FrustumIntersect.Outside) {
+                    continue;
+                }
+            }
 
-        if (fb.limit() / INSTANCE_SIZE != firstUnusedIndex) {
-            throw new AssertionError();
+            if (drawnInstances[slot] != i || dirtyInstances.get(i)) {
+                fb.limit(fb.capacity()).position(slot * INSTANCE_SIZE);
+                fb.put(instanceData, i * INSTANCE_SIZE, INSTANCE_SIZE);
+                drawnInstances[slot] = i;
+                if (rangeStart == -1) {
+                    rangeStart = slot;
+                }
+            } else if (rangeStart != -1) {
+                transformInstanceData.setUpdateNeeded(rangeStart, slot - rangeStart);
+                rangeStart = -1;
+            }
+            slot++;
+        }
+        if (rangeStart != -1) {
+            transformInstanceData.setUpdateNeeded(rangeStart, slot - rangeStart);
+        }
+        if (cull) {
+            cam.setPlaneState(planeState);
         }
 
-        transformInstanceData.updateData(fb);
+        fb.clear();
+        numDrawnInstances = slot;
+        dirtyInstances.clear();
     }
 
     public void deleteInstance(Geometry geom) {
@@ -329,6 +452,7 @@ public class InstancedGeometry extends Geometry {
 
         geometries[freeIndex] = geometry;
         InstancedNode.setGeometryStartIndex2(geometry, freeIndex);
+        dirtyInstances.set(freeIndex);
     }
 
     public Geometry[] getGeometries() {
@@ -356,6 +480,11 @@ public class InstancedGeometry extends Geometry {
         this.globalInstanceData = cloner.clone(globalInstanceData);
         this.transformInstanceData = cloner.clone(transformInstanceData);
         this.geometries = cloner.clone(geometries);
+        this.instanceData = instanceData.clone();
+        this.dirtyInstances = new BitSet();
+        this.dirtyInstances.set(0, geometries.length);
+        this.drawnInstances = new int[geometries.length];
+        Arrays.fill(drawnInstances, -1);
     }
 
     @Override
@@ -377,5 +506,6 @@ public class InstancedGeometry extends Geometry {
         for (int i = 0; i < geometrySavables.length; i++) {
             geometries[i] = (Geometry) geometrySavables[i];
         }
+        dirtyInstances.set(0, geometries.length);
     }
 }
@@ -35,6 +35,8 @@ import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
 import com.jme3.material.MatParam;
 import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.ViewPort;
 import com.jme3.scene.Geometry;
@@ -48,6 +50,7 @@ import com.jme3.util.clone.Cloner;
 import com.jme3.util.clone.JmeCloneable;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -161,10 +164,11 @@ public class InstancedNode extends GeometryGroupNode {
         }
 
         public void update(float tpf){
+            node.updateFromControl();
         }
 
         public void render(RenderManager rm, ViewPort vp) {
-            node.renderFromControl();
+            node.renderFromControl(vp.getCamera());
         }
 
         public void write(JmeExporter ex) throws IOException {
@@ -184,6 +188,11 @@ public class InstancedNode extends GeometryGroupNode {
     private HashMap<InstanceTypeKey, InstancedGeometry> instancesMap =
             new HashMap<InstanceTypeKey, InstancedGeometry>();
 
+    private boolean instanceCulling = false;
+    private float[] lodDistances;
+    private Camera lodCamera;
+    private ArrayList<Geometry> lodChanged = new ArrayList<Geometry>();
+
     public InstancedNode() {
         super();
         // NOTE: since we are deserializing,
@@ -196,9 +205,96 @@ public class InstancedNode extends GeometryGroupNode {
         addControl(control);
     }
 
-    private void renderFromControl() {
+    /**
+     * Enables per-instance frustum culling on all instanced geometries
+     * of this node.
+     *
+     * @param instanceCulling True to cull instances against the camera.
+     * @see InstancedGeometry#setInstanceCulling(boolean)
+     */
+    public void setInstanceCulling(boolean instanceCulling) {
+        this.instanceCulling = instanceCulling;
+        for (InstancedGeometry ig : instancesMap.values()) {
+            ig.setInstanceCulling(instanceCulling);
+        }
+    }
+
+    /**
+     * @return True if per-instance frustum culling is enabled.
+     * @see #setInstanceCulling(boolean)
+     */
+    public boolean isInstanceCulling() {
+        return instanceCulling;
+    }
+
+    /**
+     * Enables per-instance LOD selection.
+     * <p>
+     * Every frame, each instance whose mesh has 
+     * {@link Mesh#getNumLodLevels() LOD levels} is assigned the LOD level
+     * matching the distance of its bound to the camera:
+     * LOD level <code>n</code> is used from <code>distances[n - 1]</code>
+     * on, clamped to the levels of the mesh. Instances of the same LOD 
+     * level are rendered together. 
+     * <p>
+     * The levels are selected when the node is updated, against the camera
+     * of the last viewport that rendered the node, so no LOD is selected
+     * before the node was rendered once.
+     *
+     * @param distances Ascending switch distances, or null to disable 
+     * LOD selection and keep the LOD levels set on the geometries.
+     */
+    public void setLodDistances(float... distances) {
+        this.lodDistances = distances != null ? distances.clone() : null;
+    }
+
+    /**
+     * @return The LOD switch distances, or null if disabled.
+     * @see #setLodDistances(float...)
+     */
+    public float[] getLodDistances() {
+        return lodDistances != null ? lodDistances.clone() : null;
+    }
+
+    private int computeLodLevel(Geometry geom, Vector3f location) {
+        int numLevels = geom.getMesh().getNumLodLevels();
+        if (numLevels <= 1) {
+            return geom.getLodLevel();
+        }
+        float distance = geom.getWorldBound().distanceTo(location);
+        int level = 0;
+        while (level < lodDistances.length && distance >= lodDistances[level]) {
+            level++;
+        }
+        return Math.min(level, numLevels - 1);
+    }
+
+    private void updateLodLevels(Vector3f location) {
+        for (Geometry geom : igByGeom.keySet()) {
+            if (computeLodLevel(geom, location) != geom.getLodLevel()) {
+                lodChanged.add(geom);
+            }
+        }
+        // Moves the geometries to the instanced geometry of their level.
+        for (int i = 0; i < lodChanged.size(); i++) {
+            Geometry geom = lodChanged.get(i);
+            geom.setLodLevel(computeLodLevel(geom, location));
+        }
+        lodChanged.clear();
+    }
+
+    // relocating instances may attach new instanced geometries, this must
+    // happen before the geometric state of the scene is updated
+    private void updateFromControl() {
+        if (lodDistances != null && lodCamera != null) {
+            updateLodLevels(lodCamera.getLocation());
+        }
+    }
+
+    private void renderFromControl(Camera cam) {
+        lodCamera = cam;
         for (InstancedGeometry ig : instancesMap.values()) {
-            ig.updateInstances();
+            ig.updateInstances(cam);
         }
     }
 
@@ -218,6 +314,10 @@ public class InstancedNode extends GeometryGroupNode {
             ig.setMesh(lookUp.mesh);
             ig.setUserData(UserData.JME_PHYSICSIGNORE, true);
             ig.setCullHint(CullHint.Never);
+            ig.setInstanceCulling(instanceCulling);
+            if (lookUp.lodLevel > 0) {
+                ig.setLodLevel(lookUp.lodLevel);
+            }
             instancesMap.put(lookUp.clone(), ig);
             attachChild(ig);
         }
@@ -338,6 +438,7 @@ public class InstancedNode extends GeometryGroupNode {
         clone.controls.add(clone.control);
 
         clone.lookUp = new InstanceTypeKey();
+        clone.lodChanged = new ArrayList<Geometry>();
         clone.igByGeom = new HashMap<Geometry, InstancedGeometry>();
         clone.instancesMap = new HashMap<InstanceTypeKey, InstancedGeometry>();
 
@@ -355,6 +456,7 @@ public class InstancedNode extends GeometryGroupNode {
 
         this.control = cloner.clone(control);
         this.lookUp = cloner.clone(lookUp);
+        this.lodChanged = new ArrayList<Geometry>();
 
         HashMap<Geometry, InstancedGeometry> newIgByGeom = new HashMap<Geometry, InstancedGeometry>();
         for( Map.Entry<Geometry, InstancedGeometry> e : igByGeom.entrySet() ) {
@@ -371,7 +473,10 @@ public class InstancedNode extends GeometryGroupNode {
 
     @Override
     public void onTransformChange(Geometry geom) {
-        // Handled automatically
+        InstancedGeometry ig = igByGeom.get(geom);
+        if (ig != null) {
+            ig.setInstanceDirty(geom);
+        }
     }
 
     @Override
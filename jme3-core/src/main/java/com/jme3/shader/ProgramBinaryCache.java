@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.shader;
+
+import com.jme3.util.BufferUtils;
+import com.jme3.util.BufferUtilsCreator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>ProgramBinaryCache</code> stores linked shader program binaries
+ * on disk so that subsequent runs can skip compiling and linking them.
+ * <p>
+ * Entries are keyed by a hash of the complete generated source of every
+ * shader stage (which includes the defines of the
+ * {@link com.jme3.material.TechniqueDef} permutation) and the driver
+ * string. A driver update therefore never reuses a stale binary; if the
+ * driver still rejects a binary the renderer falls back to a normal
+ * compile and the entry is replaced.
+ * <p>
+ * The cache is used by the renderer on the render thread only and is
+ * not thread safe.
+ */
+public class ProgramBinaryCache {
+
+    private static final Logger logger = Logger.getLogger(ProgramBinaryCache.class.getName());
+
+    private static final int MAGIC = 0x4A4D4550; // "JMEP"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".bin";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * A program binary read from the cache.
+     */
+    public static final class Entry {
+
+        private final int format;
+        private final ByteBuffer data;
+
+        public Entry(int format, ByteBuffer data) {
+            this.format = format;
+            this.data = data;
+        }
+
+        /**
+         * @return The driver specific binary format.
+         */
+        public int getFormat() {
+            return format;
+        }
+
+        /**
+         * @return The program binary, positioned at zero. The buffer is 
+         * reused by the next {@link ProgramBinaryCache#load(java.lang.String) }.
+         */
+        public ByteBuffer getData() {
+            return data;
+        }
+    }
+
+    private final File directory;
+    private final MessageDigest digest;
+    private boolean enabled = true;
+    // holds the binary of the last load, the driver copies it
+    private ByteBuffer scratch;
+
+    private int hits;
+    private int misses;
+    private int rejected;
+    private int stored;
+
+    /**
+     * Creates a cache that keeps its entries in the given directory.
+     * The directory is created if it does not exist.
+     *
+     * @param directory The directory to store program binaries in.
+     */
+    public ProgramBinaryCache(File directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory cannot be null");
+        }
+        this.directory = directory;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new UnsupportedOperationException("SHA-1 digest is not available", ex);
+        }
+    }
+
+    /**
+     * @return The directory where program binaries are stored.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Enable or disable the cache. While disabled, {@link #load(java.lang.String) }
+     * always misses and {@link #store(java.lang.String, int, java.nio.ByteBuffer) }
+     * does nothing.
+     *
+     * @param enabled True to enable the cache.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return True if the cache is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Computes the cache key for a program.
+     *
+     * @param driver The driver string, usually vendor, renderer and version.
+     * @param sources The complete source text of every shader stage,
+     * in the order they are attached to the program.
+     * @return A hexadecimal key suitable as a file name.
+     */
+    public String computeKey(String driver, String... sources) {
+        digest.reset();
+        update(driver);
+        for (String source : sources) {
+            update(source);
+        }
+        byte[] hash = digest.digest();
+        char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private void update(String str) {
+        try {
+            byte[] bytes = str.getBytes("UTF-8");
+            // length prefix so that ("ab", "c") and ("a", "bc") differ
+            digest.update((byte) (bytes.length >>> 24));
+            digest.update((byte) (bytes.length >>> 16));
+            digest.update((byte) (bytes.length >>> 8));
+            digest.update((byte) bytes.length);
+            digest.update(bytes);
+        } catch (UnsupportedEncodingException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    /**
+     * Reads the program binary stored under the given key. The data of
+     * the returned entry is only valid until the next call.
+     *
+     * @param key The key computed with {@link #computeKey(java.lang.String, java.lang.String[]) }.
+     * @return The entry, or null if there is none or it could not be read.
+     */
+    public Entry load(String key) {
+        File file = getFile(key);
+        if (!enabled || !file.isFile()) {
+            misses++;
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unrecognized program binary header");
+            }
+            int format = in.readInt();
+            int length = in.readInt();
+            if (length <= 0 || length > file.length()) {
+                throw new IOException("Invalid program binary length: " + length);
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+
+            if (scratch == null || scratch.capacity() < length) {
+                if (scratch != null) {
+                    BufferUtils.destroyDirectBuffer(scratch);
+                }
+                scratch = BufferUtilsCreator.createByteBuffer(length);
+            }
+            scratch.clear();
+            scratch.put(bytes).flip();
+            hits++;
+            return new Entry(format, scratch);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Cannot read program binary " + file + ", discarding it", ex);
+            close(in);
+            in = null;
+            file.delete();
+            misses++;
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Stores a program binary under the given key, replacing any previous
+     * entry. Failures are logged and otherwise ignored.
+     *
+     * @param key The key computed with {@link #computeKey(java.lang.String, java.lang.String[]) }.
+     * @param format The driver specific binary format.
+     * @param data The program binary, from its position to its limit.
+     */
+    public void store(String key, int format, ByteBuffer data) {
+        if (!enabled) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.log(Level.WARNING, "Cannot create program binary cache directory {0}", directory);
+            return;
+        }
+
+        File file = getFile(key);
+        File temp = new File(directory, key + ".tmp");
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(format);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.close();
+            out = null;
+            // write then rename, so that a crash never leaves a
+            // truncated entry behind
+            file.delete();
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot rename " + temp + " to " + file);
+            }
+            stored++;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Cannot write program binary " + file, ex);
+            temp.delete();
+        } finally {
+            close(out);
+        }
+    }
+
+    /**
+     * Removes the entry stored under the given key. Called by the renderer
+     * when the driver rejects a cached binary.
+     *
+     * @param key The key of the entry to remove.
+     */
+    public void invalidate(String key) {
+        rejected++;
+        getFile(key).delete();
+    }
+
+    /**
+     * Removes every entry from the cache.
+     */
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * @return The number of successful lookups.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups that found no usable entry.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The number of entries that were found but rejected by the driver.
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return The number of entries written.
+     */
+    public int getStored() {
+        return stored;
+    }
+
+    private static void close(Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
+}
@@ -39,7 +39,9 @@ import com.jme3.util.ListMap;
 import com.jme3.util.NativeObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 
 public final class Shader extends NativeObject {
     
@@ -52,6 +54,29 @@ public final class Shader extends NativeObject {
      * Maps uniform name to the uniform variable.
      */
     private final ListMap<String, Uniform> uniforms;
+
+    /**
+     * Uniforms indexed by their global slot, filled on first access.
+     */
+    private Uniform[] uniformsBySlot = new Uniform[0];
+
+    /**
+     * Global uniform name to slot registry, shared by all shaders.
+     */
+    private static final HashMap<String, Integer> slotsByName = new HashMap<String, Integer>();
+    private static final ArrayList<String> namesBySlot = new ArrayList<String>();
+
+    /**
+     * The material whose parameters were last applied to the uniforms of
+     * this shader, and the version of its parameters at that time.
+     */
+    private Object appliedMaterial;
+    private int appliedMaterialVersion;
+
+    /**
+     * Bit mask of the {@link UniformBlock}s declared by the linked program.
+     */
+    private int uniformBlocks;
     
     /**
      * Uniforms bound to {@link UniformBinding}s.
@@ -289,8 +314,109 @@ public final class Shader extends NativeObject {
         return uniform;
     }
 
+    /**
+     * Returns the slot of the uniform with the given name.
+     * <p>
+     * Slots are global: the same name has the same slot in every shader,
+     * so it can be resolved once (e.g. in a static field) and then used
+     * with {@link #getUniform(int) } to access the uniform without a map
+     * lookup.
+     *
+     * @param name The uniform name, starting with "m_" or "g_".
+     * @return The uniform slot.
+     */
+    public static int getUniformSlot(String name) {
+        assert name.startsWith("m_") || name.startsWith("g_");
+        synchronized (slotsByName) {
+            Integer slot = slotsByName.get(name);
+            if (slot == null) {
+                slot = namesBySlot.size();
+                namesBySlot.add(name);
+                slotsByName.put(name, slot);
+            }
+            return slot;
+        }
+    }
+
+    private static String getUniformSlotName(int slot) {
+        synchronized (slotsByName) {
+            return namesBySlot.get(slot);
+        }
+    }
+
+    /**
+     * Returns the uniform for the given slot, creating it if needed.
+     * Equivalent to <code>getUniform(name)</code> for the name the slot was
+     * obtained with, but only the first access per shader looks up the name.
+     *
+     * @param slot A slot returned by {@link #getUniformSlot(java.lang.String) }.
+     * @return The uniform.
+     */
+    public Uniform getUniform(int slot) {
+        if (slot < uniformsBySlot.length) {
+            Uniform uniform = uniformsBySlot[slot];
+            if (uniform != null) {
+                return uniform;
+            }
+        } else {
+            uniformsBySlot = Arrays.copyOf(uniformsBySlot, slot + 1);
+        }
+        Uniform uniform = getUniform(getUniformSlotName(slot));
+        uniformsBySlot[slot] = uniform;
+        return uniform;
+    }
+
     public void removeUniform(String name){
         uniforms.remove(name);
+        Arrays.fill(uniformsBySlot, null);
+    }
+
+    /**
+     * Used by {@link com.jme3.material.Material} to skip re-applying
+     * parameters that cannot have changed since it last rendered with this
+     * shader.
+     *
+     * @param material The material that applied its parameters, or null.
+     * @param version The version of the material parameters.
+     */
+    public void setAppliedMaterial(Object material, int version) {
+        this.appliedMaterial = material;
+        this.appliedMaterialVersion = version;
+    }
+
+    /**
+     * @param material The material to check.
+     * @param version The current version of the material parameters.
+     * @return True if the uniforms still hold the parameters the given
+     * material applied at the given version.
+     */
+    public boolean isAppliedMaterial(Object material, int version) {
+        return appliedMaterial == material && appliedMaterialVersion == version;
+    }
+
+    /**
+     * Used by the renderer after linking to record which uniform blocks
+     * the program declares.
+     *
+     * @param block The block.
+     * @param declared True if the program declares the block.
+     */
+    public void setUniformBlockDeclared(UniformBlock block, boolean declared) {
+        if (declared) {
+            uniformBlocks |= 1 << block.ordinal();
+        } else {
+            uniformBlocks &= ~(1 << block.ordinal());
+        }
+    }
+
+    /**
+     * @param block The block to check.
+     * @return True if the linked program declares the block, in that case
+     * the block data must be provided through 
+     * {@link Renderer#setUniformBlock(com.jme3.shader.UniformBlock, java.nio.ByteBuffer) }.
+     */
+    public boolean isUniformBlockDeclared(UniformBlock block) {
+        return (uniformBlocks & (1 << block.ordinal())) != 0;
     }
 
     public Attribute getAttribute(VertexBuffer.Type attribType){
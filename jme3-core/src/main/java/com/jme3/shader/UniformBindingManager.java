@@ -39,8 +39,10 @@ import com.jme3.math.Vector3f;
 import com.jme3.math.Vector4f;
 import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Renderer;
 import com.jme3.system.Timer;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 /**
@@ -55,6 +57,26 @@ import java.util.ArrayList;
  */
 public class UniformBindingManager {
 
+    private static final UniformBlockLayout WORLD_BLOCK_LAYOUT = new UniformBlockLayout(UniformBlock.World.getBlockName());
+    private static final int BLOCK_VIEW_MATRIX = WORLD_BLOCK_LAYOUT.addMember("g_ViewMatrix", VarType.Matrix4);
+    private static final int BLOCK_PROJECTION_MATRIX = WORLD_BLOCK_LAYOUT.addMember("g_ProjectionMatrix", VarType.Matrix4);
+    private static final int BLOCK_VIEW_PROJECTION_MATRIX = WORLD_BLOCK_LAYOUT.addMember("g_ViewProjectionMatrix", VarType.Matrix4);
+    private static final int BLOCK_VIEW_MATRIX_INVERSE = WORLD_BLOCK_LAYOUT.addMember("g_ViewMatrixInverse", VarType.Matrix4);
+    private static final int BLOCK_PROJECTION_MATRIX_INVERSE = WORLD_BLOCK_LAYOUT.addMember("g_ProjectionMatrixInverse", VarType.Matrix4);
+    private static final int BLOCK_VIEW_PROJECTION_MATRIX_INVERSE = WORLD_BLOCK_LAYOUT.addMember("g_ViewProjectionMatrixInverse", VarType.Matrix4);
+    private static final int BLOCK_VIEW_PORT = WORLD_BLOCK_LAYOUT.addMember("g_ViewPort", VarType.Vector4);
+    private static final int BLOCK_CAMERA_POSITION = WORLD_BLOCK_LAYOUT.addMember("g_CameraPosition", VarType.Vector3);
+    private static final int BLOCK_TIME = WORLD_BLOCK_LAYOUT.addMember("g_Time", VarType.Float);
+    private static final int BLOCK_CAMERA_DIRECTION = WORLD_BLOCK_LAYOUT.addMember("g_CameraDirection", VarType.Vector3);
+    private static final int BLOCK_TPF = WORLD_BLOCK_LAYOUT.addMember("g_Tpf", VarType.Float);
+    private static final int BLOCK_CAMERA_LEFT = WORLD_BLOCK_LAYOUT.addMember("g_CameraLeft", VarType.Vector3);
+    private static final int BLOCK_FRAME_RATE = WORLD_BLOCK_LAYOUT.addMember("g_FrameRate", VarType.Float);
+    private static final int BLOCK_CAMERA_UP = WORLD_BLOCK_LAYOUT.addMember("g_CameraUp", VarType.Vector3);
+    private static final int BLOCK_ASPECT = WORLD_BLOCK_LAYOUT.addMember("g_Aspect", VarType.Float);
+    private static final int BLOCK_RESOLUTION = WORLD_BLOCK_LAYOUT.addMember("g_Resolution", VarType.Vector2);
+    private static final int BLOCK_RESOLUTION_INVERSE = WORLD_BLOCK_LAYOUT.addMember("g_ResolutionInverse", VarType.Vector2);
+    private static final int BLOCK_FRUSTUM_NEAR_FAR = WORLD_BLOCK_LAYOUT.addMember("g_FrustumNearFar", VarType.Vector2);
+
     private Timer timer;
     private float near, far;
     private Float time, tpf;
@@ -83,6 +105,21 @@ public class UniformBindingManager {
     private Vector2f resolution = new Vector2f();
     private Vector2f resolutionInv = new Vector2f();
     private Vector2f nearFar = new Vector2f();
+    private ByteBuffer worldBlock;
+    private boolean worldBlockDirty = true;
+
+    /**
+     * Returns the layout of the {@link UniformBlock#World} block.
+     * It holds the camera and frame level world parameters, a shader
+     * declaring it must use exactly the 
+     * {@link UniformBlockLayout#getDeclaration() declaration} of this layout.
+     * The layout must not be modified.
+     * 
+     * @return The layout of the world block.
+     */
+    public static UniformBlockLayout getWorldBlockLayout() {
+        return WORLD_BLOCK_LAYOUT;
+    }
 
     /**
      * Internal use only.
@@ -215,6 +252,57 @@ public class UniformBindingManager {
         }
     }
 
+    /**
+     * Internal use only.
+     * Provides the {@link UniformBlock#World} block if the shader declares
+     * it. The block is only uploaded again once the camera, viewport or 
+     * frame has changed since the last upload.
+     */
+    public void updateUniformBlocks(Shader shader, Renderer renderer) {
+        if (!shader.isUniformBlockDeclared(UniformBlock.World) || !worldBlockDirty) {
+            return;
+        }
+        if (worldBlock == null) {
+            worldBlock = WORLD_BLOCK_LAYOUT.createBuffer();
+        }
+        UniformBlockLayout layout = WORLD_BLOCK_LAYOUT;
+        ByteBuffer block = worldBlock;
+        layout.clear(block);
+        layout.write(block, BLOCK_VIEW_MATRIX, viewMatrix);
+        layout.write(block, BLOCK_PROJECTION_MATRIX, projMatrix);
+        layout.write(block, BLOCK_VIEW_PROJECTION_MATRIX, viewProjMatrix);
+        viewMatrixInv.set(viewMatrix);
+        viewMatrixInv.invertLocal();
+        layout.write(block, BLOCK_VIEW_MATRIX_INVERSE, viewMatrixInv);
+        projMatrixInv.set(projMatrix);
+        projMatrixInv.invertLocal();
+        layout.write(block, BLOCK_PROJECTION_MATRIX_INVERSE, projMatrixInv);
+        viewProjMatrixInv.set(viewProjMatrix);
+        viewProjMatrixInv.invertLocal();
+        layout.write(block, BLOCK_VIEW_PROJECTION_MATRIX_INVERSE, viewProjMatrixInv);
+        viewPort.set(viewX, viewY, viewWidth, viewHeight);
+        layout.write(block, BLOCK_VIEW_PORT, viewPort);
+        layout.write(block, BLOCK_CAMERA_POSITION, camLoc);
+        layout.write(block, BLOCK_CAMERA_DIRECTION, camDir);
+        layout.write(block, BLOCK_CAMERA_LEFT, camLeft);
+        layout.write(block, BLOCK_CAMERA_UP, camUp);
+        layout.write(block, BLOCK_TIME, time);
+        layout.write(block, BLOCK_TPF, tpf);
+        if (timer != null) {
+            layout.write(block, BLOCK_FRAME_RATE, timer.getFrameRate());
+        }
+        layout.write(block, BLOCK_ASPECT, ((float) viewWidth) / viewHeight);
+        resolution.set(viewWidth, viewHeight);
+        layout.write(block, BLOCK_RESOLUTION, resolution);
+        resolutionInv.set(1f / viewWidth, 1f / viewHeight);
+        layout.write(block, BLOCK_RESOLUTION_INVERSE, resolutionInv);
+        nearFar.set(near, far);
+        layout.write(block, BLOCK_FRUSTUM_NEAR_FAR, nearFar);
+
+        renderer.setUniformBlock(UniformBlock.World, block);
+        worldBlockDirty = false;
+    }
+
     /**
      * Internal use only. Sets the world matrix to use for future
      * rendering. This has no effect unless objects are rendered manually
@@ -250,6 +338,7 @@ public class UniformBindingManager {
 
         near = cam.getFrustumNear();
         far = cam.getFrustumFar();
+        worldBlockDirty = true;
     }
 
     public void setViewPort(int viewX, int viewY, int viewWidth, int viewHeight) {
@@ -257,6 +346,7 @@ public class UniformBindingManager {
         this.viewY = viewY;
         this.viewWidth = viewWidth;
         this.viewHeight = viewHeight;
+        worldBlockDirty = true;
     }
  
     /**
@@ -268,5 +358,6 @@ public class UniformBindingManager {
         // time for this frame to avoid inter-frame drift.
         time = timer.getTimeInSeconds();
         tpf = timer.getTimePerFrame();
+        worldBlockDirty = true;
     }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.shader;
+
+/**
+ * The uniform blocks understood by the engine.
+ * <p>
+ * A shader opts into a block by declaring it under the given name with
+ * the <code>std140</code> layout, e.g.
+ * <code>layout(std140) uniform g_WorldBlock { ... };</code>.
+ * After linking, the renderer binds every declared block to its
+ * {@link #getBindingPoint() binding point} and the data is then
+ * provided through
+ * {@link com.jme3.renderer.Renderer#setUniformBlock(com.jme3.shader.UniformBlock, java.nio.ByteBuffer) }.
+ * Requires {@link com.jme3.renderer.Caps#UniformBufferObject}.
+ */
+public enum UniformBlock {
+
+    /**
+     * Camera and frame level world parameters, see
+     * {@link UniformBindingManager#getWorldBlockLayout() }.
+     * Only uploaded when the camera, viewport or frame changes.
+     */
+    World("g_WorldBlock"),
+
+    /**
+     * The non-texture material parameters, see
+     * {@link com.jme3.material.MaterialDef#getMaterialBlockLayout() }.
+     */
+    Material("m_MaterialBlock"),
+
+    /**
+     * The light list of single pass lighting, declared as
+     * <code>vec4 g_AmbientLightColor; vec4 g_LightData[NB_LIGHTS];</code>.
+     */
+    Lights("g_LightBlock");
+
+    private final String name;
+
+    private UniformBlock(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The name the block must be declared with in the shader.
+     */
+    public String getBlockName() {
+        return name;
+    }
+
+    /**
+     * @return The uniform buffer binding point the block is bound to.
+     */
+    public int getBindingPoint() {
+        return ordinal();
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.shader;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.math.Vector4f;
+import com.jme3.util.BufferUtilsCreator;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Describes the <code>std140</code> memory layout of a uniform block.
+ * <p>
+ * Members are laid out in the order they are added, following the
+ * std140 rules: scalars take 4 bytes, <code>vec2</code> is aligned to 8
+ * bytes, <code>vec3</code> and <code>vec4</code> to 16 bytes, matrices
+ * are stored as 16 byte columns and array elements always use a 16 byte
+ * stride. The total size is rounded up to 16 bytes.
+ * <p>
+ * Values are written with absolute offsets, the block starts at index 0
+ * of the buffer given to {@link #write(java.nio.ByteBuffer, int, java.lang.Object) }.
+ */
+public final class UniformBlockLayout {
+
+    private static final class Member {
+
+        final String name;
+        final VarType type;
+        final int arrayLength;
+        final int offset;
+        final int slot;
+
+        Member(String name, VarType type, int arrayLength, int offset) {
+            this.name = name;
+            this.type = type;
+            this.arrayLength = arrayLength;
+            this.offset = offset;
+            this.slot = Shader.getUniformSlot(name);
+        }
+    }
+
+    private final String blockName;
+    private final ArrayList<Member> members = new ArrayList<Member>();
+    private int[] memberBySlot = new int[0];
+    private int end = 0;
+
+    /**
+     * Creates an empty layout.
+     * 
+     * @param blockName The name of the block in the shader.
+     */
+    public UniformBlockLayout(String blockName) {
+        this.blockName = blockName;
+    }
+
+    /**
+     * @return The name of the block in the shader.
+     */
+    public String getBlockName() {
+        return blockName;
+    }
+
+    /**
+     * Appends a non-array member to the block.
+     * 
+     * @param name The name of the member, e.g. "m_Color".
+     * @param type The type of the member, must not be a texture or array type.
+     * @return The index of the member.
+     */
+    public int addMember(String name, VarType type) {
+        return addMember(name, type, 0);
+    }
+
+    /**
+     * Appends a member to the block.
+     * 
+     * @param name The name of the member, e.g. "g_LightData".
+     * @param type The type of the member, must not be a texture type.
+     * @param arrayLength The number of elements for array types, 
+     * ignored for other types.
+     * @return The index of the member.
+     */
+    public int addMember(String name, VarType type, int arrayLength) {
+        if (type.isTextureType()) {
+            throw new IllegalArgumentException("Textures cannot be stored in a uniform block: " + name);
+        }
+        if (isArray(type)) {
+            if (arrayLength <= 0) {
+                throw new IllegalArgumentException("Array length must be positive: " + name);
+            }
+        } else {
+            arrayLength = 0;
+        }
+        if (getMemberIndex(name) >= 0) {
+            throw new IllegalArgumentException("Duplicate member: " + name);
+        }
+
+        int offset = align(end, getAlignment(type));
+        Member member = new Member(name, type, arrayLength, offset);
+        end = offset + getSize(type, arrayLength);
+
+        int index = members.size();
+        members.add(member);
+        if (member.slot >= memberBySlot.length) {
+            int oldLength = memberBySlot.length;
+            memberBySlot = Arrays.copyOf(memberBySlot, Math.max(member.slot + 1, oldLength * 2));
+            Arrays.fill(memberBySlot, oldLength, memberBySlot.length, -1);
+        }
+        memberBySlot[member.slot] = index;
+        return index;
+    }
+
+    /**
+     * @param type The type to check
+     * @return True if members of the type need an array length.
+     */
+    public static boolean isArray(VarType type) {
+        switch (type) {
+            case IntArray:
+            case FloatArray:
+            case Vector2Array:
+            case Vector3Array:
+            case Vector4Array:
+            case Matrix3Array:
+            case Matrix4Array:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int align(int offset, int alignment) {
+        return (offset + alignment - 1) / alignment * alignment;
+    }
+
+    private static int getAlignment(VarType type) {
+        switch (type) {
+            case Float:
+            case Int:
+            case Boolean:
+                return 4;
+            case Vector2:
+                return 8;
+            default:
+                return 16;
+        }
+    }
+
+    private static int getSize(VarType type, int arrayLength) {
+        switch (type) {
+            case Float:
+            case Int:
+            case Boolean:
+                return 4;
+            case Vector2:
+                return 8;
+            case Vector3:
+                return 12;
+            case Vector4:
+                return 16;
+            case Matrix3:
+                return 48;
+            case Matrix4:
+                return 64;
+            case Matrix3Array:
+                return 48 * arrayLength;
+            case Matrix4Array:
+                return 64 * arrayLength;
+            default:
+                // scalar and vector arrays, 16 byte stride
+                return 16 * arrayLength;
+        }
+    }
+
+    /**
+     * @return The size of the block in bytes.
+     */
+    public int getSize() {
+        return align(end, 16);
+    }
+
+    /**
+     * @return The number of members in the block.
+     */
+    public int getMemberCount() {
+        return members.size();
+    }
+
+    public String getMemberName(int index) {
+        return members.get(index).name;
+    }
+
+    public VarType getMemberType(int index) {
+        return members.get(index).type;
+    }
+
+    public int getMemberOffset(int index) {
+        return members.get(index).offset;
+    }
+
+    public int getMemberArrayLength(int index) {
+        return members.get(index).arrayLength;
+    }
+
+    /**
+     * Finds a member by its {@link Shader#getUniformSlot(java.lang.String) uniform slot}.
+     * 
+     * @param uniformSlot The slot of the member name.
+     * @return The index of the member, or -1 if the block has no such member.
+     */
+    public int getMemberIndex(int uniformSlot) {
+        if (uniformSlot < 0 || uniformSlot >= memberBySlot.length) {
+            return -1;
+        }
+        return memberBySlot[uniformSlot];
+    }
+
+    /**
+     * Finds a member by name.
+     * 
+     * @param name The name of the member.
+     * @return The index of the member, or -1 if the block has no such member.
+     */
+    public int getMemberIndex(String name) {
+        return getMemberIndex(Shader.getUniformSlot(name));
+    }
+
+    /**
+     * @return A new direct buffer large enough to hold the block.
+     */
+    public ByteBuffer createBuffer() {
+        return BufferUtilsCreator.createByteBuffer(getSize());
+    }
+
+    /**
+     * Zeroes the block and sets the buffer position and limit so the 
+     * buffer is ready to be uploaded.
+     * 
+     * @param buffer The block data.
+     */
+    public void clear(ByteBuffer buffer) {
+        int size = getSize();
+        for (int i = 0; i < size; i += 8) {
+            buffer.putLong(i, 0L);
+        }
+        buffer.limit(size).position(0);
+    }
+
+    /**
+     * Writes the value of a member.
+     * <p>
+     * Accepted values are the same as for 
+     * {@link Uniform#setValue(com.jme3.shader.VarType, java.lang.Object) },
+     * array values longer than the declared length are truncated.
+     * <code>Vector4Array</code> members additionally accept a 
+     * <code>FloatBuffer</code> of packed vec4 data.
+     * A null value zeroes the member.
+     * 
+     * @param buffer The block data.
+     * @param index The index of the member.
+     * @param value The value to write.
+     */
+    public void write(ByteBuffer buffer, int index, Object value) {
+        Member member = members.get(index);
+        int offset = member.offset;
+        if (value == null) {
+            int size = getSize(member.type, member.arrayLength);
+            for (int i = 0; i < size; i += 4) {
+                buffer.putInt(offset + i, 0);
+            }
+            return;
+        }
+
+        switch (member.type) {
+            case Float:
+                buffer.putFloat(offset, ((Number) value).floatValue());
+                break;
+            case Int:
+                buffer.putInt(offset, ((Number) value).intValue());
+                break;
+            case Boolean:
+                buffer.putInt(offset, ((Boolean) value) ? 1 : 0);
+                break;
+            case Vector2:
+                writeVector2(buffer, offset, (Vector2f) value);
+                break;
+            case Vector3:
+                writeVector3(buffer, offset, (Vector3f) value);
+                break;
+            case Vector4:
+                writeVector4(buffer, offset, value);
+                break;
+            case Matrix3:
+                writeMatrix3(buffer, offset, (Matrix3f) value);
+                break;
+            case Matrix4:
+                writeMatrix4(buffer, offset, (Matrix4f) value);
+                break;
+            case FloatArray: {
+                float[] a = (float[]) value;
+                int n = Math.min(a.length, member.arrayLength);
+                for (int i = 0; i < n; i++) {
+                    buffer.putFloat(offset + i * 16, a[i]);
+                }
+                break;
+            }
+            case IntArray: {
+                int[] a = (int[]) value;
+                int n = Math.min(a.length, member.arrayLength);
+                for (int i = 0; i < n; i++) {
+                    buffer.putInt(offset + i * 16, a[i]);
+                }
+                break;
+            }
+            case Vector2Array: {
+                Vector2f[] a = (Vector2f[]) value;
+                int n = Math.min(a.length, member.arrayLength);
+                for (int i = 0; i < n; i++) {
+                    writeVector2(buffer, offset + i * 16, a[i]);
+                }
+                break;
+            }
+            case Vector3Array: {
+                Vector3f[] a = (Vector3f[]) value;
+                int n = Math.min(a.length, member.arrayLength);
+                for (int i = 0; i < n; i++) {
+                    writeVector3(buffer, offset + i * 16, a[i]);
+                }
+                break;
+            }
+            case Vector4Array:
+                if (value instanceof FloatBuffer) {
+                    FloatBuffer fb = (FloatBuffer) value;
+                    int n = Math.min(fb.limit(), member.arrayLength * 4);
+                    for (int i = 0; i < n; i++) {
+                        buffer.putFloat(offset + i * 4, fb.get(i));
+                    }
+                } else {
+                    Object[] a = (Object[]) value;
+                    int n = Math.min(a.length, member.arrayLength);
+                    for (int i = 0; i < n; i++) {
+                        writeVector4(buffer, offset + i * 16, a[i]);
+                    }
+                }
+                break;
+            case Matrix3Array: {
+                Matrix3f[] a = (Matrix3f[]) value;
+                int n = Math.min(a.length, member.arrayLength);
+                for (int i = 0; i < n; i++) {
+                    writeMatrix3(buffer, offset + i * 48, a[i]);
+                }
+                break;
+            }
+            case Matrix4Array: {
+                Matrix4f[] a = (Matrix4f[]) value;
+                int n = Math.min(a.length, member.arrayLength);
+                for (int i = 0; i < n; i++) {
+                    writeMatrix4(buffer, offset + i * 64, a[i]);
+                }
+                break;
+            }
+            default:
+                throw new UnsupportedOperationException("Unsupported block member type: " + member.type);
+        }
+    }
+
+    private static void writeVector2(ByteBuffer buffer, int offset, Vector2f v) {
+        buffer.putFloat(offset, v.x);
+        buffer.putFloat(offset + 4, v.y);
+    }
+
+    private static void writeVector3(ByteBuffer buffer, int offset, Vector3f v) {
+        buffer.putFloat(offset, v.x);
+        buffer.putFloat(offset + 4, v.y);
+        buffer.putFloat(offset + 8, v.z);
+    }
+
+    private static void writeVector4(ByteBuffer buffer, int offset, Object value) {
+        if (value instanceof ColorRGBA) {
+            ColorRGBA c = (ColorRGBA) value;
+            writeVector4(buffer, offset, c.r, c.g, c.b, c.a);
+        } else if (value instanceof Vector4f) {
+            Vector4f v = (Vector4f) value;
+            writeVector4(buffer, offset, v.x, v.y, v.z, v.w);
+        } else {
+            Quaternion q = (Quaternion) value;
+            writeVector4(buffer, offset, q.getX(), q.getY(), q.getZ(), q.getW());
+        }
+    }
+
+    private static void writeVector4(ByteBuffer buffer, int offset, float x, float y, float z, float w) {
+        buffer.putFloat(offset, x);
+        buffer.putFloat(offset + 4, y);
+        buffer.putFloat(offset + 8, z);
+        buffer.putFloat(offset + 12, w);
+    }
+
+    private static void writeMatrix3(ByteBuffer buffer, int offset, Matrix3f m) {
+        for (int col = 0; col < 3; col++) {
+            int base = offset + col * 16;
+            buffer.putFloat(base, m.get(0, col));
+            buffer.putFloat(base + 4, m.get(1, col));
+            buffer.putFloat(base + 8, m.get(2, col));
+        }
+    }
+
+    private static void writeMatrix4(ByteBuffer buffer, int offset, Matrix4f m) {
+        writeVector4(buffer, offset, m.m00, m.m10, m.m20, m.m30);
+        writeVector4(buffer, offset + 16, m.m01, m.m11, m.m21, m.m31);
+        writeVector4(buffer, offset + 32, m.m02, m.m12, m.m22, m.m32);
+        writeVector4(buffer, offset + 48, m.m03, m.m13, m.m23, m.m33);
+    }
+
+    /**
+     * Generates the GLSL declaration of the block, shaders using the block 
+     * must declare it exactly like this.
+     * 
+     * @return The GLSL declaration.
+     */
+    public String getDeclaration() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("layout(std140) uniform ").append(blockName).append(" {\n");
+        for (Member member : members) {
+            String glslType = member.type.getGlslType();
+            sb.append("    ").append(glslType).append(' ').append(member.name);
+            if (member.arrayLength > 0) {
+                sb.append('[').append(member.arrayLength).append(']');
+            }
+            sb.append(";\n");
+        }
+        sb.append("};\n");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + blockName + ", size=" + getSize() + "]";
+    }
+}
@@ -43,6 +43,7 @@ import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.shader.Shader;
 import com.jme3.shader.Shader.ShaderSource;
+import com.jme3.shader.UniformBlock;
 import com.jme3.texture.FrameBuffer;
 import com.jme3.texture.Image;
 import com.jme3.texture.Texture;
@@ -121,6 +122,9 @@ public class NullRenderer implements Renderer {
     public void deleteShaderSource(ShaderSource source) {
     }
 
+    public void setUniformBlock(UniformBlock block, ByteBuffer data) {
+    }
+
     public void copyFrameBuffer(FrameBuffer src, FrameBuffer dst) {
     }
 
@@ -396,6 +396,7 @@ public class Image extends NativeObject implements Savable /*, Cloneable*/ {
     protected ArrayList<ByteBuffer> data;
     protected int multiSamples = 1;
     protected ColorSpace colorSpace = null;
+    protected boolean dataOwned = true;
 //    protected int mipOffset = 0;
     
     // attributes relating to GL object
@@ -488,6 +489,9 @@ public class Image extends NativeObject implements Savable /*, Cloneable*/ {
 
     @Override
     protected void deleteNativeBuffers() {
+        if (!dataOwned) {
+            return;
+        }
         for (ByteBuffer buf : data) {
             BufferUtils.destroyDirectBuffer(buf);
         }
@@ -712,6 +716,27 @@ public class Image extends NativeObject implements Savable /*, Cloneable*/ {
     }
 
 
+    /**
+     * Set to false if the data buffers are views of memory the image does
+     * not own, for example slices of a memory-mapped asset file created by
+     * a loader. Such buffers are not destroyed with the image, they may
+     * be shared with other images or be read-only. Applies to buffers set
+     * later as well. True by default.
+     *
+     * @param dataOwned True if the image owns its data buffers.
+     */
+    public void setDataOwned(boolean dataOwned) {
+        this.dataOwned = dataOwned;
+    }
+
+    /**
+     * @return True if the data buffers are destroyed with the image.
+     * @see Image#setDataOwned(boolean)
+     */
+    public boolean isDataOwned() {
+        return dataOwned;
+    }
+
     /**
      * @return The number of samples (for multisampled textures).
      * @see Image#setMultiSamples(int)
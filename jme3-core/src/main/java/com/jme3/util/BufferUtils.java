@@ -36,6 +36,8 @@ import com.jme3.math.Quaternion;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.math.Vector4f;
+import com.jme3.profile.Counter;
+import com.jme3.profile.MetricsRegistry;
 
 import java.lang.ref.PhantomReference;
 import java.lang.ref.Reference;
@@ -66,6 +68,9 @@ public final class BufferUtils {
 
     private static boolean used;
 
+    // only counts explicit destroyDirectBuffer calls, not collected buffers
+    private static final Counter destroyedBytes = MetricsRegistry.getDefault().counter("buffer.direct.destroyedBytes");
+
     static {
         try {
             allocator = new ReflectionAllocator();
@@ -904,6 +909,7 @@ public final class BufferUtils {
         if (!isDirect(toBeDestroyed)) {
             return;
         }
+        destroyedBytes.add(getSizeInBytes(toBeDestroyed));
         allocator.destroyDirectBuffer(toBeDestroyed);
     }
 
@@ -939,6 +945,23 @@ public final class BufferUtils {
         throw new UnsupportedOperationException(" BufferUtils.isDirect was called on " + buf.getClass().getName());
     }
 
+    /**
+     * Returns the capacity of the buffer in bytes.
+     */
+    static long getSizeInBytes(Buffer buf) {
+        long capacity = buf.capacity();
+        if (buf instanceof ByteBuffer) {
+            return capacity;
+        }
+        if (buf instanceof ShortBuffer) {
+            return capacity * 2;
+        }
+        if (buf instanceof DoubleBuffer || buf instanceof LongBuffer) {
+            return capacity * 8;
+        }
+        return capacity * 4;
+    }
+
     static class BufferInfo extends PhantomReference<Buffer> {
 
         private Class type;
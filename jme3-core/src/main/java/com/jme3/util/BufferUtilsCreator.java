@@ -5,6 +5,8 @@ import com.jme3.math.Quaternion;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.math.Vector4f;
+import com.jme3.profile.Counter;
+import com.jme3.profile.MetricsRegistry;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.ref.ReferenceQueue;
@@ -25,9 +27,14 @@ public class BufferUtilsCreator {
     private static ConcurrentHashMap<BufferUtils.BufferInfo, BufferUtils.BufferInfo> trackedBuffers = new ConcurrentHashMap<BufferUtils.BufferInfo, BufferUtils.BufferInfo>();
     static BufferUtils.ClearReferences cleanupthread;
 
+    private static final Counter allocations = MetricsRegistry.getDefault().counter("buffer.direct.allocations");
+    private static final Counter allocatedBytes = MetricsRegistry.getDefault().counter("buffer.direct.allocatedBytes");
+
     private static boolean used;
     private static void onBufferAllocated(Buffer buffer) {
         used = true;
+        allocations.increment();
+        allocatedBytes.add(BufferUtils.getSizeInBytes(buffer));
         if (trackDirectMemory) {
             if (BufferUtils.cleanupthread == null) {
                 BufferUtils.cleanupthread = new BufferUtils.ClearReferences();
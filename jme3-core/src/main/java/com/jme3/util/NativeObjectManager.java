@@ -31,6 +31,8 @@
  */
 package com.jme3.util;
 
+import com.jme3.profile.Counter;
+import com.jme3.profile.MetricsRegistry;
 import com.jme3.renderer.Renderer;
 
 import java.lang.ref.PhantomReference;
@@ -53,6 +55,9 @@ import java.util.logging.Logger;
 public class NativeObjectManager {
 
     private static final Logger logger = Logger.getLogger(NativeObjectManager.class.getName());
+
+    private static final Counter liveObjects = MetricsRegistry.getDefault().counter("native.objects.live");
+    private static final Counter collectedObjects = MetricsRegistry.getDefault().counter("native.objects.collected");
     
     /**
      * Set to <code>true</code> to enable deletion of native buffers together with GL objects
@@ -79,6 +84,7 @@ public class NativeObjectManager {
     
     /**
      * List of real objects requested by user for deletion.
+     * Objects may be queued from any thread, access is synchronized on the queue.
      */
     private ArrayDeque<NativeObject> userDeletionQueue = new ArrayDeque<NativeObject>();
 
@@ -106,7 +112,9 @@ public class NativeObjectManager {
         }
 
         NativeObjectRef ref = new NativeObjectRef(refQueue, obj);
-        refMap.put(obj.getUniqueId(), ref);
+        if (refMap.put(obj.getUniqueId(), ref) == null) {
+            liveObjects.increment();
+        }
         
         obj.setNativeObjectManager(this);
 
@@ -137,6 +145,7 @@ public class NativeObjectManager {
                     throw new IllegalArgumentException("This NativeObject is not " + 
                                                        "registered in this NativeObjectManager");
                 }
+                liveObjects.decrement();
 
                 assert ref == null || ref == ref2;
 
@@ -173,9 +182,15 @@ public class NativeObjectManager {
      */
     public void deleteUnused(Object rendererObject){
         int removed = 0;
-        while (removed < MAX_REMOVES_PER_FRAME && !userDeletionQueue.isEmpty()) {
+        while (removed < MAX_REMOVES_PER_FRAME) {
             // Remove user requested objects.
-            NativeObject obj = userDeletionQueue.pop();
+            NativeObject obj;
+            synchronized (userDeletionQueue) {
+                obj = userDeletionQueue.poll();
+            }
+            if (obj == null) {
+                break;
+            }
             deleteNativeObject(rendererObject, obj, null, true, true);
             removed++;
         }
@@ -187,6 +202,7 @@ public class NativeObjectManager {
             }
 
             deleteNativeObject(rendererObject, ref.objClone, ref, true, false);
+            collectedObjects.increment();
             removed++;
         }
         if (removed >= 1) {
@@ -217,7 +233,9 @@ public class NativeObjectManager {
      * @param obj The object to mark as unused.
      */
     void enqueueUnusedObject(NativeObject obj) {
-        userDeletionQueue.push(obj);
+        synchronized (userDeletionQueue) {
+            userDeletionQueue.push(obj);
+        }
     }
     
     /**
@@ -237,6 +255,7 @@ public class NativeObjectManager {
                 logger.log(Level.FINEST, "Reset: {0}", realObj);
             }
         }
+        liveObjects.add(-refMap.size());
         refMap.clear();
         refQueue = new ReferenceQueue<Object>();
     }
@@ -236,4 +236,6 @@ public class TempVars {
     public final CollisionResults collisionResults = new CollisionResults();
     public final float[] bihSwapTmp = new float[9];
     public final ArrayList<BIHStackData> bihStack = new ArrayList<BIHStackData>();
+    public final int[] bihNodeStack = new int[256];
+    public final float[] bihRangeStack = new float[512];
 }
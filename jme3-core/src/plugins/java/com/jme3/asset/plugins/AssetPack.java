@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset.plugins;
+
+import com.jme3.util.BufferInputStream;
+import com.jme3.util.BufferUtilsCreator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A read-only asset pack file, memory-mapped once when opened.
+ * 
+ * <p>A pack stores files by name, each either as is or compressed with
+ * deflate. Stored entries are handed out as slices of the mapping, so
+ * loaders that support {@link com.jme3.asset.AssetInfo#openBuffer() }
+ * read them without copying. Names are found through a hash table, 
+ * without scanning the entries. Packs are written by 
+ * <code>jme3tools.pack.AssetPacker</code>.</p>
+ * 
+ * <p>Layout, all values little endian:</p>
+ * <pre>
+ * header:  int magic, int version, int numEntries, int numSlots,
+ *          long tableOffset, long reserved
+ * data:    entry data, each entry aligned to {@link #ALIGNMENT} bytes
+ * table:   int[numSlots] slots, entry index + 1 or 0 if empty
+ *          entries, {@link #ENTRY_SIZE} bytes each: int hash, 
+ *          int nameOffset, int nameLength, int method, long dataOffset,
+ *          int storedSize, int size
+ *          names, UTF-8 encoded
+ * </pre>
+ * <p>The slot of a name is <code>hash(name) &amp; (numSlots - 1)</code>,
+ * followed by the next slots if taken. A pack is mapped as a whole and
+ * must be smaller than 2 GB.</p>
+ */
+public final class AssetPack {
+
+    public static final int MAGIC = 0x4B41504A; // "JPAK"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int ENTRY_SIZE = 32;
+    public static final int ALIGNMENT = 16;
+
+    /**
+     * The entry data is stored as is.
+     */
+    public static final int STORED = 0;
+
+    /**
+     * The entry data is compressed with zlib deflate.
+     */
+    public static final int DEFLATED = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final ByteBuffer data;
+    private final int numEntries;
+    private final int slotMask;
+    private final int slotsOffset;
+    private final int entriesOffset;
+    private final int namesOffset;
+
+    private AssetPack(File file, ByteBuffer data) throws IOException {
+        this.file = file;
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not an asset pack: " + file);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported asset pack version " + data.getInt(4) + ": " + file);
+        }
+        numEntries = data.getInt(8);
+        int numSlots = data.getInt(12);
+        if (Integer.bitCount(numSlots) != 1 || numSlots < numEntries) {
+            throw new IOException("Corrupt asset pack table: " + file);
+        }
+        slotMask = numSlots - 1;
+        slotsOffset = (int) data.getLong(16);
+        entriesOffset = slotsOffset + numSlots * 4;
+        namesOffset = entriesOffset + numEntries * ENTRY_SIZE;
+        if (slotsOffset < HEADER_SIZE || namesOffset > data.capacity()) {
+            throw new IOException("Corrupt asset pack table: " + file);
+        }
+    }
+
+    /**
+     * Opens and maps a pack file.
+     * 
+     * @param file The pack file.
+     * @return The pack.
+     * @throws IOException If the file cannot be mapped or is not a pack.
+     */
+    public static AssetPack open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Asset pack larger than 2 GB: " + file);
+            }
+            return new AssetPack(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * The hash of an entry name, used both to write and look up the table.
+     * 
+     * @param name The entry name.
+     * @return The hash.
+     */
+    public static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getNumEntries() {
+        return numEntries;
+    }
+
+    /**
+     * Finds an entry by name, a leading "/" is ignored.
+     * 
+     * @param name The entry name.
+     * @return The entry index, or -1 if there is no such entry.
+     */
+    public int find(String name) {
+        if (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        int hash = hash(name);
+        byte[] bytes = null;
+        for (int slot = hash & slotMask, probes = 0; probes <= slotMask; slot = (slot + 1) & slotMask, probes++) {
+            int entry = data.getInt(slotsOffset + slot * 4) - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            int e = entriesOffset + entry * ENTRY_SIZE;
+            if (data.getInt(e) != hash) {
+                continue;
+            }
+            if (bytes == null) {
+                bytes = name.getBytes(UTF8);
+            }
+            if (nameEquals(data.getInt(e + 4), data.getInt(e + 8), bytes)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private boolean nameEquals(int offset, int length, byte[] bytes) {
+        if (length != bytes.length) {
+            return false;
+        }
+        int start = namesOffset + offset;
+        for (int i = 0; i < length; i++) {
+            if (data.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int entry(int index) {
+        if (index < 0 || index >= numEntries) {
+            throw new IndexOutOfBoundsException("Entry " + index);
+        }
+        return entriesOffset + index * ENTRY_SIZE;
+    }
+
+    public String getName(int index) {
+        int e = entry(index);
+        byte[] bytes = new byte[data.getInt(e + 8)];
+        ByteBuffer names = data.duplicate();
+        names.position(namesOffset + data.getInt(e + 4));
+        names.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * @return The compression method, {@link #STORED} or {@link #DEFLATED}.
+     */
+    public int getMethod(int index) {
+        return data.getInt(entry(index) + 12);
+    }
+
+    /**
+     * @return The uncompressed size of the entry in bytes.
+     */
+    public int getSize(int index) {
+        return data.getInt(entry(index) + 28);
+    }
+
+    /**
+     * @return The size of the entry in the pack in bytes.
+     */
+    public int getStoredSize(int index) {
+        return data.getInt(entry(index) + 24);
+    }
+
+    private ByteBuffer storedData(int index) {
+        int e = entry(index);
+        int offset = (int) data.getLong(e + 16);
+        ByteBuffer slice = data.duplicate();
+        slice.limit(offset + data.getInt(e + 24)).position(offset);
+        return slice.slice();
+    }
+
+    /**
+     * Returns the data of an entry. Stored entries are read-only slices of
+     * the mapped file, deflated entries are inflated into a new direct 
+     * buffer.
+     * 
+     * @param index The entry index.
+     * @return The data, positioned at 0, in big endian byte order.
+     * @throws IOException If a deflated entry is corrupt.
+     */
+    public ByteBuffer getBuffer(int index) throws IOException {
+        ByteBuffer stored = storedData(index);
+        if (getMethod(index) == STORED) {
+            return stored;
+        }
+        int size = getSize(index);
+        byte[] in = new byte[stored.remaining()];
+        stored.get(in);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(in);
+            ByteBuffer out = BufferUtilsCreator.createByteBuffer(size).order(ByteOrder.BIG_ENDIAN);
+            byte[] chunk = new byte[Math.min(size, 64 * 1024)];
+            while (out.hasRemaining()) {
+                int n = inflater.inflate(chunk, 0, Math.min(chunk.length, out.remaining()));
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated asset pack entry " + getName(index) + " in " + file);
+                }
+                out.put(chunk, 0, n);
+            }
+            out.flip();
+            return out;
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupt asset pack entry " + getName(index) + " in " + file, ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Opens a stream to the uncompressed data of an entry.
+     * 
+     * @param index The entry index.
+     * @return The stream.
+     */
+    public InputStream openStream(int index) {
+        InputStream in = new BufferInputStream(storedData(index));
+        if (getMethod(index) == DEFLATED) {
+            in = new InflaterInputStream(in);
+        }
+        return in;
+    }
+}
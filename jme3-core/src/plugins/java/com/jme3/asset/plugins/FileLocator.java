@@ -34,15 +34,20 @@ package com.jme3.asset.plugins;
 import com.jme3.asset.AssetInfo;
 import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetLoadException;
-import com.jme3.asset.AssetLocator;
 import com.jme3.asset.AssetManager;
 import com.jme3.asset.AssetNotFoundException;
+import com.jme3.asset.IndexableAssetLocator;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
 
 /**
  * <code>FileLocator</code> allows you to specify a folder where to
@@ -50,7 +55,7 @@ import java.io.InputStream;
  * 
  * @author Kirill Vainer
  */
-public class FileLocator implements AssetLocator {
+public class FileLocator implements IndexableAssetLocator {
 
     private File root;
 
@@ -87,6 +92,56 @@ public class FileLocator implements AssetLocator {
                 throw new AssetLoadException("Failed to open file: " + file, ex);
             }
         }
+
+        @Override
+        public ByteBuffer openBuffer() {
+            try {
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                try {
+                    FileChannel channel = raf.getChannel();
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                } finally {
+                    raf.close();
+                }
+            } catch (IOException ex) {
+                throw new AssetLoadException("Failed to map file: " + file, ex);
+            }
+        }
+    }
+
+    public Collection<String> listAssets() {
+        ArrayList<String> names = new ArrayList<String>();
+        listAssets(root, "", names);
+        return names;
+    }
+
+    private static void listAssets(File dir, String prefix, Collection<String> names) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            try {
+                // skip what locate() would not find under this name, this
+                // also keeps symbolic links from leading into cycles
+                if (!isCanonical(child)) {
+                    continue;
+                }
+            } catch (IOException ex) {
+                continue;
+            }
+            if (child.isDirectory()) {
+                listAssets(child, prefix + child.getName() + "/", names);
+            } else {
+                names.add(prefix + child.getName());
+            }
+        }
+    }
+
+    // false if the path of the file goes through a symbolic link or does
+    // not match the case of the file name
+    private static boolean isCanonical(File file) throws IOException {
+        return file.getCanonicalPath().endsWith(file.getAbsolutePath());
     }
 
     public AssetInfo locate(AssetManager manager, AssetKey key) {
@@ -95,11 +150,9 @@ public class FileLocator implements AssetLocator {
         if (file.exists() && file.isFile()){
             try {
                 // Now, check asset name requirements
-                String canonical = file.getCanonicalPath();
-                String absolute = file.getAbsolutePath();
-                if (!canonical.endsWith(absolute)){
+                if (!isCanonical(file)){
                     throw new AssetNotFoundException("Asset name doesn't match requirements.\n"+
-                                                     "\"" + canonical + "\" doesn't match \"" + absolute + "\"");
+                                                     "\"" + file.getCanonicalPath() + "\" doesn't match \"" + file.getAbsolutePath() + "\"");
                 }
             } catch (IOException ex) {
                 throw new AssetLoadException("Failed to get file canonical path " + file, ex);
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset.plugins;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLoadException;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.IndexableAssetLocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <code>PackLocator</code> looks up assets in an {@link AssetPack asset pack}.
+ * 
+ * The root path must be a pack file, for example <br>
+ * <code>C:\My App\data.jpk</code>
+ * 
+ * <p>The pack is mapped once and shared by all locators using the same
+ * file. Assets stored uncompressed in the pack are provided to loaders as
+ * slices of the mapping through {@link AssetInfo#openBuffer() }.</p>
+ */
+public class PackLocator implements IndexableAssetLocator {
+
+    private static final ConcurrentHashMap<String, AssetPack> packs = new ConcurrentHashMap<String, AssetPack>();
+
+    private AssetPack pack;
+
+    private static class PackAssetInfo extends AssetInfo {
+
+        private final AssetPack pack;
+        private final int entry;
+
+        public PackAssetInfo(AssetManager manager, AssetKey<?> key, AssetPack pack, int entry) {
+            super(manager, key);
+            this.pack = pack;
+            this.entry = entry;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return pack.openStream(entry);
+        }
+
+        @Override
+        public ByteBuffer openBuffer() {
+            try {
+                return pack.getBuffer(entry);
+            } catch (IOException ex) {
+                throw new AssetLoadException("Failed to read pack entry: " + key, ex);
+            }
+        }
+    }
+
+    public void setRootPath(String rootPath) {
+        try {
+            String path = new File(rootPath).getCanonicalPath();
+            AssetPack shared = packs.get(path);
+            if (shared == null) {
+                shared = AssetPack.open(new File(path));
+                AssetPack existing = packs.putIfAbsent(path, shared);
+                if (existing != null) {
+                    shared = existing;
+                }
+            }
+            pack = shared;
+        } catch (IOException ex) {
+            throw new AssetLoadException("Failed to open asset pack: " + rootPath, ex);
+        }
+    }
+
+    public Collection<String> listAssets() {
+        ArrayList<String> names = new ArrayList<String>(pack.getNumEntries());
+        for (int i = 0; i < pack.getNumEntries(); i++) {
+            names.add(pack.getName(i));
+        }
+        return names;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public AssetInfo locate(AssetManager manager, AssetKey key) {
+        int entry = pack.find(key.getName());
+        if (entry < 0) {
+            return null;
+        }
+        return new PackAssetInfo(manager, key, pack, entry);
+    }
+
+}
@@ -34,12 +34,15 @@ package com.jme3.asset.plugins;
 import com.jme3.asset.AssetInfo;
 import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetLoadException;
-import com.jme3.asset.AssetLocator;
 import com.jme3.asset.AssetManager;
+import com.jme3.asset.IndexableAssetLocator;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -54,7 +57,7 @@ import java.util.zip.ZipFile;
  * 
  * @author Kirill Vainer
  */
-public class ZipLocator implements AssetLocator {
+public class ZipLocator implements IndexableAssetLocator {
 
     private ZipFile zipfile;
     private static final Logger logger = Logger.getLogger(ZipLocator.class.getName());
@@ -85,6 +88,18 @@ public class ZipLocator implements AssetLocator {
         }
     }
 
+    public Collection<String> listAssets() {
+        ArrayList<String> names = new ArrayList<String>(zipfile.size());
+        Enumeration<? extends ZipEntry> entries = zipfile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory()) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
     public AssetInfo locate(AssetManager manager, AssetKey key) {
         String name = key.getName();
         if(name.startsWith("/"))name=name.substring(1);
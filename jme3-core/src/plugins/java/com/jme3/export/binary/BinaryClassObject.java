@@ -31,6 +31,8 @@
  */
 package com.jme3.export.binary;
 
+import com.jme3.export.Savable;
+import com.jme3.export.SavableFactory;
 import java.util.HashMap;
 
 class BinaryClassObject {
@@ -42,4 +44,10 @@ class BinaryClassObject {
     byte[] alias;
     String className;
     int[] classHierarchyVersions;
+
+    // Resolved on first use when importing, so that each alias is
+    // only looked up once per file.
+    SavableFactory factory;
+    Class<?> savableClass;
+    HashMap<Class<? extends Savable>, Integer> savedVersions;
 }
@@ -44,10 +44,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 /**
  * Exports to the jME Binary Format. Format descriptor: (each numbered item
@@ -166,6 +171,31 @@ public class BinaryExporter implements JmeExporter {
 
     public static boolean debug = false;
     public static boolean useFastBufs = true;
+
+    /**
+     * The objects are compressed and written out each time this many bytes
+     * of them were collected.
+     */
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * Width of the class aliases in chunked files, the objects are written
+     * before the number of classes is known.
+     */
+    static final int CHUNKED_ALIAS_WIDTH = 4;
+
+    /**
+     * Amount of recently written object content kept to find identical
+     * objects when writing chunks, older content is dropped.
+     */
+    private static final int DEDUPLICATION_WINDOW = 4 * 1024 * 1024;
+
+    // files stay readable by released engines unless version 3 is requested
+    private int formatVersion = 2;
+    private int compressionLevel = Deflater.BEST_SPEED;
+    private ChunkWriter chunkWriter;
+    private LinkedHashMap<SavedContent, Integer> savedContents;
+    private int savedContentBytes;
       
     public BinaryExporter() {
     }
@@ -199,6 +229,39 @@ public class BinaryExporter implements JmeExporter {
         }
     }
 
+    /**
+     * Sets the version of the format written by this exporter. Defaults to
+     * 2, the uncompressed layout that all released versions of the engine
+     * can read. Version {@link FormatVersion#VERSION} writes the objects in
+     * compressed chunks while the scene graph is traversed, the files are
+     * smaller and faster to load but can only be read by this version of
+     * the engine or later.
+     * 
+     * @param formatVersion 2 or {@link FormatVersion#VERSION}
+     */
+    public void setFormatVersion(int formatVersion) {
+        if (formatVersion < 2 || formatVersion > FormatVersion.VERSION) {
+            throw new IllegalArgumentException("Cannot write format version " + formatVersion);
+        }
+        this.formatVersion = formatVersion;
+    }
+
+    public int getFormatVersion() {
+        return formatVersion;
+    }
+
+    /**
+     * Sets the compression level of the chunks, see {@link Deflater}.
+     * Defaults to {@link Deflater#BEST_SPEED}.
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
     public void save(Savable object, OutputStream os) throws IOException {
         // reset some vars
         aliasCount = 1;
@@ -210,54 +273,21 @@ public class BinaryExporter implements JmeExporter {
         
         // write signature and version
         os.write(ByteUtils.convertToBytes(FormatVersion.SIGNATURE));
-        os.write(ByteUtils.convertToBytes(FormatVersion.VERSION));
+        os.write(ByteUtils.convertToBytes(formatVersion));
+
+        if (formatVersion >= 3) {
+            saveChunked(object, os);
+            return;
+        }
         
         int id = processBinarySavable(object);
 
         // write out tag table
-        int classTableSize = 0;
         int classNum = classes.keySet().size();
         int aliasSize = ((int) FastMath.log(classNum, 256) + 1); // make all
                                                                   // aliases a
                                                                   // fixed width
-        
-        os.write(ByteUtils.convertToBytes(classNum));
-        for (String key : classes.keySet()) {
-            BinaryClassObject bco = classes.get(key);
-
-            // write alias
-            byte[] aliasBytes = fixClassAlias(bco.alias,
-                    aliasSize);
-            os.write(aliasBytes);
-            classTableSize += aliasSize;
-            
-            // jME3 NEW: Write class hierarchy version numbers
-            os.write( bco.classHierarchyVersions.length );
-            for (int version : bco.classHierarchyVersions){
-                os.write(ByteUtils.convertToBytes(version));
-            }
-            classTableSize += 1 + bco.classHierarchyVersions.length * 4;
-            
-            // write classname size & classname
-            byte[] classBytes = key.getBytes();
-            os.write(ByteUtils.convertToBytes(classBytes.length));
-            os.write(classBytes);
-            classTableSize += 4 + classBytes.length;
-            
-            // for each field, write alias, type, and name
-            os.write(ByteUtils.convertToBytes(bco.nameFields.size()));
-            for (String fieldName : bco.nameFields.keySet()) {
-                BinaryClassField bcf = bco.nameFields.get(fieldName);
-                os.write(bcf.alias);
-                os.write(bcf.type);
-
-                // write classname size & classname
-                byte[] fNameBytes = fieldName.getBytes();
-                os.write(ByteUtils.convertToBytes(fNameBytes.length));
-                os.write(fNameBytes);
-                classTableSize += 2 + 4 + fNameBytes.length;
-            }
-        }
+        int classTableSize = writeClassTable(os, aliasSize);
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         // write out data to a seperate stream
@@ -293,16 +323,7 @@ public class BinaryExporter implements JmeExporter {
             location += cap.bytes.length;
         }
 
-        // write out location table
-        // tag/location
-        int numLocations = locationTable.keySet().size();
-        os.write(ByteUtils.convertToBytes(numLocations));
-        int locationTableSize = 0;
-        for (Integer key : locationTable.keySet()) {
-            os.write(ByteUtils.convertToBytes(key));
-            os.write(ByteUtils.convertToBytes(locationTable.get(key)));
-            locationTableSize += 8;
-        }
+        int locationTableSize = writeLocationTable(os);
 
         // write out number of root ids - hardcoded 1 for now
         os.write(ByteUtils.convertToBytes(1));
@@ -321,12 +342,130 @@ public class BinaryExporter implements JmeExporter {
             logger.fine("Stats:");
             logger.log(Level.FINE, "classes: {0}", classNum);
             logger.log(Level.FINE, "class table: {0} bytes", classTableSize);
-            logger.log(Level.FINE, "objects: {0}", numLocations);
+            logger.log(Level.FINE, "objects: {0}", locationTable.size());
             logger.log(Level.FINE, "location table: {0} bytes", locationTableSize);
             logger.log(Level.FINE, "data: {0} bytes", location);
         }
     }
 
+    /**
+     * Writes the objects in compressed chunks as soon as they are
+     * serialized, followed by the class and location tables. Identical
+     * objects are merged as in the buffered layout, as long as the first
+     * one was written recently enough.
+     */
+    private void saveChunked(Savable object, OutputStream os) throws IOException {
+        chunkWriter = new ChunkWriter(os, compressionLevel);
+        savedContents = new LinkedHashMap<SavedContent, Integer>(1024, 0.75f, true);
+        savedContentBytes = 0;
+        int id;
+        int dataSize;
+        int compressedSize;
+        try {
+            id = processBinarySavable(object);
+            chunkWriter.finish();
+            dataSize = chunkWriter.position();
+            compressedSize = chunkWriter.compressedSize;
+        } finally {
+            chunkWriter.end();
+            chunkWriter = null;
+            savedContents = null;
+        }
+
+        // the tables are deflated as a whole after the chunks
+        int classTableSize;
+        int locationTableSize;
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            DeflaterOutputStream tables = new DeflaterOutputStream(os, deflater, 64 * 1024);
+            classTableSize = writeClassTable(tables, CHUNKED_ALIAS_WIDTH);
+            locationTableSize = writeLocationTable(tables);
+
+            // write out number of root ids - hardcoded 1 for now
+            tables.write(ByteUtils.convertToBytes(1));
+
+            // write out root id
+            tables.write(ByteUtils.convertToBytes(id));
+            tables.finish();
+        } finally {
+            deflater.end();
+        }
+
+        if (debug) {
+            logger.fine("Stats:");
+            logger.log(Level.FINE, "classes: {0}", classes.size());
+            logger.log(Level.FINE, "class table: {0} bytes", classTableSize);
+            logger.log(Level.FINE, "objects: {0}", locationTable.size());
+            logger.log(Level.FINE, "location table: {0} bytes", locationTableSize);
+            logger.log(Level.FINE, "data: {0} bytes, {1} compressed", new Object[]{dataSize, compressedSize});
+        }
+    }
+
+    /**
+     * Writes the class table, with the aliases padded to the given width.
+     * 
+     * @return The size of the table in bytes
+     */
+    private int writeClassTable(OutputStream os, int aliasSize) throws IOException {
+        int classTableSize = 0;
+        os.write(ByteUtils.convertToBytes(classes.size()));
+        for (String key : classes.keySet()) {
+            BinaryClassObject bco = classes.get(key);
+
+            // write alias
+            byte[] aliasBytes = fixClassAlias(bco.alias,
+                    aliasSize);
+            os.write(aliasBytes);
+            classTableSize += aliasSize;
+            
+            // jME3 NEW: Write class hierarchy version numbers
+            os.write( bco.classHierarchyVersions.length );
+            for (int version : bco.classHierarchyVersions){
+                os.write(ByteUtils.convertToBytes(version));
+            }
+            classTableSize += 1 + bco.classHierarchyVersions.length * 4;
+            
+            // write classname size & classname
+            byte[] classBytes = key.getBytes();
+            os.write(ByteUtils.convertToBytes(classBytes.length));
+            os.write(classBytes);
+            classTableSize += 4 + classBytes.length;
+            
+            // for each field, write alias, type, and name
+            os.write(ByteUtils.convertToBytes(bco.nameFields.size()));
+            for (String fieldName : bco.nameFields.keySet()) {
+                BinaryClassField bcf = bco.nameFields.get(fieldName);
+                os.write(bcf.alias);
+                os.write(bcf.type);
+
+                // write classname size & classname
+                byte[] fNameBytes = fieldName.getBytes();
+                os.write(ByteUtils.convertToBytes(fNameBytes.length));
+                os.write(fNameBytes);
+                classTableSize += 2 + 4 + fNameBytes.length;
+            }
+        }
+        return classTableSize;
+    }
+
+    /**
+     * Writes the location of each object id.
+     * 
+     * @return The size of the table in bytes
+     */
+    private int writeLocationTable(OutputStream os) throws IOException {
+        // tag/location
+        int numLocations = locationTable.keySet().size();
+        os.write(ByteUtils.convertToBytes(numLocations));
+        int locationTableSize = 0;
+        for (Integer key : locationTable.keySet()) {
+            os.write(ByteUtils.convertToBytes(key));
+            os.write(ByteUtils.convertToBytes(locationTable.get(key)));
+            locationTableSize += 8;
+        }
+        return locationTableSize;
+    }
+
     protected String getChunk(BinaryIdContentPair pair) {
         return new String(pair.getContent().bytes, 0, Math.min(64, pair
                 .getContent().bytes.length));
@@ -348,7 +487,7 @@ public class BinaryExporter implements JmeExporter {
         if (bytes.length != width) {
             byte[] newAlias = new byte[width];
             for (int x = width - bytes.length; x < width; x++)
-                newAlias[x] = bytes[x - bytes.length];
+                newAlias[x] = bytes[x - (width - bytes.length)];
             return newAlias;
         }
         return bytes;
@@ -405,10 +544,42 @@ public class BinaryExporter implements JmeExporter {
         }
         object.write(this);
         newPair.getContent().finish();
+        if (chunkWriter != null) {
+            writeChunked(newPair, bco);
+        }
         return newPair.getId();
 
     }
 
+    /**
+     * Appends a finished object to the current chunk, or points it to an
+     * identical object written recently. Its content is released from the
+     * capsule, only its id is needed afterwards.
+     */
+    private void writeChunked(BinaryIdContentPair pair, BinaryClassObject bco) throws IOException {
+        BinaryOutputCapsule cap = pair.getContent();
+        SavedContent content = new SavedContent(bco, cap.bytes);
+        cap.bytes = null;
+
+        Integer location = savedContents.get(content);
+        if (location != null) {
+            locationTable.put(pair.getId(), location);
+            return;
+        }
+
+        location = chunkWriter.position();
+        locationTable.put(pair.getId(), location);
+        chunkWriter.write(fixClassAlias(bco.alias, CHUNKED_ALIAS_WIDTH), content.bytes);
+
+        savedContents.put(content, location);
+        savedContentBytes += content.bytes.length;
+        Iterator<SavedContent> it = savedContents.keySet().iterator();
+        while (savedContentBytes > DEDUPLICATION_WINDOW && it.hasNext()) {
+            savedContentBytes -= it.next().bytes.length;
+            it.remove();
+        }
+    }
+
     protected byte[] generateTag() {
         int width = ((int) FastMath.log(aliasCount, 256) + 1);
         int count = aliasCount;
@@ -428,4 +599,116 @@ public class BinaryExporter implements JmeExporter {
                 new BinaryOutputCapsule(this, bco));
         return pair;
     }
-}
\ No newline at end of file
+
+    /**
+     * Collects the objects of a chunked file, compressing the chunk and
+     * writing it out each time it is full. Each chunk is written as its
+     * uncompressed size, its compressed size and the deflated data, and
+     * the chunks end with a zero size.
+     */
+    private static final class ChunkWriter {
+
+        private final OutputStream os;
+        private final Deflater deflater;
+        private final ChunkBuffer chunk = new ChunkBuffer();
+        private byte[] compressed = new byte[CHUNK_SIZE / 2];
+        private int chunkStart = 0;
+        int compressedSize = 0;
+
+        ChunkWriter(OutputStream os, int compressionLevel) {
+            this.os = os;
+            this.deflater = new Deflater(compressionLevel);
+        }
+
+        /**
+         * @return The position of the next object in the uncompressed data.
+         */
+        int position() {
+            return chunkStart + chunk.size();
+        }
+
+        void write(byte[] alias, byte[] content) throws IOException {
+            chunk.write(alias);
+            chunk.write(ByteUtils.convertToBytes(content.length));
+            chunk.write(content);
+            if (chunk.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            int size = chunk.size();
+            if (size == 0) {
+                return;
+            }
+            deflater.reset();
+            deflater.setInput(chunk.array(), 0, size);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            os.write(ByteUtils.convertToBytes(size));
+            os.write(ByteUtils.convertToBytes(length));
+            os.write(compressed, 0, length);
+            compressedSize += 8 + length;
+            chunkStart += size;
+            chunk.reset();
+        }
+
+        void finish() throws IOException {
+            flush();
+            os.write(ByteUtils.convertToBytes(0));
+            compressedSize += 4;
+        }
+
+        void end() {
+            deflater.end();
+        }
+    }
+
+    /**
+     * The content of a written object, equal to the content of the objects
+     * of the same class that are written identically.
+     */
+    private static final class SavedContent {
+
+        final BinaryClassObject bco;
+        final byte[] bytes;
+        final int hash;
+
+        SavedContent(BinaryClassObject bco, byte[] bytes) {
+            this.bco = bco;
+            this.bytes = bytes;
+            this.hash = 31 * System.identityHashCode(bco) + Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof SavedContent)) {
+                return false;
+            }
+            SavedContent other = (SavedContent) obj;
+            return bco == other.bco && hash == other.hash && Arrays.equals(bytes, other.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class ChunkBuffer extends ByteArrayOutputStream {
+
+        ChunkBuffer() {
+            super(CHUNK_SIZE + CHUNK_SIZE / 4);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -40,20 +40,34 @@ import com.jme3.export.ReadListener;
 import com.jme3.export.Savable;
 import com.jme3.export.SavableClassUtil;
 import com.jme3.math.FastMath;
+import com.jme3.util.WorkerPool;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * @author Joshua Slack
@@ -80,7 +94,11 @@ public final class BinaryImporter implements JmeImporter {
 
     public static boolean debug = false;
 
-    private byte[] dataArray;
+    private ByteBuffer dataBuffer;
+    // Inflated chunks of format 3 files, and the position of each one in
+    // the object data. Used instead of dataBuffer.
+    private ByteBuffer[] chunks;
+    private int[] chunkStarts;
     private int aliasWidth;
     private int formatVersion;
 
@@ -117,6 +135,13 @@ public final class BinaryImporter implements JmeImporter {
 
         InputStream is = null;
         try {
+            // Prefer direct access to the asset data if the locator
+            // supports it, e.g. memory-mapped files
+            ByteBuffer buffer = info.openBuffer();
+            if (buffer != null) {
+                return load(buffer);
+            }
+
             is = info.openStream();
             Savable s = load(is);
             
@@ -142,8 +167,73 @@ public final class BinaryImporter implements JmeImporter {
     }
 
     public Savable load(InputStream is, ReadListener listener, ByteArrayOutputStream baos) throws IOException {
-        contentTable.clear();
         BufferedInputStream bis = new BufferedInputStream(is);
+        int id = readHeader(bis, listener);
+        if (chunks != null) {
+            return readRoot(id);
+        }
+
+        if (baos == null) {
+                baos = new ByteArrayOutputStream(4096);
+        } else {
+                baos.reset();
+        }
+        int size = -1;
+        byte[] cache = new byte[4096];
+        while((size = bis.read(cache)) != -1) {
+            baos.write(cache, 0, size);
+            if (listener != null) listener.readBytes(size);
+        }
+        bis = null;
+
+        dataBuffer = ByteBuffer.wrap(baos.toByteArray());
+        baos = null;
+
+        return readRoot(id);
+    }
+
+    public Savable load(ByteBuffer data) throws IOException {
+        return load(data, null);
+    }
+
+    /**
+     * Loads a binary object from a buffer holding the whole file, typically
+     * a memory-mapped file. The object data is not copied: each object is
+     * decoded from the buffer when it is first referenced, and primitive
+     * buffers are bulk copied from it. The chunks of compressed files are
+     * inflated to the heap instead. The buffer is not referenced anymore
+     * once loading completes.
+     * 
+     * @param data The file data, read from its current position
+     * @param listener Listener notified of the number of bytes read, or null
+     * @return The root object
+     * @throws IOException If the data is not a valid binary object
+     */
+    public Savable load(ByteBuffer data, ReadListener listener) throws IOException {
+        ByteBuffer header = data.duplicate();
+        int id = readHeader(new ByteBufferInputStream(header), listener);
+        if (chunks != null) {
+            return readRoot(id);
+        }
+
+        dataBuffer = header.slice();
+        if (listener != null) listener.readBytes(dataBuffer.remaining());
+
+        return readRoot(id);
+    }
+
+    /**
+     * Reads the class, location and root id tables at the start of the file.
+     * The stream is left positioned at the start of the object data.
+     * For format 3 files the compressed chunks holding the objects are read
+     * and inflated first, the deflated tables follow them.
+     * 
+     * @return The id of the root object
+     */
+    private int readHeader(InputStream bis, ReadListener listener) throws IOException {
+        contentTable.clear();
+        chunks = null;
+        chunkStarts = null;
         
         int numClasses;
         
@@ -152,13 +242,28 @@ public final class BinaryImporter implements JmeImporter {
         if (maybeSignature == FormatVersion.SIGNATURE){
             // this is a new version J3O file
             formatVersion = ByteUtils.readInt(bis);
-            numClasses = ByteUtils.readInt(bis);
             
             // check if this binary is from the future
             if (formatVersion > FormatVersion.VERSION){
                 throw new IOException("The binary file is of newer version than expected! " + 
                                       formatVersion + " > " + FormatVersion.VERSION);
             }
+            if (formatVersion >= 3) {
+                readChunks(bis, listener);
+                Inflater inflater = new Inflater();
+                try {
+                    InputStream tables = new BufferedInputStream(new InflaterInputStream(bis, inflater));
+                    int id = readTables(tables, ByteUtils.readInt(tables), listener);
+                    // reading to the end verifies the checksum of the tables
+                    if (tables.read() != -1) {
+                        throw new IOException("Unexpected data after the tables");
+                    }
+                    return id;
+                } finally {
+                    inflater.end();
+                }
+            }
+            numClasses = ByteUtils.readInt(bis);
         }else{
             // this is an old version J3O file
             // the signature was actually the class count
@@ -168,9 +273,23 @@ public final class BinaryImporter implements JmeImporter {
             // version numbers
             formatVersion = 0; 
         }
-        
+
+        return readTables(bis, numClasses, listener);
+    }
+
+    /**
+     * Reads the class, location and root id tables, the number of classes
+     * was already read.
+     * 
+     * @return The id of the root object
+     */
+    private int readTables(InputStream bis, int numClasses, ReadListener listener) throws IOException {
         int bytes = 4;
-        aliasWidth = ((int)FastMath.log(numClasses, 256) + 1);
+        if (formatVersion >= 3) {
+            aliasWidth = BinaryExporter.CHUNKED_ALIAS_WIDTH;
+        } else {
+            aliasWidth = ((int)FastMath.log(numClasses, 256) + 1);
+        }
 
         classes.clear();
         for(int i = 0; i < numClasses; i++) {
@@ -235,30 +354,70 @@ public final class BinaryImporter implements JmeImporter {
         bytes += 8;
         if (listener != null) listener.readBytes(bytes);
 
-        if (baos == null) {
-                baos = new ByteArrayOutputStream(bytes);
-        } else {
-                baos.reset();
-        }
-        int size = -1;
-        byte[] cache = new byte[4096];
-        while((size = bis.read(cache)) != -1) {
-            baos.write(cache, 0, size);
-            if (listener != null) listener.readBytes(size);
+        return id;
+    }
+
+    /**
+     * Reads the compressed chunks of a format 3 file. Each chunk is inflated
+     * on the worker pool as soon as it was read, while the next ones are
+     * being read.
+     */
+    private void readChunks(InputStream bis, ReadListener listener) throws IOException {
+        DataInputStream in = new DataInputStream(bis);
+        ArrayList<ForkJoinTask<ByteBuffer>> tasks = new ArrayList<ForkJoinTask<ByteBuffer>>();
+        ArrayList<Integer> starts = new ArrayList<Integer>();
+        int start = 0;
+        int size;
+        while ((size = in.readInt()) != 0) {
+            int length = in.readInt();
+            if (size < 0 || length < 0) {
+                throw new IOException("Corrupt chunk header");
+            }
+            byte[] compressed = new byte[length];
+            in.readFully(compressed);
+            tasks.add(WorkerPool.get().submit(new ChunkInflater(compressed, size)));
+            starts.add(start);
+            start += size;
+            if (listener != null) listener.readBytes(8 + compressed.length);
         }
-        bis = null;
 
-        dataArray = baos.toByteArray();
-        baos = null;
+        chunks = new ByteBuffer[tasks.size()];
+        chunkStarts = new int[tasks.size()];
+        for (int i = 0; i < chunks.length; i++) {
+            try {
+                chunks[i] = tasks.get(i).get();
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException("Interrupted while inflating the object data");
+            } catch (ExecutionException ex) {
+                // the pool wraps the exceptions thrown by the task
+                Throwable cause = ex.getCause();
+                while (cause != null && !(cause instanceof IOException)) {
+                    cause = cause.getCause();
+                }
+                if (cause != null) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Failed to inflate the object data", ex.getCause());
+            }
+            chunkStarts[i] = starts.get(i);
+        }
+    }
 
+    private Savable readRoot(int id) {
         Savable rVal = readObject(id);
         if (debug) {
             logger.fine("Importer Stats: ");
-            logger.log(Level.FINE, "Tags: {0}", numClasses);
-            logger.log(Level.FINE, "Objects: {0}", numLocs);
-            logger.log(Level.FINE, "Data Size: {0}", dataArray.length);
+            logger.log(Level.FINE, "Tags: {0}", classes.size());
+            logger.log(Level.FINE, "Objects: {0}", locationTable.size());
+            if (chunks != null) {
+                logger.log(Level.FINE, "Chunks: {0}", chunks.length);
+            } else {
+                logger.log(Level.FINE, "Data Size: {0}", dataBuffer.limit());
+            }
         }
-        dataArray = null;
+        dataBuffer = null;
+        chunks = null;
+        chunkStarts = null;
         return rVal;
     }
 
@@ -278,11 +437,25 @@ public final class BinaryImporter implements JmeImporter {
     }
 
     public Savable load(File f, ReadListener listener) throws IOException {
-        FileInputStream fis = new FileInputStream(f);
+        return load(mapFile(f), listener);
+    }
+
+    /**
+     * Maps the given file read-only into memory. The mapping stays valid
+     * after the channel is closed and is released when the returned buffer
+     * is garbage collected.
+     * 
+     * @param f The file to map
+     * @return A buffer holding the whole file
+     * @throws IOException If the file cannot be mapped
+     */
+    public static ByteBuffer mapFile(File f) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
         try {
-            return load(fis, listener);
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         } finally {
-            fis.close();
+            raf.close();
         }
     }
 
@@ -307,10 +480,10 @@ public final class BinaryImporter implements JmeImporter {
         return new String(data);
     }
 
-    protected String readString(int length, int offset) throws IOException {
+    protected String readString(ByteBuffer buffer, int length, int offset) throws IOException {
         byte[] data = new byte[length];
         for(int j = 0; j < length; j++) {
-            data[j] = dataArray[j+offset];
+            data[j] = buffer.get(j+offset);
         }
 
         return new String(data);
@@ -325,7 +498,18 @@ public final class BinaryImporter implements JmeImporter {
         try {
             int loc = locationTable.get(id);
 
-            String alias = readString(aliasWidth, loc);
+            ByteBuffer data = dataBuffer;
+            if (chunks != null) {
+                // objects never span chunks
+                int chunk = Arrays.binarySearch(chunkStarts, loc);
+                if (chunk < 0) {
+                    chunk = -chunk - 2;
+                }
+                data = chunks[chunk];
+                loc -= chunkStarts[chunk];
+            }
+
+            String alias = readString(data, aliasWidth, loc);
             loc+=aliasWidth;
 
             BinaryClassObject bco = classes.get(alias);
@@ -335,18 +519,13 @@ public final class BinaryImporter implements JmeImporter {
                 return null;
             }
 
-            int dataLength = ByteUtils.convertIntFromBytes(dataArray, loc);
+            int dataLength = data.getInt(loc);
             loc+=4;
 
-            Savable out = null;
-            if (assetManager != null) {
-                out = SavableClassUtil.fromName(bco.className, assetManager.getClassLoaders());
-            } else {
-                out = SavableClassUtil.fromName(bco.className);
-            }
+            Savable out = newInstance(bco);
 
             BinaryInputCapsule cap = new BinaryInputCapsule(this, out, bco);
-            cap.setContent(dataArray, loc, loc+dataLength);
+            cap.setContent(data, loc, loc+dataLength);
 
             capsuleTable.put(out, cap);
             contentTable.put(id, out);
@@ -371,4 +550,91 @@ public final class BinaryImporter implements JmeImporter {
             return null;
         }
     }
+
+    /**
+     * Creates an instance of the class of the given alias, the factory or
+     * class is resolved on the first object of the alias and reused after.
+     */
+    private Savable newInstance(BinaryClassObject bco) throws InstantiationException,
+            IllegalAccessException, ClassNotFoundException {
+        if (bco.factory == null && bco.savableClass == null) {
+            bco.factory = SavableClassUtil.getFactory(bco.className);
+            if (bco.factory == null) {
+                List<ClassLoader> loaders = assetManager != null ? assetManager.getClassLoaders() : null;
+                bco.savableClass = SavableClassUtil.findClass(bco.className, loaders);
+            }
+        }
+        if (bco.factory != null) {
+            return bco.factory.newInstance();
+        }
+        return SavableClassUtil.newInstance(bco.savableClass);
+    }
+
+    /**
+     * Inflates a chunk of object data.
+     */
+    private static class ChunkInflater implements Callable<ByteBuffer> {
+
+        private final byte[] compressed;
+        private final int size;
+
+        public ChunkInflater(byte[] compressed, int size) {
+            this.compressed = compressed;
+            this.size = size;
+        }
+
+        @Override
+        public ByteBuffer call() throws IOException {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                byte[] data = new byte[size];
+                int length = 0;
+                while (length < size) {
+                    int n = inflater.inflate(data, length, size - length);
+                    if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated chunk of object data");
+                    }
+                    length += n;
+                }
+                // the checksum is verified once the end of the stream is read
+                if (!inflater.finished() && (inflater.inflate(new byte[1]) != 0 || !inflater.finished())) {
+                    throw new IOException("Corrupt chunk of object data");
+                }
+                return ByteBuffer.wrap(data);
+            } catch (DataFormatException ex) {
+                throw new IOException("Corrupt chunk of object data", ex);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Reads the header of a file held in a buffer, advancing the buffer
+     * position past the bytes read.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
 }
\ No newline at end of file
@@ -61,7 +61,13 @@ final class BinaryInputCapsule implements InputCapsule {
     protected BinaryImporter importer;
     protected BinaryClassObject cObj;
     protected Savable savable;
-    protected HashMap<Byte, Object> fieldData;
+
+    // The fields are decoded from the content when they are read,
+    // setContent only records where the value of each one starts.
+    protected ByteBuffer content;
+    protected byte[] fieldAliases;
+    protected int[] fieldOffsets;
+    protected int fieldCount;
 
     protected int index = 0;
 
@@ -71,417 +77,439 @@ final class BinaryInputCapsule implements InputCapsule {
         this.savable = savable;
     }
 
-    public void setContent(byte[] content, int start, int limit) {
-        fieldData = new HashMap<Byte, Object>();
+    /**
+     * Records where each field of this capsule starts in the given range of
+     * the content, the values are only decoded when they are read.
+     * The content is read with absolute gets only, and must use big endian
+     * byte order.
+     */
+    public void setContent(ByteBuffer content, int start, int limit) {
+        this.content = content;
+        int numFields = cObj.aliasFields.size();
+        fieldAliases = new byte[numFields];
+        fieldOffsets = new int[numFields];
+        fieldCount = 0;
         for (index = start; index < limit;) {
-            byte alias = content[index];
+            byte alias = content.get(index);
 
             index++;
 
             try {
-                byte type = cObj.aliasFields.get(alias).type;
-                Object value = null;
-
-                switch (type) {
-                    case BinaryClassField.BITSET: {
-                        value = readBitSet(content);
-                        break;
-                    }
-                    case BinaryClassField.BOOLEAN: {
-                        value = readBoolean(content);
-                        break;
-                    }
-                    case BinaryClassField.BOOLEAN_1D: {
-                        value = readBooleanArray(content);
-                        break;
-                    }
-                    case BinaryClassField.BOOLEAN_2D: {
-                        value = readBooleanArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.BYTE: {
-                        value = readByte(content);
-                        break;
-                    }
-                    case BinaryClassField.BYTE_1D: {
-                        value = readByteArray(content);
-                        break;
-                    }
-                    case BinaryClassField.BYTE_2D: {
-                        value = readByteArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.BYTEBUFFER: {
-                        value = readByteBuffer(content);
-                        break;
-                    }
-                    case BinaryClassField.DOUBLE: {
-                        value = readDouble(content);
-                        break;
-                    }
-                    case BinaryClassField.DOUBLE_1D: {
-                        value = readDoubleArray(content);
-                        break;
-                    }
-                    case BinaryClassField.DOUBLE_2D: {
-                        value = readDoubleArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.FLOAT: {
-                        value = readFloat(content);
-                        break;
-                    }
-                    case BinaryClassField.FLOAT_1D: {
-                        value = readFloatArray(content);
-                        break;
-                    }
-                    case BinaryClassField.FLOAT_2D: {
-                        value = readFloatArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.FLOATBUFFER: {
-                        value = readFloatBuffer(content);
-                        break;
-                    }
-                    case BinaryClassField.FLOATBUFFER_ARRAYLIST: {
-                        value = readFloatBufferArrayList(content);
-                        break;
-                    }
-                    case BinaryClassField.BYTEBUFFER_ARRAYLIST: {
-                        value = readByteBufferArrayList(content);
-                        break;
-                    }
-                    case BinaryClassField.INT: {
-                        value = readInt(content);
-                        break;
-                    }
-                    case BinaryClassField.INT_1D: {
-                        value = readIntArray(content);
-                        break;
-                    }
-                    case BinaryClassField.INT_2D: {
-                        value = readIntArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.INTBUFFER: {
-                        value = readIntBuffer(content);
-                        break;
-                    }
-                    case BinaryClassField.LONG: {
-                        value = readLong(content);
-                        break;
-                    }
-                    case BinaryClassField.LONG_1D: {
-                        value = readLongArray(content);
-                        break;
-                    }
-                    case BinaryClassField.LONG_2D: {
-                        value = readLongArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.SAVABLE: {
-                        value = readSavable(content);
-                        break;
-                    }
-                    case BinaryClassField.SAVABLE_1D: {
-                        value = readSavableArray(content);
-                        break;
-                    }
-                    case BinaryClassField.SAVABLE_2D: {
-                        value = readSavableArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.SAVABLE_ARRAYLIST: {
-                        value = readSavableArray(content);
-                        break;
-                    }
-                    case BinaryClassField.SAVABLE_ARRAYLIST_1D: {
-                        value = readSavableArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.SAVABLE_ARRAYLIST_2D: {
-                        value = readSavableArray3D(content);
-                        break;
-                    }
-                    case BinaryClassField.SAVABLE_MAP: {
-                        value = readSavableMap(content);
-                        break;
-                    }
-                    case BinaryClassField.STRING_SAVABLE_MAP: {
-                        value = readStringSavableMap(content);
-                        break;
-                    }
-                    case BinaryClassField.INT_SAVABLE_MAP: {
-                        value = readIntSavableMap(content);
-                        break;
-                    }
-                    case BinaryClassField.SHORT: {
-                        value = readShort(content);
-                        break;
-                    }
-                    case BinaryClassField.SHORT_1D: {
-                        value = readShortArray(content);
-                        break;
-                    }
-                    case BinaryClassField.SHORT_2D: {
-                        value = readShortArray2D(content);
-                        break;
-                    }
-                    case BinaryClassField.SHORTBUFFER: {
-                        value = readShortBuffer(content);
-                        break;
-                    }
-                    case BinaryClassField.STRING: {
-                        value = readString(content);
-                        break;
-                    }
-                    case BinaryClassField.STRING_1D: {
-                        value = readStringArray(content);
-                        break;
-                    }
-                    case BinaryClassField.STRING_2D: {
-                        value = readStringArray2D(content);
-                        break;
-                    }
-
-                    default:
-                        // skip put statement
-                        continue;
+                BinaryClassField field = cObj.aliasFields.get(alias);
+                if (field == null) {
+                    throw new IOException("Unknown field alias " + alias + " in " + cObj.className);
                 }
-
-                fieldData.put(alias, value);
-
+                putField(alias, index);
+                skipField(field.type);
             } catch (IOException e) {
                 logger.logp(Level.SEVERE, this.getClass().toString(),
-                        "setContent(byte[] content)", "Exception", e);
+                        "setContent(ByteBuffer content)", "Exception", e);
+                break;
+            }
+        }
+    }
+
+    private void putField(byte alias, int offset) {
+        for (int i = 0; i < fieldCount; i++) {
+            if (fieldAliases[i] == alias) {
+                fieldOffsets[i] = offset;
+                return;
+            }
+        }
+        fieldAliases[fieldCount] = alias;
+        fieldOffsets[fieldCount] = offset;
+        fieldCount++;
+    }
+
+    private int getFieldOffset(byte alias) {
+        for (int i = 0; i < fieldCount; i++) {
+            if (fieldAliases[i] == alias) {
+                return fieldOffsets[i];
             }
         }
+        return -1;
+    }
+
+    /**
+     * Moves past the value of a field of the given type without decoding it.
+     */
+    protected void skipField(byte type) throws IOException {
+        switch (type) {
+            case BinaryClassField.BOOLEAN:
+            case BinaryClassField.BYTE:
+                index += 1;
+                break;
+            case BinaryClassField.SHORT:
+                index += 2;
+                break;
+            case BinaryClassField.FLOAT:
+                index += 4;
+                break;
+            case BinaryClassField.DOUBLE:
+                index += 8;
+                break;
+            case BinaryClassField.INT:
+            case BinaryClassField.LONG:
+            case BinaryClassField.SAVABLE:
+                skipCompressed(content);
+                break;
+            case BinaryClassField.BITSET:
+            case BinaryClassField.BOOLEAN_1D:
+            case BinaryClassField.BYTE_1D:
+            case BinaryClassField.BYTEBUFFER:
+            case BinaryClassField.STRING:
+                skipArrays(content, 1, 1);
+                break;
+            case BinaryClassField.SHORT_1D:
+            case BinaryClassField.SHORTBUFFER:
+                skipArrays(content, 1, 2);
+                break;
+            case BinaryClassField.FLOAT_1D:
+            case BinaryClassField.FLOATBUFFER:
+            case BinaryClassField.INTBUFFER:
+                skipArrays(content, 1, 4);
+                break;
+            case BinaryClassField.DOUBLE_1D:
+                skipArrays(content, 1, 8);
+                break;
+            case BinaryClassField.INT_1D:
+            case BinaryClassField.LONG_1D:
+            case BinaryClassField.SAVABLE_1D:
+            case BinaryClassField.SAVABLE_ARRAYLIST:
+                skipArrays(content, 1, 0);
+                break;
+            case BinaryClassField.BOOLEAN_2D:
+            case BinaryClassField.BYTE_2D:
+            case BinaryClassField.STRING_1D:
+            case BinaryClassField.BYTEBUFFER_ARRAYLIST:
+                skipArrays(content, 2, 1);
+                break;
+            case BinaryClassField.SHORT_2D:
+                skipArrays(content, 2, 2);
+                break;
+            case BinaryClassField.FLOAT_2D:
+            case BinaryClassField.FLOATBUFFER_ARRAYLIST:
+                skipArrays(content, 2, 4);
+                break;
+            case BinaryClassField.DOUBLE_2D:
+                skipArrays(content, 2, 8);
+                break;
+            case BinaryClassField.INT_2D:
+            case BinaryClassField.LONG_2D:
+            case BinaryClassField.SAVABLE_2D:
+            case BinaryClassField.SAVABLE_ARRAYLIST_1D:
+            case BinaryClassField.SAVABLE_MAP:
+                skipArrays(content, 2, 0);
+                break;
+            case BinaryClassField.STRING_2D:
+                skipArrays(content, 3, 1);
+                break;
+            case BinaryClassField.SAVABLE_ARRAYLIST_2D:
+                skipArrays(content, 3, 0);
+                break;
+            case BinaryClassField.STRING_SAVABLE_MAP:
+                if (readInt(content) != BinaryOutputCapsule.NULL_OBJECT) {
+                    skipArrays(content, 2, 1);
+                    skipArrays(content, 1, 0);
+                }
+                break;
+            case BinaryClassField.INT_SAVABLE_MAP:
+                if (readInt(content) != BinaryOutputCapsule.NULL_OBJECT) {
+                    skipArrays(content, 1, 0);
+                    skipArrays(content, 1, 0);
+                }
+                break;
+            default:
+                throw new IOException("Unknown field type " + type + " in " + cObj.className);
+        }
+    }
+
+    /**
+     * Moves past <code>depth</code> levels of nested length prefixed arrays.
+     * The innermost elements take <code>elementSize</code> bytes each, or
+     * are compressed ints or longs when it is 0.
+     */
+    private void skipArrays(ByteBuffer content, int depth, int elementSize) throws IOException {
+        int length = readInt(content);
+        if (length == BinaryOutputCapsule.NULL_OBJECT)
+            return;
+        if (depth > 1) {
+            for (int x = 0; x < length; x++)
+                skipArrays(content, depth - 1, elementSize);
+        } else if (elementSize > 0) {
+            index += length * elementSize;
+        } else {
+            for (int x = 0; x < length; x++)
+                skipCompressed(content);
+        }
+    }
+
+    private void skipCompressed(ByteBuffer content) {
+        byte size = content.get(index);
+        index += size > 0 ? 1 + size : 1;
+    }
+
+    /**
+     * Positions the capsule at the value of the named field.
+     * 
+     * @return false if the field was not saved.
+     * @throws ClassCastException if the field was saved with another type.
+     */
+    private boolean seek(String name, byte type) {
+        BinaryClassField field = cObj.nameFields.get(name);
+        if (field == null)
+            return false;
+        int offset = getFieldOffset(field.alias);
+        if (offset < 0)
+            return false;
+        if (field.type != type) {
+            throw new ClassCastException("Field " + name + " of " + cObj.className
+                    + " was saved with type " + field.type + ", not " + type);
+        }
+        index = offset;
+        return true;
+    }
+
+    /**
+     * Positions the capsule at the value of the named savable field. Types
+     * sharing the same layout can be read in place of one another, as
+     * lists are saved as arrays and maps as arrays of pairs.
+     * 
+     * @return false if the field was not saved, or not with a compatible type.
+     */
+    private boolean seekSavable(String name, byte type) {
+        BinaryClassField field = cObj.nameFields.get(name);
+        if (field == null)
+            return false;
+        int offset = getFieldOffset(field.alias);
+        if (offset < 0 || savableLayout(field.type) != savableLayout(type))
+            return false;
+        index = offset;
+        return true;
+    }
+
+    private static byte savableLayout(byte type) {
+        switch (type) {
+            case BinaryClassField.SAVABLE_ARRAYLIST:
+                return BinaryClassField.SAVABLE_1D;
+            case BinaryClassField.SAVABLE_ARRAYLIST_1D:
+            case BinaryClassField.SAVABLE_MAP:
+                return BinaryClassField.SAVABLE_2D;
+            default:
+                return type;
+        }
     }
     
     public int getSavableVersion(Class<? extends Savable> desiredClass){
-        return SavableClassUtil.getSavedSavableVersion(savable, desiredClass, 
+        // all the objects of an alias share the same class, so the version
+        // found for the first one holds for the others
+        if (cObj.savedVersions == null) {
+            cObj.savedVersions = new HashMap<Class<? extends Savable>, Integer>();
+        }
+        Integer version = cObj.savedVersions.get(desiredClass);
+        if (version == null) {
+            version = SavableClassUtil.getSavedSavableVersion(savable, desiredClass, 
                                             cObj.classHierarchyVersions, importer.getFormatVersion());
+            cObj.savedVersions.put(desiredClass, version);
+        }
+        return version;
     }
 
     public BitSet readBitSet(String name, BitSet defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BITSET))
             return defVal;
-        return (BitSet) fieldData.get(field.alias);
+        return readBitSet(content);
     }
 
     public boolean readBoolean(String name, boolean defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BOOLEAN))
             return defVal;
-        return ((Boolean) fieldData.get(field.alias)).booleanValue();
+        return readBoolean(content);
     }
 
     public boolean[] readBooleanArray(String name, boolean[] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BOOLEAN_1D))
             return defVal;
-        return (boolean[]) fieldData.get(field.alias);
+        return readBooleanArray(content);
     }
 
     public boolean[][] readBooleanArray2D(String name, boolean[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BOOLEAN_2D))
             return defVal;
-        return (boolean[][]) fieldData.get(field.alias);
+        return readBooleanArray2D(content);
     }
 
     public byte readByte(String name, byte defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BYTE))
             return defVal;
-        return ((Byte) fieldData.get(field.alias)).byteValue();
+        return readByte(content);
     }
 
     public byte[] readByteArray(String name, byte[] defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BYTE_1D))
             return defVal;
-        return (byte[]) fieldData.get(field.alias);
+        return readByteArray(content);
     }
 
     public byte[][] readByteArray2D(String name, byte[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BYTE_2D))
             return defVal;
-        return (byte[][]) fieldData.get(field.alias);
+        return readByteArray2D(content);
     }
 
     public ByteBuffer readByteBuffer(String name, ByteBuffer defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BYTEBUFFER))
             return defVal;
-        return (ByteBuffer) fieldData.get(field.alias);
+        return readByteBuffer(content);
     }
 
-    @SuppressWarnings("unchecked")
     public ArrayList<ByteBuffer> readByteBufferArrayList(String name,
             ArrayList<ByteBuffer> defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.BYTEBUFFER_ARRAYLIST))
             return defVal;
-        return (ArrayList<ByteBuffer>) fieldData.get(field.alias);
+        return readByteBufferArrayList(content);
     }
 
     public double readDouble(String name, double defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.DOUBLE))
             return defVal;
-        return ((Double) fieldData.get(field.alias)).doubleValue();
+        return readDouble(content);
     }
 
     public double[] readDoubleArray(String name, double[] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.DOUBLE_1D))
             return defVal;
-        return (double[]) fieldData.get(field.alias);
+        return readDoubleArray(content);
     }
 
     public double[][] readDoubleArray2D(String name, double[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.DOUBLE_2D))
             return defVal;
-        return (double[][]) fieldData.get(field.alias);
+        return readDoubleArray2D(content);
     }
 
     public float readFloat(String name, float defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.FLOAT))
             return defVal;
-        return ((Float) fieldData.get(field.alias)).floatValue();
+        return readFloat(content);
     }
 
     public float[] readFloatArray(String name, float[] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.FLOAT_1D))
             return defVal;
-        return (float[]) fieldData.get(field.alias);
+        return readFloatArray(content);
     }
 
     public float[][] readFloatArray2D(String name, float[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.FLOAT_2D))
             return defVal;
-        return (float[][]) fieldData.get(field.alias);
+        return readFloatArray2D(content);
     }
 
     public FloatBuffer readFloatBuffer(String name, FloatBuffer defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.FLOATBUFFER))
             return defVal;
-        return (FloatBuffer) fieldData.get(field.alias);
+        return readFloatBuffer(content);
     }
 
-    @SuppressWarnings("unchecked")
     public ArrayList<FloatBuffer> readFloatBufferArrayList(String name,
             ArrayList<FloatBuffer> defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.FLOATBUFFER_ARRAYLIST))
             return defVal;
-        return (ArrayList<FloatBuffer>) fieldData.get(field.alias);
+        return readFloatBufferArrayList(content);
     }
 
     public int readInt(String name, int defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.INT))
             return defVal;
-        return ((Integer) fieldData.get(field.alias)).intValue();
+        return readInt(content);
     }
 
     public int[] readIntArray(String name, int[] defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.INT_1D))
             return defVal;
-        return (int[]) fieldData.get(field.alias);
+        return readIntArray(content);
     }
 
     public int[][] readIntArray2D(String name, int[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.INT_2D))
             return defVal;
-        return (int[][]) fieldData.get(field.alias);
+        return readIntArray2D(content);
     }
 
     public IntBuffer readIntBuffer(String name, IntBuffer defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.INTBUFFER))
             return defVal;
-        return (IntBuffer) fieldData.get(field.alias);
+        return readIntBuffer(content);
     }
 
     public long readLong(String name, long defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.LONG))
             return defVal;
-        return ((Long) fieldData.get(field.alias)).longValue();
+        return readLong(content);
     }
 
     public long[] readLongArray(String name, long[] defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.LONG_1D))
             return defVal;
-        return (long[]) fieldData.get(field.alias);
+        return readLongArray(content);
     }
 
     public long[][] readLongArray2D(String name, long[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.LONG_2D))
             return defVal;
-        return (long[][]) fieldData.get(field.alias);
+        return readLongArray2D(content);
     }
 
     public Savable readSavable(String name, Savable defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
-            return defVal;
-        Object value = fieldData.get(field.alias);
-        if (value == null)
-            return null;
-        else if (value instanceof ID) {
-            value = importer.readObject(((ID) value).id);
-            fieldData.put(field.alias, value);
-            return (Savable) value;
-        } else
+        if (!seekSavable(name, BinaryClassField.SAVABLE))
             return defVal;
+        return resolveID(readSavable(content));
     }
 
     public Savable[] readSavableArray(String name, Savable[] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seekSavable(name, BinaryClassField.SAVABLE_1D))
             return defVal;
-        Object[] values = (Object[]) fieldData.get(field.alias);
-        if (values instanceof ID[]) {
-            values = resolveIDs(values);
-            fieldData.put(field.alias, values);
-            return (Savable[]) values;
-        } else
+        int[] ids = readSavableArray(content);
+        if (ids == null)
             return defVal;
+        return resolveIDs(ids);
     }
 
-    private Savable[] resolveIDs(Object[] values) {
-        if (values != null) {
-            Savable[] savables = new Savable[values.length];
-            for (int i = 0; i < values.length; i++) {
-                final ID id = (ID) values[i];
-                savables[i] = id != null ? importer.readObject(id.id) : null;
+    private Savable resolveID(int id) {
+        return id != BinaryOutputCapsule.NULL_OBJECT ? importer.readObject(id) : null;
+    }
+
+    private Savable[] resolveIDs(int[] ids) {
+        if (ids != null) {
+            Savable[] savables = new Savable[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                savables[i] = resolveID(ids[i]);
+            }
+            return savables;
+        } else {
+            return null;
+        }
+    }
+
+    private Savable[][] resolveIDs(int[][] ids) {
+        if (ids != null) {
+            Savable[][] savables = new Savable[ids.length][];
+            for (int i = 0; i < ids.length; i++) {
+                savables[i] = resolveIDs(ids[i]);
             }
             return savables;
         } else {
@@ -491,43 +519,23 @@ final class BinaryInputCapsule implements InputCapsule {
 
     public Savable[][] readSavableArray2D(String name, Savable[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null ||!fieldData.containsKey(field.alias))
+        if (!seekSavable(name, BinaryClassField.SAVABLE_2D))
             return defVal;
-        Object[][] values = (Object[][]) fieldData.get(field.alias);
-        if (values instanceof ID[][]) {
-            Savable[][] savables = new Savable[values.length][];
-            for (int i = 0; i < values.length; i++) {
-                if (values[i] != null) {
-                    savables[i] = resolveIDs(values[i]);
-                } else savables[i] = null;
-            }
-            values = savables;
-            fieldData.put(field.alias, values);
-        }
-        return (Savable[][]) values;
+        return resolveIDs(readSavableArray2D(content));
     }
 
     public Savable[][][] readSavableArray3D(String name, Savable[][][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seekSavable(name, BinaryClassField.SAVABLE_ARRAYLIST_2D))
             return defVal;
-        Object[][][] values = (Object[][][]) fieldData.get(field.alias);
-        if (values instanceof ID[][][]) {
-            Savable[][][] savables = new Savable[values.length][][];
-            for (int i = 0; i < values.length; i++) {
-                if (values[i] != null) {
-                    savables[i] = new Savable[values[i].length][];
-                    for (int j = 0; j < values[i].length; j++) {
-                        savables[i][j] = resolveIDs(values[i][j]);
-                    }
-                } else savables[i] = null;
-            }
-            fieldData.put(field.alias, savables);
-            return savables;
-        } else
+        int[][][] ids = readSavableArray3D(content);
+        if (ids == null)
             return defVal;
+        Savable[][][] savables = new Savable[ids.length][][];
+        for (int i = 0; i < ids.length; i++) {
+            savables[i] = resolveIDs(ids[i]);
+        }
+        return savables;
     }
 
     private ArrayList<Savable> savableArrayListFromArray(Savable[] savables) {
@@ -577,187 +585,141 @@ final class BinaryInputCapsule implements InputCapsule {
         return map;
     }
 
+
     public ArrayList readSavableArrayList(String name, ArrayList defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seekSavable(name, BinaryClassField.SAVABLE_ARRAYLIST))
             return defVal;
-        Object value = fieldData.get(field.alias);
-        if (value instanceof ID[]) {
-            // read Savable array and convert to ArrayList
-            Savable[] savables = readSavableArray(name, null);
-            value = savableArrayListFromArray(savables);
-            fieldData.put(field.alias, value);
-        }
-        return (ArrayList) value;
+        return savableArrayListFromArray(resolveIDs(readSavableArray(content)));
     }
 
     public ArrayList[] readSavableArrayListArray(String name, ArrayList[] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seekSavable(name, BinaryClassField.SAVABLE_ARRAYLIST_1D))
             return defVal;
-        Object value = fieldData.get(field.alias);
-        if (value instanceof ID[][]) {
-            // read 2D Savable array and convert to ArrayList array
-            Savable[][] savables = readSavableArray2D(name, null);
-            if (savables != null) {
-                ArrayList[] arrayLists = new ArrayList[savables.length];
-                for (int i = 0; i < savables.length; i++) {
-                    arrayLists[i] = savableArrayListFromArray(savables[i]);
-                }
-                value = arrayLists;
-            } else
-                value = defVal;
-            fieldData.put(field.alias, value);
+        // read 2D Savable array and convert to ArrayList array
+        Savable[][] savables = resolveIDs(readSavableArray2D(content));
+        if (savables == null)
+            return defVal;
+        ArrayList[] arrayLists = new ArrayList[savables.length];
+        for (int i = 0; i < savables.length; i++) {
+            arrayLists[i] = savableArrayListFromArray(savables[i]);
         }
-        return (ArrayList[]) value;
+        return arrayLists;
     }
 
     public ArrayList[][] readSavableArrayListArray2D(String name,
             ArrayList[][] defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        // read 3D Savable array and convert to 2D ArrayList array
+        Savable[][][] savables = readSavableArray3D(name, null);
+        if (savables == null || savables.length == 0)
             return defVal;
-        Object value = fieldData.get(field.alias);
-        if (value instanceof ID[][][]) {
-            // read 3D Savable array and convert to 2D ArrayList array
-            Savable[][][] savables = readSavableArray3D(name, null);
-            if (savables != null && savables.length > 0) {
-                ArrayList[][] arrayLists = new ArrayList[savables.length][];
-                for (int i = 0; i < savables.length; i++) {
-                    arrayLists[i] = new ArrayList[savables[i].length];
-                    for (int j = 0; j < savables[i].length; j++) {
-                        arrayLists[i][j] = savableArrayListFromArray(savables[i][j]);
-                    }
-                }
-                value = arrayLists;
-            } else
-                value = defVal;
-            fieldData.put(field.alias, value);
+        ArrayList[][] arrayLists = new ArrayList[savables.length][];
+        for (int i = 0; i < savables.length; i++) {
+            arrayLists[i] = new ArrayList[savables[i].length];
+            for (int j = 0; j < savables[i].length; j++) {
+                arrayLists[i][j] = savableArrayListFromArray(savables[i][j]);
+            }
         }
-        return (ArrayList[][]) value;
+        return arrayLists;
     }
 
-    @SuppressWarnings("unchecked")
     public Map<? extends Savable, ? extends Savable> readSavableMap(String name, Map<? extends Savable, ? extends Savable> defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seekSavable(name, BinaryClassField.SAVABLE_MAP))
             return defVal;
-        Object value = fieldData.get(field.alias);
-        if (value instanceof ID[][]) {
-            // read Savable array and convert to Map
-            Savable[][] savables = readSavableArray2D(name, null);
-            value = savableMapFrom2DArray(savables);
-            fieldData.put(field.alias, value);
-        }
-        return (Map<? extends Savable, ? extends Savable>) value;
+        // read Savable array and convert to Map
+        return savableMapFrom2DArray(resolveIDs(readSavableMap(content)));
     }
 
-    @SuppressWarnings("unchecked")
     public Map<String, ? extends Savable> readStringSavableMap(String name, Map<String, ? extends Savable> defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seekSavable(name, BinaryClassField.STRING_SAVABLE_MAP))
             return defVal;
-        Object value = fieldData.get(field.alias);
-        if (value instanceof StringIDMap) {
-            // read Savable array and convert to Map values
-            StringIDMap in = (StringIDMap) value;
-            Savable[] values = resolveIDs(in.values);
-            value = stringSavableMapFromKV(in.keys, values);
-            fieldData.put(field.alias, value);
-        }
-        return (Map<String, Savable>) value;
+        int elements = readInt(content);
+        if (elements == BinaryOutputCapsule.NULL_OBJECT)
+            return null;
+        // read Savable array and convert to Map values
+        String[] keys = readStringArray(content);
+        Savable[] values = resolveIDs(readSavableArray(content));
+        return stringSavableMapFromKV(keys, values);
     }
 
-    @SuppressWarnings("unchecked")
     public IntMap<? extends Savable> readIntSavableMap(String name, IntMap<? extends Savable> defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seekSavable(name, BinaryClassField.INT_SAVABLE_MAP))
             return defVal;
-        Object value = fieldData.get(field.alias);
-        if (value instanceof IntIDMap) {
-            // read Savable array and convert to Map values
-            IntIDMap in = (IntIDMap) value;
-            Savable[] values = resolveIDs(in.values);
-            value = intSavableMapFromKV(in.keys, values);
-            fieldData.put(field.alias, value);
-        }
-        return (IntMap<Savable>) value;
+        int elements = readInt(content);
+        if (elements == BinaryOutputCapsule.NULL_OBJECT)
+            return null;
+        // read Savable array and convert to Map values
+        int[] keys = readIntArray(content);
+        Savable[] values = resolveIDs(readSavableArray(content));
+        return intSavableMapFromKV(keys, values);
     }
 
     public short readShort(String name, short defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.SHORT))
             return defVal;
-        return ((Short) fieldData.get(field.alias)).shortValue();
+        return readShort(content);
     }
 
     public short[] readShortArray(String name, short[] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.SHORT_1D))
             return defVal;
-        return (short[]) fieldData.get(field.alias);
+        return readShortArray(content);
     }
 
     public short[][] readShortArray2D(String name, short[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.SHORT_2D))
             return defVal;
-        return (short[][]) fieldData.get(field.alias);
+        return readShortArray2D(content);
     }
 
     public ShortBuffer readShortBuffer(String name, ShortBuffer defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.SHORTBUFFER))
             return defVal;
-        return (ShortBuffer) fieldData.get(field.alias);
+        return readShortBuffer(content);
     }
 
     public String readString(String name, String defVal) throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.STRING))
             return defVal;
-        return (String) fieldData.get(field.alias);
+        return readString(content);
     }
 
     public String[] readStringArray(String name, String[] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.STRING_1D))
             return defVal;
-        return (String[]) fieldData.get(field.alias);
+        return readStringArray(content);
     }
 
     public String[][] readStringArray2D(String name, String[][] defVal)
             throws IOException {
-        BinaryClassField field = cObj.nameFields.get(name);
-        if (field == null || !fieldData.containsKey(field.alias))
+        if (!seek(name, BinaryClassField.STRING_2D))
             return defVal;
-        return (String[][]) fieldData.get(field.alias);
+        return readStringArray2D(content);
     }
 
     // byte primitive
 
-    protected byte readByte(byte[] content) throws IOException {
-        byte value = content[index];
+    protected byte readByte(ByteBuffer content) throws IOException {
+        byte value = content.get(index);
         index++;
         return value;
     }
 
-    protected byte readByteForBuffer(byte[] content) throws IOException {
-        byte value = content[index];
+    protected byte readByteForBuffer(ByteBuffer content) throws IOException {
+        byte value = content.get(index);
         index++;
         return value;
     }
 
-    protected byte[] readByteArray(byte[] content) throws IOException {
+    protected byte[] readByteArray(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -767,7 +729,7 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    protected byte[][] readByteArray2D(byte[] content) throws IOException {
+    protected byte[][] readByteArray2D(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -779,27 +741,32 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // int primitive
 
-    protected int readIntForBuffer(byte[] content){
-        int number = ((content[index+3] & 0xFF) << 24)
-                   + ((content[index+2] & 0xFF) << 16)
-                   + ((content[index+1] & 0xFF) << 8)
-                   +  (content[index]   & 0xFF);
+    protected int readIntForBuffer(ByteBuffer content){
+        int number = ((content.get(index+3) & 0xFF) << 24)
+                   + ((content.get(index+2) & 0xFF) << 16)
+                   + ((content.get(index+1) & 0xFF) << 8)
+                   +  (content.get(index)   & 0xFF);
         index += 4;
         return number;
     }
 
-    protected int readInt(byte[] content) throws IOException {
-        byte[] bytes = inflateFrom(content, index);
-        index += 1 + bytes.length;
-        bytes = ByteUtils.rightAlignBytes(bytes, 4);
-        int value = ByteUtils.convertIntFromBytes(bytes);
-        if (value == BinaryOutputCapsule.NULL_OBJECT
-                || value == BinaryOutputCapsule.DEFAULT_OBJECT)
-            index -= 4;
+    protected int readInt(ByteBuffer content) throws IOException {
+        // a size byte followed by the non zero big endian bytes of the value,
+        // or just the marker for the null and default values
+        byte size = content.get(index);
+        index++;
+        if (size == BinaryOutputCapsule.NULL_OBJECT
+                || size == BinaryOutputCapsule.DEFAULT_OBJECT)
+            return size;
+        int value = 0;
+        for (int x = 0; x < size; x++) {
+            value = (value << 8) | (content.get(index) & 0xFF);
+            index++;
+        }
         return value;
     }
 
-    protected int[] readIntArray(byte[] content) throws IOException {
+    protected int[] readIntArray(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -809,7 +776,7 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    protected int[][] readIntArray2D(byte[] content) throws IOException {
+    protected int[][] readIntArray2D(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -821,18 +788,18 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // float primitive
 
-    protected float readFloat(byte[] content) throws IOException {
-        float value = ByteUtils.convertFloatFromBytes(content, index);
+    protected float readFloat(ByteBuffer content) throws IOException {
+        float value = content.getFloat(index);
         index += 4;
         return value;
     }
 
-    protected float readFloatForBuffer(byte[] content) throws IOException {
+    protected float readFloatForBuffer(ByteBuffer content) throws IOException {
         int number = readIntForBuffer(content);
         return Float.intBitsToFloat(number);
     }
 
-    protected float[] readFloatArray(byte[] content) throws IOException {
+    protected float[] readFloatArray(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -842,7 +809,7 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    protected float[][] readFloatArray2D(byte[] content) throws IOException {
+    protected float[][] readFloatArray2D(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -854,13 +821,13 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // double primitive
 
-    protected double readDouble(byte[] content) throws IOException {
-        double value = ByteUtils.convertDoubleFromBytes(content, index);
+    protected double readDouble(ByteBuffer content) throws IOException {
+        double value = content.getDouble(index);
         index += 8;
         return value;
     }
 
-    protected double[] readDoubleArray(byte[] content) throws IOException {
+    protected double[] readDoubleArray(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -870,7 +837,7 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    protected double[][] readDoubleArray2D(byte[] content) throws IOException {
+    protected double[][] readDoubleArray2D(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -882,15 +849,18 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // long primitive
 
-    protected long readLong(byte[] content) throws IOException {
-        byte[] bytes = inflateFrom(content, index);
-        index += 1 + bytes.length;
-        bytes = ByteUtils.rightAlignBytes(bytes, 8);
-        long value = ByteUtils.convertLongFromBytes(bytes);
+    protected long readLong(ByteBuffer content) throws IOException {
+        byte size = content.get(index);
+        index++;
+        long value = 0;
+        for (int x = 0; x < size; x++) {
+            value = (value << 8) | (content.get(index) & 0xFF);
+            index++;
+        }
         return value;
     }
 
-    protected long[] readLongArray(byte[] content) throws IOException {
+    protected long[] readLongArray(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -900,7 +870,7 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    protected long[][] readLongArray2D(byte[] content) throws IOException {
+    protected long[][] readLongArray2D(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -912,20 +882,20 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // short primitive
 
-    protected short readShort(byte[] content) throws IOException {
-        short value = ByteUtils.convertShortFromBytes(content, index);
+    protected short readShort(ByteBuffer content) throws IOException {
+        short value = content.getShort(index);
         index += 2;
         return value;
     }
 
-    protected short readShortForBuffer(byte[] content) throws IOException {
-        short number = (short) ((content[index+0] & 0xFF)
-                             + ((content[index+1] & 0xFF) << 8));
+    protected short readShortForBuffer(ByteBuffer content) throws IOException {
+        short number = (short) ((content.get(index+0) & 0xFF)
+                             + ((content.get(index+1) & 0xFF) << 8));
         index += 2;
         return number;
     }
 
-    protected short[] readShortArray(byte[] content) throws IOException {
+    protected short[] readShortArray(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -935,7 +905,7 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    protected short[][] readShortArray2D(byte[] content) throws IOException {
+    protected short[][] readShortArray2D(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -947,13 +917,13 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // boolean primitive
 
-    protected boolean readBoolean(byte[] content) throws IOException {
-        boolean value = ByteUtils.convertBooleanFromBytes(content, index);
+    protected boolean readBoolean(ByteBuffer content) throws IOException {
+        boolean value = content.get(index) != 0;
         index += 1;
         return value;
     }
 
-    protected boolean[] readBooleanArray(byte[] content) throws IOException {
+    protected boolean[] readBooleanArray(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -963,7 +933,7 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    protected boolean[][] readBooleanArray2D(byte[] content) throws IOException {
+    protected boolean[][] readBooleanArray2D(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -996,7 +966,7 @@ final class BinaryInputCapsule implements InputCapsule {
     private final static int UTF8_ILLEGAL = 10; // not an UTF8 string
 
     // String
-    protected String readString(byte[] content) throws IOException {
+    protected String readString(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -1036,7 +1006,7 @@ final class BinaryInputCapsule implements InputCapsule {
         int utf8State = UTF8_START;
         int b;
         for (int x = 0; x < length; x++) {
-            bytes[x] =  content[index++];
+            bytes[x] =  content.get(index++);
             b = (int) bytes[x] & 0xFF; // unsign our byte
 
             switch (utf8State) {
@@ -1098,7 +1068,7 @@ final class BinaryInputCapsule implements InputCapsule {
         }
     }
 
-    protected String[] readStringArray(byte[] content) throws IOException {
+    protected String[] readStringArray(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -1108,7 +1078,7 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    protected String[][] readStringArray2D(byte[] content) throws IOException {
+    protected String[][] readStringArray2D(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -1120,7 +1090,7 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // BitSet
 
-    protected BitSet readBitSet(byte[] content) throws IOException {
+    protected BitSet readBitSet(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
@@ -1130,64 +1100,27 @@ final class BinaryInputCapsule implements InputCapsule {
         return value;
     }
 
-    // INFLATOR for int and long
-
-    protected static byte[] inflateFrom(byte[] contents, int index) {
-        byte firstByte = contents[index];
-        if (firstByte == BinaryOutputCapsule.NULL_OBJECT)
-            return ByteUtils.convertToBytes(BinaryOutputCapsule.NULL_OBJECT);
-        else if (firstByte == BinaryOutputCapsule.DEFAULT_OBJECT)
-            return ByteUtils.convertToBytes(BinaryOutputCapsule.DEFAULT_OBJECT);
-        else if (firstByte == 0)
-            return new byte[0];
-        else {
-            byte[] rVal = new byte[firstByte];
-            for (int x = 0; x < rVal.length; x++)
-                rVal[x] = contents[x + 1 + index];
-            return rVal;
-        }
-    }
-
-    // BinarySavable
-
-    protected ID readSavable(byte[] content) throws IOException {
-        int id = readInt(content);
-        if (id == BinaryOutputCapsule.NULL_OBJECT) {
-            return null;
-        }
+    // BinarySavable, saved as the id of the object or NULL_OBJECT
 
-        return new ID(id);
+    protected int readSavable(ByteBuffer content) throws IOException {
+        return readInt(content);
     }
 
     // BinarySavable array
 
-    protected ID[] readSavableArray(byte[] content) throws IOException {
-        int elements = readInt(content);
-        if (elements == BinaryOutputCapsule.NULL_OBJECT)
-            return null;
-        ID[] rVal = new ID[elements];
-        for (int x = 0; x < elements; x++) {
-            rVal[x] = readSavable(content);
-        }
-        return rVal;
+    protected int[] readSavableArray(ByteBuffer content) throws IOException {
+        return readIntArray(content);
     }
 
-    protected ID[][] readSavableArray2D(byte[] content) throws IOException {
-        int elements = readInt(content);
-        if (elements == BinaryOutputCapsule.NULL_OBJECT)
-            return null;
-        ID[][] rVal = new ID[elements][];
-        for (int x = 0; x < elements; x++) {
-            rVal[x] = readSavableArray(content);
-        }
-        return rVal;
+    protected int[][] readSavableArray2D(ByteBuffer content) throws IOException {
+        return readIntArray2D(content);
     }
 
-    protected ID[][][] readSavableArray3D(byte[] content) throws IOException {
+    protected int[][][] readSavableArray3D(ByteBuffer content) throws IOException {
         int elements = readInt(content);
         if (elements == BinaryOutputCapsule.NULL_OBJECT)
             return null;
-        ID[][][] rVal = new ID[elements][][];
+        int[][][] rVal = new int[elements][][];
         for (int x = 0; x < elements; x++) {
             rVal[x] = readSavableArray2D(content);
         }
@@ -1196,45 +1129,13 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // BinarySavable map
 
-    protected ID[][] readSavableMap(byte[] content) throws IOException {
-        int elements = readInt(content);
-        if (elements == BinaryOutputCapsule.NULL_OBJECT)
-            return null;
-        ID[][] rVal = new ID[elements][];
-        for (int x = 0; x < elements; x++) {
-            rVal[x] = readSavableArray(content);
-        }
-        return rVal;
-    }
-
-    protected StringIDMap readStringSavableMap(byte[] content) throws IOException {
-        int elements = readInt(content);
-        if (elements == BinaryOutputCapsule.NULL_OBJECT)
-            return null;
-        String[] keys = readStringArray(content);
-        ID[] values = readSavableArray(content);
-        StringIDMap rVal = new StringIDMap();
-        rVal.keys = keys;
-        rVal.values = values;
-        return rVal;
+    protected int[][] readSavableMap(ByteBuffer content) throws IOException {
+        return readSavableArray2D(content);
     }
 
-    protected IntIDMap readIntSavableMap(byte[] content) throws IOException {
-        int elements = readInt(content);
-        if (elements == BinaryOutputCapsule.NULL_OBJECT)
-            return null;
-        int[] keys = readIntArray(content);
-        ID[] values = readSavableArray(content);
-        IntIDMap rVal = new IntIDMap();
-        rVal.keys = keys;
-        rVal.values = values;
-        return rVal;
-    }
-
-
     // ArrayList<FloatBuffer>
 
-    protected ArrayList<FloatBuffer> readFloatBufferArrayList(byte[] content)
+    protected ArrayList<FloatBuffer> readFloatBufferArrayList(ByteBuffer content)
             throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT) {
@@ -1249,7 +1150,7 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // ArrayList<ByteBuffer>
 
-    protected ArrayList<ByteBuffer> readByteBufferArrayList(byte[] content)
+    protected ArrayList<ByteBuffer> readByteBufferArrayList(ByteBuffer content)
             throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT) {
@@ -1265,14 +1166,14 @@ final class BinaryInputCapsule implements InputCapsule {
     // NIO BUFFERS
     // float buffer
 
-    protected FloatBuffer readFloatBuffer(byte[] content) throws IOException {
+    protected FloatBuffer readFloatBuffer(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
 
         if (BinaryImporter.canUseFastBuffers()){
             ByteBuffer value = BufferUtilsCreator.createByteBuffer(length * 4);
-            value.put(content, index, length * 4).rewind();
+            value.put(contentRange(content, index, length * 4)).rewind();
             index += length * 4;
             return value.asFloatBuffer();
         }else{
@@ -1287,14 +1188,14 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // int buffer
 
-    protected IntBuffer readIntBuffer(byte[] content) throws IOException {
+    protected IntBuffer readIntBuffer(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
 
         if (BinaryImporter.canUseFastBuffers()){
             ByteBuffer value = BufferUtilsCreator.createByteBuffer(length * 4);
-            value.put(content, index, length * 4).rewind();
+            value.put(contentRange(content, index, length * 4)).rewind();
             index += length * 4;
             return value.asIntBuffer();
         }else{
@@ -1309,14 +1210,14 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // byte buffer
 
-    protected ByteBuffer readByteBuffer(byte[] content) throws IOException {
+    protected ByteBuffer readByteBuffer(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
 
         if (BinaryImporter.canUseFastBuffers()){
             ByteBuffer value = BufferUtilsCreator.createByteBuffer(length);
-            value.put(content, index, length).rewind();
+            value.put(contentRange(content, index, length)).rewind();
             index += length;
             return value;
         }else{
@@ -1331,14 +1232,14 @@ final class BinaryInputCapsule implements InputCapsule {
 
     // short buffer
 
-    protected ShortBuffer readShortBuffer(byte[] content) throws IOException {
+    protected ShortBuffer readShortBuffer(ByteBuffer content) throws IOException {
         int length = readInt(content);
         if (length == BinaryOutputCapsule.NULL_OBJECT)
             return null;
 
         if (BinaryImporter.canUseFastBuffers()){
             ByteBuffer value = BufferUtilsCreator.createByteBuffer(length * 2);
-            value.put(content, index, length * 2).rewind();
+            value.put(contentRange(content, index, length * 2)).rewind();
             index += length * 2;
             return value.asShortBuffer();
         }else{
@@ -1351,22 +1252,14 @@ final class BinaryInputCapsule implements InputCapsule {
         }
     }
 
-    static private class ID {
-        public int id;
-
-        public ID(int id) {
-            this.id = id;
-        }
-    }
-
-    static private class StringIDMap {
-        public String[] keys;
-        public ID[] values;
-    }
-
-    static private class IntIDMap {
-        public int[] keys;
-        public ID[] values;
+    /**
+     * Returns a view of <code>length</code> bytes of the content starting
+     * at <code>start</code>, so that they can be bulk copied into a buffer.
+     */
+    private static ByteBuffer contentRange(ByteBuffer content, int start, int length) {
+        ByteBuffer range = content.duplicate();
+        range.limit(start + length).position(start);
+        return range;
     }
 
     public <T extends Enum<T>> T readEnum(String name, Class<T> enumType, T defVal) throws IOException {
@@ -37,8 +37,10 @@ import com.jme3.asset.AssetLoadException;
 import com.jme3.asset.AssetLoader;
 import com.jme3.asset.AssetManager;
 import com.jme3.asset.AssetNotFoundException;
+import com.jme3.asset.DesktopAssetManager;
 import com.jme3.asset.MaterialKey;
 import com.jme3.asset.TextureKey;
+import com.jme3.asset.ThreadingManager;
 import com.jme3.material.MatParam;
 import com.jme3.material.Material;
 import com.jme3.material.MaterialDef;
@@ -178,7 +180,7 @@ public class J3MLoader implements AssetLoader {
         return matchList;
     }
 
-    private List<TextureOptionValue> parseTextureOptions(final List<String> values) {
+    private List<TextureOptionValue> parseTextureOptions(final List<String> values, final boolean logWarnings) {
         final List<TextureOptionValue> matchList = new ArrayList<TextureOptionValue>();
 
         if (values.isEmpty() || values.size() == 1) {
@@ -191,7 +193,9 @@ public class J3MLoader implements AssetLoader {
             final TextureOption textureOption = TextureOption.getTextureOption(value);
 
             if (textureOption == null && !value.contains("\\") && !value.contains("/") && !values.get(0).equals("Flip") && !values.get(0).equals("Repeat")) {
-                logger.log(Level.WARNING, "Unknown texture option \"{0}\" encountered for \"{1}\" in material \"{2}\"", new Object[]{value, key, material.getKey().getName()});
+                if (logWarnings) {
+                    logger.log(Level.WARNING, "Unknown texture option \"{0}\" encountered for \"{1}\" in material \"{2}\"", new Object[]{value, key, material.getKey().getName()});
+                }
             } else if (textureOption != null){
                 final String option = textureOption.getOptionValue(value);
                 matchList.add(new TextureOptionValue(textureOption, option));
@@ -222,8 +226,13 @@ public class J3MLoader implements AssetLoader {
 
     private Texture parseTextureType(final VarType type, final String value) {
         final List<String> textureValues = tokenizeTextureValue(value);
-        final List<TextureOptionValue> textureOptionValues = parseTextureOptions(textureValues);
+        final List<TextureOptionValue> textureOptionValues = parseTextureOptions(textureValues, true);
+
+        return loadTexture(parseTextureKey(type, value, textureValues, textureOptionValues), textureOptionValues);
+    }
 
+    private TextureKey parseTextureKey(final VarType type, final String value, final List<String> textureValues,
+                                       final List<TextureOptionValue> textureOptionValues) {
         TextureKey textureKey = null;
 
         // If there is only one token on the value, it must be the path to the texture.
@@ -285,6 +294,10 @@ public class J3MLoader implements AssetLoader {
 
         textureKey.setGenerateMips(true);
 
+        return textureKey;
+    }
+
+    private Texture loadTexture(final TextureKey textureKey, final List<TextureOptionValue> textureOptionValues) {
         Texture texture;
 
         try {
@@ -448,11 +461,35 @@ public class J3MLoader implements AssetLoader {
     }
 
     private void readExtendingMaterialParams(List<Statement> paramsList) throws IOException{
+        prefetchTextures(paramsList);
         for (Statement statement : paramsList){
             readValueParam(statement.getLine());
         }
     }
 
+    /**
+     * When loaded asynchronously, queues all textures of the material
+     * up front so they load in parallel rather than one after the other.
+     */
+    private void prefetchTextures(List<Statement> paramsList) {
+        if (!ThreadingManager.isLoadingThread() || !(assetManager instanceof DesktopAssetManager)) {
+            return;
+        }
+        ThreadingManager threadingManager = ((DesktopAssetManager) assetManager).getThreadingManager();
+        for (Statement statement : paramsList){
+            String[] split = statement.getLine().split(":", 2);
+            if (split.length != 2){
+                continue;
+            }
+            MatParam p = material.getMaterialDef().getMaterialParam(split[0].trim());
+            if (p != null && p.getVarType().isTextureType()){
+                List<String> textureValues = tokenizeTextureValue(split[1]);
+                List<TextureOptionValue> textureOptionValues = parseTextureOptions(textureValues, false);
+                threadingManager.prefetch(parseTextureKey(p.getVarType(), split[1], textureValues, textureOptionValues));
+            }
+        }
+    }
+
     private void readWorldParams(List<Statement> worldParams) throws IOException{
         for (Statement statement : worldParams){
             technique.addWorldParam(statement.getLine());
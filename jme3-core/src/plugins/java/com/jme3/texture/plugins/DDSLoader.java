@@ -38,6 +38,7 @@ import com.jme3.texture.Image;
 import com.jme3.texture.Image.Format;
 import com.jme3.texture.Texture;
 import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferInputStream;
 import com.jme3.util.BufferUtilsCreator;
 import com.jme3.util.LittleEndien;
 
@@ -45,6 +46,7 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -114,6 +116,8 @@ public class DDSLoader implements AssetLoader {
     private int[] sizes;
     private int redMask, greenMask, blueMask, alphaMask;
     private DataInput in;
+    // set when reading from a buffer, the image data can then be sliced
+    private BufferInputStream source;
 
     public DDSLoader() {
     }
@@ -125,17 +129,28 @@ public class DDSLoader implements AssetLoader {
 
         InputStream stream = null;
         try {
-            stream = info.openStream();
-            in = new LittleEndien(stream);
+            ByteBuffer buffer = info.openBuffer();
+            if (buffer != null) {
+                source = new BufferInputStream(buffer.order(ByteOrder.LITTLE_ENDIAN));
+                in = source;
+            } else {
+                stream = info.openStream();
+                in = new LittleEndien(stream);
+            }
             loadHeader();
             if (texture3D) {
                 ((TextureKey) info.getKey()).setTextureTypeHint(Texture.Type.ThreeDimensional);
             } else if (depth > 1) {
                 ((TextureKey) info.getKey()).setTextureTypeHint(Texture.Type.CubeMap);
             }
-            ArrayList<ByteBuffer> data = readData(((TextureKey) info.getKey()).isFlipY());
-            return new Image(pixelFormat, width, height, depth, data, sizes, ColorSpace.sRGB);
+            boolean flip = ((TextureKey) info.getKey()).isFlipY();
+            ArrayList<ByteBuffer> data = readData(flip);
+            Image image = new Image(pixelFormat, width, height, depth, data, sizes, ColorSpace.sRGB);
+            // slices of the asset buffer are owned by the locator
+            image.setDataOwned(!isDataInPlace(flip));
+            return image;
         } finally {
+            source = null;
             if (stream != null){
                 stream.close();
             }
@@ -149,6 +164,11 @@ public class DDSLoader implements AssetLoader {
         return new Image(pixelFormat, width, height, depth, data, sizes, ColorSpace.sRGB);
     }
 
+    // true if the image data is used as it is in the source buffer
+    private boolean isDataInPlace(boolean flip) {
+        return source != null && !flip && (compressed || grayscaleOrAlpha);
+    }
+
     private void loadDX10Header() throws IOException {
         int dxgiFormat = in.readInt();
         if (dxgiFormat == 0) {
@@ -254,6 +274,7 @@ public class DDSLoader implements AssetLoader {
 
         int pfFlags = in.readInt();
         normal = is(pfFlags, DDPF_NORMAL);
+        grayscaleOrAlpha = false;
 
         if (is(pfFlags, DDPF_FOURCC)) {
             compressed = true;
@@ -726,6 +747,8 @@ public class DDSLoader implements AssetLoader {
      * If the file contains a cubemap image, it is loaded as 6 ByteBuffers
      * (potentially containing mipmaps if they were specified), otherwise
      * a single ByteBuffer is returned for a 2D image.
+     * When loading from an asset buffer without flipping, compressed and
+     * grayscale data are returned as slices of that buffer.
      *
      * @param flip Flip the image data or not.
      *        For cubemaps, each of the cubemap faces is flipped individually.
@@ -743,6 +766,18 @@ public class DDSLoader implements AssetLoader {
         }
 
         ArrayList<ByteBuffer> allMaps = new ArrayList<ByteBuffer>();
+        if (isDataInPlace(flip)) {
+            // The file holds the data exactly as it is uploaded,
+            // use the source buffer in place instead of copying it.
+            if (depth > 1 && !texture3D) {
+                for (int i = 0; i < depth; i++) {
+                    allMaps.add(source.slice(totalSize));
+                }
+            } else {
+                allMaps.add(source.slice(texture3D ? totalSize * depth : totalSize));
+            }
+            return allMaps;
+        }
         if (depth > 1 && !texture3D) {
             for (int i = 0; i < depth; i++) {
                 if (compressed) {
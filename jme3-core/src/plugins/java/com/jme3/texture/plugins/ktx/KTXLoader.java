@@ -39,6 +39,7 @@ import com.jme3.renderer.opengl.GLImageFormat;
 import com.jme3.renderer.opengl.GLImageFormats;
 import com.jme3.texture.Image;
 import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferInputStream;
 import com.jme3.util.BufferUtilsCreator;
 import com.jme3.util.LittleEndien;
 
@@ -47,6 +48,7 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -78,6 +80,11 @@ public class KTXLoader implements AssetLoader {
             throw new IllegalArgumentException("Texture assets must be loaded using a TextureKey");
         }
 
+        ByteBuffer buffer = info.openBuffer();
+        if (buffer != null) {
+            return load(new BufferInputStream(buffer.order(ByteOrder.BIG_ENDIAN)));
+        }
+
         InputStream in = null;
         try {
             in = info.openStream();
@@ -94,7 +101,9 @@ public class KTXLoader implements AssetLoader {
 
         byte[] fileId = new byte[12];
 
-        DataInput in = new DataInputStream(stream);
+        // reading from a buffer allows to use the image data in place
+        BufferInputStream source = stream instanceof BufferInputStream ? (BufferInputStream) stream : null;
+        DataInput in = source != null ? source : new DataInputStream(stream);
         try {
             stream.read(fileId, 0, 12);
             if (!checkFileIdentifier(fileId)) {
@@ -104,7 +113,11 @@ public class KTXLoader implements AssetLoader {
             int endianness = in.readInt();
             //opposite endianness
             if (endianness == 0x01020304) {
-                in = new LittleEndien(stream);
+                if (source != null) {
+                    source.getBuffer().order(ByteOrder.LITTLE_ENDIAN);
+                } else {
+                    in = new LittleEndien(stream);
+                }
             }
             int glType = in.readInt();
             int glTypeSize = in.readInt();
@@ -159,6 +172,20 @@ public class KTXLoader implements AssetLoader {
             log.log(Level.FINE, "data size {0}", byteBuffersSize);
             
             int[] mipMapSizes = new int[numberOfMipmapLevels];
+
+            if (source != null && pixelReader instanceof SrTuRoPixelReader
+                    && nbSlices == 1 && pixelDepth == 1 && numberOfMipmapLevels == 1) {
+                // a single image stored as it is uploaded, no copy needed
+                int fileImageSize = in.readInt();
+                if (fileImageSize != byteBuffersSize) {
+                    log.log(Level.WARNING, "Image size is wrong in the file, size is {0} should be {1}", new Object[]{fileImageSize, byteBuffersSize});
+                }
+                ArrayList<ByteBuffer> imageData = new ArrayList<ByteBuffer>(1);
+                imageData.add(source.slice(byteBuffersSize));
+                Image image = new Image(imgFormat, pixelWidth, pixelHeight, 1, imageData, ColorSpace.sRGB);
+                image.setDataOwned(false);
+                return image;
+            }
             
             Image image = createImage(nbSlices, byteBuffersSize, imgFormat, pixelWidth, pixelHeight, pixelDepth);
             
@@ -31,6 +31,8 @@
  */
 package com.jme3.texture.plugins.ktx;
 
+import com.jme3.util.BufferInputStream;
+
 import java.io.DataInput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -44,6 +46,12 @@ public class SrTuRoPixelReader implements PixelReader {
 
     @Override
     public int readPixels(int pixelWidth, int pixelHeight, byte[] pixelData, ByteBuffer buffer, DataInput in) throws IOException {
+        if (in instanceof BufferInputStream) {
+            // rows are stored in order, copy them all at once
+            int size = pixelWidth * pixelHeight * pixelData.length;
+            ((BufferInputStream) in).readFully(buffer, size);
+            return size;
+        }
         int pixelRead = 0;
         for (int row = 0; row < pixelHeight; row++) {
             for (int pixel = 0; pixel < pixelWidth; pixel++) {
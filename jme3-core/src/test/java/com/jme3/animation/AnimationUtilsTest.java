@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.animation;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link AnimationUtils#findStartFrame(float[], float, int) } against
+ * the linear scan the tracks used before.
+ */
+public class AnimationUtilsTest {
+
+    private static int linearStartFrame(float[] times, float time) {
+        int lastFrame = times.length - 1;
+        int startFrame = 0;
+        for (int i = 0; i < lastFrame && times[i] < time; i++) {
+            startFrame = i;
+        }
+        return startFrame;
+    }
+
+    private static float[] randomTimes(Random random, int count) {
+        float[] times = new float[count];
+        float time = 0;
+        for (int i = 0; i < count; i++) {
+            times[i] = time;
+            // some keyframes share the same time
+            time += random.nextInt(4) == 0 ? 0 : random.nextFloat();
+        }
+        return times;
+    }
+
+    private static void assertMatchesScan(float[] times, float time, int cursor) {
+        assertEquals("time " + time + ", cursor " + cursor,
+                linearStartFrame(times, time), AnimationUtils.findStartFrame(times, time, cursor));
+    }
+
+    @Test
+    public void testPlayback() {
+        Random random = new Random(1);
+        for (int count = 2; count < 40; count++) {
+            float[] times = randomTimes(random, count);
+            float end = times[count - 1];
+            int cursor = 0;
+            for (float time = 0; time < end; time += end / 97) {
+                int frame = AnimationUtils.findStartFrame(times, time, cursor);
+                assertEquals(linearStartFrame(times, time), frame);
+                cursor = frame;
+            }
+        }
+    }
+
+    @Test
+    public void testSeekWithAnyCursor() {
+        Random random = new Random(2);
+        for (int count = 2; count < 40; count++) {
+            float[] times = randomTimes(random, count);
+            for (int i = 0; i < 50; i++) {
+                float time = random.nextFloat() * times[count - 1];
+                for (int cursor = -1; cursor <= count; cursor++) {
+                    assertMatchesScan(times, time, cursor);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testKeyframeTimes() {
+        float[] times = {0, 0.5f, 0.5f, 1, 2, 2, 2, 3};
+        for (float time : times) {
+            for (int cursor = 0; cursor < times.length; cursor++) {
+                assertMatchesScan(times, time, cursor);
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfRange() {
+        float[] times = {0, 1, 2, 3};
+        assertEquals(0, AnimationUtils.findStartFrame(times, -1, 2));
+        assertEquals(2, AnimationUtils.findStartFrame(times, 5, 0));
+        assertEquals(0, AnimationUtils.findStartFrame(new float[]{0, 1}, 0.5f, 1));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.animation;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.util.BufferUtilsCreator;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that parallel software skinning in {@link SkeletonControl} gives
+ * the same results as the serial path.
+ */
+public class SkeletonControlTest {
+
+    private static final int NUM_BONES = 3;
+
+    private final RenderManager renderManager = new RenderManager(null);
+
+    private static Mesh createMesh(int numVertices, boolean tangents) {
+        Random random = new Random(numVertices);
+        FloatBuffer positions = BufferUtilsCreator.createFloatBuffer(numVertices * 3);
+        FloatBuffer normals = BufferUtilsCreator.createFloatBuffer(numVertices * 3);
+        FloatBuffer tangentData = BufferUtilsCreator.createFloatBuffer(numVertices * 4);
+        ByteBuffer indices = BufferUtilsCreator.createByteBuffer(numVertices * 4);
+        FloatBuffer weights = BufferUtilsCreator.createFloatBuffer(numVertices * 4);
+        Vector3f v = new Vector3f();
+        for (int i = 0; i < numVertices; i++) {
+            positions.put(random.nextFloat() * 3).put(random.nextFloat() - 0.5f).put(random.nextFloat() - 0.5f);
+            v.set(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f).normalizeLocal();
+            normals.put(v.x).put(v.y).put(v.z);
+            v.set(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f).normalizeLocal();
+            tangentData.put(v.x).put(v.y).put(v.z).put(i % 2 == 0 ? 1 : -1);
+
+            float total = 0;
+            float[] w = new float[4];
+            int numWeights = 1 + random.nextInt(4);
+            for (int j = 0; j < numWeights; j++) {
+                w[j] = random.nextFloat() + 0.01f;
+                total += w[j];
+            }
+            for (int j = 0; j < 4; j++) {
+                indices.put((byte) random.nextInt(NUM_BONES));
+                weights.put(w[j] / total);
+            }
+        }
+
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(Type.Position, 3, positions);
+        mesh.setBuffer(Type.Normal, 3, normals);
+        if (tangents) {
+            mesh.setBuffer(Type.Tangent, 4, tangentData);
+        }
+        mesh.setBuffer(Type.BoneIndex, 4, indices);
+        mesh.setBuffer(Type.BoneWeight, 4, weights);
+        mesh.setMaxNumWeights(4);
+        mesh.generateBindPose(true);
+        mesh.prepareForAnim(true);
+        return mesh;
+    }
+
+    private static Skeleton createSkeleton() {
+        Bone[] bones = new Bone[NUM_BONES];
+        for (int i = 0; i < NUM_BONES; i++) {
+            bones[i] = new Bone("Bone" + i);
+            bones[i].setBindTransforms(new Vector3f(i == 0 ? 0 : 1, 0, 0), Quaternion.IDENTITY, Vector3f.UNIT_XYZ);
+            if (i > 0) {
+                bones[i - 1].addChild(bones[i]);
+            }
+        }
+        return new Skeleton(bones);
+    }
+
+    private static void pose(Skeleton skeleton, float angle) {
+        Quaternion rotation = new Quaternion();
+        for (int i = 0; i < skeleton.getBoneCount(); i++) {
+            Bone bone = skeleton.getBone(i);
+            bone.setUserControl(true);
+            rotation.fromAngles(angle * (i + 1), angle * 0.5f, -angle * i);
+            bone.setUserTransforms(new Vector3f(0, angle * i, 0), rotation, Vector3f.UNIT_XYZ);
+        }
+        skeleton.updateWorldVectors();
+    }
+
+    private static SkeletonControl createModel(int numVertices, boolean tangents, boolean parallel) {
+        Node model = new Node("Model");
+        model.attachChild(new Geometry("Geom", createMesh(numVertices, tangents)));
+        SkeletonControl control = new SkeletonControl(createSkeleton());
+        control.setHardwareSkinningPreferred(false);
+        control.setParallelSkinning(parallel);
+        model.addControl(control);
+        return control;
+    }
+
+    private void render(float angle, SkeletonControl... controls) {
+        for (SkeletonControl control : controls) {
+            control.update(0);
+            pose(control.getSkeleton(), angle);
+            control.render(renderManager, null);
+        }
+        renderManager.joinSceneTasks();
+    }
+
+    private static void assertBufferEquals(SkeletonControl expected, SkeletonControl actual, Type type) {
+        Mesh expectedMesh = expected.getTargets()[0];
+        Mesh actualMesh = actual.getTargets()[0];
+        FloatBuffer e = (FloatBuffer) expectedMesh.getBuffer(type).getData();
+        FloatBuffer a = (FloatBuffer) actualMesh.getBuffer(type).getData();
+        assertEquals(e.limit(), a.limit());
+        for (int i = 0; i < e.limit(); i++) {
+            assertEquals(type + " " + i, e.get(i), a.get(i), 0f);
+        }
+    }
+
+    private static void assertSkinnedEquals(SkeletonControl expected, SkeletonControl actual, boolean tangents) {
+        assertBufferEquals(expected, actual, Type.Position);
+        assertBufferEquals(expected, actual, Type.Normal);
+        if (tangents) {
+            assertBufferEquals(expected, actual, Type.Tangent);
+        }
+    }
+
+    private void testMatchesSerial(int numVertices, boolean tangents) {
+        SkeletonControl serial = createModel(numVertices, tangents, false);
+        SkeletonControl parallel = createModel(numVertices, tangents, true);
+        for (int frame = 1; frame <= 3; frame++) {
+            float angle = frame * FastMath.QUARTER_PI / 3;
+            render(angle, serial);
+            render(angle, parallel);
+            assertSkinnedEquals(serial, parallel, tangents);
+        }
+
+        // the skinned mesh actually moved away from the bind pose
+        Mesh mesh = parallel.getTargets()[0];
+        assertFalse(mesh.getBuffer(Type.Position).getData().equals(mesh.getBuffer(Type.BindPosePosition).getData()));
+    }
+
+    @Test
+    public void testSmallMesh() {
+        testMatchesSerial(100, false);
+    }
+
+    @Test
+    public void testSplitMesh() {
+        testMatchesSerial(10000, false);
+    }
+
+    @Test
+    public void testSmallMeshTangents() {
+        testMatchesSerial(100, true);
+    }
+
+    @Test
+    public void testSplitMeshTangents() {
+        testMatchesSerial(10000, true);
+    }
+
+    @Test
+    public void testControlsSkinnedConcurrently() {
+        int[] sizes = { 50, 3000, 700, 9000, 1 };
+        SkeletonControl[] serial = new SkeletonControl[sizes.length];
+        SkeletonControl[] parallel = new SkeletonControl[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            serial[i] = createModel(sizes[i], i % 2 == 0, false);
+            parallel[i] = createModel(sizes[i], i % 2 == 0, true);
+        }
+
+        render(0.3f, serial);
+        render(0.3f, parallel);
+        for (int i = 0; i < sizes.length; i++) {
+            assertSkinnedEquals(serial[i], parallel[i], i % 2 == 0);
+        }
+    }
+}
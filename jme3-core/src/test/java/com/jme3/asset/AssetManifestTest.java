@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the asset manager finds the same locator for each asset with
+ * and without an {@link AssetManifest}, and asks fewer locators with one.
+ */
+public class AssetManifestTest {
+
+    // assets of each root path, shared by the locator instances
+    private static final Map<String, Set<String>> assets = new HashMap<String, Set<String>>();
+    // "rootPath:name" for each locate call
+    private static final List<String> probes = new ArrayList<String>();
+
+    private static class LocatedInfo extends AssetInfo {
+
+        final String rootPath;
+
+        LocatedInfo(AssetManager manager, AssetKey key, String rootPath) {
+            super(manager, key);
+            this.rootPath = rootPath;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    }
+
+    public static class PlainLocator implements AssetLocator {
+
+        private String rootPath;
+
+        public void setRootPath(String rootPath) {
+            this.rootPath = rootPath;
+        }
+
+        public AssetInfo locate(AssetManager manager, AssetKey key) {
+            synchronized (probes) {
+                probes.add(rootPath + ":" + key.getName());
+            }
+            Set<String> names = assets.get(rootPath);
+            if (names != null && names.contains(AssetManifest.normalize(key.getName()))) {
+                return new LocatedInfo(manager, key, rootPath);
+            }
+            return null;
+        }
+    }
+
+    public static class ListedLocator extends PlainLocator implements IndexableAssetLocator {
+
+        private String rootPath;
+
+        @Override
+        public void setRootPath(String rootPath) {
+            super.setRootPath(rootPath);
+            this.rootPath = rootPath;
+        }
+
+        public Collection<String> listAssets() {
+            return new ArrayList<String>(assets.get(rootPath));
+        }
+    }
+
+    private DesktopAssetManager assetManager;
+
+    @Before
+    public void setUp() {
+        assets.clear();
+        probes.clear();
+        assets.put("a", new HashSet<String>(Arrays.asList("one", "shared", "dir/two")));
+        assets.put("b", new HashSet<String>(Arrays.asList("shared", "three")));
+        assets.put("c", new HashSet<String>(Arrays.asList("four", "shared")));
+        assets.put("d", new HashSet<String>(Arrays.asList("five", "three")));
+        assetManager = new DesktopAssetManager();
+        assetManager.registerLocator("a", ListedLocator.class);
+        assetManager.registerLocator("b", PlainLocator.class);
+        assetManager.registerLocator("c", ListedLocator.class);
+        assetManager.registerLocator("d", ListedLocator.class);
+    }
+
+    private String locate(String name) {
+        AssetInfo info = assetManager.locateAsset(new AssetKey<Object>(name));
+        return info == null ? null : ((LocatedInfo) info).rootPath;
+    }
+
+    private static final String[] NAMES = {"one", "shared", "dir/two", "three", "four", "five", "missing"};
+
+    @Test
+    public void testSameLocatorsAsWithoutManifest() {
+        String[] expected = new String[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++) {
+            expected[i] = locate(NAMES[i]);
+        }
+        assertArrayEquals(new String[]{"a", "a", "a", "b", "c", "d", null}, expected);
+
+        assetManager.setManifest(new AssetManifest());
+        for (int i = 0; i < NAMES.length; i++) {
+            assertEquals(NAMES[i], expected[i], locate(NAMES[i]));
+        }
+    }
+
+    @Test
+    public void testOnlyOwnerAndEarlierUnindexedLocatorsAreAsked() {
+        assetManager.setManifest(new AssetManifest());
+
+        probes.clear();
+        assertEquals("d", locate("five"));
+        // b is not indexed and registered before d
+        assertEquals(Arrays.asList("b:five", "d:five"), probes);
+
+        probes.clear();
+        assertEquals("a", locate("one"));
+        assertEquals(Arrays.asList("a:one"), probes);
+
+        probes.clear();
+        assertNull(locate("missing"));
+        assertEquals(Arrays.asList("b:missing"), probes);
+    }
+
+    @Test
+    public void testMissesAreNotProbed() {
+        assetManager.unregisterLocator("b", PlainLocator.class);
+        assetManager.setManifest(new AssetManifest());
+        probes.clear();
+        assertNull(locate("missing"));
+        assertNull(locate("three-and-a-half"));
+        assertTrue(probes.isEmpty());
+    }
+
+    @Test
+    public void testLeadingSlash() {
+        assetManager.setManifest(new AssetManifest());
+        assertEquals("a", locate("/one"));
+    }
+
+    @Test
+    public void testOutdatedManifestAsksRemainingLocators() {
+        AssetManifest manifest = new AssetManifest();
+        assetManager.setManifest(manifest);
+        // "four" was moved from c to d on disk
+        assets.get("c").remove("four");
+        assets.get("d").add("four");
+        assertNull(locate("four"));
+
+        manifest.invalidate(ListedLocator.class, "d");
+        assertEquals("d", locate("four"));
+    }
+
+    @Test
+    public void testStaleOwnerFallsBack() {
+        AssetManifest manifest = new AssetManifest();
+        assetManager.setManifest(manifest);
+        // removed from a without updating the manifest, c still has it
+        assets.get("a").remove("shared");
+        assertEquals("b", locate("shared"));
+        assets.get("b").remove("shared");
+        assertEquals("c", locate("shared"));
+    }
+
+    @Test
+    public void testUpdatesAndInvalidation() {
+        AssetManifest manifest = new AssetManifest();
+        assetManager.setManifest(manifest);
+        assets.get("c").add("new");
+        assertNull(locate("new"));
+
+        manifest.addAsset(ListedLocator.class, "c", "new");
+        assertEquals("c", locate("new"));
+
+        assets.get("c").remove("new");
+        manifest.removeAsset(ListedLocator.class, "c", "new");
+        probes.clear();
+        assertNull(locate("new"));
+        assertEquals(Arrays.asList("b:new"), probes);
+
+        assets.get("a").add("newer");
+        manifest.invalidate();
+        assertEquals("a", locate("newer"));
+    }
+
+    @Test
+    public void testLocatorsRegisteredLater() {
+        assetManager.setManifest(new AssetManifest());
+        assets.put("e", new HashSet<String>(Arrays.asList("six")));
+        assertNull(locate("six"));
+        assetManager.registerLocator("e", ListedLocator.class);
+        assertEquals("e", locate("six"));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        AssetManifest manifest = new AssetManifest();
+        manifest.setContents(ListedLocator.class, "a", Arrays.asList("one", "/dir/two"));
+        manifest.setContents(PlainLocator.class, "b", Arrays.asList("three"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manifest.write(out);
+
+        AssetManifest read = AssetManifest.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(new HashSet<String>(Arrays.asList("one", "dir/two")),
+                read.getContents(ListedLocator.class, "a"));
+        assertEquals(new HashSet<String>(Arrays.asList("three")),
+                read.getContents(PlainLocator.class, "b"));
+        assertNull(read.getContents(ListedLocator.class, "c"));
+
+        // the contents read for b are used even though it cannot list them
+        assetManager.setManifest(read);
+        probes.clear();
+        assertEquals("d", locate("five"));
+        assertEquals(Arrays.asList("d:five"), probes);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadRejectsOtherData() throws IOException {
+        AssetManifest.read(new ByteArrayInputStream("one\ntwo\n".getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests priorities, sharing, cancellation and callback delivery of
+ * asynchronous loads in {@link ThreadingManager}.
+ */
+public class ThreadingManagerTest {
+
+    // keys starting with "block" wait for the gate before loading
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final ConcurrentHashMap<String, AtomicInteger> loadCounts = new ConcurrentHashMap<String, AtomicInteger>();
+    private final List<String> loadOrder = Collections.synchronizedList(new ArrayList<String>());
+    private ThreadingManager manager;
+
+    private class Recorder implements AssetLoadCallback<String> {
+
+        final List<String> events = new ArrayList<String>();
+        final Thread updateThread = Thread.currentThread();
+
+        public void assetLoaded(AssetKey<String> key, String asset) {
+            assertSame(updateThread, Thread.currentThread());
+            events.add("loaded " + asset);
+        }
+
+        public void assetFailed(AssetKey<String> key, Throwable cause) {
+            assertSame(updateThread, Thread.currentThread());
+            events.add("failed " + key.getName());
+        }
+    }
+
+    @Before
+    public void setUp() {
+        AssetManager owner = (AssetManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AssetManager.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (!method.getName().equals("loadAsset") || !(args[0] instanceof AssetKey)) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                return load(((AssetKey<?>) args[0]).getName());
+            }
+        });
+        manager = new ThreadingManager(owner);
+        // a single loading thread takes the queued loads in a fixed order
+        manager.executor.setCorePoolSize(1);
+        manager.executor.setMaximumPoolSize(1);
+    }
+
+    @After
+    public void tearDown() {
+        gate.countDown();
+    }
+
+    private String load(String name) throws InterruptedException {
+        if (name.startsWith("block")) {
+            blocked.countDown();
+            gate.await();
+        }
+        AtomicInteger count = loadCounts.get(name);
+        if (count == null) {
+            loadCounts.putIfAbsent(name, new AtomicInteger());
+            count = loadCounts.get(name);
+        }
+        count.incrementAndGet();
+        loadOrder.add(name);
+        if (name.startsWith("missing")) {
+            throw new AssetNotFoundException(name);
+        }
+        return "asset " + name;
+    }
+
+    private int getLoadCount(String name) {
+        AtomicInteger count = loadCounts.get(name);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Occupies the loading thread until the gate opens.
+     */
+    private Future<String> blockLoader() throws InterruptedException {
+        Future<String> future = manager.loadAsset(new AssetKey<String>("block"));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        return future;
+    }
+
+    private void dispatchUntil(Recorder recorder, int events) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (recorder.events.size() < events && System.nanoTime() < end) {
+            manager.dispatchCompleted();
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testCallbacksRunOnDispatch() throws Exception {
+        Recorder recorder = new Recorder();
+        Future<String> future = manager.loadAsset(new AssetKey<String>("a"), 0, recorder);
+        assertEquals("asset a", future.get(10, TimeUnit.SECONDS));
+        assertTrue(future.isDone());
+        assertTrue(recorder.events.isEmpty());
+
+        dispatchUntil(recorder, 1);
+        assertEquals(Collections.singletonList("loaded asset a"), recorder.events);
+        assertEquals(0, manager.getPendingCallbacks());
+    }
+
+    @Test
+    public void testFailedLoad() throws Exception {
+        Recorder recorder = new Recorder();
+        Future<String> future = manager.loadAsset(new AssetKey<String>("missing"), 0, recorder);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("expected the load to fail");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof AssetNotFoundException);
+        }
+        dispatchUntil(recorder, 1);
+        assertEquals(Collections.singletonList("failed missing"), recorder.events);
+        assertEquals(1, manager.getFailedLoads());
+    }
+
+    @Test
+    public void testRequestsShareLoad() throws Exception {
+        Future<String> blocker = blockLoader();
+        Recorder recorder = new Recorder();
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(manager.loadAsset(new AssetKey<String>("shared"), i, recorder));
+        }
+        gate.countDown();
+
+        for (Future<String> future : futures) {
+            assertEquals("asset shared", future.get(10, TimeUnit.SECONDS));
+        }
+        blocker.get(10, TimeUnit.SECONDS);
+        assertEquals(1, getLoadCount("shared"));
+        dispatchUntil(recorder, 5);
+        assertEquals(5, recorder.events.size());
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        Future<String> blocker = blockLoader();
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        futures.add(manager.loadAsset(new AssetKey<String>("low"), 1, null));
+        futures.add(manager.loadAsset(new AssetKey<String>("high"), 10, null));
+        futures.add(manager.loadAsset(new AssetKey<String>("medium"), 5, null));
+        futures.add(manager.loadAsset(new AssetKey<String>("raised"), 0, null));
+        // a second request with a higher priority moves the load ahead
+        futures.add(manager.loadAsset(new AssetKey<String>("raised"), 20, null));
+        futures.add(manager.loadAsset(new AssetKey<String>("medium2"), 5, null));
+        assertEquals(5, manager.getQueueDepth());
+        gate.countDown();
+
+        for (Future<String> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        blocker.get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("block", "raised", "high", "medium", "medium2", "low"), loadOrder);
+    }
+
+    @Test
+    public void testCancelQueuedLoad() throws Exception {
+        Future<String> blocker = blockLoader();
+        Recorder recorder = new Recorder();
+        Future<String> cancelled = manager.loadAsset(new AssetKey<String>("cancelled"), 0, recorder);
+        Future<String> kept = manager.loadAsset(new AssetKey<String>("kept"), 0, recorder);
+        assertTrue(cancelled.cancel(false));
+        assertTrue(cancelled.isCancelled());
+        assertTrue(cancelled.isDone());
+        assertFalse(cancelled.cancel(false));
+        assertEquals(1, manager.getQueueDepth());
+        gate.countDown();
+
+        assertEquals("asset kept", kept.get(10, TimeUnit.SECONDS));
+        blocker.get(10, TimeUnit.SECONDS);
+        try {
+            cancelled.get();
+            fail("expected a cancelled future");
+        } catch (CancellationException ex) {
+        }
+        assertEquals(0, getLoadCount("cancelled"));
+        dispatchUntil(recorder, 1);
+        manager.dispatchCompleted();
+        assertEquals(Collections.singletonList("loaded asset kept"), recorder.events);
+    }
+
+    @Test
+    public void testCancelOneOfSharedRequests() throws Exception {
+        Future<String> blocker = blockLoader();
+        Recorder recorder = new Recorder();
+        Future<String> cancelled = manager.loadAsset(new AssetKey<String>("shared"), 0, recorder);
+        Future<String> kept = manager.loadAsset(new AssetKey<String>("shared"), 0, recorder);
+        assertTrue(cancelled.cancel(false));
+        gate.countDown();
+
+        assertEquals("asset shared", kept.get(10, TimeUnit.SECONDS));
+        blocker.get(10, TimeUnit.SECONDS);
+        assertEquals(1, getLoadCount("shared"));
+        dispatchUntil(recorder, 1);
+        manager.dispatchCompleted();
+        assertEquals(1, recorder.events.size());
+    }
+
+    @Test
+    public void testAwaitLoadRunsQueuedLoad() throws Exception {
+        Future<String> blocker = blockLoader();
+        AssetKey<String> key = new AssetKey<String>("awaited");
+        Future<String> future = manager.loadAsset(key, 0, null);
+        // the loader is busy, the load runs on this thread
+        assertTrue(manager.awaitLoad(key));
+        assertTrue(future.isDone());
+        assertEquals("asset awaited", future.get());
+        assertEquals(0, manager.getQueueDepth());
+        gate.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+        assertFalse(manager.awaitLoad(key));
+    }
+
+    @Test
+    public void testDispatchBudget() throws Exception {
+        Recorder recorder = new Recorder();
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(manager.loadAsset(new AssetKey<String>("asset" + i), 0, recorder));
+        }
+        for (Future<String> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (manager.getPendingCallbacks() < 4 && System.nanoTime() < end) {
+            Thread.sleep(1);
+        }
+        // at least one callback runs even without any budget
+        assertEquals(1, manager.dispatchCompleted(0));
+        assertEquals(3, manager.getPendingCallbacks());
+        assertEquals(3, manager.dispatchCompleted(TimeUnit.SECONDS.toNanos(10)));
+        assertEquals(4, recorder.events.size());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset.cache;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.TextureKey;
+import com.jme3.system.NullRenderer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture2D;
+import com.jme3.util.NativeObjectManager;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the eviction and revival of assets in {@link LRUAssetCache}.
+ */
+public class LRUAssetCacheTest {
+
+    /**
+     * An asset whose size is given by the test.
+     */
+    private static class SizedAsset {
+
+        final long size;
+
+        SizedAsset(long size) {
+            this.size = size;
+        }
+    }
+
+    private LRUAssetCache cache;
+    private final List<AssetKey> evicted = new ArrayList<AssetKey>();
+
+    @Before
+    public void setUp() {
+        cache = new LRUAssetCache();
+        cache.setSizeEstimator(new LRUAssetCache.SizeEstimator() {
+            public long estimateSize(Object asset) {
+                return ((SizedAsset) asset).size;
+            }
+        });
+        cache.setMaxBytes(100);
+        cache.setEvictionListener(new LRUAssetCache.EvictionListener() {
+            public void assetEvicted(AssetKey<?> key, Object asset) {
+                evicted.add(key);
+            }
+        });
+    }
+
+    private static AssetKey<SizedAsset> key(String name) {
+        return new AssetKey<SizedAsset>(name);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        SizedAsset a = new SizedAsset(10);
+        cache.addToCache(key("a"), a);
+        assertSame(a, cache.getFromCache(key("a")));
+        assertNull(cache.getFromCache(key("b")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(10, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        cache.addToCache(key("a"), new SizedAsset(40));
+        cache.addToCache(key("b"), new SizedAsset(40));
+        // a becomes the most recently used
+        cache.getFromCache(key("a"));
+        cache.addToCache(key("c"), new SizedAsset(40));
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, evicted.size());
+        assertEquals(key("b"), evicted.get(0));
+        assertEquals(2, cache.getSize());
+        assertEquals(80, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testKeepsMostRecentAssetOverBudget() {
+        cache.addToCache(key("a"), new SizedAsset(40));
+        cache.addToCache(key("big"), new SizedAsset(500));
+        assertEquals(1, cache.getSize());
+        assertEquals(500, cache.getUsedBytes());
+        assertEquals(key("a"), evicted.get(0));
+    }
+
+    @Test
+    public void testRevivesEvictedAssetInUse() {
+        SizedAsset a = new SizedAsset(60);
+        cache.addToCache(key("a"), a);
+        cache.addToCache(key("b"), new SizedAsset(60));
+        assertEquals(1, cache.getEvictionCount());
+
+        // still referenced by the test, so it is found without reloading
+        assertSame(a, cache.getFromCache(key("a")));
+        assertEquals(1, cache.getRevivalCount());
+        assertEquals(0, cache.getMissCount());
+        // taking it back evicts b
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(60, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testCollectedAssetIsMissed() throws InterruptedException {
+        cache.addToCache(key("a"), new SizedAsset(60));
+        cache.addToCache(key("b"), new SizedAsset(60));
+        for (int i = 0; i < 20 && cache.getFromCache(key("a")) != null; i++) {
+            cache.addToCache(key("a" + i), new SizedAsset(60));
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(cache.getFromCache(key("a")));
+    }
+
+    @Test
+    public void testShrinkingBudgetEvicts() {
+        cache.addToCache(key("a"), new SizedAsset(30));
+        cache.addToCache(key("b"), new SizedAsset(30));
+        cache.addToCache(key("c"), new SizedAsset(30));
+        cache.setMaxBytes(50);
+        assertEquals(1, cache.getSize());
+        assertEquals(30, cache.getUsedBytes());
+        assertEquals(2, evicted.size());
+    }
+
+    @Test
+    public void testDeleteAndClear() {
+        SizedAsset a = new SizedAsset(60);
+        cache.addToCache(key("a"), a);
+        cache.addToCache(key("b"), new SizedAsset(30));
+        assertTrue(cache.deleteFromCache(key("b")));
+        assertFalse(cache.deleteFromCache(key("b")));
+        assertEquals(60, cache.getUsedBytes());
+
+        cache.addToCache(key("c"), new SizedAsset(60));
+        cache.clearCache();
+        assertEquals(0, cache.getUsedBytes());
+        assertEquals(0, cache.getSize());
+        // evicted assets are forgotten as well
+        assertNull(cache.getFromCache(key("a")));
+    }
+
+    @Test
+    public void testReleaserDeletesEvictedImages() {
+        NativeObjectManager objectManager = new NativeObjectManager();
+        Image image = new Image();
+        image.setId(7);
+        objectManager.registerObject(image);
+        image.clearUpdateNeeded();
+
+        cache.setSizeEstimator(new LRUAssetCache.DefaultSizeEstimator());
+        cache.setMaxBytes(LRUAssetCache.DefaultSizeEstimator.MIN_ASSET_SIZE);
+        cache.setEvictionListener(new LRUAssetCache.NativeObjectReleaser());
+        cache.addToCache(new TextureKey("a.png"), new Texture2D(image));
+        cache.addToCache(new TextureKey("b.png"), new Texture2D(new Image()));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(7, image.getId());
+
+        // the renderer deletes the image on its next frame
+        objectManager.deleteUnused(new NullRenderer() {
+            @Override
+            public void deleteImage(Image image) {
+                image.resetObject();
+            }
+        });
+        assertEquals(-1, image.getId());
+        // and uploads it again if it is still used
+        assertTrue(image.isUpdateNeeded());
+    }
+
+    @Test
+    public void testReplacingAssetUpdatesSize() {
+        cache.addToCache(key("a"), new SizedAsset(30));
+        cache.addToCache(key("a"), new SizedAsset(50));
+        assertEquals(1, cache.getSize());
+        assertEquals(50, cache.getUsedBytes());
+    }
+}
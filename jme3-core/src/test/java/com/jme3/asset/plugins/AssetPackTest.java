@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset.plugins;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import jme3tools.pack.AssetPacker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests writing packs with {@link AssetPacker} and reading them back with
+ * {@link AssetPack} and {@link PackLocator}.
+ */
+public class AssetPackTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("pack", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File file(String name, byte[] data) throws IOException {
+        File file = new File(directory, name);
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] text(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + i % 7);
+        }
+        return data;
+    }
+
+    private static byte[] noise(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    private static byte[] bytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[100];
+        int n;
+        while ((n = in.read(chunk)) >= 0) {
+            out.write(chunk, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static void assertEntry(AssetPack pack, String name, byte[] expected, int method) throws IOException {
+        int index = pack.find(name);
+        assertTrue(name, index >= 0);
+        assertEquals(name, method, pack.getMethod(index));
+        assertEquals(expected.length, pack.getSize(index));
+        ByteBuffer buffer = pack.getBuffer(index);
+        assertEquals(0, buffer.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+        assertArrayEquals(expected, bytes(buffer));
+        assertArrayEquals(expected, bytes(pack.openStream(index)));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] text = text(10000);
+        byte[] noise = noise(3000, 1);
+        byte[] image = text(500);
+
+        AssetPacker packer = new AssetPacker();
+        packer.addFile("Text/Readme.txt", file("a.txt", text));
+        packer.addFile("/Noise/data.bin", file("b.bin", noise));
+        packer.addFile("Textures\\Sky.png", file("c.png", image));
+        packer.addFile("Empty.txt", file("d.txt", new byte[0]));
+        packer.addFile("Text/été.txt", file("e.txt", text(33)));
+        File packFile = new File(directory, "test.jpk");
+        packer.write(packFile);
+
+        AssetPack pack = AssetPack.open(packFile);
+        assertEquals(5, pack.getNumEntries());
+        assertEquals(Arrays.asList("Text/Readme.txt", "Noise/data.bin", "Textures/Sky.png",
+                "Empty.txt", "Text/été.txt"), names(pack));
+
+        assertEntry(pack, "Text/Readme.txt", text, AssetPack.DEFLATED);
+        assertTrue(pack.getStoredSize(pack.find("Text/Readme.txt")) < text.length / 10);
+        // incompressible data is stored
+        assertEntry(pack, "Noise/data.bin", noise, AssetPack.STORED);
+        // so are formats read directly from memory, even if they compress
+        assertEntry(pack, "/Textures/Sky.png", image, AssetPack.STORED);
+        assertEntry(pack, "Empty.txt", new byte[0], AssetPack.STORED);
+        assertEntry(pack, "Text/été.txt", text(33), AssetPack.DEFLATED);
+
+        // stored entries are slices of the mapping
+        ByteBuffer stored = pack.getBuffer(pack.find("Noise/data.bin"));
+        assertTrue(stored.isReadOnly());
+        assertTrue(stored.isDirect());
+        assertEquals(-1, pack.find("Text/readme.txt"));
+        assertEquals(-1, pack.find("Text/Readme.tx"));
+    }
+
+    @Test
+    public void testAlignment() throws IOException {
+        AssetPacker packer = new AssetPacker();
+        packer.setCompressionThreshold(0);
+        for (int i = 0; i < 5; i++) {
+            packer.addFile("f" + i, file("f" + i, noise(i * 7 + 1, i)));
+        }
+        File packFile = new File(directory, "test.jpk");
+        packer.write(packFile);
+
+        AssetPack pack = AssetPack.open(packFile);
+        ByteBuffer table = ByteBuffer.wrap(readFile(packFile)).order(ByteOrder.LITTLE_ENDIAN);
+        int numSlots = table.getInt(12);
+        int entries = (int) table.getLong(16) + numSlots * 4;
+        for (int i = 0; i < 5; i++) {
+            long offset = table.getLong(entries + i * AssetPack.ENTRY_SIZE + 16);
+            assertEquals(0, offset % AssetPack.ALIGNMENT);
+            assertEquals(AssetPack.STORED, pack.getMethod(i));
+            assertArrayEquals(noise(i * 7 + 1, i), bytes(pack.getBuffer(i)));
+        }
+    }
+
+    @Test
+    public void testHashCollisions() throws IOException {
+        // "Aa", "BB" and "C#" have the same String hash code
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals("Aa".hashCode(), "C#".hashCode());
+
+        AssetPacker packer = new AssetPacker();
+        packer.addFile("Models/Aa.j3o", file("1", text(10)));
+        packer.addFile("Models/BB.j3o", file("2", text(20)));
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < 300; i++) {
+            String name = "Textures/Tex" + i + ".dds";
+            names.add(name);
+            packer.addFile(name, file("t" + i, noise(i, i)));
+        }
+        File packFile = new File(directory, "test.jpk");
+        packer.write(packFile);
+
+        AssetPack pack = AssetPack.open(packFile);
+        assertEquals(AssetPack.hash("Models/Aa.j3o"), AssetPack.hash("Models/BB.j3o"));
+        assertEntry(pack, "Models/Aa.j3o", text(10), AssetPack.STORED);
+        assertEntry(pack, "Models/BB.j3o", text(20), AssetPack.STORED);
+        // same hash as two entries, but not in the pack
+        assertEquals(-1, pack.find("Models/C#.j3o"));
+
+        for (int i = 0; i < names.size(); i++) {
+            assertEquals(i + 2, pack.find(names.get(i)));
+        }
+        for (int i = 300; i < 1000; i++) {
+            assertEquals(-1, pack.find("Textures/Tex" + i + ".dds"));
+        }
+    }
+
+    @Test
+    public void testEmptyPack() throws IOException {
+        File packFile = new File(directory, "test.jpk");
+        new AssetPacker().write(packFile);
+        AssetPack pack = AssetPack.open(packFile);
+        assertEquals(0, pack.getNumEntries());
+        assertEquals(-1, pack.find("Anything"));
+    }
+
+    @Test
+    public void testAddDirectory() throws IOException {
+        File root = new File(directory, "assets");
+        file("assets/b/x.txt", text(5));
+        file("assets/a.txt", text(6));
+        file("assets/b/c/y.txt", text(7));
+        AssetPacker packer = new AssetPacker();
+        packer.addDirectory(root);
+        File packFile = new File(directory, "test.jpk");
+        packer.write(packFile);
+
+        assertEquals(Arrays.asList("a.txt", "b/c/y.txt", "b/x.txt"), names(AssetPack.open(packFile)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAPack() throws IOException {
+        AssetPack.open(file("text.txt", text(100)));
+    }
+
+    @Test
+    public void testCorruptEntry() throws IOException {
+        AssetPacker packer = new AssetPacker();
+        packer.addFile("a.txt", file("a.txt", text(5000)));
+        File packFile = new File(directory, "test.jpk");
+        packer.write(packFile);
+
+        RandomAccessFile raf = new RandomAccessFile(packFile, "rw");
+        try {
+            raf.seek(AssetPack.HEADER_SIZE);
+            raf.write(noise(8, 3));
+        } finally {
+            raf.close();
+        }
+        AssetPack pack = AssetPack.open(packFile);
+        assertEquals(AssetPack.DEFLATED, pack.getMethod(0));
+        try {
+            pack.getBuffer(0);
+            fail("corrupt entry inflated");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("a.txt"));
+        }
+    }
+
+    @Test
+    public void testPackLocator() throws IOException {
+        AssetPacker packer = new AssetPacker();
+        packer.addFile("Text/a.txt", file("a.txt", text(4000)));
+        packer.addFile("Textures/b.dds", file("b.dds", noise(100, 4)));
+        File packFile = new File(directory, "test.jpk");
+        packer.write(packFile);
+
+        PackLocator locator = new PackLocator();
+        locator.setRootPath(packFile.getPath());
+        assertEquals(Arrays.asList("Text/a.txt", "Textures/b.dds"), new ArrayList<String>(locator.listAssets()));
+
+        AssetInfo info = locator.locate(null, new AssetKey<Object>("Text/a.txt"));
+        assertArrayEquals(text(4000), bytes(info.openStream()));
+        assertArrayEquals(text(4000), bytes(info.openBuffer()));
+        info = locator.locate(null, new AssetKey<Object>("Textures/b.dds"));
+        assertArrayEquals(noise(100, 4), bytes(info.openBuffer()));
+        assertNull(locator.locate(null, new AssetKey<Object>("Textures/c.dds")));
+    }
+
+    private static List<String> names(AssetPack pack) {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < pack.getNumEntries(); i++) {
+            names.add(pack.getName(i));
+        }
+        return names;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return data;
+        } finally {
+            raf.close();
+        }
+    }
+}
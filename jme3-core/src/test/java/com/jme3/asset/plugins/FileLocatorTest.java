@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset.plugins;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetNotFoundException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests listing and locating assets with {@link FileLocator}.
+ */
+public class FileLocatorTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("locator", "").getCanonicalFile();
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    private static void delete(File file) {
+        // never follow links out of the temporary directory
+        File[] children = Files.isSymbolicLink(file.toPath()) ? null : file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File file(String name) throws IOException {
+        File file = new File(directory, name);
+        file.getParentFile().mkdirs();
+        new FileOutputStream(file).close();
+        return file;
+    }
+
+    private void link(String name, File target) {
+        try {
+            Files.createSymbolicLink(new File(directory, name).toPath(), target.toPath());
+        } catch (IOException ex) {
+            Assume.assumeNoException(ex);
+        } catch (UnsupportedOperationException ex) {
+            Assume.assumeNoException(ex);
+        }
+    }
+
+    private List<String> list() {
+        FileLocator locator = new FileLocator();
+        locator.setRootPath(directory.getPath());
+        List<String> names = new ArrayList<String>(locator.listAssets());
+        Collections.sort(names);
+        return names;
+    }
+
+    @Test
+    public void testListAssets() throws IOException {
+        file("a.txt");
+        file("b/c/y.txt");
+        file("b/x.txt");
+        new File(directory, "empty").mkdirs();
+        assertEquals(Arrays.asList("a.txt", "b/c/y.txt", "b/x.txt"), list());
+    }
+
+    @Test
+    public void testSymbolicLinkCycle() throws IOException {
+        file("a.txt");
+        file("b/x.txt");
+        link("b/loop", directory);
+        link("b/self", new File(directory, "b"));
+        assertEquals(Arrays.asList("a.txt", "b/x.txt"), list());
+    }
+
+    @Test
+    public void testSymbolicLinksAreNotListed() throws IOException {
+        File a = file("a.txt");
+        file("b/x.txt");
+        link("c.txt", a);
+        link("d", new File(directory, "b"));
+        assertEquals(Arrays.asList("a.txt", "b/x.txt"), list());
+
+        // consistent with locate(), which rejects the same names
+        FileLocator locator = new FileLocator();
+        locator.setRootPath(directory.getPath());
+        assertNotNull(locator.locate(null, new AssetKey("a.txt")));
+        try {
+            locator.locate(null, new AssetKey("c.txt"));
+            fail();
+        } catch (AssetNotFoundException ex) {
+        }
+        try {
+            locator.locate(null, new AssetKey("d/x.txt"));
+            fail();
+        } catch (AssetNotFoundException ex) {
+        }
+    }
+}
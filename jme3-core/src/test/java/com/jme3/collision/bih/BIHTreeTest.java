@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.collision.bih;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResult;
+import com.jme3.collision.CollisionResults;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Ray;
+import com.jme3.math.Triangle;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.util.BufferUtilsCreator;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that {@link BIHTree} finds the same triangles with both build modes
+ * as a scan over all triangles, and after being saved and loaded.
+ */
+public class BIHTreeTest {
+
+    private static final float SIZE = 20;
+
+    private final Random random = new Random(3);
+
+    private Vector3f randomPoint() {
+        return new Vector3f(random.nextFloat() * SIZE - SIZE / 2,
+                random.nextFloat() * SIZE - SIZE / 2,
+                random.nextFloat() * SIZE - SIZE / 2);
+    }
+
+    private Mesh createMesh(int numTris) {
+        FloatBuffer positions = BufferUtilsCreator.createFloatBuffer(numTris * 9);
+        for (int i = 0; i < numTris; i++) {
+            Vector3f center = randomPoint();
+            // clusters and large triangles make the split choice matter
+            float extent = i % 10 == 0 ? 4 : 0.5f;
+            if (i % 3 == 0) {
+                center.multLocal(0.1f);
+            }
+            for (int v = 0; v < 3; v++) {
+                positions.put(center.x + (random.nextFloat() - 0.5f) * extent)
+                         .put(center.y + (random.nextFloat() - 0.5f) * extent)
+                         .put(center.z + (random.nextFloat() - 0.5f) * extent);
+            }
+        }
+        positions.flip();
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(Type.Position, 3, positions);
+        mesh.updateBound();
+        return mesh;
+    }
+
+    private static BIHTree build(Mesh mesh, BIHTree.BuildMode mode) {
+        BIHTree tree = new BIHTree(mesh);
+        tree.setBuildMode(mode);
+        tree.construct();
+        return tree;
+    }
+
+    private static List<String> collide(BIHTree tree, Mesh mesh, Collidable other) {
+        CollisionResults results = new CollisionResults();
+        int count = tree.collideWith(other, Matrix4f.IDENTITY, mesh.getBound(), results);
+        assertEquals(results.size(), count);
+        List<String> list = new ArrayList<String>();
+        for (CollisionResult result : results) {
+            list.add(Integer.toString(result.getTriangleIndex()));
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    private static List<String> scan(Mesh mesh, Collidable other) {
+        List<String> list = new ArrayList<String>();
+        Triangle t = new Triangle();
+        CollisionResults results = new CollisionResults();
+        for (int i = 0; i < mesh.getTriangleCount(); i++) {
+            mesh.getTriangle(i, t.get1(), t.get2(), t.get3());
+            boolean hit;
+            if (other instanceof Ray) {
+                hit = !Float.isInfinite(((Ray) other).intersects(t.get1(), t.get2(), t.get3()));
+            } else {
+                results.clear();
+                hit = other.collideWith(t, results) > 0;
+            }
+            if (hit) {
+                list.add(Integer.toString(i));
+            }
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    private List<Collidable> createQueries() {
+        List<Collidable> queries = new ArrayList<Collidable>();
+        for (int i = 0; i < 40; i++) {
+            Vector3f origin = randomPoint().multLocal(2);
+            Vector3f target = randomPoint().multLocal(0.3f);
+            queries.add(new Ray(origin, target.subtractLocal(origin).normalizeLocal()));
+            queries.add(new BoundingBox(randomPoint(), 2, 1, 3));
+            queries.add(new BoundingSphere(2, randomPoint()));
+        }
+        return queries;
+    }
+
+    private void testMatchesScan(int numTris) {
+        Mesh mesh = createMesh(numTris);
+        BIHTree midpoint = build(mesh, BIHTree.BuildMode.Midpoint);
+        BIHTree sah = build(mesh, BIHTree.BuildMode.SurfaceArea);
+        assertTrue(sah.getNodeCount() > 1);
+        assertTrue(sah.getMaxDepth() <= BIHTree.MAX_TREE_DEPTH);
+
+        int hits = 0;
+        for (Collidable query : createQueries()) {
+            List<String> expected = collide(midpoint, mesh, query);
+            List<String> actual = collide(sah, mesh, query);
+            assertEquals(expected, actual);
+            if (query instanceof Ray) {
+                assertEquals(scan(mesh, query), actual);
+            }
+            hits += actual.size();
+        }
+        assertTrue(hits > 0);
+    }
+
+    @Test
+    public void testSmallMesh() {
+        testMatchesScan(200);
+    }
+
+    @Test
+    public void testParallelBuild() {
+        testMatchesScan(BIHTree.PARALLEL_BUILD_THRESHOLD * 3);
+    }
+
+    @Test
+    public void testBoundingVolumesMatchScan() {
+        Mesh mesh = createMesh(500);
+        BIHTree sah = build(mesh, BIHTree.BuildMode.SurfaceArea);
+        for (int i = 0; i < 40; i++) {
+            BoundingVolume box = new BoundingBox(randomPoint(), 2, 1, 3);
+            assertEquals(scan(mesh, box), collide(sah, mesh, box));
+        }
+    }
+
+    @Test
+    public void testSingleTriangle() {
+        Mesh mesh = createMesh(1);
+        BIHTree sah = build(mesh, BIHTree.BuildMode.SurfaceArea);
+        assertEquals(1, sah.getNodeCount());
+        assertEquals(0, sah.getMaxDepth());
+    }
+
+    @Test
+    public void testSaveLoad() {
+        Mesh mesh = createMesh(1000);
+        BIHTree tree = build(mesh, BIHTree.BuildMode.SurfaceArea);
+        BIHTree loaded = BinaryExporter.saveAndLoad(new DesktopAssetManager(), tree);
+        assertEquals(tree.getNodeCount(), loaded.getNodeCount());
+        assertEquals(tree.getMaxDepth(), loaded.getMaxDepth());
+        for (Collidable query : createQueries()) {
+            assertEquals(collide(tree, mesh, query), collide(loaded, mesh, query));
+        }
+    }
+
+    private static Object getField(BIHTree tree, String name) throws Exception {
+        Field field = BIHTree.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(tree);
+    }
+
+    @Test
+    public void testReadFlattenedLayout() throws Exception {
+        // trees saved before the linked nodes were written again only
+        // contain the flattened arrays
+        Mesh mesh = createMesh(1000);
+        BIHTree tree = build(mesh, BIHTree.BuildMode.SurfaceArea);
+        final Map<String, Object> fields = new HashMap<String, Object>();
+        fields.put("mesh", mesh);
+        fields.put("tris_per_node", BIHTree.MAX_TRIS_PER_NODE);
+        fields.put("points", getField(tree, "pointData"));
+        fields.put("indices", getField(tree, "triIndices"));
+        fields.put("nodes", getField(tree, "nodes"));
+        fields.put("planes", getField(tree, "planes"));
+
+        final InputCapsule capsule = (InputCapsule) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { InputCapsule.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                Object value = fields.get((String) args[0]);
+                return value != null ? value : args[1];
+            }
+        });
+        JmeImporter importer = (JmeImporter) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { JmeImporter.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return capsule;
+            }
+        });
+
+        BIHTree loaded = new BIHTree();
+        try {
+            loaded.read(importer);
+        } catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+        assertEquals(tree.getNodeCount(), loaded.getNodeCount());
+        assertEquals(tree.getMaxDepth(), loaded.getMaxDepth());
+        for (Collidable query : createQueries()) {
+            assertEquals(collide(tree, mesh, query), collide(loaded, mesh, query));
+        }
+    }
+}
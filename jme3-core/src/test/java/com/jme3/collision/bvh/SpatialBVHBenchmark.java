@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.collision.bvh;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares scene queries with and without {@link SpatialBVH} on a flat
+ * scene, one node with many children, and on a deep scene, a hierarchy of
+ * small groups with the same number of geometries.
+ * <p>
+ * Run it as a plain application, it is not part of the unit tests:
+ * <pre>
+ * java -cp ... com.jme3.collision.bvh.SpatialBVHBenchmark [geometries] [rounds]
+ * </pre>
+ * Each case checks that both scenes return the same number of results, so
+ * the timings are only reported for equivalent work.
+ */
+public class SpatialBVHBenchmark {
+
+    private static final float EXTENT = 200;
+    private static final int BRANCHING = 8;
+
+    private final int geometries;
+    private final Node linear;
+    private final Node indexed;
+    private final List<Geometry> linearLeaves = new ArrayList<Geometry>();
+    private final List<Geometry> indexedLeaves = new ArrayList<Geometry>();
+    private final Random random = new Random(1);
+
+    private SpatialBVHBenchmark(int geometries, boolean deep) {
+        this.geometries = geometries;
+        Box box = new Box(0.5f, 0.5f, 0.5f);
+        Vector3f[] positions = new Vector3f[geometries];
+        for (int i = 0; i < geometries; i++) {
+            positions[i] = randomPosition();
+        }
+        linear = build(box, positions, deep, false, linearLeaves);
+        indexed = build(box, positions, deep, true, indexedLeaves);
+        linear.updateGeometricState();
+        indexed.updateGeometricState();
+    }
+
+    private Node build(Box box, Vector3f[] positions, boolean deep, boolean index,
+            List<Geometry> leaves) {
+        List<Spatial> level = new ArrayList<Spatial>();
+        for (int i = 0; i < positions.length; i++) {
+            Geometry geom = new Geometry("geom " + i, box);
+            geom.setLocalTranslation(positions[i]);
+            level.add(geom);
+            leaves.add(geom);
+        }
+        if (deep) {
+            // group spatially unrelated children, like a scene organized by
+            // asset rather than by location
+            while (level.size() > BRANCHING) {
+                List<Spatial> parents = new ArrayList<Spatial>();
+                for (int i = 0; i < level.size(); i += BRANCHING) {
+                    Node group = new Node("group");
+                    for (int j = i; j < Math.min(i + BRANCHING, level.size()); j++) {
+                        group.attachChild(level.get(j));
+                    }
+                    group.setSpatialIndexEnabled(index);
+                    parents.add(group);
+                }
+                level = parents;
+            }
+        }
+        Node root = new Node("root");
+        for (Spatial spatial : level) {
+            root.attachChild(spatial);
+        }
+        root.setSpatialIndexEnabled(index);
+        return root;
+    }
+
+    private Vector3f randomPosition() {
+        return new Vector3f((random.nextFloat() - 0.5f) * EXTENT,
+                (random.nextFloat() - 0.5f) * EXTENT,
+                (random.nextFloat() - 0.5f) * EXTENT);
+    }
+
+    private Collidable[] createQueries(int count) {
+        Collidable[] queries = new Collidable[count];
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                queries[i] = new Ray(randomPosition(), randomPosition().normalizeLocal());
+            } else {
+                queries[i] = new BoundingBox(randomPosition(), 5, 5, 5);
+            }
+        }
+        return queries;
+    }
+
+    private static long collide(Node scene, Collidable[] queries) {
+        long hits = 0;
+        CollisionResults results = new CollisionResults();
+        for (Collidable query : queries) {
+            results.clear();
+            hits += scene.collideWith(query, results);
+        }
+        return hits;
+    }
+
+    private long move(Node scene, List<Geometry> leaves, long seed) {
+        // move a few percent of the geometries, then pick once
+        Random moves = new Random(seed);
+        int count = Math.max(1, geometries / 20);
+        for (int i = 0; i < count; i++) {
+            Geometry geom = leaves.get(moves.nextInt(geometries));
+            geom.getLocalTranslation().addLocal(moves.nextFloat() * 4 - 2, moves.nextFloat() * 4 - 2,
+                    moves.nextFloat() * 4 - 2);
+            geom.setLocalTranslation(geom.getLocalTranslation());
+        }
+        scene.updateGeometricState();
+        Ray ray = new Ray(new Vector3f(0, 0, -EXTENT), Vector3f.UNIT_Z);
+        return scene.collideWith(ray, new CollisionResults());
+    }
+
+    private static void report(String name, long linearNanos, long indexedNanos, int operations) {
+        System.out.println(String.format("  %-20s linear %10.2f us  indexed %10.2f us  speedup %6.2fx",
+                name, linearNanos / 1000.0 / operations, indexedNanos / 1000.0 / operations,
+                (double) linearNanos / indexedNanos));
+    }
+
+    private static void check(long expected, long actual) {
+        if (expected != actual) {
+            throw new IllegalStateException("Indexed scene returned " + actual
+                    + " results, expected " + expected);
+        }
+    }
+
+    private void run(int rounds, boolean print) {
+        Collidable[] queries = createQueries(200);
+
+        long start = System.nanoTime();
+        long expected = 0;
+        for (int i = 0; i < rounds; i++) {
+            expected += collide(linear, queries);
+        }
+        long linearNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        long actual = 0;
+        for (int i = 0; i < rounds; i++) {
+            actual += collide(indexed, queries);
+        }
+        long indexedNanos = System.nanoTime() - start;
+        check(expected, actual);
+        if (print) {
+            report("queries", linearNanos, indexedNanos, rounds * queries.length);
+        }
+
+        start = System.nanoTime();
+        expected = 0;
+        for (int i = 0; i < rounds; i++) {
+            expected += move(linear, linearLeaves, i);
+        }
+        linearNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        actual = 0;
+        for (int i = 0; i < rounds; i++) {
+            actual += move(indexed, indexedLeaves, i);
+        }
+        indexedNanos = System.nanoTime() - start;
+        check(expected, actual);
+        if (print) {
+            report("move and pick", linearNanos, indexedNanos, rounds);
+        }
+    }
+
+    public static void main(String[] args) {
+        int geometries = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        for (boolean deep : new boolean[]{false, true}) {
+            SpatialBVHBenchmark benchmark = new SpatialBVHBenchmark(geometries, deep);
+            // warm up the JIT before measuring
+            benchmark.run(Math.max(1, rounds / 4), false);
+            System.out.println((deep ? "Deep" : "Flat") + " scene, " + geometries + " geometries:");
+            benchmark.run(rounds, true);
+        }
+    }
+}
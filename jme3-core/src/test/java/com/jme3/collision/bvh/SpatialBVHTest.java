@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.collision.bvh;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResult;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the queries of a node with a spatial index against the same node
+ * without one.
+ */
+public class SpatialBVHTest {
+
+    private static final int CHILDREN = 300;
+
+    private final Random random = new Random(5);
+    private Node indexed;
+    private Node linear;
+
+    @Before
+    public void setUp() {
+        indexed = new Node("indexed");
+        linear = new Node("linear");
+        Box box = new Box(0.5f, 0.5f, 0.5f);
+        for (int i = 0; i < CHILDREN; i++) {
+            Vector3f position = randomPosition();
+            indexed.attachChild(createChild(box, i, position));
+            linear.attachChild(createChild(box, i, position));
+        }
+        indexed.setSpatialIndexEnabled(true);
+        update();
+    }
+
+    private Geometry createChild(Box box, int index, Vector3f position) {
+        Geometry geom = new Geometry("child " + index, box);
+        geom.setLocalTranslation(position);
+        return geom;
+    }
+
+    private Vector3f randomPosition() {
+        return new Vector3f(random.nextFloat() * 40 - 20,
+                random.nextFloat() * 40 - 20,
+                random.nextFloat() * 40 - 20);
+    }
+
+    private void update() {
+        indexed.updateGeometricState();
+        linear.updateGeometricState();
+    }
+
+    private void moveChildren(int count) {
+        for (int i = 0; i < count; i++) {
+            int index = random.nextInt(CHILDREN);
+            Vector3f position = randomPosition();
+            indexed.getChild(index).setLocalTranslation(position);
+            linear.getChild(index).setLocalTranslation(position);
+        }
+        update();
+    }
+
+    private static List<String> describe(CollisionResults results) {
+        List<String> list = new ArrayList<String>();
+        for (CollisionResult result : results) {
+            list.add(result.getGeometry().getName() + " " + result.getTriangleIndex()
+                    + " " + result.getDistance());
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    private void assertSameCollisions(Collidable other) {
+        CollisionResults expected = new CollisionResults();
+        CollisionResults actual = new CollisionResults();
+        int expectedCount = linear.collideWith(other, expected);
+        int actualCount = indexed.collideWith(other, actual);
+        assertEquals(expectedCount, actualCount);
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    private void assertSameQueries() {
+        for (int i = 0; i < 50; i++) {
+            Vector3f origin = randomPosition();
+            Vector3f direction = randomPosition().normalizeLocal();
+            assertSameCollisions(new Ray(origin, direction));
+            assertSameCollisions(new BoundingBox(randomPosition(), 3, 2, 4));
+            assertSameCollisions(new BoundingSphere(3, randomPosition()));
+        }
+    }
+
+    @Test
+    public void testCollisions() {
+        assertSameQueries();
+    }
+
+    @Test
+    public void testCollisionsAfterMoving() {
+        for (int i = 0; i < 5; i++) {
+            moveChildren(40);
+            assertSameQueries();
+        }
+    }
+
+    @Test
+    public void testCollisionsAfterDetaching() {
+        for (int i = 0; i < 100; i++) {
+            indexed.detachChildAt(0);
+            linear.detachChildAt(0);
+        }
+        update();
+        assertEquals(CHILDREN - 100, indexed.getSpatialIndex().size());
+        assertSameQueries();
+    }
+
+    @Test
+    public void testFindChildrenIntersecting() {
+        for (int i = 0; i < 50; i++) {
+            BoundingSphere volume = new BoundingSphere(4, randomPosition());
+            List<String> expected = new ArrayList<String>();
+            for (Spatial child : linear.getChildren()) {
+                if (volume.intersects(child.getWorldBound())) {
+                    expected.add(child.getName());
+                }
+            }
+            List<Spatial> found = new ArrayList<Spatial>();
+            assertEquals(expected.size(), indexed.findChildrenIntersecting(volume, found));
+            List<String> actual = new ArrayList<String>();
+            for (Spatial child : found) {
+                actual.add(child.getName());
+            }
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+        }
+    }
+
+    private static float boxDistance(Vector3f point, BoundingBox box) {
+        Vector3f min = box.getMin(null);
+        Vector3f max = box.getMax(null);
+        float dx = Math.max(Math.max(min.x - point.x, point.x - max.x), 0);
+        float dy = Math.max(Math.max(min.y - point.y, point.y - max.y), 0);
+        float dz = Math.max(Math.max(min.z - point.z, point.z - max.z), 0);
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    @Test
+    public void testFindNearestChildren() {
+        moveChildren(40);
+        for (int i = 0; i < 50; i++) {
+            Vector3f point = randomPosition();
+            int k = 1 + random.nextInt(10);
+            List<Float> expected = new ArrayList<Float>();
+            for (Spatial child : linear.getChildren()) {
+                expected.add(boxDistance(point, (BoundingBox) child.getWorldBound()));
+            }
+            Collections.sort(expected);
+
+            List<Spatial> found = new ArrayList<Spatial>();
+            assertEquals(k, indexed.findNearestChildren(point, k, found));
+            for (int j = 0; j < k; j++) {
+                float distance = boxDistance(point, (BoundingBox) found.get(j).getWorldBound());
+                assertEquals(expected.get(j), distance, 1e-4f);
+            }
+        }
+    }
+}
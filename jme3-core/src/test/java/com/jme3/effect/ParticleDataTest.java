@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.effect;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.effect.influencers.BatchParticleInfluencer;
+import com.jme3.effect.influencers.DefaultParticleInfluencer;
+import com.jme3.effect.influencers.NewtonianParticleInfluencer;
+import com.jme3.effect.influencers.RadialParticleInfluencer;
+import com.jme3.effect.shapes.EmitterShape;
+import com.jme3.effect.shapes.EmitterSphereShape;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.VertexBuffer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the structure of arrays used by batch simulation gives the
+ * same results as the per-particle objects.
+ */
+public class ParticleDataTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void testAliveParticlesStayPacked() {
+        ParticleData data = new ParticleData(4);
+        for (int i = 0; i < 4; i++) {
+            int index = data.add();
+            assertEquals(i, index);
+            data.life[index] = i + 1;
+            data.positionX[index] = i;
+        }
+        assertEquals(-1, data.add());
+
+        data.kill(1);
+        assertEquals(3, data.getNumParticles());
+        // the last particle moves in place of the dead one
+        assertEquals(4f, data.life[1], 0f);
+        assertEquals(3f, data.positionX[1], 0f);
+        assertEquals(0f, data.life[3], 0f);
+
+        data.kill(2);
+        assertEquals(2, data.getNumParticles());
+        assertEquals(1f, data.life[0], 0f);
+        assertEquals(4f, data.life[1], 0f);
+
+        // new particles start from zero
+        int index = data.add();
+        assertEquals(2, index);
+        assertEquals(0f, data.positionX[index], 0f);
+        assertEquals(0f, data.life[index], 0f);
+
+        ParticleData copy = data.copy();
+        assertEquals(3, copy.getNumParticles());
+        assertEquals(4f, copy.life[1], 0f);
+        assertNotSame(data.life, copy.life);
+
+        data.clear();
+        assertEquals(0, data.getNumParticles());
+        assertEquals(0f, data.life[0], 0f);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testKillDeadParticle() {
+        ParticleData data = new ParticleData(4);
+        data.add();
+        data.kill(1);
+    }
+
+    @Test
+    public void testParticleRoundTrip() {
+        ParticleData data = new ParticleData(2);
+        Particle p = randomParticle(new Random(1));
+        data.set(data.add(), p);
+        Particle copy = new Particle();
+        data.get(0, copy);
+        assertParticleEquals(p, copy, 0f);
+        assertEquals(p.color.asIntABGR(), data.getColorABGR(0));
+    }
+
+    @Test
+    public void testBatchInfluencers() {
+        EmitterShape shape = new EmitterSphereShape(new Vector3f(1, 2, 3), 2);
+
+        DefaultParticleInfluencer defaultInfluencer = new DefaultParticleInfluencer();
+        defaultInfluencer.setInitialVelocity(new Vector3f(0, 3, 1));
+        defaultInfluencer.setVelocityVariation(0.4f);
+        assertSameInfluence(defaultInfluencer, shape);
+
+        NewtonianParticleInfluencer newtonian = new NewtonianParticleInfluencer();
+        newtonian.setNormalVelocity(2);
+        newtonian.setVelocityVariation(0.5f);
+        assertSameInfluence(newtonian, shape);
+        newtonian.setSurfaceTangentFactor(0.5f);
+        assertSameInfluence(newtonian, shape);
+        newtonian.setSurfaceTangentRotation(0.3f);
+        assertSameInfluence(newtonian, shape);
+
+        RadialParticleInfluencer radial = new RadialParticleInfluencer();
+        radial.setInitialVelocity(new Vector3f(1, 1, 0));
+        radial.setRadialVelocity(2);
+        radial.setVelocityVariation(0.3f);
+        assertSameInfluence(radial, shape);
+        radial.setHorizontal(true);
+        assertSameInfluence(radial, shape);
+    }
+
+    @Test
+    public void testTriMeshBuffers() {
+        Random random = new Random(2);
+        ParticleEmitter emitter = new ParticleEmitter("Emitter", ParticleMesh.Type.Triangle, 32);
+        for (int pass = 0; pass < 3; pass++) {
+            if (pass == 1) {
+                emitter.setFaceNormal(new Vector3f(0, 1, 1));
+            } else if (pass == 2) {
+                emitter.setFaceNormal(null);
+                emitter.setFacingVelocity(true);
+            }
+            ParticleTriMesh batch = new ParticleTriMesh();
+            ParticleTriMesh single = new ParticleTriMesh();
+            assertSameMeshData(emitter, batch, single, random);
+        }
+    }
+
+    @Test
+    public void testPointMeshBuffers() {
+        Random random = new Random(3);
+        ParticleEmitter emitter = new ParticleEmitter("Emitter", ParticleMesh.Type.Point, 32);
+        assertSameMeshData(emitter, new ParticlePointMesh(), new ParticlePointMesh(), random);
+    }
+
+    @Test
+    public void testBatchSimulation() {
+        assertSameSimulation(false);
+    }
+
+    @Test
+    public void testParallelBatchSimulation() {
+        assertSameSimulation(true);
+    }
+
+    @Test
+    public void testSwitchingKeepsParticles() {
+        ParticleEmitter emitter = createEmitter();
+        for (int frame = 0; frame < 30; frame++) {
+            step(emitter, frame);
+        }
+        Particle[] before = aliveParticles(emitter);
+        assertTrue(before.length > 0);
+
+        emitter.setBatchSimulation(true);
+        assertNotNull(emitter.getParticleData());
+        assertParticlesEqual(before, aliveParticles(emitter));
+
+        emitter.setBatchSimulation(false);
+        assertNull(emitter.getParticleData());
+        assertParticlesEqual(before, aliveParticles(emitter));
+    }
+
+    private void assertSameSimulation(boolean parallel) {
+        ParticleEmitter single = createEmitter();
+        ParticleEmitter batch = createEmitter();
+        batch.setBatchSimulation(true);
+        batch.setParallelUpdate(parallel);
+
+        for (int frame = 0; frame < 120; frame++) {
+            step(single, frame);
+            step(batch, frame);
+            if (frame % 10 == 9) {
+                Particle[] expected = aliveParticles(single);
+                Particle[] actual = aliveParticles(batch);
+                assertParticlesEqual(expected, actual);
+                assertEquals(expected.length, batch.getNumVisibleParticles());
+                assertBoundFits(actual, (BoundingBox) batch.getModelBound());
+            }
+        }
+
+        single.killAllParticles();
+        batch.killAllParticles();
+        assertEquals(0, aliveParticles(batch).length);
+        single.emitParticles(5);
+        batch.emitParticles(5);
+        assertParticlesEqual(aliveParticles(single), aliveParticles(batch));
+    }
+
+    // an emitter whose particles only differ by their age and the position
+    // of the emitter when they were spawned, so that both simulations draw
+    // the same particles whatever the order of the random numbers
+    private ParticleEmitter createEmitter() {
+        ParticleEmitter emitter = new ParticleEmitter("Emitter", ParticleMesh.Type.Triangle, 40);
+        emitter.getParticleInfluencer().setInitialVelocity(new Vector3f(1, 4, 0));
+        emitter.getParticleInfluencer().setVelocityVariation(0);
+        emitter.setLowLife(1.5f);
+        emitter.setHighLife(1.5f);
+        emitter.setParticlesPerSec(30);
+        emitter.setGravity(0, 2, 0);
+        emitter.setStartColor(new ColorRGBA(1, 0.5f, 0, 1));
+        emitter.setEndColor(new ColorRGBA(0, 0, 1, 0));
+        emitter.setStartSize(0.5f);
+        emitter.setEndSize(2);
+        emitter.setImagesX(2);
+        emitter.setImagesY(2);
+        return emitter;
+    }
+
+    private void step(ParticleEmitter emitter, int frame) {
+        float tpf = frame % 7 == 0 ? 0.05f : 1f / 60f;
+        emitter.setLocalTranslation(frame * 0.1f, FastMath.sin(frame * 0.2f), 0);
+        emitter.updateLogicalState(tpf);
+        emitter.updateGeometricState();
+    }
+
+    // the alive particles, oldest first
+    private Particle[] aliveParticles(ParticleEmitter emitter) {
+        Particle[] particles = emitter.getParticles();
+        int count = 0;
+        for (Particle p : particles) {
+            if (p.life > 0) {
+                count++;
+            }
+        }
+        Particle[] alive = new Particle[count];
+        count = 0;
+        for (Particle p : particles) {
+            if (p.life > 0) {
+                alive[count] = new Particle();
+                copy(p, alive[count++]);
+            }
+        }
+        Arrays.sort(alive, new Comparator<Particle>() {
+            public int compare(Particle p1, Particle p2) {
+                return Float.compare(p1.life, p2.life);
+            }
+        });
+        return alive;
+    }
+
+    // the bound of the particle data is exact, the per-particle update also
+    // includes the spawn point of the new particles
+    private void assertBoundFits(Particle[] particles, BoundingBox bound) {
+        Vector3f min = new Vector3f(Vector3f.POSITIVE_INFINITY);
+        Vector3f max = new Vector3f(Vector3f.NEGATIVE_INFINITY);
+        for (Particle p : particles) {
+            min.minLocal(p.position.subtract(p.size, p.size, p.size));
+            max.maxLocal(p.position.add(p.size, p.size, p.size));
+        }
+        assertVectorEquals(min, bound.getMin(null));
+        assertVectorEquals(max, bound.getMax(null));
+    }
+
+    private void assertSameInfluence(BatchParticleInfluencer influencer, EmitterShape shape) {
+        int count = 50;
+        FastMath.rand.setSeed(42);
+        Particle[] expected = new Particle[count];
+        for (int i = 0; i < count; i++) {
+            expected[i] = new Particle();
+            influencer.influenceParticle(expected[i], shape);
+        }
+
+        FastMath.rand.setSeed(42);
+        ParticleData data = new ParticleData(count + 5);
+        // leave particles before the range untouched
+        for (int i = 0; i < count + 5; i++) {
+            data.add();
+        }
+        data.positionX[2] = 7;
+        influencer.influenceParticles(data, 5, count + 5, shape);
+        assertEquals(7f, data.positionX[2], 0f);
+
+        Particle actual = new Particle();
+        for (int i = 0; i < count; i++) {
+            data.get(i + 5, actual);
+            assertVectorEquals(expected[i].position, actual.position);
+            assertVectorEquals(expected[i].velocity, actual.velocity);
+        }
+    }
+
+    private void assertSameMeshData(ParticleEmitter emitter, ParticleMesh batch, ParticleMesh single, Random random) {
+        int capacity = 32;
+        batch.initParticleData(emitter, capacity);
+        single.initParticleData(emitter, capacity);
+        batch.setImagesXY(2, 2);
+        single.setImagesXY(2, 2);
+
+        for (int count : new int[]{20, 32, 5, 0}) {
+            ParticleData data = new ParticleData(capacity);
+            Particle[] particles = new Particle[capacity];
+            for (int i = 0; i < capacity; i++) {
+                particles[i] = new Particle();
+                if (i < count) {
+                    Particle p = randomParticle(random);
+                    copy(p, particles[i]);
+                    data.set(data.add(), p);
+                }
+            }
+
+            batch.updateParticleData(data, new Camera(640, 480), new Matrix3f());
+            single.updateParticleData(particles, new Camera(640, 480), new Matrix3f());
+
+            // only the alive particles are written by both meshes, the
+            // index buffer never changes
+            for (VertexBuffer vb : single.getBufferList()) {
+                Buffer expected = vb.getData();
+                int end = expected.limit() / capacity * count;
+                assertBufferEquals(vb.getBufferType().name(), expected,
+                        batch.getBuffer(vb.getBufferType()).getData(), 0, end);
+            }
+
+            // dead particles are hidden, quads are collapsed and points
+            // have no size
+            VertexBuffer.Type hidden = batch instanceof ParticleTriMesh
+                    ? VertexBuffer.Type.Position : VertexBuffer.Type.Size;
+            FloatBuffer expected = (FloatBuffer) single.getBuffer(hidden).getData();
+            int start = expected.limit() / capacity * count;
+            assertBufferEquals(hidden.name(), FloatBuffer.allocate(expected.limit()),
+                    batch.getBuffer(hidden).getData(), start, expected.limit());
+        }
+    }
+
+    private void assertBufferEquals(String name, Buffer expected, Buffer actual, int start, int end) {
+        if (expected instanceof FloatBuffer) {
+            FloatBuffer e = (FloatBuffer) expected;
+            FloatBuffer a = (FloatBuffer) actual;
+            for (int i = start; i < end; i++) {
+                assertEquals(name + "[" + i + "]", e.get(i), a.get(i), EPSILON);
+            }
+        } else if (expected instanceof ByteBuffer) {
+            ByteBuffer e = (ByteBuffer) expected;
+            ByteBuffer a = (ByteBuffer) actual;
+            for (int i = start; i < end; i++) {
+                assertEquals(name + "[" + i + "]", e.get(i), a.get(i));
+            }
+        }
+    }
+
+    private Particle randomParticle(Random random) {
+        Particle p = new Particle();
+        p.position.set(random.nextFloat() * 10, random.nextFloat() * 10, random.nextFloat() * 10);
+        p.velocity.set(random.nextFloat() - 0.5f, random.nextFloat(), random.nextFloat() - 0.5f);
+        p.color.set(random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat());
+        p.size = 0.1f + random.nextFloat();
+        p.startlife = 1 + random.nextFloat() * 5;
+        p.life = p.startlife * random.nextFloat() + 0.01f;
+        p.angle = random.nextBoolean() ? 0 : random.nextFloat() * FastMath.TWO_PI;
+        p.rotateSpeed = random.nextFloat();
+        p.imageIndex = random.nextInt(4);
+        return p;
+    }
+
+    private void copy(Particle from, Particle to) {
+        to.position.set(from.position);
+        to.velocity.set(from.velocity);
+        to.color.set(from.color);
+        to.size = from.size;
+        to.life = from.life;
+        to.startlife = from.startlife;
+        to.angle = from.angle;
+        to.rotateSpeed = from.rotateSpeed;
+        to.imageIndex = from.imageIndex;
+    }
+
+    private void assertParticlesEqual(Particle[] expected, Particle[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertParticleEquals(expected[i], actual[i], EPSILON);
+        }
+    }
+
+    private void assertParticleEquals(Particle expected, Particle actual, float epsilon) {
+        assertVectorEquals(expected.position, actual.position);
+        assertVectorEquals(expected.velocity, actual.velocity);
+        assertEquals(expected.color.r, actual.color.r, epsilon);
+        assertEquals(expected.color.g, actual.color.g, epsilon);
+        assertEquals(expected.color.b, actual.color.b, epsilon);
+        assertEquals(expected.color.a, actual.color.a, epsilon);
+        assertEquals(expected.size, actual.size, epsilon);
+        assertEquals(expected.life, actual.life, epsilon);
+        assertEquals(expected.startlife, actual.startlife, epsilon);
+        assertEquals(expected.angle, actual.angle, epsilon);
+        assertEquals(expected.rotateSpeed, actual.rotateSpeed, epsilon);
+        assertEquals(expected.imageIndex, actual.imageIndex);
+    }
+
+    private void assertVectorEquals(Vector3f expected, Vector3f actual) {
+        assertTrue(expected + " != " + actual, expected.distance(actual) < EPSILON);
+    }
+}
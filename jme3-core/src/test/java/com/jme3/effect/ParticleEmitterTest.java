@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.effect;
+
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.ViewPort;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that emitters which are not visible are updated less often and
+ * catch up once they are.
+ */
+public class ParticleEmitterTest {
+
+    private static final float TPF = 0.125f;
+
+    @Test
+    public void testUpdatesEveryFrameByDefault() {
+        ParticleEmitter emitter = createEmitter();
+        for (int i = 0; i < 4; i++) {
+            frame(emitter, TPF, null);
+            assertFalse(emitter.isSleeping());
+        }
+        assertLivesEqual(reference(TPF, TPF, TPF, TPF), emitter);
+    }
+
+    @Test
+    public void testOffscreenEmitterSleeps() {
+        ParticleEmitter emitter = createEmitter();
+        emitter.setOffscreenUpdateInterval(0.5f);
+        for (int i = 0; i < 3; i++) {
+            frame(emitter, TPF, null);
+            assertTrue(emitter.isSleeping());
+            assertEquals(0, emitter.getNumVisibleParticles());
+        }
+
+        // the elapsed time is simulated in one step
+        frame(emitter, TPF, null);
+        assertTrue(emitter.isSleeping());
+        assertLivesEqual(reference(0.5f), emitter);
+
+        frame(emitter, TPF, null);
+        assertLivesEqual(reference(0.5f), emitter);
+    }
+
+    @Test
+    public void testBatchEmitterSleeps() {
+        ParticleEmitter emitter = createEmitter();
+        emitter.setBatchSimulation(true);
+        emitter.setOffscreenUpdateInterval(0.25f);
+        frame(emitter, TPF, null);
+        assertEquals(0, emitter.getNumVisibleParticles());
+        frame(emitter, TPF, null);
+        assertLivesEqual(reference(0.25f), emitter);
+    }
+
+    @Test
+    public void testRenderedEmitterUpdates() {
+        ParticleEmitter emitter = createEmitter();
+        emitter.setOffscreenUpdateInterval(Float.POSITIVE_INFINITY);
+        Camera cam = createCamera(20);
+        render(emitter, cam);
+        for (int i = 0; i < 4; i++) {
+            frame(emitter, TPF, cam);
+            assertFalse(emitter.isSleeping());
+        }
+        assertLivesEqual(reference(TPF, TPF, TPF, TPF), emitter);
+
+        // not rendered by the last frame
+        frame(emitter, TPF, null);
+        assertFalse(emitter.isSleeping());
+        frame(emitter, TPF, null);
+        assertTrue(emitter.isSleeping());
+    }
+
+    @Test
+    public void testTinyEmitterSleeps() {
+        ParticleEmitter emitter = createEmitter();
+        emitter.setOffscreenUpdateInterval(Float.POSITIVE_INFINITY);
+        emitter.setMinScreenSize(10);
+        emitter.emitAllParticles();
+        emitter.updateGeometricState();
+
+        Camera far = createCamera(5000);
+        frame(emitter, TPF, far);
+        frame(emitter, TPF, far);
+        assertTrue(emitter.isSleeping());
+
+        Camera near = createCamera(20);
+        render(emitter, near);
+        frame(emitter, TPF, near);
+        assertFalse(emitter.isSleeping());
+
+        // the size is ignored without an update interval
+        emitter.setOffscreenUpdateInterval(0);
+        frame(emitter, TPF, far);
+        frame(emitter, TPF, far);
+        assertFalse(emitter.isSleeping());
+    }
+
+    @Test
+    public void testMovingEmitterUpdates() {
+        ParticleEmitter emitter = createEmitter();
+        emitter.setOffscreenUpdateInterval(Float.POSITIVE_INFINITY);
+        // an emitter that was never updated has nothing to follow
+        frame(emitter, TPF, null);
+        assertTrue(emitter.isSleeping());
+        emitter.setLocalTranslation(1, 0, 0);
+        frame(emitter, TPF, null);
+        assertTrue(emitter.isSleeping());
+
+        render(emitter, createCamera(20));
+        frame(emitter, TPF, null);
+        for (int i = 1; i <= 4; i++) {
+            emitter.setLocalTranslation(i + 1, 0, 0);
+            frame(emitter, TPF, null);
+            assertFalse(emitter.isSleeping());
+        }
+        assertTrue(emitter.getNumVisibleParticles() > 0);
+
+        // local space emitters only move their particles with them
+        emitter.setInWorldSpace(false);
+        emitter.setLocalTranslation(10, 0, 0);
+        frame(emitter, TPF, null);
+        assertTrue(emitter.isSleeping());
+    }
+
+    @Test
+    public void testCatchUpIsLimitedToHighLife() {
+        ParticleEmitter emitter = createEmitter();
+        emitter.setOffscreenUpdateInterval(Float.POSITIVE_INFINITY);
+        for (int i = 0; i < 20; i++) {
+            frame(emitter, 1, null);
+        }
+        assertEquals(0, emitter.getNumVisibleParticles());
+
+        // an empty emitter is visible as soon as it is rendered
+        render(emitter, createCamera(20));
+        frame(emitter, TPF, null);
+        assertFalse(emitter.isSleeping());
+        assertLivesEqual(reference(emitter.getHighLife()), emitter);
+    }
+
+    private ParticleEmitter createEmitter() {
+        ParticleEmitter emitter = new ParticleEmitter("Emitter", ParticleMesh.Type.Triangle, 100);
+        emitter.getParticleInfluencer().setInitialVelocity(new Vector3f(0, 1, 0));
+        emitter.getParticleInfluencer().setVelocityVariation(0);
+        emitter.setLowLife(2);
+        emitter.setHighLife(2);
+        emitter.setParticlesPerSec(20);
+        return emitter;
+    }
+
+    private Camera createCamera(float distance) {
+        Camera cam = new Camera(640, 480);
+        cam.setFrustumPerspective(45, 640f / 480f, 1, 10000);
+        cam.setLocation(new Vector3f(0, 0, distance));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+        return cam;
+    }
+
+    private void frame(ParticleEmitter emitter, float tpf, Camera cam) {
+        emitter.updateLogicalState(tpf);
+        emitter.updateGeometricState();
+        if (cam != null) {
+            render(emitter, cam);
+        }
+    }
+
+    private void render(ParticleEmitter emitter, Camera cam) {
+        emitter.getControl(ParticleEmitter.ParticleEmitterControl.class)
+                .render(null, new ViewPort("Test", cam));
+    }
+
+    // the lives of the particles of an emitter that is never throttled
+    // after updates of the given durations
+    private float[] reference(float... updates) {
+        ParticleEmitter emitter = createEmitter();
+        for (float tpf : updates) {
+            frame(emitter, tpf, null);
+        }
+        return lives(emitter);
+    }
+
+    private float[] lives(ParticleEmitter emitter) {
+        float[] lives = new float[emitter.getNumVisibleParticles()];
+        int count = 0;
+        for (Particle p : emitter.getParticles()) {
+            if (p.life > 0) {
+                lives[count++] = p.life;
+            }
+        }
+        assertEquals(lives.length, count);
+        Arrays.sort(lives);
+        return lives;
+    }
+
+    private void assertLivesEqual(float[] expected, ParticleEmitter emitter) {
+        float[] actual = lives(emitter);
+        assertTrue(expected.length > 0);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], 1e-5f);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.export;
+
+import com.jme3.effect.shapes.EmitterBoxShape;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the creation of savables through the factories registered with
+ * {@link SavableClassUtil}.
+ */
+public class SavableClassUtilTest {
+
+    /**
+     * A savable reflection cannot create, it has no empty constructor.
+     */
+    public static class NoEmptyConstructor implements Savable {
+
+        int value;
+
+        public NoEmptyConstructor(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public void write(JmeExporter ex) throws IOException {
+            ex.getCapsule(this).write(value, "value", 0);
+        }
+
+        @Override
+        public void read(JmeImporter im) throws IOException {
+            value = im.getCapsule(this).readInt("value", 0);
+        }
+    }
+
+    private static class CountingFactory implements SavableFactory {
+
+        int created;
+
+        @Override
+        public Savable newInstance() {
+            created++;
+            return new NoEmptyConstructor(-1);
+        }
+    }
+
+    private static final String CLASS_NAME = NoEmptyConstructor.class.getName();
+
+    @After
+    public void unregister() {
+        SavableClassUtil.unregisterFactory(CLASS_NAME);
+    }
+
+    private static byte[] save(Savable savable) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryExporter().save(savable, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRegisteredFactoryIsUsed() throws Exception {
+        CountingFactory factory = new CountingFactory();
+        SavableClassUtil.registerFactory(NoEmptyConstructor.class, factory);
+        assertSame(factory, SavableClassUtil.getFactory(CLASS_NAME));
+
+        Savable savable = SavableClassUtil.fromName(CLASS_NAME);
+        assertTrue(savable instanceof NoEmptyConstructor);
+        assertEquals(1, factory.created);
+
+        savable = SavableClassUtil.fromName(CLASS_NAME, null);
+        assertTrue(savable instanceof NoEmptyConstructor);
+        assertEquals(2, factory.created);
+    }
+
+    @Test
+    public void testRegisteringReplacesFactory() {
+        CountingFactory first = new CountingFactory();
+        CountingFactory second = new CountingFactory();
+        SavableClassUtil.registerFactory(CLASS_NAME, first);
+        SavableClassUtil.registerFactory(CLASS_NAME, second);
+        assertSame(second, SavableClassUtil.getFactory(CLASS_NAME));
+    }
+
+    @Test(expected = InstantiationException.class)
+    public void testUnregisterRestoresReflection() throws Exception {
+        CountingFactory factory = new CountingFactory();
+        SavableClassUtil.registerFactory(CLASS_NAME, factory);
+        assertSame(factory, SavableClassUtil.unregisterFactory(CLASS_NAME));
+        assertNull(SavableClassUtil.getFactory(CLASS_NAME));
+        assertNull(SavableClassUtil.unregisterFactory(CLASS_NAME));
+
+        SavableClassUtil.fromName(CLASS_NAME);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullFactoryIsRejected() {
+        SavableClassUtil.registerFactory(CLASS_NAME, null);
+    }
+
+    @Test
+    public void testEngineSavablesHaveFactories() throws Exception {
+        assertNotNull(SavableClassUtil.getFactory(Node.class.getName()));
+        assertNotNull(SavableClassUtil.getFactory(Geometry.class.getName()));
+
+        Savable node = SavableClassUtil.fromName(Node.class.getName());
+        assertSame(Node.class, node.getClass());
+        assertNotSame(node, SavableClassUtil.fromName(Node.class.getName()));
+    }
+
+    @Test
+    public void testRemappedClassNamesReachFactory() throws Exception {
+        String oldName = "com.jme3.effect.EmitterBoxShape";
+        assertSame(SavableClassUtil.getFactory(EmitterBoxShape.class.getName()),
+                SavableClassUtil.getFactory(oldName));
+        assertSame(EmitterBoxShape.class, SavableClassUtil.fromName(oldName).getClass());
+        assertSame(EmitterBoxShape.class, SavableClassUtil.findClass(oldName, null));
+    }
+
+    @Test
+    public void testImporterUsesFactory() throws IOException {
+        Node node = new Node("root");
+        node.setUserData("first", new NoEmptyConstructor(5));
+        node.setUserData("second", new NoEmptyConstructor(7));
+        byte[] data = save(node);
+
+        CountingFactory factory = new CountingFactory();
+        SavableClassUtil.registerFactory(CLASS_NAME, factory);
+        Node loaded = (Node) BinaryImporter.getInstance().load(data);
+        assertEquals(2, factory.created);
+        NoEmptyConstructor first = loaded.getUserData("first");
+        NoEmptyConstructor second = loaded.getUserData("second");
+        assertEquals(5, first.value);
+        assertEquals(7, second.value);
+    }
+
+    @Test
+    public void testImporterWithoutFactoryUsesReflection() throws IOException {
+        NoEmptyConstructor savable = new NoEmptyConstructor(5);
+        byte[] data = save(savable);
+        // reflection cannot create the class without its empty constructor
+        assertNull(BinaryImporter.getInstance().load(data));
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.export.binary;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtilsCreator;
+import com.jme3.util.IntMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * A savable writing a field of every type supported by the capsules, used
+ * by the binary import and export tests.
+ */
+public class AllFieldsSavable implements Savable {
+
+    byte byteVal;
+    byte[] bytes;
+    byte[][] bytes2d;
+    int intVal;
+    int[] ints;
+    int[][] ints2d;
+    float floatVal;
+    float[] floats;
+    float[][] floats2d;
+    double doubleVal;
+    double[] doubles;
+    double[][] doubles2d;
+    long longVal;
+    long[] longs;
+    long[][] longs2d;
+    short shortVal;
+    short[] shorts;
+    short[][] shorts2d;
+    boolean booleanVal;
+    boolean[] booleans;
+    boolean[][] booleans2d;
+    String string;
+    String[] strings;
+    String[][] strings2d;
+    BitSet bitSet;
+    Savable savable;
+    Savable[] savables;
+    Savable[][] savables2d;
+    ArrayList<Savable> savableList;
+    ArrayList[] savableLists;
+    ArrayList<FloatBuffer> floatBufferList;
+    ArrayList<ByteBuffer> byteBufferList;
+    Map<Savable, Savable> savableMap;
+    Map<String, Savable> stringSavableMap;
+    IntMap<Savable> intSavableMap;
+    FloatBuffer floatBuffer;
+    IntBuffer intBuffer;
+    ByteBuffer byteBuffer;
+    ShortBuffer shortBuffer;
+    VertexBuffer.Type enumVal;
+    AllFieldsSavable child;
+    // read with a default value but never written
+    int missing = -1;
+
+    /**
+     * Serialization only.
+     */
+    public AllFieldsSavable() {
+    }
+
+    /**
+     * Fills every field with random values, the arrays have up to
+     * <code>maxLength</code> elements.
+     */
+    public AllFieldsSavable(Random random, int maxLength) {
+        byteVal = (byte) random.nextInt();
+        bytes = randomBytes(random, maxLength);
+        bytes2d = new byte[][]{randomBytes(random, maxLength), null, randomBytes(random, maxLength)};
+        intVal = random.nextInt();
+        ints = randomInts(random, maxLength);
+        ints2d = new int[][]{randomInts(random, maxLength), randomInts(random, maxLength)};
+        floatVal = random.nextFloat();
+        floats = randomFloats(random, maxLength);
+        floats2d = new float[][]{randomFloats(random, maxLength), randomFloats(random, maxLength)};
+        doubleVal = random.nextDouble();
+        doubles = new double[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = random.nextGaussian();
+        }
+        doubles2d = new double[][]{doubles, {1, 2}};
+        longVal = random.nextLong();
+        longs = new long[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < longs.length; i++) {
+            // small and large values, the capsules compress them
+            longs[i] = random.nextBoolean() ? random.nextInt(300) - 150 : random.nextLong();
+        }
+        longs2d = new long[][]{longs, {}};
+        shortVal = (short) random.nextInt();
+        shorts = new short[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < shorts.length; i++) {
+            shorts[i] = (short) random.nextInt();
+        }
+        shorts2d = new short[][]{shorts, shorts};
+        booleanVal = random.nextBoolean();
+        booleans = new boolean[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < booleans.length; i++) {
+            booleans[i] = random.nextBoolean();
+        }
+        booleans2d = new boolean[][]{booleans, {true}};
+        string = "text café " + random.nextInt();
+        strings = new String[]{"a", null, string};
+        strings2d = new String[][]{strings, {"b"}};
+        bitSet = new BitSet();
+        for (int i = 0; i < 70; i++) {
+            bitSet.set(i, random.nextBoolean());
+        }
+        savable = randomVector(random);
+        savables = new Savable[]{randomVector(random), null, savable};
+        savables2d = new Savable[][]{savables, {randomVector(random)}};
+        savableList = new ArrayList<Savable>(Arrays.asList(randomVector(random), randomVector(random)));
+        savableLists = new ArrayList[]{savableList, new ArrayList<Savable>()};
+        floatBufferList = new ArrayList<FloatBuffer>();
+        floatBufferList.add(BufferUtilsCreator.createFloatBuffer(randomFloats(random, maxLength)));
+        byteBufferList = new ArrayList<ByteBuffer>();
+        byteBufferList.add(createByteBuffer(randomBytes(random, maxLength)));
+        savableMap = new HashMap<Savable, Savable>();
+        savableMap.put(randomVector(random), randomVector(random));
+        stringSavableMap = new HashMap<String, Savable>();
+        stringSavableMap.put("first", randomVector(random));
+        stringSavableMap.put("second", savable);
+        intSavableMap = new IntMap<Savable>();
+        intSavableMap.put(7, randomVector(random));
+        intSavableMap.put(-3, randomVector(random));
+        floatBuffer = BufferUtilsCreator.createFloatBuffer(randomFloats(random, maxLength));
+        int[] intValues = randomInts(random, maxLength);
+        intBuffer = BufferUtilsCreator.createIntBuffer(intValues.length);
+        intBuffer.put(intValues).flip();
+        byteBuffer = createByteBuffer(randomBytes(random, maxLength));
+        shortBuffer = BufferUtilsCreator.createShortBuffer(random.nextInt(maxLength + 1));
+        for (int i = 0; i < shortBuffer.limit(); i++) {
+            shortBuffer.put(i, (short) random.nextInt());
+        }
+        enumVal = VertexBuffer.Type.values()[random.nextInt(VertexBuffer.Type.values().length)];
+    }
+
+    private static byte[] randomBytes(Random random, int maxLength) {
+        byte[] values = new byte[random.nextInt(maxLength + 1)];
+        random.nextBytes(values);
+        return values;
+    }
+
+    private static int[] randomInts(Random random, int maxLength) {
+        int[] values = new int[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt();
+        }
+        return values;
+    }
+
+    private static float[] randomFloats(Random random, int maxLength) {
+        float[] values = new float[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextFloat();
+        }
+        return values;
+    }
+
+    private static Vector3f randomVector(Random random) {
+        return new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat());
+    }
+
+    private static ByteBuffer createByteBuffer(byte[] values) {
+        ByteBuffer buffer = BufferUtilsCreator.createByteBuffer(values.length);
+        buffer.put(values).flip();
+        return buffer;
+    }
+
+    public void write(JmeExporter ex) throws IOException {
+        OutputCapsule oc = ex.getCapsule(this);
+        oc.write(byteVal, "byteVal", (byte) 0);
+        oc.write(bytes, "bytes", null);
+        oc.write(bytes2d, "bytes2d", null);
+        oc.write(intVal, "intVal", 0);
+        oc.write(ints, "ints", null);
+        oc.write(ints2d, "ints2d", null);
+        oc.write(floatVal, "floatVal", 0);
+        oc.write(floats, "floats", null);
+        oc.write(floats2d, "floats2d", null);
+        oc.write(doubleVal, "doubleVal", 0);
+        oc.write(doubles, "doubles", null);
+        oc.write(doubles2d, "doubles2d", null);
+        oc.write(longVal, "longVal", 0);
+        oc.write(longs, "longs", null);
+        oc.write(longs2d, "longs2d", null);
+        oc.write(shortVal, "shortVal", (short) 0);
+        oc.write(shorts, "shorts", null);
+        oc.write(shorts2d, "shorts2d", null);
+        oc.write(booleanVal, "booleanVal", false);
+        oc.write(booleans, "booleans", null);
+        oc.write(booleans2d, "booleans2d", null);
+        oc.write(string, "string", null);
+        oc.write(strings, "strings", null);
+        oc.write(strings2d, "strings2d", null);
+        oc.write(bitSet, "bitSet", null);
+        oc.write(savable, "savable", null);
+        oc.write(savables, "savables", null);
+        oc.write(savables2d, "savables2d", null);
+        oc.writeSavableArrayList(savableList, "savableList", null);
+        oc.writeSavableArrayListArray(savableLists, "savableLists", null);
+        oc.writeFloatBufferArrayList(floatBufferList, "floatBufferList", null);
+        oc.writeByteBufferArrayList(byteBufferList, "byteBufferList", null);
+        oc.writeSavableMap(savableMap, "savableMap", null);
+        oc.writeStringSavableMap(stringSavableMap, "stringSavableMap", null);
+        oc.writeIntSavableMap(intSavableMap, "intSavableMap", null);
+        oc.write(floatBuffer, "floatBuffer", null);
+        oc.write(intBuffer, "intBuffer", null);
+        oc.write(byteBuffer, "byteBuffer", null);
+        oc.write(shortBuffer, "shortBuffer", null);
+        oc.write(enumVal, "enumVal", null);
+        oc.write(child, "child", null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void read(JmeImporter im) throws IOException {
+        InputCapsule ic = im.getCapsule(this);
+        byteVal = ic.readByte("byteVal", (byte) 0);
+        bytes = ic.readByteArray("bytes", null);
+        bytes2d = ic.readByteArray2D("bytes2d", null);
+        intVal = ic.readInt("intVal", 0);
+        ints = ic.readIntArray("ints", null);
+        ints2d = ic.readIntArray2D("ints2d", null);
+        floatVal = ic.readFloat("floatVal", 0);
+        floats = ic.readFloatArray("floats", null);
+        floats2d = ic.readFloatArray2D("floats2d", null);
+        doubleVal = ic.readDouble("doubleVal", 0);
+        doubles = ic.readDoubleArray("doubles", null);
+        doubles2d = ic.readDoubleArray2D("doubles2d", null);
+        longVal = ic.readLong("longVal", 0);
+        longs = ic.readLongArray("longs", null);
+        longs2d = ic.readLongArray2D("longs2d", null);
+        shortVal = ic.readShort("shortVal", (short) 0);
+        shorts = ic.readShortArray("shorts", null);
+        shorts2d = ic.readShortArray2D("shorts2d", null);
+        booleanVal = ic.readBoolean("booleanVal", false);
+        booleans = ic.readBooleanArray("booleans", null);
+        booleans2d = ic.readBooleanArray2D("booleans2d", null);
+        string = ic.readString("string", null);
+        strings = ic.readStringArray("strings", null);
+        strings2d = ic.readStringArray2D("strings2d", null);
+        bitSet = ic.readBitSet("bitSet", null);
+        savable = ic.readSavable("savable", null);
+        savables = ic.readSavableArray("savables", null);
+        savables2d = ic.readSavableArray2D("savables2d", null);
+        savableList = ic.readSavableArrayList("savableList", null);
+        savableLists = ic.readSavableArrayListArray("savableLists", null);
+        floatBufferList = ic.readFloatBufferArrayList("floatBufferList", null);
+        byteBufferList = ic.readByteBufferArrayList("byteBufferList", null);
+        savableMap = (Map<Savable, Savable>) ic.readSavableMap("savableMap", null);
+        stringSavableMap = (Map<String, Savable>) ic.readStringSavableMap("stringSavableMap", null);
+        intSavableMap = (IntMap<Savable>) ic.readIntSavableMap("intSavableMap", null);
+        floatBuffer = ic.readFloatBuffer("floatBuffer", null);
+        intBuffer = ic.readIntBuffer("intBuffer", null);
+        byteBuffer = ic.readByteBuffer("byteBuffer", null);
+        shortBuffer = ic.readShortBuffer("shortBuffer", null);
+        enumVal = ic.readEnum("enumVal", VertexBuffer.Type.class, null);
+        child = (AllFieldsSavable) ic.readSavable("child", null);
+        missing = ic.readInt("missing", 5);
+    }
+
+    /**
+     * Asserts that the fields of a savable read back match the ones of the
+     * savable that was written.
+     */
+    public static void assertReadBack(AllFieldsSavable expected, AllFieldsSavable actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.byteVal, actual.byteVal);
+        assertArrayEquals(expected.bytes, actual.bytes);
+        assertTrue(Arrays.deepEquals(expected.bytes2d, actual.bytes2d));
+        assertEquals(expected.intVal, actual.intVal);
+        assertArrayEquals(expected.ints, actual.ints);
+        assertTrue(Arrays.deepEquals(expected.ints2d, actual.ints2d));
+        assertEquals(expected.floatVal, actual.floatVal, 0f);
+        assertTrue(Arrays.equals(expected.floats, actual.floats));
+        assertTrue(Arrays.deepEquals(expected.floats2d, actual.floats2d));
+        assertEquals(expected.doubleVal, actual.doubleVal, 0.0);
+        assertTrue(Arrays.equals(expected.doubles, actual.doubles));
+        assertTrue(Arrays.deepEquals(expected.doubles2d, actual.doubles2d));
+        assertEquals(expected.longVal, actual.longVal);
+        assertTrue(Arrays.equals(expected.longs, actual.longs));
+        assertTrue(Arrays.deepEquals(expected.longs2d, actual.longs2d));
+        assertEquals(expected.shortVal, actual.shortVal);
+        assertTrue(Arrays.equals(expected.shorts, actual.shorts));
+        assertTrue(Arrays.deepEquals(expected.shorts2d, actual.shorts2d));
+        assertEquals(expected.booleanVal, actual.booleanVal);
+        assertTrue(Arrays.equals(expected.booleans, actual.booleans));
+        assertTrue(Arrays.deepEquals(expected.booleans2d, actual.booleans2d));
+        assertEquals(expected.string, actual.string);
+        assertArrayEquals(expected.strings, actual.strings);
+        assertTrue(Arrays.deepEquals(expected.strings2d, actual.strings2d));
+        assertEquals(expected.bitSet, actual.bitSet);
+        assertEquals(expected.savable, actual.savable);
+        assertArrayEquals(expected.savables, actual.savables);
+        assertTrue(Arrays.deepEquals(expected.savables2d, actual.savables2d));
+        assertEquals(expected.savableList, actual.savableList);
+        assertArrayEquals(expected.savableLists, actual.savableLists);
+        assertEquals(expected.floatBufferList, actual.floatBufferList);
+        assertEquals(expected.byteBufferList, actual.byteBufferList);
+        assertEquals(expected.savableMap, actual.savableMap);
+        assertEquals(expected.stringSavableMap, actual.stringSavableMap);
+        assertEquals(expected.intSavableMap.size(), actual.intSavableMap.size());
+        for (IntMap.Entry<Savable> entry : expected.intSavableMap) {
+            assertEquals(entry.getValue(), actual.intSavableMap.get(entry.getKey()));
+        }
+        assertEquals(expected.floatBuffer, actual.floatBuffer);
+        assertEquals(expected.intBuffer, actual.intBuffer);
+        assertEquals(expected.byteBuffer, actual.byteBuffer);
+        assertEquals(expected.shortBuffer, actual.shortBuffer);
+        assertEquals(expected.enumVal, actual.enumVal);
+        assertEquals(5, actual.missing);
+        // shared instances stay shared
+        assertSame(actual.savable, actual.savables[2]);
+        assertSame(actual.savable, actual.stringSavableMap.get("second"));
+        assertReadBack(expected.child, actual.child);
+    }
+}
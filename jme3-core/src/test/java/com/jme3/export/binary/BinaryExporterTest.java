@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.export.binary;
+
+import com.jme3.export.FormatVersion;
+import com.jme3.export.Savable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the format versions written by {@link BinaryExporter}, in
+ * particular the compressed chunks of version 3.
+ */
+public class BinaryExporterTest {
+
+    private static byte[] save(Savable savable, int formatVersion) throws IOException {
+        BinaryExporter exporter = new BinaryExporter();
+        exporter.setFormatVersion(formatVersion);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.save(savable, out);
+        return out.toByteArray();
+    }
+
+    private static int readVersion(byte[] data) {
+        return ((data[4] & 0xFF) << 24) | ((data[5] & 0xFF) << 16)
+                | ((data[6] & 0xFF) << 8) | (data[7] & 0xFF);
+    }
+
+    /**
+     * A chain of savables holding several megabytes, more than a chunk,
+     * with one savable larger than a chunk on its own.
+     */
+    private static AllFieldsSavable createLargeGraph() {
+        Random random = new Random(25);
+        AllFieldsSavable root = new AllFieldsSavable(random, 300);
+        AllFieldsSavable last = root;
+        for (int i = 0; i < 200; i++) {
+            last.child = new AllFieldsSavable(random, 300);
+            last = last.child;
+            if (i == 100) {
+                last.floats = new float[200000];
+                for (int j = 0; j < last.floats.length; j++) {
+                    last.floats[j] = random.nextFloat();
+                }
+            }
+        }
+        return root;
+    }
+
+    @Test
+    public void testDefaultFormatVersion() throws IOException {
+        assertEquals(2, new BinaryExporter().getFormatVersion());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryExporter().save(new AllFieldsSavable(new Random(1), 10), out);
+        assertEquals(2, readVersion(out.toByteArray()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormatVersion() {
+        new BinaryExporter().setFormatVersion(FormatVersion.VERSION + 1);
+    }
+
+    @Test
+    public void testChunkedRoundTrip() throws IOException {
+        AllFieldsSavable graph = createLargeGraph();
+        byte[] chunked = save(graph, 3);
+        assertEquals(3, readVersion(chunked));
+
+        AllFieldsSavable read = (AllFieldsSavable) new BinaryImporter().load(chunked);
+        AllFieldsSavable.assertReadBack(graph, read);
+
+        // the graph read from the chunks is saved the same as the one read
+        // from the uncompressed layout
+        AllFieldsSavable readUncompressed = (AllFieldsSavable) new BinaryImporter().load(save(graph, 2));
+        assertArrayEquals(save(readUncompressed, 2), save(read, 2));
+    }
+
+    @Test
+    public void testChunkedFromMappedFile() throws IOException {
+        AllFieldsSavable graph = createLargeGraph();
+        File file = File.createTempFile("chunked", ".j3o");
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(save(graph, 3));
+        } finally {
+            out.close();
+        }
+        AllFieldsSavable.assertReadBack(graph, (AllFieldsSavable) new BinaryImporter().load(file));
+    }
+
+    @Test
+    public void testCompressionLevels() throws IOException {
+        AllFieldsSavable graph = createLargeGraph();
+        for (int level : new int[]{Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION}) {
+            BinaryExporter exporter = new BinaryExporter();
+            exporter.setFormatVersion(3);
+            exporter.setCompressionLevel(level);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            exporter.save(graph, out);
+            AllFieldsSavable.assertReadBack(graph, (AllFieldsSavable) new BinaryImporter().load(out.toByteArray()));
+        }
+    }
+
+    private static AllFieldsSavable createLeaf() {
+        // no references to other savables, so copies have identical content
+        AllFieldsSavable leaf = new AllFieldsSavable();
+        Random random = new Random(4);
+        leaf.floats = new float[1000];
+        for (int i = 0; i < leaf.floats.length; i++) {
+            leaf.floats[i] = random.nextFloat();
+        }
+        return leaf;
+    }
+
+    @Test
+    public void testIdenticalObjectsAreStoredOnce() throws IOException {
+        AllFieldsSavable single = new AllFieldsSavable();
+        single.savables = new Savable[]{createLeaf(), null};
+        AllFieldsSavable twice = new AllFieldsSavable();
+        twice.savables = new Savable[]{createLeaf(), createLeaf()};
+        for (int version : new int[]{2, 3}) {
+            BinaryExporter exporter = new BinaryExporter();
+            exporter.setFormatVersion(version);
+            exporter.setCompressionLevel(Deflater.NO_COMPRESSION);
+            ByteArrayOutputStream singleOut = new ByteArrayOutputStream();
+            exporter.save(single, singleOut);
+            ByteArrayOutputStream twiceOut = new ByteArrayOutputStream();
+            exporter.save(twice, twiceOut);
+            // only the location of the second object is added
+            assertTrue("version " + version, twiceOut.size() - singleOut.size() < 64);
+
+            AllFieldsSavable read = (AllFieldsSavable) new BinaryImporter().load(twiceOut.toByteArray());
+            assertTrue(Arrays.equals(createLeaf().floats, ((AllFieldsSavable) read.savables[1]).floats));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedChunks() throws IOException {
+        byte[] data = save(createLargeGraph(), 3);
+        new BinaryImporter().load(Arrays.copyOf(data, data.length / 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptChunks() throws IOException {
+        byte[] data = save(createLargeGraph(), 3);
+        for (int i = data.length / 3; i < data.length / 3 + 64; i++) {
+            data[i] = (byte) ~data[i];
+        }
+        new BinaryImporter().load(data);
+    }
+
+    @Test
+    public void testFixClassAlias() {
+        BinaryExporter exporter = new BinaryExporter();
+        assertArrayEquals(new byte[]{0, 0, 0, 5}, exporter.fixClassAlias(new byte[]{5}, 4));
+        assertArrayEquals(new byte[]{0, 0, 1, 2}, exporter.fixClassAlias(new byte[]{1, 2}, 4));
+        assertArrayEquals(new byte[]{0, 7}, exporter.fixClassAlias(new byte[]{7}, 2));
+        assertArrayEquals(new byte[]{3, 4}, exporter.fixClassAlias(new byte[]{3, 4}, 2));
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.export.binary;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.collision.CollisionResults;
+import com.jme3.collision.bih.BIHTree;
+import com.jme3.export.Savable;
+import com.jme3.light.PointLight;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Sphere;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that {@link BinaryImporter} reads files written by earlier versions
+ * of the engine, from streams, arrays, buffers and memory-mapped files.
+ */
+public class BinaryImporterTest {
+
+    /**
+     * A scene written by jME 3.2 as format version 2, see
+     * {@link #assertLegacyScene(java.lang.Object) } for its contents.
+     */
+    private static final String LEGACY_SCENE = "legacy.j3o";
+
+    private static byte[] readResource(String name) throws IOException {
+        InputStream in = BinaryImporterTest.class.getResourceAsStream(name);
+        assertNotNull(name, in);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            for (int read; (read = in.read(buf)) > 0;) {
+                out.write(buf, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static File writeTempFile(File dir, String name, byte[] data) throws IOException {
+        File file = new File(dir, name);
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("j3o", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static void assertLegacyScene(Object scene) {
+        Node root = (Node) scene;
+        assertEquals("root", root.getName());
+        assertEquals(2, root.getQuantity());
+
+        Geometry box = (Geometry) root.getChild("box");
+        assertEquals(new Vector3f(1, 2, 3), box.getLocalTranslation());
+        assertEquals(new Quaternion().fromAngles(0.1f, 0.2f, 0.3f), box.getLocalRotation());
+        assertEquals(12, box.getMesh().getTriangleCount());
+        assertEquals(Integer.valueOf(42), box.getUserData("int"));
+        assertEquals(Float.valueOf(1.5f), box.getUserData("float"));
+        assertEquals("legacy", box.getUserData("string"));
+        assertEquals(Boolean.TRUE, box.getUserData("boolean"));
+        assertEquals(new Vector3f(4, 5, 6), box.getUserData("vector"));
+
+        Node child = (Node) root.getChild("child");
+        assertEquals(new Vector3f(2, 2, 2), child.getLocalScale());
+        Geometry box2 = (Geometry) child.getChild("box2");
+        // the mesh was shared when saved
+        assertSame(box.getMesh(), box2.getMesh());
+        Geometry sphere = (Geometry) child.getChild("sphere");
+        assertTrue(sphere.getMesh() instanceof Sphere);
+
+        assertEquals(1, root.getLocalLightList().size());
+        PointLight light = (PointLight) root.getLocalLightList().get(0);
+        assertEquals(new Vector3f(0, 10, 0), light.getPosition());
+        assertEquals(ColorRGBA.Orange, light.getColor());
+        assertEquals(25, light.getRadius(), 0);
+
+        // a collision tree saved with the linked node layout
+        BIHTree tree = root.getUserData("collision");
+        BIHTree built = new BIHTree(sphere.getMesh());
+        built.construct();
+        assertEquals(built.getNodeCount(), tree.getNodeCount());
+        BoundingBox bound = new BoundingBox(new Vector3f(), 2, 2, 2);
+        for (int i = 0; i < 20; i++) {
+            Ray ray = new Ray(new Vector3f(i * 0.1f - 1, 0.2f, 5), new Vector3f(0, 0, -1));
+            CollisionResults expected = new CollisionResults();
+            CollisionResults actual = new CollisionResults();
+            built.collideWith(ray, Matrix4f.IDENTITY, bound, expected);
+            tree.collideWith(ray, Matrix4f.IDENTITY, bound, actual);
+            assertEquals(expected.size(), actual.size());
+            if (expected.size() > 0) {
+                assertEquals(expected.getClosestCollision().getDistance(),
+                        actual.getClosestCollision().getDistance(), 1e-5f);
+            }
+        }
+    }
+
+    @Test
+    public void testLegacyFromStream() throws IOException {
+        InputStream in = BinaryImporterTest.class.getResourceAsStream(LEGACY_SCENE);
+        try {
+            assertLegacyScene(new BinaryImporter().load(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testLegacyFromArray() throws IOException {
+        assertLegacyScene(new BinaryImporter().load(readResource(LEGACY_SCENE)));
+    }
+
+    @Test
+    public void testLegacyFromBuffer() throws IOException {
+        byte[] data = readResource(LEGACY_SCENE);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        assertLegacyScene(new BinaryImporter().load(direct));
+    }
+
+    @Test
+    public void testLegacyFromMappedFile() throws IOException {
+        File dir = createTempDir();
+        File file = writeTempFile(dir, LEGACY_SCENE, readResource(LEGACY_SCENE));
+        assertLegacyScene(new BinaryImporter().load(file));
+    }
+
+    @Test
+    public void testLegacyFromLocatedFile() throws IOException {
+        File dir = createTempDir();
+        writeTempFile(dir, LEGACY_SCENE, readResource(LEGACY_SCENE));
+        DesktopAssetManager assetManager = new DesktopAssetManager();
+        assetManager.registerLocator(dir.getAbsolutePath(), FileLocator.class);
+        AssetInfo info = assetManager.locateAsset(new AssetKey<Object>(LEGACY_SCENE));
+        // the file locator maps the file
+        assertNotNull(info.openBuffer());
+        assertLegacyScene(new BinaryImporter().load(info));
+    }
+
+    @Test
+    public void testReexportIsReadable() throws IOException {
+        Savable scene = new BinaryImporter().load(readResource(LEGACY_SCENE));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryExporter().save(scene, out);
+        assertLegacyScene(new BinaryImporter().load(out.toByteArray()));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.export.binary;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.Savable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that {@link BinaryInputCapsule} reads back every field type as it
+ * was written.
+ */
+public class BinaryInputCapsuleTest {
+
+    /**
+     * Writes an int and reads it back as a float.
+     */
+    public static class WrongTypeSavable implements Savable {
+
+        public void write(JmeExporter ex) throws IOException {
+            ex.getCapsule(this).write(3, "value", 0);
+        }
+
+        public void read(JmeImporter im) throws IOException {
+            im.getCapsule(this).readFloat("value", 0);
+        }
+    }
+
+    /**
+     * Reads the fields in another order than they were written.
+     */
+    public static class ReorderedSavable extends AllFieldsSavable {
+
+        public ReorderedSavable() {
+        }
+
+        public ReorderedSavable(Random random) {
+            super(random, 10);
+        }
+
+        @Override
+        public void read(JmeImporter im) throws IOException {
+            InputCapsule ic = im.getCapsule(this);
+            shortBuffer = ic.readShortBuffer("shortBuffer", null);
+            longs = ic.readLongArray("longs", null);
+            string = ic.readString("string", null);
+            intVal = ic.readInt("intVal", 0);
+            // read twice
+            intVal = ic.readInt("intVal", 0);
+        }
+    }
+
+    private static byte[] save(Savable savable, int formatVersion) throws IOException {
+        BinaryExporter exporter = new BinaryExporter();
+        exporter.setFormatVersion(formatVersion);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.save(savable, out);
+        return out.toByteArray();
+    }
+
+    private static Object load(byte[] data) throws IOException {
+        return new BinaryImporter().load(data);
+    }
+
+    @Test
+    public void testAllFieldTypes() throws IOException {
+        Random random = new Random(24);
+        for (int i = 0; i < 20; i++) {
+            AllFieldsSavable savable = new AllFieldsSavable(random, 40);
+            savable.child = new AllFieldsSavable(random, 5);
+            AllFieldsSavable.assertReadBack(savable, (AllFieldsSavable) load(save(savable, 2)));
+        }
+    }
+
+    @Test
+    public void testDefaultsAreNotWritten() throws IOException {
+        AllFieldsSavable savable = new AllFieldsSavable();
+        AllFieldsSavable read = (AllFieldsSavable) load(save(savable, 2));
+        assertNull(read.bytes);
+        assertNull(read.string);
+        assertNull(read.savableMap);
+        assertNull(read.floatBuffer);
+        assertNull(read.enumVal);
+        assertEquals(0, read.longVal);
+        assertEquals(5, read.missing);
+    }
+
+    @Test
+    public void testReadInAnyOrder() throws IOException {
+        ReorderedSavable savable = new ReorderedSavable(new Random(3));
+        ReorderedSavable read = (ReorderedSavable) load(save(savable, 2));
+        assertEquals(savable.shortBuffer, read.shortBuffer);
+        assertTrue(java.util.Arrays.equals(savable.longs, read.longs));
+        assertEquals(savable.string, read.string);
+        assertEquals(savable.intVal, read.intVal);
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void testWrongTypeFails() throws IOException {
+        load(save(new WrongTypeSavable(), 2));
+    }
+
+    @Test
+    public void testBuffersAreReadyToUse() throws IOException {
+        AllFieldsSavable savable = new AllFieldsSavable(new Random(8), 30);
+        AllFieldsSavable read = (AllFieldsSavable) load(save(savable, 2));
+        assertTrue(read.floatBuffer.isDirect());
+        assertEquals(0, read.floatBuffer.position());
+        assertEquals(savable.floatBuffer.limit(), read.floatBuffer.limit());
+        ByteBuffer bytes = read.byteBuffer;
+        assertTrue(bytes.isDirect());
+        assertEquals(savable.byteBuffer.limit(), bytes.limit());
+    }
+}
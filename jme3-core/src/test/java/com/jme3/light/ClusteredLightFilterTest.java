@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.light;
+
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that {@link ClusteredLightFilter} finds the same lights as
+ * {@link DefaultLightFilter}, sorted by distance.
+ */
+public class ClusteredLightFilterTest {
+
+    private final Random random = new Random(18);
+    private Node root;
+    private final List<Geometry> geometries = new ArrayList<Geometry>();
+    private final List<PointLight> pointLights = new ArrayList<PointLight>();
+    // keeps its frustum checks on the lights, a single instance must be
+    // used for all cameras
+    private final DefaultLightFilter reference = new DefaultLightFilter();
+
+    private Vector3f randomPosition(float extent) {
+        return new Vector3f((random.nextFloat() - 0.5f) * extent,
+                (random.nextFloat() - 0.5f) * extent,
+                (random.nextFloat() - 0.5f) * extent);
+    }
+
+    private void addLights(Node node, int count) {
+        for (int i = 0; i < count; i++) {
+            PointLight light = new PointLight(randomPosition(200), 2 + random.nextFloat() * 20);
+            // a few disabled lights
+            light.setEnabled(i % 17 != 0);
+            node.addLight(light);
+            pointLights.add(light);
+        }
+    }
+
+    private void addGeometries(Node node, int count) {
+        Mesh box = new Box(1, 1, 1);
+        Mesh largeBox = new Box(40, 5, 40);
+        Mesh sphere = new Box(1, 1, 1);
+        sphere.setBound(new BoundingSphere());
+        sphere.updateBound();
+        for (int i = 0; i < count; i++) {
+            Mesh mesh = i % 10 == 0 ? largeBox : i % 3 == 0 ? sphere : box;
+            Geometry geom = new Geometry("Geom" + i, mesh);
+            geom.setLocalTranslation(randomPosition(200));
+            node.attachChild(geom);
+            geometries.add(geom);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        root = new Node("Root");
+        root.addLight(new AmbientLight(ColorRGBA.Gray));
+        root.addLight(new DirectionalLight(new Vector3f(0, -1, 0)));
+        for (int i = 0; i < 20; i++) {
+            SpotLight spot = new SpotLight(randomPosition(200), new Vector3f(0, -1, 0).normalizeLocal(),
+                    30, ColorRGBA.White, FastMath.QUARTER_PI / 2, FastMath.QUARTER_PI);
+            root.addLight(spot);
+        }
+        addLights(root, 150);
+        addGeometries(root, 200);
+        // scopes with local lights of their own
+        for (int i = 0; i < 3; i++) {
+            Node child = new Node("Child" + i);
+            addLights(child, 10);
+            addGeometries(child, 50);
+            root.attachChild(child);
+        }
+    }
+
+    private static Camera createCamera(Vector3f location, Vector3f direction) {
+        Camera cam = new Camera(800, 600);
+        cam.setFrustumPerspective(60, 800 / 600f, 1, 150);
+        cam.setLocation(location);
+        cam.lookAtDirection(direction, Vector3f.UNIT_Y);
+        cam.update();
+        return cam;
+    }
+
+    private static Set<Light> filter(LightFilter filter, Geometry geom) {
+        LightList list = new LightList(geom);
+        filter.filterLights(geom, list);
+        Set<Light> lights = new HashSet<Light>();
+        for (int i = 0; i < list.size(); i++) {
+            lights.add(list.get(i));
+        }
+        assertEquals(list.size(), lights.size());
+        return lights;
+    }
+
+    private List<Set<Light>> filterAll(LightFilter filter, Camera cam) {
+        filter.setCamera(cam);
+        List<Set<Light>> result = new ArrayList<Set<Light>>();
+        for (Geometry geom : geometries) {
+            result.add(filter(filter, geom));
+        }
+        return result;
+    }
+
+    private void assertSameLights(Camera cam, LightFilter clustered) {
+        List<Set<Light>> expected = filterAll(reference, cam);
+        List<Set<Light>> actual = filterAll(clustered, cam);
+        int total = 0;
+        for (int i = 0; i < geometries.size(); i++) {
+            assertEquals(geometries.get(i).getName(), expected.get(i), actual.get(i));
+            total += expected.get(i).size();
+        }
+        // the scene is not trivially empty
+        assertTrue(total > geometries.size());
+    }
+
+    @Test
+    public void testSameLightsAsDefaultFilter() {
+        root.updateGeometricState();
+        ClusteredLightFilter filter = new ClusteredLightFilter();
+        assertSameLights(createCamera(new Vector3f(0, 0, 80), new Vector3f(0, 0, -1)), filter);
+        assertTrue(filter.getNumLights() > 0);
+    }
+
+    @Test
+    public void testCameraAndLightsMove() {
+        root.updateGeometricState();
+        ClusteredLightFilter filter = new ClusteredLightFilter(8, 6, 12, new BasicProbeBlendingStrategy());
+        for (int frame = 0; frame < 4; frame++) {
+            Vector3f location = randomPosition(100);
+            Vector3f direction = randomPosition(1).normalizeLocal();
+            for (PointLight light : pointLights) {
+                light.setPosition(light.getPosition().add(randomPosition(10)));
+            }
+            assertSameLights(createCamera(location, direction), filter);
+        }
+    }
+
+    @Test
+    public void testFilteredLightsAreSortedByDistance() {
+        root.updateGeometricState();
+        ClusteredLightFilter filter = new ClusteredLightFilter();
+        filter.setCamera(createCamera(new Vector3f(0, 0, 80), new Vector3f(0, 0, -1)));
+        for (Geometry geom : geometries) {
+            LightList list = new LightList(geom);
+            filter.filterLights(geom, list);
+            float last = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < list.size(); i++) {
+                Light light = list.get(i);
+                light.computeLastDistance(geom);
+                assertTrue(light.lastDistance >= last);
+                last = light.lastDistance;
+            }
+        }
+    }
+
+    @Test
+    public void testFiltersShareLights() {
+        root.updateGeometricState();
+        Camera front = createCamera(new Vector3f(0, 0, 80), new Vector3f(0, 0, -1));
+        Camera side = createCamera(new Vector3f(80, 0, 0), new Vector3f(-1, 0, 0));
+        List<Set<Light>> expectedFront = filterAll(reference, front);
+        List<Set<Light>> expectedSide = filterAll(reference, side);
+
+        // two filters used in turn, as by two render managers
+        ClusteredLightFilter frontFilter = new ClusteredLightFilter();
+        ClusteredLightFilter sideFilter = new ClusteredLightFilter();
+        frontFilter.setCamera(front);
+        sideFilter.setCamera(side);
+        for (int i = 0; i < geometries.size(); i++) {
+            Geometry geom = geometries.get(i);
+            assertEquals(expectedFront.get(i), filter(frontFilter, geom));
+            assertEquals(expectedSide.get(i), filter(sideFilter, geom));
+        }
+    }
+}
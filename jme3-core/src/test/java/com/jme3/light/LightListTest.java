@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.light;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Box;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the lazy sorting of {@link LightList}.
+ */
+public class LightListTest {
+
+    private Geometry owner;
+    private LightList list;
+    private PointLight far, near, middle;
+
+    @Before
+    public void setUp() {
+        owner = new Geometry("Owner", new Box(0.5f, 0.5f, 0.5f));
+        owner.updateGeometricState();
+        list = new LightList(owner);
+        far = new PointLight(new Vector3f(30, 0, 0), 100);
+        near = new PointLight(new Vector3f(10, 0, 0), 100);
+        middle = new PointLight(new Vector3f(20, 0, 0), 100);
+        list.add(far);
+        list.add(near);
+        list.add(middle);
+    }
+
+    @Test
+    public void testSortedOnAccess() {
+        list.sort(true);
+        assertSame(near, list.get(0));
+        assertSame(middle, list.get(1));
+        assertSame(far, list.get(2));
+    }
+
+    @Test
+    public void testRemoveLightAfterSortRequested() {
+        list.sort(true);
+        list.remove(near);
+        assertEquals(2, list.size());
+        assertSame(middle, list.get(0));
+        assertSame(far, list.get(1));
+    }
+
+    @Test
+    public void testRemoveIndexAfterSortRequested() {
+        list.sort(true);
+        list.remove(0);
+        assertEquals(2, list.size());
+        assertSame(middle, list.get(0));
+        assertSame(far, list.get(1));
+    }
+
+    @Test
+    public void testAddAfterSortRequested() {
+        list.sort(true);
+        PointLight nearest = new PointLight(new Vector3f(5, 0, 0), 100);
+        list.add(nearest);
+        // the list was sorted before adding, the new light goes last
+        assertSame(near, list.get(0));
+        assertSame(far, list.get(2));
+        assertSame(nearest, list.get(3));
+    }
+
+    @Test
+    public void testClearDropsPendingSort() {
+        list.sort(true);
+        list.clear();
+        list.add(far);
+        list.add(near);
+        assertSame(far, list.get(0));
+        assertSame(near, list.get(1));
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.material;
+
+import com.jme3.material.logic.DefaultTechniqueDefLogic;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.opengl.GL;
+import com.jme3.renderer.opengl.GLExt;
+import com.jme3.renderer.opengl.GLFbo;
+import com.jme3.renderer.opengl.GLRecorder;
+import com.jme3.renderer.opengl.GLRenderer;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Box;
+import com.jme3.shader.Shader;
+import com.jme3.shader.VarType;
+import com.jme3.system.NanoTimer;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a material rendered again with the same shader skips
+ * re-applying its parameters only while none of them changed.
+ */
+public class MaterialParamsVersionTest {
+
+    private GLRenderer renderer;
+    private RenderManager renderManager;
+    private ViewPort viewPort;
+    private MaterialDef def;
+    private Material material;
+    private Geometry geom;
+
+    @Before
+    public void setUp() {
+        def = new MaterialDef(null, "Test");
+        def.addMaterialParam(VarType.Float, "Shininess", null);
+        def.addMaterialParam(VarType.Vector4, "Diffuse", null);
+        TechniqueDef techniqueDef = new TechniqueDef(TechniqueDef.DEFAULT_TECHNIQUE_NAME, 0);
+        techniqueDef.setLogic(new DefaultTechniqueDefLogic(techniqueDef));
+        techniqueDef.addWorldParam("WorldViewProjectionMatrix");
+        def.addTechniqueDef(techniqueDef);
+
+        Object gl = new GLRecorder().getGL();
+        renderer = new GLRenderer((GL) gl, (GLExt) gl, (GLFbo) gl);
+        renderer.initialize();
+        renderManager = new RenderManager(renderer);
+        renderManager.setTimer(new NanoTimer());
+        Camera cam = new Camera(640, 480);
+        cam.setFrustumPerspective(60, 640 / 480f, 1, 1000);
+        cam.setLocation(new Vector3f(0, 0, 10));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+        viewPort = renderManager.createMainView("Main", cam);
+
+        material = createMaterial(1);
+        geom = new Geometry("Box", new Box(0.5f, 0.5f, 0.5f));
+        geom.setMaterial(material);
+    }
+
+    private Material createMaterial(float shininess) {
+        Material mat = new Material(def);
+        mat.setFloat("Shininess", shininess);
+        mat.setColor("Diffuse", new ColorRGBA(shininess, 0, 0, 1));
+        return mat;
+    }
+
+    private void render(Geometry g) {
+        viewPort.clearScenes();
+        viewPort.attachScene(g);
+        g.updateGeometricState();
+        renderManager.render(0.016f, true);
+    }
+
+    private Shader getShader(Material mat) {
+        Technique technique = mat.getActiveTechnique();
+        return technique.getDef().getShader(null, renderer.getCaps(), technique.getDynamicDefines());
+    }
+
+    private Object getUniformValue(String name) {
+        return getShader(material).getUniform(name).getValue();
+    }
+
+    /**
+     * Changes the uniform behind the material's back, it is only
+     * restored if the material applies its parameters again.
+     */
+    private void tamper() {
+        getShader(material).getUniform("m_Shininess").setValue(VarType.Float, -1f);
+    }
+
+    @Test
+    public void testUnchangedParamsAreSkipped() {
+        render(geom);
+        assertEquals(1f, getUniformValue("m_Shininess"));
+        tamper();
+        render(geom);
+        assertEquals(-1f, getUniformValue("m_Shininess"));
+    }
+
+    @Test
+    public void testSetParamIsApplied() {
+        render(geom);
+        material.setFloat("Shininess", 5);
+        render(geom);
+        assertEquals(5f, getUniformValue("m_Shininess"));
+    }
+
+    @Test
+    public void testSetValueOnParamIsApplied() {
+        render(geom);
+        tamper();
+        material.getParam("Shininess").setValue(7f);
+        render(geom);
+        assertEquals(7f, getUniformValue("m_Shininess"));
+    }
+
+    @Test
+    public void testClearedParamIsReset() {
+        render(geom);
+        material.clearParam("Shininess");
+        render(geom);
+        assertEquals(0f, getUniformValue("m_Shininess"));
+    }
+
+    @Test
+    public void testValueModifiedInPlaceIsApplied() {
+        render(geom);
+        ColorRGBA diffuse = (ColorRGBA) material.getParam("Diffuse").getValue();
+        diffuse.set(0, 1, 0, 1);
+        render(geom);
+        assertEquals(new ColorRGBA(0, 1, 0, 1), getUniformValue("m_Diffuse"));
+    }
+
+    @Test
+    public void testOtherMaterialInBetween() {
+        Geometry other = new Geometry("Other", geom.getMesh());
+        other.setMaterial(createMaterial(3));
+        render(geom);
+        render(other);
+        assertEquals(3f, getUniformValue("m_Shininess"));
+        render(geom);
+        assertEquals(1f, getUniformValue("m_Shininess"));
+    }
+
+    @Test
+    public void testOverridesAreNotSkipped() {
+        render(geom);
+        MatParamOverride override = new MatParamOverride(VarType.Float, "Shininess", 9f);
+        geom.addMatParamOverride(override);
+        render(geom);
+        assertEquals(9f, getUniformValue("m_Shininess"));
+        geom.removeMatParamOverride(override);
+        render(geom);
+        assertEquals(1f, getUniformValue("m_Shininess"));
+    }
+
+    @Test
+    public void testCloneHasOwnVersion() {
+        Material clone = material.clone();
+        Geometry cloned = new Geometry("Clone", geom.getMesh());
+        cloned.setMaterial(clone);
+        render(geom);
+        clone.getParam("Shininess").setValue(4f);
+        assertEquals(1f, material.getParam("Shininess").getValue());
+        render(cloned);
+        assertEquals(4f, getUniformValue("m_Shininess"));
+
+        // changing the clone does not invalidate the original
+        render(geom);
+        tamper();
+        clone.getParam("Shininess").setValue(6f);
+        render(geom);
+        assertEquals(-1f, getUniformValue("m_Shininess"));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.material;
+
+import com.jme3.shader.DefineList;
+import com.jme3.shader.VarType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests recording, saving and loading shader permutations with
+ * {@link ShaderPermutationLog}.
+ */
+public class ShaderPermutationLogTest {
+
+    private MaterialDef matDef;
+    private TechniqueDef techniqueDef;
+    private int colorMap, numBones;
+    private ShaderPermutationLog log;
+
+    @Before
+    public void setUp() {
+        matDef = new MaterialDef(null, "Test");
+        matDef.setAssetName("Test.j3md");
+        techniqueDef = new TechniqueDef("Default", 0);
+        colorMap = techniqueDef.addShaderUnmappedDefine("HAS_COLORMAP", VarType.Boolean);
+        numBones = techniqueDef.addShaderUnmappedDefine("NUM_BONES", VarType.Int);
+        matDef.addTechniqueDef(techniqueDef);
+        log = new ShaderPermutationLog();
+    }
+
+    @Test
+    public void testRecordsEachPermutationOnce() {
+        DefineList defines = techniqueDef.createDefineList();
+        defines.set(colorMap, true);
+        log.record(matDef, techniqueDef, defines);
+        log.record(matDef, techniqueDef, defines);
+        log.record(matDef, techniqueDef, defines.deepClone());
+
+        List<ShaderPermutationLog.Permutation> permutations = log.getPermutations();
+        assertEquals(1, permutations.size());
+        ShaderPermutationLog.Permutation p = permutations.get(0);
+        assertEquals("Test.j3md", p.getMaterialDef());
+        assertEquals("Default", p.getTechnique());
+        assertEquals(0, p.getIndex());
+        assertEquals("HAS_COLORMAP=1", p.getDefines());
+    }
+
+    @Test
+    public void testChangedDefinesAreRecordedAgain() {
+        // the renderer reuses its define list, the log must not keep it
+        DefineList defines = techniqueDef.createDefineList();
+        defines.set(colorMap, true);
+        log.record(matDef, techniqueDef, defines);
+        defines.set(numBones, 4);
+        log.record(matDef, techniqueDef, defines);
+        defines.unset(numBones);
+        log.record(matDef, techniqueDef, defines);
+
+        List<ShaderPermutationLog.Permutation> permutations = log.getPermutations();
+        assertEquals(2, permutations.size());
+        assertEquals("HAS_COLORMAP=1", permutations.get(0).getDefines());
+        assertEquals("HAS_COLORMAP=1 NUM_BONES=4", permutations.get(1).getDefines());
+    }
+
+    @Test
+    public void testMaterialWithoutAssetNameIsSkipped() {
+        MaterialDef unnamed = new MaterialDef(null, "Unnamed");
+        TechniqueDef def = new TechniqueDef("Default", 0);
+        unnamed.addTechniqueDef(def);
+        log.record(unnamed, def, def.createDefineList());
+        assertTrue(log.getPermutations().isEmpty());
+    }
+
+    @Test
+    public void testClearForgetsSeenPermutations() {
+        DefineList defines = techniqueDef.createDefineList();
+        log.record(matDef, techniqueDef, defines);
+        log.clear();
+        assertTrue(log.getPermutations().isEmpty());
+        log.record(matDef, techniqueDef, defines);
+        assertEquals(1, log.getPermutations().size());
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        DefineList defines = techniqueDef.createDefineList();
+        log.record(matDef, techniqueDef, defines);
+        defines.set(colorMap, true);
+        defines.set(numBones, 30);
+        log.record(matDef, techniqueDef, defines);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        log.save(out);
+        ShaderPermutationLog loaded = new ShaderPermutationLog();
+        loaded.load(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(log.getPermutations(), loaded.getPermutations());
+    }
+
+    @Test
+    public void testLoadSkipsMalformedLines() throws IOException {
+        String text = "# comment\n"
+                + "\n"
+                + "A.j3md\tDefault\t0\tFOO=1\n"
+                + "B.j3md\tDefault\n"
+                + "C.j3md\tDefault\tx\t\n"
+                + "D.j3md\tPreShadow\t1\t\n";
+        log.load(new ByteArrayInputStream(text.getBytes("UTF-8")));
+
+        List<ShaderPermutationLog.Permutation> permutations = log.getPermutations();
+        assertEquals(2, permutations.size());
+        assertEquals("A.j3md", permutations.get(0).getMaterialDef());
+        assertEquals("FOO=1", permutations.get(0).getDefines());
+        assertEquals("D.j3md", permutations.get(1).getMaterialDef());
+        assertEquals(1, permutations.get(1).getIndex());
+        assertEquals("", permutations.get(1).getDefines());
+    }
+}
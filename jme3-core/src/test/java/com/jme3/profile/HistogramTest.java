@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the log-linear buckets and the percentiles of {@link Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (long value = 0; value < 64; value++) {
+            int index = Histogram.indexOf(value);
+            assertEquals(value, index);
+            assertEquals(value, Histogram.highestValueOf(index));
+        }
+    }
+
+    @Test
+    public void testBucketsAreContiguous() {
+        // every bucket starts right after the previous one ends
+        int last = Histogram.indexOf(Long.MAX_VALUE);
+        for (int index = 1; index <= last; index++) {
+            long start = Histogram.highestValueOf(index - 1) + 1;
+            assertEquals("bucket " + index, index, Histogram.indexOf(start));
+            assertEquals("bucket " + index, index, Histogram.indexOf(Histogram.highestValueOf(index)));
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueOf(last));
+    }
+
+    @Test
+    public void testBucketWidth() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            assertWithinBucket(value);
+        }
+        for (int bit = 0; bit < 63; bit++) {
+            long power = 1L << bit;
+            assertWithinBucket(power - 1);
+            assertWithinBucket(power);
+            assertWithinBucket(power + 1);
+        }
+        assertWithinBucket(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram("test");
+        Histogram.Snapshot empty = histogram.getSnapshot();
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMin());
+        assertEquals(0, empty.getValueAtPercentile(50));
+        assertEquals(0, empty.getMean(), 0);
+
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        Histogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(500.5, snapshot.getMean(), 1e-9);
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+        for (int percentile = 1; percentile <= 100; percentile++) {
+            long exact = percentile * 10;
+            long value = snapshot.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + value, value >= exact && value <= exact + exact / 32);
+        }
+        // the maximum is exact
+        assertEquals(1000, snapshot.getValueAtPercentile(100));
+
+        // snapshots are copies
+        histogram.record(5000);
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(5000, histogram.getSnapshot().getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testNegativeValuesAndReset() {
+        Histogram histogram = new Histogram("test");
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        Histogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(0, snapshot.getMin());
+        assertEquals(Long.MAX_VALUE, snapshot.getMax());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, snapshot.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        histogram.record(70);
+        snapshot = histogram.getSnapshot();
+        assertEquals(70, snapshot.getMin());
+        assertEquals(70, snapshot.getMax());
+        assertEquals(70, snapshot.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final Histogram histogram = new Histogram("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long offset = t * 10000;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= 10000; i++) {
+                        histogram.record(offset + i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Histogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(40000, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(40000, snapshot.getMax());
+        assertEquals(20000.5, snapshot.getMean(), 1e-9);
+    }
+
+    // the value is in a bucket at most 1/32 of its value wide
+    private void assertWithinBucket(long value) {
+        int index = Histogram.indexOf(value);
+        long highest = Histogram.highestValueOf(index);
+        assertTrue(value + " > " + highest, value <= highest);
+        if (index > 0) {
+            assertTrue(value + " <= " + Histogram.highestValueOf(index - 1), value > Histogram.highestValueOf(index - 1));
+        }
+        assertTrue(value + " in bucket ending at " + highest, highest - value <= value / 32);
+    }
+}
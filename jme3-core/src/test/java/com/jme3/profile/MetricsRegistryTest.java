@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the counters, gauges and snapshots of {@link MetricsRegistry}.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void testMetricsAreShared() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.counter("a"), registry.counter("a"));
+        assertNotSame(registry.counter("a"), registry.counter("b"));
+        assertSame(registry.histogram("a"), registry.histogram("a"));
+        assertEquals("a", registry.histogram("a").getName());
+    }
+
+    @Test
+    public void testCounterFromManyThreads() throws Exception {
+        final Counter counter = new MetricsRegistry().counter("test");
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        counter.increment();
+                    }
+                    counter.add(5);
+                    counter.decrement();
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8 * 10004, counter.get());
+        assertEquals("test=80032", counter.toString());
+    }
+
+    @Test
+    public void testSnapshot() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("hits").add(3);
+        registry.histogram("time").record(42);
+        Gauge gauge = new Gauge() {
+            public long getValue() {
+                return 7;
+            }
+        };
+        registry.setGauge("size", gauge);
+        registry.setGauge("broken", new Gauge() {
+            public long getValue() {
+                throw new IllegalStateException("broken gauge");
+            }
+        });
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        assertEquals(3, snapshot.getValue("hits"));
+        assertEquals(7, snapshot.getValue("size"));
+        assertEquals(0, snapshot.getValue("missing"));
+        // failing gauges are left out
+        assertFalse(snapshot.getGauges().containsKey("broken"));
+        assertEquals(42, snapshot.getHistograms().get("time").getMax());
+
+        // snapshots do not change
+        registry.counter("hits").increment();
+        assertEquals(3, snapshot.getValue("hits"));
+        assertEquals(4, registry.snapshot().getValue("hits"));
+
+        // only the registered gauge is removed
+        registry.removeGauge("size", new Gauge() {
+            public long getValue() {
+                return 0;
+            }
+        });
+        assertEquals(7, registry.snapshot().getValue("size"));
+        registry.removeGauge("size", gauge);
+        assertFalse(registry.snapshot().getGauges().containsKey("size"));
+        registry.setGauge("broken", null);
+        assertTrue(registry.snapshot().getGauges().isEmpty());
+    }
+
+    @Test
+    public void testPeriodicSnapshots() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("hits").increment();
+        final CountDownLatch latch = new CountDownLatch(2);
+        registry.startSnapshots(1, TimeUnit.MILLISECONDS, new MetricsListener() {
+            public void onSnapshot(MetricsSnapshot snapshot) {
+                latch.countDown();
+            }
+        });
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            registry.stopSnapshots();
+        }
+        assertEquals(1, registry.getLastSnapshot().getValue("hits"));
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.Bucket;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the per-thread scope ring buffers and the timeline recorded by
+ * {@link TimelineProfiler}.
+ */
+public class TimelineProfilerTest {
+
+    private final List<TimelineProfiler> profilers = new ArrayList<TimelineProfiler>();
+
+    @After
+    public void stopRecording() {
+        for (TimelineProfiler profiler : profilers) {
+            profiler.setRecording(false);
+        }
+    }
+
+    @Test
+    public void testNestedScopes() {
+        TimelineBuffer buffer = new TimelineBuffer(Thread.currentThread(), 16);
+        buffer.begin(1, "A", "outer", 10);
+        buffer.begin(1, "B", "inner", 12);
+        assertEquals(2, buffer.getDepth());
+        buffer.end(1, 15);
+        buffer.end(1, 20);
+        assertEquals(0, buffer.getDepth());
+        // unbalanced ends are ignored
+        buffer.end(1, 21);
+
+        assertEquals(Arrays.asList("1 B inner 12+3", "0 A outer 10+10"), read(buffer));
+    }
+
+    @Test
+    public void testWraparound() {
+        TimelineBuffer buffer = new TimelineBuffer(Thread.currentThread(), 8);
+        for (int i = 0; i < 20; i++) {
+            buffer.begin(1, "C", "s" + i, i);
+            buffer.end(1, i + 1);
+        }
+        // the oldest slot may be being overwritten, it is never read
+        List<String> expected = new ArrayList<String>();
+        for (int i = 13; i < 20; i++) {
+            expected.add("0 C s" + i + " " + i + "+1");
+        }
+        assertEquals(expected, read(buffer));
+
+        // the capacity is rounded up to a power of two
+        buffer = new TimelineBuffer(Thread.currentThread(), 9);
+        for (int i = 0; i < 15; i++) {
+            buffer.begin(1, "C", "s" + i, i);
+            buffer.end(1, i + 1);
+        }
+        assertEquals(15, read(buffer).size());
+    }
+
+    @Test
+    public void testClear() {
+        TimelineBuffer buffer = new TimelineBuffer(Thread.currentThread(), 8);
+        for (int i = 0; i < 3; i++) {
+            buffer.begin(1, "C", "old", i);
+            buffer.end(1, i + 1);
+        }
+        buffer.begin(1, "C", "open", 5);
+        buffer.clear();
+        assertTrue(read(buffer).isEmpty());
+
+        // scopes open when clearing are still recorded
+        buffer.end(1, 6);
+        assertEquals(Arrays.asList("0 C open 5+1"), read(buffer));
+    }
+
+    @Test
+    public void testNewSessionDropsOpenScopes() {
+        TimelineBuffer buffer = new TimelineBuffer(Thread.currentThread(), 8);
+        buffer.begin(1, "C", "stale", 0);
+        buffer.begin(1, "C", "stale2", 1);
+        buffer.begin(2, "C", "fresh", 2);
+        assertEquals(1, buffer.getDepth());
+        buffer.end(1, 3);
+        buffer.endTo(1, 0, 3);
+        assertEquals(1, buffer.getDepth());
+
+        buffer.begin(2, "C", "child", 3);
+        buffer.begin(2, "C", "child2", 4);
+        buffer.endTo(2, 1, 5);
+        assertEquals(Arrays.asList("2 C child2 4+1", "1 C child 3+2"), read(buffer));
+    }
+
+    @Test
+    public void testGrowsOpenScopes() {
+        TimelineBuffer buffer = new TimelineBuffer(Thread.currentThread(), 64);
+        for (int i = 0; i < 40; i++) {
+            buffer.begin(1, "C", "s" + i, i);
+        }
+        buffer.endTo(1, 0, 100);
+        List<String> scopes = read(buffer);
+        assertEquals(40, scopes.size());
+        assertEquals("39 C s39 39+61", scopes.get(0));
+        assertEquals("0 C s0 0+100", scopes.get(39));
+    }
+
+    @Test
+    public void testReadWhileWriting() throws Exception {
+        final TimelineBuffer buffer = new TimelineBuffer(Thread.currentThread(), 16);
+        final int count = 200000;
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                // every scope lasts as long as its start time
+                for (int i = 1; i <= count; i++) {
+                    buffer.begin(1, "C", "s", i);
+                    buffer.end(1, 2L * i);
+                }
+            }
+        };
+        writer.start();
+        final long[] last = new long[1];
+        final boolean[] torn = new boolean[1];
+        while (writer.isAlive()) {
+            last[0] = -1;
+            buffer.read(new TimelineProfiler.ScopeVisitor() {
+                public void visit(long threadId, String category, String name, long start, long duration, int depth) {
+                    if (start != duration || last[0] != -1 && start != last[0] + 1) {
+                        torn[0] = true;
+                    }
+                    last[0] = start;
+                }
+            });
+            assertFalse(torn[0]);
+        }
+        writer.join();
+        List<String> scopes = read(buffer);
+        assertEquals(15, scopes.size());
+        assertEquals("0 C s " + count + "+" + count, scopes.get(14));
+    }
+
+    @Test
+    public void testStaticScopesFollowTheRecordingProfiler() throws Exception {
+        assertFalse(TimelineProfiler.isActive());
+        // ignored, nothing records
+        TimelineProfiler.begin("Test", "ignored");
+        TimelineProfiler.end();
+
+        TimelineProfiler first = createProfiler();
+        first.setRecording(true);
+        assertTrue(TimelineProfiler.isActive());
+        TimelineProfiler.begin("Test", "first");
+        TimelineProfiler.end();
+
+        TimelineProfiler second = createProfiler();
+        second.setRecording(true);
+        assertFalse(first.isRecording());
+        assertTrue(second.isRecording());
+        TimelineProfiler.begin("Test", "second");
+        TimelineProfiler.end();
+
+        // stopping a profiler that does not record changes nothing
+        first.setRecording(false);
+        assertTrue(TimelineProfiler.isActive());
+        second.setRecording(false);
+        assertFalse(TimelineProfiler.isActive());
+
+        assertEquals(Arrays.asList("0 Test first"), names(first));
+        assertEquals(Arrays.asList("0 Test second"), names(second));
+    }
+
+    @Test
+    public void testFrameSteps() throws Exception {
+        TimelineProfiler profiler = createProfiler();
+        profiler.setRecording(true);
+        ViewPort vp = new ViewPort("Main", new Camera(1, 1));
+        for (int frame = 0; frame < 2; frame++) {
+            profiler.appStep(AppStep.BeginFrame);
+            profiler.appStep(AppStep.StateManagerUpdate);
+            TimelineProfiler.begin("AppState", "state");
+            // left open, ended by the next step
+            TimelineProfiler.begin("AppState", "unbalanced");
+            profiler.appStep(AppStep.RenderMainViewPorts);
+            profiler.vpStep(VpStep.BeginRender, vp, null);
+            profiler.vpStep(VpStep.RenderScene, vp, null);
+            profiler.vpStep(VpStep.RenderBucket, vp, Bucket.Opaque);
+            TimelineProfiler.begin("Filter", "bloom");
+            TimelineProfiler.end();
+            profiler.vpStep(VpStep.EndRender, vp, null);
+            profiler.appStep(AppStep.EndFrame);
+        }
+        // the last frame is ended by the next one
+        profiler.appStep(AppStep.BeginFrame);
+        assertEquals(2, profiler.getNumFrames());
+
+        List<String> frame = Arrays.asList(
+                "3 AppState unbalanced",
+                "2 AppState state",
+                "1 AppStep StateManagerUpdate",
+                "3 VpStep RenderScene",
+                "4 Filter bloom",
+                "3 VpStep RenderBucket Opaque",
+                "2 ViewPort Main",
+                "1 AppStep RenderMainViewPorts",
+                "0 Frame Frame");
+        List<String> expected = new ArrayList<String>(frame);
+        expected.addAll(frame);
+        assertEquals(expected, names(profiler));
+
+        profiler.clear();
+        assertEquals(0, profiler.getNumFrames());
+        assertTrue(names(profiler).isEmpty());
+    }
+
+    @Test
+    public void testFrameTimePercentiles() throws Exception {
+        TimelineProfiler profiler = new TimelineProfiler(16, 4);
+        assertEquals(0, profiler.getFrameTimePercentile(50));
+
+        setFrameTimes(profiler, 40, 10, 30, 20);
+        assertArrayEquals(new long[]{10, 10, 20, 30, 40, 40},
+                profiler.getFrameTimePercentiles(0, 25, 50, 75, 99, 100));
+        assertTrue(profiler.getFrameTimeSummary().startsWith("frames: 4,"));
+
+        // only the last frames are kept
+        profiler.setRecording(true);
+        profilers.add(profiler);
+        for (int i = 0; i < 10; i++) {
+            profiler.appStep(AppStep.BeginFrame);
+            profiler.appStep(AppStep.EndFrame);
+        }
+        assertEquals(4, profiler.getNumFrames());
+    }
+
+    @Test
+    public void testChromeTrace() throws Exception {
+        TimelineProfiler profiler = createProfiler();
+        profiler.setRecording(true);
+        TimelineProfiler.begin("Asset", "quote\" back\\slash\ttab");
+        TimelineProfiler.end();
+        TimelineProfiler.begin("Asset", "open");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        profiler.writeChromeTrace(out);
+        String trace = out.toString("UTF-8");
+        assertTrue(trace, trace.startsWith("{\"traceEvents\":["));
+        assertTrue(trace, trace.endsWith("\n]}\n"));
+        assertTrue(trace, trace.contains("\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":"
+                + Thread.currentThread().getId()));
+        assertTrue(trace, trace.contains("{\"name\":\"quote\\\" back\\\\slash\\u0009tab\",\"cat\":\"Asset\",\"ph\":\"X\""));
+        assertFalse(trace, trace.contains("\"open\""));
+        TimelineProfiler.end();
+    }
+
+    private TimelineProfiler createProfiler() {
+        TimelineProfiler profiler = new TimelineProfiler(256, 16);
+        profilers.add(profiler);
+        return profiler;
+    }
+
+    private void setFrameTimes(TimelineProfiler profiler, long... times) throws Exception {
+        Field frameTimes = TimelineProfiler.class.getDeclaredField("frameTimes");
+        frameTimes.setAccessible(true);
+        System.arraycopy(times, 0, (long[]) frameTimes.get(profiler), 0, times.length);
+        Field numFrames = TimelineProfiler.class.getDeclaredField("numFrames");
+        numFrames.setAccessible(true);
+        numFrames.setInt(profiler, times.length);
+    }
+
+    // depth, category and name of the scopes recorded by all threads
+    @SuppressWarnings("unchecked")
+    private List<String> names(TimelineProfiler profiler) throws Exception {
+        Field field = TimelineProfiler.class.getDeclaredField("buffers");
+        field.setAccessible(true);
+        final List<String> names = new ArrayList<String>();
+        for (TimelineBuffer buffer : (List<TimelineBuffer>) field.get(profiler)) {
+            buffer.read(new TimelineProfiler.ScopeVisitor() {
+                public void visit(long threadId, String category, String name, long start, long duration, int depth) {
+                    names.add(depth + " " + category + " " + name);
+                }
+            });
+        }
+        return names;
+    }
+
+    private List<String> read(TimelineBuffer buffer) {
+        final List<String> scopes = new ArrayList<String>();
+        buffer.read(new TimelineProfiler.ScopeVisitor() {
+            public void visit(long threadId, String category, String name, long start, long duration, int depth) {
+                scopes.add(depth + " " + category + " " + name + " " + start + "+" + duration);
+            }
+        });
+        return scopes;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.UserData;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Sphere;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that {@link OcclusionCuller} only rejects bounds that are hidden
+ * behind occluders.
+ */
+public class OcclusionCullerTest {
+
+    private Camera cam;
+    private Node scene;
+    private Geometry wall;
+    private OcclusionCuller culler;
+
+    @Before
+    public void setUp() {
+        cam = new Camera(640, 480);
+        cam.setFrustumPerspective(60, 640f / 480f, 1, 200);
+        cam.setLocation(new Vector3f(0, 0, 20));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+        cam.update();
+
+        scene = new Node("Scene");
+        // a wall 10 units wide and 6 high, 1 unit thick around z = 0
+        wall = new Geometry("Wall", new Box(5, 3, 0.5f));
+        wall.setUserData(UserData.JME_OCCLUDER, true);
+        scene.attachChild(wall);
+        scene.updateGeometricState();
+
+        culler = new OcclusionCuller();
+        culler.renderOccluders(cam, scene);
+    }
+
+    @Test
+    public void testHiddenBehindWall() {
+        assertTrue(culler.hasOccluders());
+        assertEquals(1, culler.getNumOccluders());
+        // away from the diagonals of the wall faces, pixels there are only
+        // covered by two triangles together
+        assertTrue(culler.isOccluded(new BoundingBox(new Vector3f(0, 2, -10), 0.4f, 0.4f, 1)));
+        assertTrue(culler.isOccluded(new BoundingSphere(0.4f, new Vector3f(0, -2, -5))));
+    }
+
+    @Test
+    public void testInFrontOfWall() {
+        assertFalse(culler.isOccluded(new BoundingBox(new Vector3f(0, 0, 5), 1, 1, 1)));
+        // intersecting the wall
+        assertFalse(culler.isOccluded(new BoundingBox(new Vector3f(0, 0, 0), 1, 1, 1)));
+    }
+
+    @Test
+    public void testPartlyBehindWall() {
+        // sticks out above the top edge
+        assertFalse(culler.isOccluded(new BoundingBox(new Vector3f(0, 3, -5), 1, 1, 1)));
+        // next to the wall
+        assertFalse(culler.isOccluded(new BoundingBox(new Vector3f(12, 0, -10), 1, 1, 1)));
+    }
+
+    @Test
+    public void testCrossingNearPlane() {
+        assertFalse(culler.isOccluded(new BoundingBox(new Vector3f(0, 0, 19.5f), 1, 1, 1)));
+    }
+
+    @Test
+    public void testWithoutOccluders() {
+        wall.setUserData(UserData.JME_OCCLUDER, false);
+        culler.renderOccluders(cam, scene);
+        assertFalse(culler.hasOccluders());
+        assertFalse(culler.isOccluded(new BoundingBox(new Vector3f(0, 2, -10), 0.4f, 0.4f, 1)));
+    }
+
+    @Test
+    public void testFlagOnParent() {
+        Node building = new Node("Building");
+        building.setUserData(UserData.JME_OCCLUDER, true);
+        Geometry part = new Geometry("Part", new Box(3, 3, 0.5f));
+        part.setLocalTranslation(20, 0, 0);
+        building.attachChild(part);
+        scene.attachChild(building);
+        scene.updateGeometricState();
+        culler.renderOccluders(cam, scene);
+        assertEquals(2, culler.getNumOccluders());
+    }
+
+    /**
+     * @return True if a point of the bound can be seen past the wall.
+     */
+    private boolean isAnyPointVisible(BoundingBox box) {
+        Vector3f center = box.getCenter();
+        Vector3f extent = box.getExtent(null);
+        for (int i = 0; i < 27; i++) {
+            Vector3f point = new Vector3f(
+                    center.x + (i % 3 - 1) * extent.x,
+                    center.y + ((i / 3) % 3 - 1) * extent.y,
+                    center.z + (i / 9 - 1) * extent.z);
+            Vector3f direction = point.subtract(cam.getLocation());
+            Ray ray = new Ray(cam.getLocation(), direction.normalize());
+            ray.setLimit(direction.length());
+            CollisionResults results = new CollisionResults();
+            if (wall.collideWith(ray, results) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testNeverRejectsVisibleBounds() {
+        Random random = new Random(4);
+        int occluded = 0;
+        for (int i = 0; i < 2000; i++) {
+            BoundingBox box = new BoundingBox(
+                    new Vector3f(random.nextFloat() * 16 - 8, random.nextFloat() * 10 - 5, random.nextFloat() * -30),
+                    random.nextFloat() * 2, random.nextFloat() * 2, random.nextFloat() * 2);
+            if (culler.isOccluded(box)) {
+                occluded++;
+                assertFalse(box.toString(), isAnyPointVisible(box));
+            }
+        }
+        assertTrue(occluded > 100);
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        Geometry ball = new Geometry("Ball", new Sphere(32, 32, 2));
+        ball.setLocalTranslation(-3, 1, 4);
+        ball.setUserData(UserData.JME_OCCLUDER, true);
+        scene.attachChild(ball);
+        scene.updateGeometricState();
+
+        OcclusionCuller serial = new OcclusionCuller();
+        serial.setParallel(false);
+        serial.renderOccluders(cam, scene);
+        culler.setParallel(true);
+        culler.renderOccluders(cam, scene);
+        assertEquals(serial.getNumOccluderTriangles(), culler.getNumOccluderTriangles());
+        for (int y = 0; y < culler.getHeight(); y++) {
+            for (int x = 0; x < culler.getWidth(); x++) {
+                assertEquals(serial.getDepth(x, y), culler.getDepth(x, y), 0f);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer;
+
+import com.jme3.material.Material;
+import com.jme3.material.MaterialDef;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.queue.NullComparator;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.renderer.queue.RenderQueue.Bucket;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.control.AbstractControl;
+import com.jme3.scene.shape.Box;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that parallel culling in {@link RenderManager} queues the same
+ * geometries in the same order, and runs the same control render
+ * callbacks, as the serial traversal.
+ */
+public class ParallelCullingTest {
+
+    private static final Bucket[] BUCKETS = {
+        Bucket.Opaque, Bucket.Transparent, Bucket.Translucent, Bucket.Sky, Bucket.Gui
+    };
+
+    private final Random random = new Random(9);
+    private final List<String> controlCalls = new ArrayList<String>();
+    private Material material;
+    private Box box;
+    private Camera cam;
+    private Node scene;
+
+    private class RecordingControl extends AbstractControl {
+
+        @Override
+        protected void controlUpdate(float tpf) {
+        }
+
+        @Override
+        protected void controlRender(RenderManager rm, ViewPort vp) {
+            controlCalls.add(spatial.getName());
+        }
+    }
+
+    /**
+     * Collects the geometries a queue renders, in order.
+     */
+    private static class QueueReader extends RenderManager {
+
+        final List<String> geometries = new ArrayList<String>();
+
+        QueueReader() {
+            super(null);
+        }
+
+        @Override
+        public void renderGeometry(Geometry geom) {
+            geometries.add(geom.getName());
+        }
+    }
+
+    @Before
+    public void setUp() {
+        material = new Material(new MaterialDef(null, "Test"));
+        box = new Box(0.5f, 0.5f, 0.5f);
+        cam = new Camera(640, 480);
+        cam.setFrustumPerspective(60, 640f / 480f, 1, 100);
+        cam.setLocation(new Vector3f(0, 0, 40));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+
+        scene = new Node("Root");
+        // wide nodes are culled by separate tasks, narrow ones inline
+        fill(scene, "", 300, 2);
+        scene.updateGeometricState();
+    }
+
+    private void fill(Node node, String prefix, int count, int depth) {
+        for (int i = 0; i < count; i++) {
+            String name = prefix + i;
+            Spatial child;
+            if (depth > 0 && i % 50 == 0) {
+                Node subNode = new Node(name);
+                fill(subNode, name + ".", i % 100 == 0 ? 150 : 10, depth - 1);
+                child = subNode;
+            } else {
+                Geometry geom = new Geometry(name, box);
+                geom.setMaterial(material);
+                geom.setQueueBucket(BUCKETS[random.nextInt(BUCKETS.length)]);
+                child = geom;
+            }
+            // about half of the scene is outside of the frustum
+            child.setLocalTranslation(random.nextFloat() * 100 - 50,
+                    random.nextFloat() * 60 - 30,
+                    random.nextFloat() * 40 - 20);
+            if (random.nextInt(5) == 0) {
+                child.addControl(new RecordingControl());
+            }
+            node.attachChild(child);
+        }
+    }
+
+    private List<String> render(boolean parallel, List<String> calls) {
+        RenderManager renderManager = new RenderManager(null);
+        renderManager.setParallelCulling(parallel);
+        ViewPort vp = new ViewPort("Test", cam);
+        RenderQueue queue = vp.getQueue();
+        for (Bucket bucket : BUCKETS) {
+            queue.setGeometryComparator(bucket, new NullComparator());
+        }
+
+        controlCalls.clear();
+        renderManager.renderScene(scene, vp);
+        calls.addAll(controlCalls);
+
+        QueueReader reader = new QueueReader();
+        for (Bucket bucket : BUCKETS) {
+            reader.geometries.add(bucket.name());
+            queue.renderQueue(bucket, reader, cam);
+        }
+        return reader.geometries;
+    }
+
+    private void assertSameAsSerial() {
+        List<String> serialCalls = new ArrayList<String>();
+        List<String> parallelCalls = new ArrayList<String>();
+        List<String> serial = render(false, serialCalls);
+        List<String> parallel = render(true, parallelCalls);
+        assertTrue(serial.size() > BUCKETS.length);
+        assertFalse(serialCalls.isEmpty());
+        assertEquals(serial, parallel);
+        assertEquals(serialCalls, parallelCalls);
+    }
+
+    @Test
+    public void testSameQueue() {
+        assertSameAsSerial();
+    }
+
+    @Test
+    public void testCameraMoved() {
+        assertSameAsSerial();
+        cam.setLocation(new Vector3f(25, 10, 30));
+        cam.lookAt(new Vector3f(-10, 0, 0), Vector3f.UNIT_Y);
+        assertSameAsSerial();
+    }
+
+    @Test
+    public void testCulledSubtrees() {
+        // a culled node hides its wide subtree from both traversals
+        for (Spatial child : scene.getChildren()) {
+            if (child instanceof Node) {
+                child.setCullHint(Spatial.CullHint.Always);
+            }
+        }
+        assertSameAsSerial();
+    }
+
+    @Test
+    public void testSmallSceneStaysSerial() {
+        scene = new Node("Small");
+        fill(scene, "", 20, 0);
+        scene.updateGeometricState();
+        assertSameAsSerial();
+    }
+}
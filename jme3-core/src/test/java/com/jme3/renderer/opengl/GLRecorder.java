@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer.opengl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * A headless OpenGL implementation that records the calls made by the
+ * engine instead of executing them.
+ * <p>
+ * The object returned by {@link #getGL() } implements {@link GL}, 
+ * {@link GL2}, {@link GL3}, {@link GL4}, {@link GLExt}, {@link GLFbo} and
+ * {@link GLProgramBinary} and can be given to a {@link GLRenderer}. It reports an OpenGL 3.3 
+ * context, hands out object names, lets every shader compile and link 
+ * and counts how often each method was called, which allows measuring 
+ * the GL traffic of a scene without a display, e.g. the number of 
+ * <code>glUniform*</code> calls with and without uniform blocks.
+ * <p>
+ * The storage of uniform buffers is kept, so the data a uniform block
+ * binding point currently refers to can be inspected.
+ */
+public final class GLRecorder implements InvocationHandler {
+
+    private final HashMap<String, int[]> callCounts = new HashMap<String, int[]>();
+    private final HashMap<Integer, Integer> integers = new HashMap<Integer, Integer>();
+    private final HashMap<Integer, String> strings = new HashMap<Integer, String>();
+    private final HashSet<String> uniformBlocks = new HashSet<String>();
+    private final HashSet<String> blockMembers = new HashSet<String>();
+    private final HashMap<Integer, byte[]> uniformBuffers = new HashMap<Integer, byte[]>();
+    private final HashMap<Integer, long[]> uniformBindings = new HashMap<Integer, long[]>();
+    private int boundUniformBuffer;
+    private final Object gl;
+    private int totalCalls;
+    private int nextName = 1;
+
+    public GLRecorder() {
+        strings.put(GL.GL_VENDOR, "jMonkeyEngine");
+        strings.put(GL.GL_RENDERER, "GLRecorder");
+        strings.put(GL.GL_VERSION, "3.3.0");
+        strings.put(GL.GL_SHADING_LANGUAGE_VERSION, "3.30");
+        strings.put(GL.GL_EXTENSIONS, "");
+
+        integers.put(GL.GL_MAX_TEXTURE_IMAGE_UNITS, 16);
+        integers.put(GL.GL_MAX_VERTEX_TEXTURE_IMAGE_UNITS, 16);
+        integers.put(GL.GL_MAX_FRAGMENT_UNIFORM_COMPONENTS, 4096);
+        integers.put(GL.GL_MAX_VERTEX_UNIFORM_COMPONENTS, 4096);
+        integers.put(GL.GL_MAX_FRAGMENT_UNIFORM_VECTORS, 1024);
+        integers.put(GL.GL_MAX_VERTEX_UNIFORM_VECTORS, 1024);
+        integers.put(GL.GL_MAX_VERTEX_ATTRIBS, 16);
+        integers.put(GL.GL_MAX_TEXTURE_SIZE, 8192);
+        integers.put(GL.GL_MAX_CUBE_MAP_TEXTURE_SIZE, 8192);
+        integers.put(GLFbo.GL_MAX_RENDERBUFFER_SIZE_EXT, 8192);
+        integers.put(GLFbo.GL_MAX_COLOR_ATTACHMENTS_EXT, 8);
+        integers.put(GLExt.GL_MAX_DRAW_BUFFERS_ARB, 8);
+        integers.put(GLExt.GL_MAX_SAMPLES_EXT, 4);
+        integers.put(GL3.GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT, 256);
+        integers.put(GL3.GL_MAX_UNIFORM_BLOCK_SIZE, 65536);
+
+        gl = Proxy.newProxyInstance(GLRecorder.class.getClassLoader(),
+                new Class<?>[] { GL.class, GL2.class, GL3.class, GL4.class, GLExt.class, GLFbo.class,
+                    GLProgramBinary.class },
+                this);
+    }
+
+    /**
+     * @return The recording GL, implementing all GL interfaces.
+     */
+    public Object getGL() {
+        return gl;
+    }
+
+    /**
+     * Sets the value returned by <code>glGetInteger</code>.
+     */
+    public void setInteger(int pname, int value) {
+        integers.put(pname, value);
+    }
+
+    /**
+     * Sets the value returned by <code>glGetString</code>, e.g. to 
+     * report a different version or extensions.
+     */
+    public void setString(int name, String value) {
+        strings.put(name, value);
+    }
+
+    /**
+     * Makes linked programs report the given uniform block as declared.
+     * By default programs declare no uniform blocks.
+     * 
+     * @param blockName The name of the block.
+     * @param memberNames The members of the block, these are not reported
+     * as default block uniforms anymore.
+     */
+    public void addUniformBlock(String blockName, String... memberNames) {
+        uniformBlocks.add(blockName);
+        for (String memberName : memberNames) {
+            blockMembers.add(memberName);
+        }
+    }
+
+    /**
+     * Returns the data the binding point refers to in the current storage 
+     * of the bound buffer. If the buffer was orphaned after the range was
+     * bound, the data is that of the new storage.
+     * 
+     * @param bindingPoint The uniform block binding point.
+     * @return The bound data, or null if nothing was bound.
+     */
+    public ByteBuffer getUniformBlockData(int bindingPoint) {
+        long[] range = uniformBindings.get(bindingPoint);
+        if (range == null) {
+            return null;
+        }
+        byte[] storage = uniformBuffers.get((int) range[0]);
+        return ByteBuffer.wrap(storage, (int) range[1], (int) range[2]).slice();
+    }
+
+    /**
+     * @param method The name of the GL method, e.g. "glUniform4".
+     * @return How often the method was called since the last reset.
+     */
+    public int getCallCount(String method) {
+        int[] count = callCounts.get(method);
+        return count != null ? count[0] : 0;
+    }
+
+    /**
+     * Counts the calls of all methods starting with the given prefix,
+     * e.g. "glUniform" for all uniform uploads.
+     * 
+     * @param prefix The method name prefix.
+     * @return The number of matching calls since the last reset.
+     */
+    public int getCallCountByPrefix(String prefix) {
+        int total = 0;
+        for (Map.Entry<String, int[]> entry : callCounts.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                total += entry.getValue()[0];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of GL calls since the last reset.
+     */
+    public int getTotalCallCount() {
+        return totalCalls;
+    }
+
+    /**
+     * @return A copy of the call counts by method name.
+     */
+    public Map<String, Integer> getCallCounts() {
+        HashMap<String, Integer> result = new HashMap<String, Integer>();
+        for (Map.Entry<String, int[]> entry : callCounts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return result;
+    }
+
+    /**
+     * Clears the call counts.
+     */
+    public void reset() {
+        callCounts.clear();
+        totalCalls = 0;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else {
+                return "GLRecorder";
+            }
+        }
+
+        int[] count = callCounts.get(name);
+        if (count == null) {
+            count = new int[1];
+            callCounts.put(name, count);
+        }
+        count[0]++;
+        totalCalls++;
+
+        if (name.equals("glCreateProgram") || name.equals("glCreateShader")) {
+            return nextName++;
+        } else if (name.startsWith("glGen") && args.length == 1 && args[0] instanceof IntBuffer) {
+            IntBuffer names = (IntBuffer) args[0];
+            for (int i = names.position(); i < names.limit(); i++) {
+                names.put(i, nextName++);
+            }
+            return null;
+        } else if (name.equals("glGetInteger")) {
+            Integer value = integers.get((Integer) args[0]);
+            ((IntBuffer) args[1]).put(0, value != null ? value : 0);
+            return null;
+        } else if (name.equals("glGetString")) {
+            if (args.length == 2) {
+                return "";
+            }
+            return strings.get((Integer) args[0]);
+        } else if (name.equals("glGetShader") || name.equals("glGetProgram")) {
+            int pname = (Integer) args[1];
+            boolean status = pname == GL.GL_COMPILE_STATUS || pname == GL.GL_LINK_STATUS;
+            ((IntBuffer) args[2]).put(0, status ? GL.GL_TRUE : 0);
+            return null;
+        } else if (name.equals("glGetUniformLocation")) {
+            return blockMembers.contains((String) args[1]) ? -1 : nextName++;
+        } else if (name.equals("glGetUniformBlockIndex")) {
+            return uniformBlocks.contains((String) args[1]) ? 0 : GL3.GL_INVALID_INDEX;
+        } else if (name.equals("glCheckFramebufferStatusEXT")) {
+            return GLFbo.GL_FRAMEBUFFER_COMPLETE_EXT;
+        } else if (name.equals("glGetShaderInfoLog") || name.equals("glGetProgramInfoLog")) {
+            return "";
+        } else if (name.equals("glFenceSync")) {
+            return new Object();
+        } else if (name.equals("glBindBuffer") && (Integer) args[0] == GL3.GL_UNIFORM_BUFFER) {
+            boundUniformBuffer = (Integer) args[1];
+            return null;
+        } else if (name.equals("glBufferData") && (Integer) args[0] == GL3.GL_UNIFORM_BUFFER) {
+            // new storage, the old one is orphaned
+            uniformBuffers.put(boundUniformBuffer, new byte[(int) (long) (Long) args[1]]);
+            return null;
+        } else if (name.equals("glBufferSubData") && (Integer) args[0] == GL3.GL_UNIFORM_BUFFER) {
+            ByteBuffer data = ((ByteBuffer) args[2]).duplicate();
+            data.get(uniformBuffers.get(boundUniformBuffer), (int) (long) (Long) args[1], data.remaining());
+            return null;
+        } else if (name.equals("glBindBufferRange")) {
+            uniformBindings.put((Integer) args[1], new long[] { (Integer) args[2], (Long) args[3], (Long) args[4] });
+            return null;
+        }
+
+        Class<?> returnType = method.getReturnType();
+        if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        } else if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == float.class) {
+            return 0f;
+        }
+        return null;
+    }
+}
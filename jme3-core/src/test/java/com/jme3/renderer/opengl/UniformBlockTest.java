@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer.opengl;
+
+import com.jme3.light.AmbientLight;
+import com.jme3.light.DirectionalLight;
+import com.jme3.light.PointLight;
+import com.jme3.material.Material;
+import com.jme3.material.MaterialDef;
+import com.jme3.material.TechniqueDef;
+import com.jme3.material.logic.SinglePassLightingLogic;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.shader.UniformBindingManager;
+import com.jme3.shader.UniformBlock;
+import com.jme3.shader.UniformBlockLayout;
+import com.jme3.shader.VarType;
+import com.jme3.system.NanoTimer;
+import com.jme3.util.BufferUtilsCreator;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Renders a scene on a {@link GLRecorder} to compare the uniform uploads
+ * of shaders declaring the uniform blocks with those of plain uniforms.
+ */
+public class UniformBlockTest {
+
+    private static final int GEOMETRIES = 200;
+    private static final int MATERIALS = 10;
+    private static final int FRAMES = 10;
+
+    private static String[] getMemberNames(UniformBlockLayout layout) {
+        String[] names = new String[layout.getMemberCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = layout.getMemberName(i);
+        }
+        return names;
+    }
+
+    private static MaterialDef createMaterialDef() {
+        MaterialDef def = new MaterialDef(null, "Test");
+        def.addMaterialParam(VarType.Float, "Shininess", null);
+        def.addMaterialParam(VarType.Vector4, "Diffuse", null);
+        def.addMaterialParam(VarType.Vector4, "Specular", null);
+        def.addMaterialParam(VarType.Boolean, "UseMaterialColors", null);
+
+        TechniqueDef techniqueDef = new TechniqueDef(TechniqueDef.DEFAULT_TECHNIQUE_NAME, 0);
+        techniqueDef.setLightMode(TechniqueDef.LightMode.SinglePass);
+        techniqueDef.setLogic(new SinglePassLightingLogic(techniqueDef));
+        techniqueDef.addWorldParam("WorldViewProjectionMatrix");
+        techniqueDef.addWorldParam("WorldViewMatrix");
+        techniqueDef.addWorldParam("NormalMatrix");
+        techniqueDef.addWorldParam("ViewMatrix");
+        techniqueDef.addWorldParam("ProjectionMatrix");
+        techniqueDef.addWorldParam("CameraPosition");
+        def.addTechniqueDef(techniqueDef);
+        return def;
+    }
+
+    /**
+     * Renders the scene for a few frames and returns the recorder, with
+     * the calls of the first frame, which compiles the shaders, cleared.
+     */
+    private static GLRecorder render(boolean declareBlocks) {
+        MaterialDef def = createMaterialDef();
+        GLRecorder recorder = new GLRecorder();
+        if (declareBlocks) {
+            recorder.addUniformBlock("m_MaterialBlock", getMemberNames(def.getMaterialBlockLayout()));
+            recorder.addUniformBlock("g_WorldBlock", getMemberNames(UniformBindingManager.getWorldBlockLayout()));
+            recorder.addUniformBlock("g_LightBlock", "g_LightData", "g_AmbientLightColor");
+        }
+
+        Object gl = recorder.getGL();
+        GLRenderer renderer = new GLRenderer((GL) gl, (GLExt) gl, (GLFbo) gl);
+        renderer.initialize();
+        assertTrue(renderer.getCaps().contains(Caps.UniformBufferObject));
+
+        RenderManager renderManager = new RenderManager(renderer);
+        renderManager.setTimer(new NanoTimer());
+        Camera cam = new Camera(640, 480);
+        cam.setFrustumPerspective(60, 640 / 480f, 1, 1000);
+        cam.setLocation(new Vector3f(0, 0, 50));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+        ViewPort viewPort = renderManager.createMainView("Main", cam);
+
+        Node root = new Node("Root");
+        root.addLight(new DirectionalLight(new Vector3f(0, -1, 0)));
+        root.addLight(new PointLight(new Vector3f(1, 2, 3), 10));
+        root.addLight(new AmbientLight(ColorRGBA.Gray));
+        Material[] materials = new Material[MATERIALS];
+        for (int i = 0; i < materials.length; i++) {
+            materials[i] = new Material(def);
+            materials[i].setFloat("Shininess", i);
+            materials[i].setColor("Diffuse", new ColorRGBA(i / 10f, 1, 1, 1));
+            materials[i].setColor("Specular", ColorRGBA.White);
+        }
+        Box box = new Box(0.5f, 0.5f, 0.5f);
+        for (int i = 0; i < GEOMETRIES; i++) {
+            Geometry geom = new Geometry("Box" + i, box);
+            geom.setLocalTranslation((i % 20) - 10, (i / 20) - 5, 0);
+            geom.setMaterial(materials[i % materials.length]);
+            root.attachChild(geom);
+        }
+        viewPort.attachScene(root);
+
+        root.updateGeometricState();
+        renderManager.render(0.016f, true);
+        recorder.reset();
+        for (int i = 0; i < FRAMES; i++) {
+            root.updateGeometricState();
+            renderManager.render(0.016f, true);
+        }
+        assertTrue(recorder.getCallCount("glDrawRangeElements") >= GEOMETRIES * FRAMES);
+        return recorder;
+    }
+
+    private static ByteBuffer createBlock(int size, int seed) {
+        ByteBuffer data = BufferUtilsCreator.createByteBuffer(size);
+        for (int i = 0; i < size; i++) {
+            data.put(i, (byte) (seed + i));
+        }
+        return data;
+    }
+
+    @Test
+    public void testBlocksSurviveBufferWrap() {
+        GLRecorder recorder = new GLRecorder();
+        Object gl = recorder.getGL();
+        GLRenderer renderer = new GLRenderer((GL) gl, (GLExt) gl, (GLFbo) gl);
+        renderer.initialize();
+
+        // the world block is set once, the other blocks for every draw
+        ByteBuffer world = createBlock(256, 1);
+        renderer.setUniformBlock(UniformBlock.World, world);
+        ByteBuffer material = null;
+        ByteBuffer lights = null;
+        for (int i = 0; i < 40; i++) {
+            material = createBlock(16384, i);
+            lights = createBlock(16384, 100 + i);
+            renderer.setUniformBlock(UniformBlock.Material, material);
+            renderer.setUniformBlock(UniformBlock.Lights, lights);
+        }
+
+        // the ring was orphaned at least once
+        assertTrue(recorder.getCallCount("glBufferData") > 1);
+        assertEquals(world, recorder.getUniformBlockData(UniformBlock.World.getBindingPoint()));
+        assertEquals(material, recorder.getUniformBlockData(UniformBlock.Material.getBindingPoint()));
+        assertEquals(lights, recorder.getUniformBlockData(UniformBlock.Lights.getBindingPoint()));
+    }
+
+    @Test
+    public void testPlainUniformsDoNotUseBuffers() {
+        GLRecorder recorder = render(false);
+        assertEquals(0, recorder.getCallCount("glUniformBlockBinding"));
+        assertEquals(0, recorder.getCallCount("glBindBufferRange"));
+    }
+
+    @Test
+    public void testBlocksReduceUniformCalls() {
+        GLRecorder plain = render(false);
+        GLRecorder recorder = render(true);
+        int plainCalls = plain.getCallCountByPrefix("glUniform");
+        int blockCalls = recorder.getCallCountByPrefix("glUniform");
+        assertEquals(plain.getCallCount("glDrawRangeElements"), recorder.getCallCount("glDrawRangeElements"));
+
+        // the world matrices of each geometry remain plain uniforms
+        assertTrue("glUniform* calls: " + plainCalls + " plain, " + blockCalls + " with blocks",
+                blockCalls * 3 < plainCalls);
+        assertTrue(recorder.getCallCount("glBindBufferRange") > 0);
+        assertTrue(recorder.getCallCount("glBindBufferRange") < plainCalls - blockCalls);
+    }
+}
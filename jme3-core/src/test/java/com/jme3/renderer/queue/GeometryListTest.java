@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer.queue;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Box;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the radix sort of {@link GeometryList} gives the same order as
+ * sorting with the comparator.
+ */
+public class GeometryListTest {
+
+    /**
+     * Hides the sort key of a comparator, so the list sorts with compare().
+     */
+    private static class PlainComparator implements GeometryComparator {
+
+        private final GeometryComparator comparator;
+
+        PlainComparator(GeometryComparator comparator) {
+            this.comparator = comparator;
+        }
+
+        public int compare(Geometry o1, Geometry o2) {
+            return comparator.compare(o1, o2);
+        }
+
+        public void setCamera(Camera cam) {
+            comparator.setCamera(cam);
+        }
+    }
+
+    /**
+     * A material with a given sort id.
+     */
+    private static class SortedMaterial extends Material {
+
+        private final int sortId;
+
+        SortedMaterial(int sortId) {
+            this.sortId = sortId;
+        }
+
+        @Override
+        public int getSortId() {
+            return sortId;
+        }
+    }
+
+    private final Random random = new Random(11);
+    private final Box box = new Box(0.5f, 0.5f, 0.5f);
+
+    private Geometry[] createGeometries(int count) {
+        Material[] materials = new Material[5];
+        for (int i = 0; i < materials.length; i++) {
+            // sort ids use the sign bit too
+            materials[i] = new SortedMaterial(random.nextInt());
+        }
+        Geometry[] geometries = new Geometry[count];
+        for (int i = 0; i < count; i++) {
+            Geometry geom = new Geometry("geom " + i, box);
+            geom.setMaterial(materials[random.nextInt(materials.length)]);
+            // coarse positions so that some geometries tie
+            geom.setLocalTranslation(random.nextInt(21) - 10,
+                    random.nextInt(21) - 10,
+                    random.nextInt(41) - 30);
+            geom.updateGeometricState();
+            geometries[i] = geom;
+        }
+        return geometries;
+    }
+
+    private GeometryList sort(GeometryComparator comparator, Geometry[] geometries) {
+        Camera cam = new Camera(640, 480);
+        cam.setLocation(new Vector3f(0, 0, 10));
+        GeometryList list = new GeometryList(comparator);
+        list.setCamera(cam);
+        for (Geometry geom : geometries) {
+            geom.queueDistance = Float.NEGATIVE_INFINITY;
+            list.add(geom);
+        }
+        list.sort();
+        return list;
+    }
+
+    private void assertSameOrder(GeometryComparator comparator, GeometryComparator expectedComparator) {
+        for (int count : new int[]{10, 63, 64, 500, 3000}) {
+            Geometry[] geometries = createGeometries(count);
+            GeometryList expected = sort(expectedComparator, geometries);
+            GeometryList actual = sort(comparator, geometries);
+            assertEquals(count, actual.size());
+            for (int i = 0; i < count; i++) {
+                assertSame("geometry " + i + " of " + count, expected.get(i), actual.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testOpaqueOrder() {
+        assertSameOrder(new OpaqueComparator(), new PlainComparator(new OpaqueComparator()));
+    }
+
+    @Test
+    public void testTransparentOrder() {
+        assertSameOrder(new TransparentComparator(), new PlainComparator(new TransparentComparator()));
+    }
+
+    @Test
+    public void testGuiOrder() {
+        assertSameOrder(new GuiComparator(), new PlainComparator(new GuiComparator()));
+    }
+
+    @Test
+    public void testSortAgain() {
+        Geometry[] geometries = createGeometries(200);
+        GeometryList list = sort(new GuiComparator(), geometries);
+        GeometryList expected = sort(new PlainComparator(new GuiComparator()), geometries);
+        list.sort();
+        for (int i = 0; i < geometries.length; i++) {
+            assertSame(expected.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void testFloatToSortKey() {
+        float[] values = {Float.NEGATIVE_INFINITY, -1e30f, -2.5f, -1, -Float.MIN_VALUE,
+                          0, Float.MIN_VALUE, 1, 2.5f, 1e30f, Float.POSITIVE_INFINITY};
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(GeometryList.floatToSortKey(values[i - 1]) < GeometryList.floatToSortKey(values[i]));
+        }
+        assertEquals(GeometryList.floatToSortKey(0f), GeometryList.floatToSortKey(-0f));
+    }
+}
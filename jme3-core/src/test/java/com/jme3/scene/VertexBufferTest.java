@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import com.jme3.scene.VertexBuffer.Format;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.VertexBuffer.Usage;
+import com.jme3.util.BufferUtilsCreator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the update ranges of {@link VertexBuffer}.
+ */
+public class VertexBufferTest {
+
+    private VertexBuffer vb;
+
+    @Before
+    public void setUp() {
+        vb = new VertexBuffer(Type.Position);
+        vb.setupData(Usage.Dynamic, 3, Format.Float, BufferUtilsCreator.createFloatBuffer(300));
+        vb.clearUpdateNeeded();
+    }
+
+    private void assertRanges(int... bounds) {
+        assertTrue(vb.isUpdateNeeded());
+        assertEquals(bounds.length / 2, vb.getNumUpdateRanges());
+        for (int i = 0; i < bounds.length / 2; i++) {
+            assertEquals(bounds[i * 2], vb.getUpdateRangeStart(i));
+            assertEquals(bounds[i * 2 + 1], vb.getUpdateRangeEnd(i));
+        }
+    }
+
+    @Test
+    public void testSingleRange() {
+        vb.setUpdateNeeded(10, 5);
+        assertRanges(10, 15);
+    }
+
+    @Test
+    public void testRangesAreSorted() {
+        vb.setUpdateNeeded(50, 5);
+        vb.setUpdateNeeded(10, 5);
+        vb.setUpdateNeeded(30, 5);
+        assertRanges(10, 15, 30, 35, 50, 55);
+    }
+
+    @Test
+    public void testOverlappingRangesMerge() {
+        vb.setUpdateNeeded(10, 10);
+        vb.setUpdateNeeded(15, 10);
+        assertRanges(10, 25);
+    }
+
+    @Test
+    public void testAdjacentRangesMerge() {
+        vb.setUpdateNeeded(10, 5);
+        vb.setUpdateNeeded(15, 5);
+        vb.setUpdateNeeded(5, 5);
+        assertRanges(5, 20);
+    }
+
+    @Test
+    public void testRangeSpanningOthersMerges() {
+        vb.setUpdateNeeded(10, 2);
+        vb.setUpdateNeeded(20, 2);
+        vb.setUpdateNeeded(30, 2);
+        vb.setUpdateNeeded(60, 2);
+        vb.setUpdateNeeded(11, 20);
+        assertRanges(10, 32, 60, 62);
+    }
+
+    @Test
+    public void testEmptyRangeIsIgnored() {
+        vb.setUpdateNeeded(10, 0);
+        assertFalse(vb.isUpdateNeeded());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRange() {
+        vb.setUpdateNeeded(-1, 5);
+    }
+
+    @Test
+    public void testTooManyRangesCollapse() {
+        for (int i = 0; i < 16; i++) {
+            vb.setUpdateNeeded(i * 5 + 2, 1);
+        }
+        assertEquals(16, vb.getNumUpdateRanges());
+        vb.setUpdateNeeded(90, 1);
+        assertRanges(2, 91);
+    }
+
+    @Test
+    public void testRangeCoveringBufferUpdatesAll() {
+        vb.setUpdateNeeded(0, 100);
+        assertTrue(vb.isUpdateNeeded());
+        assertEquals(0, vb.getNumUpdateRanges());
+    }
+
+    @Test
+    public void testMergedRangesCoveringBufferUpdateAll() {
+        vb.setUpdateNeeded(0, 50);
+        vb.setUpdateNeeded(50, 50);
+        assertTrue(vb.isUpdateNeeded());
+        assertEquals(0, vb.getNumUpdateRanges());
+    }
+
+    @Test
+    public void testFullUpdateIgnoresRanges() {
+        vb.setUpdateNeeded();
+        vb.setUpdateNeeded(10, 5);
+        assertTrue(vb.isUpdateNeeded());
+        assertEquals(0, vb.getNumUpdateRanges());
+    }
+
+    @Test
+    public void testFullUpdateDropsRanges() {
+        vb.setUpdateNeeded(10, 5);
+        vb.setUpdateNeeded();
+        assertEquals(0, vb.getNumUpdateRanges());
+    }
+
+    @Test
+    public void testClearUpdateNeeded() {
+        vb.setUpdateNeeded(10, 5);
+        vb.clearUpdateNeeded();
+        assertFalse(vb.isUpdateNeeded());
+        assertEquals(0, vb.getNumUpdateRanges());
+        vb.setUpdateNeeded(40, 5);
+        assertRanges(40, 45);
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene.instancing;
+
+import com.jme3.material.Material;
+import com.jme3.material.MaterialDef;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.ShadowMode;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Format;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.VertexBuffer.Usage;
+import com.jme3.scene.shape.Box;
+import com.jme3.shader.VarType;
+import com.jme3.util.BufferUtilsCreator;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the dirty tracking, culling and LOD grouping of instances in
+ * {@link InstancedGeometry} and {@link InstancedNode}.
+ */
+public class InstancedGeometryTest {
+
+    private static final int INSTANCES = 20;
+
+    private final Box box = new Box(0.5f, 0.5f, 0.5f);
+    private InstancedGeometry ig;
+    private Geometry[] geoms;
+
+    @Before
+    public void setUp() {
+        ig = new InstancedGeometry("Instances");
+        ig.setMaxNumInstances(64);
+        geoms = new Geometry[INSTANCES];
+        for (int i = 0; i < INSTANCES; i++) {
+            geoms[i] = createGeometry("Geom" + i, new Vector3f(i * 2, 0, 0));
+            ig.addInstance(geoms[i]);
+        }
+        ig.updateInstances();
+        ig.getTransformUserInstanceData().clearUpdateNeeded();
+    }
+
+    private Geometry createGeometry(String name, Vector3f location) {
+        Geometry geom = new Geometry(name, box);
+        geom.setLocalTranslation(location);
+        geom.updateGeometricState();
+        return geom;
+    }
+
+    /**
+     * @return The pending upload of the transform buffer, as instance
+     * ranges, or "all".
+     */
+    private String getPendingUpload() {
+        VertexBuffer vb = ig.getTransformUserInstanceData();
+        if (!vb.isUpdateNeeded()) {
+            return "";
+        }
+        if (vb.getNumUpdateRanges() == 0) {
+            return "all";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < vb.getNumUpdateRanges(); i++) {
+            sb.append('[').append(vb.getUpdateRangeStart(i)).append(',')
+              .append(vb.getUpdateRangeEnd(i)).append(')');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks that the drawn part of the transform buffer holds the
+     * given geometries, by encoding them from scratch.
+     */
+    private void assertDrawn(Geometry... expected) {
+        InstancedGeometry reference = new InstancedGeometry("Reference");
+        reference.setMaxNumInstances(64);
+        for (Geometry geom : expected) {
+            Geometry copy = createGeometry(geom.getName(), geom.getLocalTranslation());
+            reference.addInstance(copy);
+        }
+        reference.updateInstances();
+
+        assertEquals(expected.length, ig.getNumDrawnInstances());
+        FloatBuffer actual = (FloatBuffer) ig.getTransformUserInstanceData().getData();
+        FloatBuffer encoded = (FloatBuffer) reference.getTransformUserInstanceData().getData();
+        for (int i = 0; i < expected.length * 16; i++) {
+            assertEquals("float " + i, encoded.get(i), actual.get(i), 0f);
+        }
+    }
+
+    @Test
+    public void testUnchangedInstancesAreNotUploaded() {
+        ig.updateInstances();
+        assertEquals("", getPendingUpload());
+        assertDrawn(geoms);
+    }
+
+    @Test
+    public void testDirtyInstancesAreUploaded() {
+        geoms[3].setLocalTranslation(0, 5, 0);
+        geoms[3].updateGeometricState();
+        geoms[4].setLocalTranslation(0, 6, 0);
+        geoms[4].updateGeometricState();
+        geoms[10].setLocalTranslation(0, 7, 0);
+        geoms[10].updateGeometricState();
+        ig.setInstanceDirty(geoms[3]);
+        ig.setInstanceDirty(geoms[4]);
+        ig.setInstanceDirty(geoms[10]);
+        ig.updateInstances();
+
+        assertEquals("[3,5)[10,11)", getPendingUpload());
+        assertDrawn(geoms);
+    }
+
+    @Test
+    public void testDeletedInstanceIsFilledWithLast() {
+        ig.deleteInstance(geoms[5]);
+        ig.updateInstances();
+
+        // the last instance moved into the hole
+        assertEquals("[5,6)", getPendingUpload());
+        Geometry[] expected = geoms.clone();
+        expected[5] = geoms[INSTANCES - 1];
+        assertDrawn(Arrays.copyOf(expected, INSTANCES - 1));
+        assertEquals(INSTANCES - 1, ig.getActualNumInstances());
+    }
+
+    @Test
+    public void testAddedInstanceIsUploaded() {
+        Geometry added = createGeometry("Added", new Vector3f(-3, 2, 1));
+        ig.addInstance(added);
+        ig.updateInstances();
+
+        assertEquals("[" + INSTANCES + "," + (INSTANCES + 1) + ")", getPendingUpload());
+        Geometry[] expected = Arrays.copyOf(geoms, INSTANCES + 1);
+        expected[INSTANCES] = added;
+        assertDrawn(expected);
+    }
+
+    private Camera createCamera(float x) {
+        Camera cam = new Camera(640, 480);
+        cam.setFrustumPerspective(30, 640f / 480f, 1, 100);
+        cam.setLocation(new Vector3f(x, 0, 20));
+        cam.lookAt(new Vector3f(x, 0, 0), Vector3f.UNIT_Y);
+        return cam;
+    }
+
+    private Geometry[] getVisible(Camera cam) {
+        List<Geometry> visible = new ArrayList<Geometry>();
+        for (Geometry geom : geoms) {
+            cam.setPlaneState(0);
+            if (cam.contains(geom.getWorldBound()) != Camera.FrustumIntersect.Outside) {
+                visible.add(geom);
+            }
+        }
+        return visible.toArray(new Geometry[visible.size()]);
+    }
+
+    @Test
+    public void testInstanceCulling() {
+        ig.setInstanceCulling(true);
+        Camera cam = createCamera(0);
+        ig.updateInstances(cam);
+        Geometry[] visible = getVisible(cam);
+        assertTrue(visible.length > 0 && visible.length < INSTANCES);
+        assertDrawn(visible);
+
+        // the same instances stay in their slots
+        ig.getTransformUserInstanceData().clearUpdateNeeded();
+        ig.updateInstances(cam);
+        assertEquals("", getPendingUpload());
+
+        cam = createCamera(30);
+        ig.updateInstances(cam);
+        assertDrawn(getVisible(cam));
+    }
+
+    @Test
+    public void testShadowCastersAreNotCulled() {
+        ig.setInstanceCulling(true);
+        ig.setShadowMode(ShadowMode.CastAndReceive);
+        ig.updateInstances(createCamera(0));
+        assertDrawn(geoms);
+    }
+
+    private static Mesh createLodMesh() {
+        Mesh mesh = new Box(0.5f, 0.5f, 0.5f);
+        VertexBuffer[] levels = new VertexBuffer[3];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new VertexBuffer(Type.Index);
+            levels[i].setupData(Usage.Static, 1, Format.UnsignedShort,
+                    BufferUtilsCreator.createShortBuffer(new short[] { 0, 1, 2 }));
+        }
+        mesh.setLodLevels(levels);
+        return mesh;
+    }
+
+    @Test
+    public void testLodBuckets() {
+        MaterialDef def = new MaterialDef(null, "Test");
+        def.addMaterialParam(VarType.Boolean, "UseInstancing", null);
+        Material material = new Material(def);
+        material.setBoolean("UseInstancing", true);
+
+        InstancedNode node = new InstancedNode("Node");
+        node.setLodDistances(10, 20);
+        Mesh mesh = createLodMesh();
+        Geometry[] lodGeoms = new Geometry[30];
+        for (int i = 0; i < lodGeoms.length; i++) {
+            lodGeoms[i] = new Geometry("Lod" + i, mesh);
+            lodGeoms[i].setMaterial(material);
+            lodGeoms[i].setLocalTranslation(0, 0, -i);
+            node.attachChild(lodGeoms[i]);
+        }
+        node.instance();
+
+        ViewPort vp = new ViewPort("Test", createCamera(0));
+        vp.getCamera().setLocation(new Vector3f(0, 0, 0));
+        // the first frame only records the camera
+        for (int frame = 0; frame < 2; frame++) {
+            node.updateLogicalState(0.016f);
+            node.updateGeometricState();
+            node.runControlRender(null, vp);
+        }
+
+        int[] counts = new int[3];
+        int total = 0;
+        for (Spatial child : node.getChildren()) {
+            if (!(child instanceof InstancedGeometry)) {
+                continue;
+            }
+            InstancedGeometry bucket = (InstancedGeometry) child;
+            for (int i = 0; i < bucket.getActualNumInstances(); i++) {
+                Geometry geom = bucket.getGeometries()[i];
+                if (geom != null) {
+                    assertEquals(bucket.getLodLevel(), geom.getLodLevel());
+                    counts[geom.getLodLevel()]++;
+                    total++;
+                }
+            }
+        }
+        assertEquals(lodGeoms.length, total);
+        for (Geometry geom : lodGeoms) {
+            float distance = geom.getWorldBound().distanceTo(Vector3f.ZERO);
+            int expected = distance < 10 ? 0 : (distance < 20 ? 1 : 2);
+            assertEquals(geom.getName(), expected, geom.getLodLevel());
+        }
+        assertTrue(counts[0] > 0 && counts[1] > 0 && counts[2] > 0);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.shader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests storing and reading program binaries with {@link ProgramBinaryCache}.
+ */
+public class ProgramBinaryCacheTest {
+
+    private File directory;
+    private ProgramBinaryCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("programs", "");
+        directory.delete();
+        cache = new ProgramBinaryCache(directory);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static ByteBuffer binary(int length, int seed) {
+        ByteBuffer data = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            data.put((byte) (i * 31 + seed));
+        }
+        data.flip();
+        return data;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        String key = cache.computeKey("driver", "vertex", "fragment");
+        cache.store(key, 0x1234, binary(100, 7));
+        assertEquals(1, cache.getStored());
+
+        ProgramBinaryCache.Entry entry = cache.load(key);
+        assertNotNull(entry);
+        assertEquals(0x1234, entry.getFormat());
+        assertEquals(0, entry.getData().position());
+        assertEquals(binary(100, 7), entry.getData());
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testMissingEntry() {
+        assertNull(cache.load(cache.computeKey("driver", "source")));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testKeyDependsOnSourceBoundaries() {
+        assertEquals(cache.computeKey("driver", "ab", "c"), cache.computeKey("driver", "ab", "c"));
+        assertFalse(cache.computeKey("driver", "ab", "c").equals(cache.computeKey("driver", "a", "bc")));
+        assertFalse(cache.computeKey("driver", "ab").equals(cache.computeKey("other", "ab")));
+    }
+
+    @Test
+    public void testLoadReusesBuffer() {
+        cache.store("large", 1, binary(500, 1));
+        cache.store("small", 2, binary(50, 2));
+
+        ByteBuffer first = cache.load("large").getData();
+        ByteBuffer second = cache.load("small").getData();
+        assertSame(first, second);
+        assertEquals(binary(50, 2), second);
+
+        ByteBuffer third = cache.load("large").getData();
+        assertSame(first, third);
+        assertEquals(binary(500, 1), third);
+    }
+
+    @Test
+    public void testCorruptEntryIsDiscarded() throws IOException {
+        cache.store("corrupt", 1, binary(64, 3));
+        File file = new File(directory, "corrupt.bin");
+        assertTrue(file.isFile());
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        } finally {
+            out.close();
+        }
+
+        assertNull(cache.load("corrupt"));
+        assertFalse(file.exists());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.store("rejected", 1, binary(16, 4));
+        cache.invalidate("rejected");
+        assertEquals(1, cache.getRejected());
+        assertNull(cache.load("rejected"));
+    }
+
+    @Test
+    public void testDisabled() {
+        cache.setEnabled(false);
+        cache.store("disabled", 1, binary(16, 5));
+        assertEquals(0, cache.getStored());
+        assertFalse(new File(directory, "disabled.bin").exists());
+        assertNull(cache.load("disabled"));
+    }
+}
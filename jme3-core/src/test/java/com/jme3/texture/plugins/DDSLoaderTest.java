@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.texture.plugins;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.TextureKey;
+import com.jme3.texture.Image;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests loading DDS images from asset buffers, whose data is used in
+ * place when possible.
+ */
+public class DDSLoaderTest {
+
+    private static final int DDPF_FOURCC = 0x4;
+    private static final int DDPF_RGB = 0x40;
+    private static final int DDPF_GRAYSCALE = 0x20000;
+    private static final int DDSCAPS2_CUBEMAP = 0x200;
+    private static final int PF_DXT1 = 0x31545844;
+
+    /**
+     * Builds a 4x4 DDS file without mipmaps.
+     */
+    private static byte[] dds(int pfFlags, int fourcc, int bpp, int caps2, byte[] data) {
+        ByteBuffer file = ByteBuffer.allocate(128 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        file.putInt(0x20534444).putInt(124);
+        file.putInt(0x1007); // mandatory flags
+        file.putInt(4).putInt(4); // height, width
+        file.putInt(0).putInt(0).putInt(0); // pitch, depth, mipmaps
+        file.position(file.position() + 44);
+        file.putInt(32).putInt(pfFlags).putInt(fourcc).putInt(bpp);
+        file.putInt(0xff0000).putInt(0xff00).putInt(0xff).putInt(0);
+        file.putInt(0x1000).putInt(caps2); // caps
+        file.position(128);
+        file.put(data);
+        return file.array();
+    }
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7 + 1);
+        }
+        return data;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    private static class BufferAssetInfo extends AssetInfo {
+
+        private final byte[] file;
+        private final boolean mapped;
+
+        BufferAssetInfo(byte[] file, boolean mapped) {
+            super(null, new TextureKey("test.dds", false));
+            this.file = file;
+            this.mapped = mapped;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(file);
+        }
+
+        @Override
+        public ByteBuffer openBuffer() {
+            if (!mapped) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(file.length);
+            buffer.put(file).flip();
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+
+    private static Image load(DDSLoader loader, byte[] file, boolean mapped) throws IOException {
+        return (Image) loader.load(new BufferAssetInfo(file, mapped));
+    }
+
+    @Test
+    public void testCompressedDataUsedInPlace() throws IOException {
+        byte[] block = pattern(8);
+        byte[] file = dds(DDPF_FOURCC, PF_DXT1, 0, 0, block);
+
+        Image image = load(new DDSLoader(), file, true);
+        assertEquals(Image.Format.DXT1, image.getFormat());
+        assertFalse(image.isDataOwned());
+        assertTrue(image.getData(0).isReadOnly());
+        assertArrayEquals(block, bytes(image.getData(0)));
+
+        // read from a stream, the image owns a copy
+        image = load(new DDSLoader(), file, false);
+        assertTrue(image.isDataOwned());
+        assertArrayEquals(block, bytes(image.getData(0)));
+    }
+
+    @Test
+    public void testCubemapFacesAreNotOwned() throws IOException {
+        byte[] faces = pattern(6 * 8);
+        Image image = load(new DDSLoader(), dds(DDPF_FOURCC, PF_DXT1, 0, DDSCAPS2_CUBEMAP, faces), true);
+        assertFalse(image.isDataOwned());
+        assertEquals(6, image.getData().size());
+        for (int i = 0; i < 6; i++) {
+            byte[] face = new byte[8];
+            System.arraycopy(faces, i * 8, face, 0, 8);
+            assertArrayEquals(face, bytes(image.getData(i)));
+        }
+    }
+
+    @Test
+    public void testFlippedDataIsCopied() throws IOException {
+        DDSLoader loader = new DDSLoader();
+        BufferAssetInfo info = new BufferAssetInfo(dds(DDPF_FOURCC, PF_DXT1, 0, 0, pattern(8)), true);
+        ((TextureKey) info.getKey()).setFlipY(true);
+        Image image = (Image) loader.load(info);
+        assertTrue(image.isDataOwned());
+        assertFalse(image.getData(0).isReadOnly());
+    }
+
+    @Test
+    public void testRgbAfterGrayscaleIsConverted() throws IOException {
+        DDSLoader loader = new DDSLoader();
+        Image gray = load(loader, dds(DDPF_GRAYSCALE, 0, 8, 0, pattern(16)), true);
+        assertEquals(Image.Format.Luminance8, gray.getFormat());
+        assertFalse(gray.isDataOwned());
+
+        // the same loader must not take RGB data, which is converted, in place
+        Image rgb = load(loader, dds(DDPF_RGB, 0, 24, 0, pattern(48)), true);
+        assertEquals(Image.Format.RGB8, rgb.getFormat());
+        assertTrue(rgb.isDataOwned());
+        assertFalse(rgb.getData(0).isReadOnly());
+    }
+}
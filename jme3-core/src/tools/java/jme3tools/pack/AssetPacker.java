@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2009-2015 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3tools.pack;
+
+import com.jme3.asset.plugins.AssetPack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+/**
+ * Writes {@link AssetPack asset packs}, to be read with 
+ * {@link com.jme3.asset.plugins.PackLocator}.
+ * 
+ * <p>Files with an extension in the stored set (by default formats that
+ * are already compressed or read directly from memory: j3o, dds, ktx, 
+ * png, jpg, ogg) are stored as is so they can be read without copying.
+ * Other files are deflated, unless that does not make them smaller than
+ * the compression threshold.</p>
+ * 
+ * <p>Can be run from the command line:<br>
+ * <code>java jme3tools.pack.AssetPacker &lt;asset directory&gt; &lt;pack file&gt;</code></p>
+ */
+public class AssetPacker {
+
+    private static final Logger logger = Logger.getLogger(AssetPacker.class.getName());
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final LinkedHashMap<String, File> files = new LinkedHashMap<String, File>();
+    private final HashSet<String> storedExtensions = new HashSet<String>(
+            Arrays.asList("j3o", "dds", "ktx", "png", "jpg", "jpeg", "ogg", "zip", "jpk"));
+    private float compressionThreshold = 0.9f;
+    private int compressionLevel = Deflater.BEST_COMPRESSION;
+
+    /**
+     * Adds a file to the pack, replacing a file added before with the
+     * same name.
+     * 
+     * @param name The asset name, e.g. "Textures/Sky.dds".
+     * @param file The file to read.
+     */
+    public void addFile(String name, File file) {
+        name = name.replace('\\', '/');
+        if (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        files.put(name, file);
+    }
+
+    /**
+     * Adds all files in a directory and its subdirectories, named by their
+     * path relative to the directory.
+     * 
+     * @param root The directory.
+     */
+    public void addDirectory(File root) {
+        addDirectory(root, "");
+    }
+
+    private void addDirectory(File dir, String prefix) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            throw new IllegalArgumentException("Not a directory: " + dir);
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isDirectory()) {
+                addDirectory(child, prefix + child.getName() + "/");
+            } else {
+                addFile(prefix + child.getName(), child);
+            }
+        }
+    }
+
+    /**
+     * Sets the extensions of the files that are never compressed.
+     * 
+     * @param extensions The extensions, without the dot.
+     */
+    public void setStoredExtensions(String... extensions) {
+        storedExtensions.clear();
+        for (String extension : extensions) {
+            storedExtensions.add(extension.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    /**
+     * Sets the largest compressed to uncompressed size ratio for which 
+     * a file is stored compressed, 0.9 by default. 0 disables compression.
+     * 
+     * @param threshold The ratio.
+     */
+    public void setCompressionThreshold(float threshold) {
+        this.compressionThreshold = threshold;
+    }
+
+    /**
+     * @param level The deflate level, 0 to 9.
+     */
+    public void setCompressionLevel(int level) {
+        this.compressionLevel = level;
+    }
+
+    private boolean isStored(String name) {
+        int dot = name.lastIndexOf('.');
+        return compressionThreshold <= 0
+                || (dot >= 0 && storedExtensions.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH)));
+    }
+
+    private byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.length() > Integer.MAX_VALUE) {
+                throw new IOException("File too large for an asset pack: " + file);
+            }
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return data;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the pack, replacing the file if it exists.
+     * 
+     * @param packFile The file to write.
+     * @throws IOException If a file cannot be read or the pack cannot be
+     * written.
+     */
+    public void write(File packFile) throws IOException {
+        int numEntries = files.size();
+        int numSlots = Integer.highestOneBit(Math.max(numEntries * 2 - 1, 1)) << 1;
+        ByteBuffer entries = ByteBuffer.allocate(numEntries * AssetPack.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        int[] slots = new int[numSlots];
+        int[] hashes = new int[numEntries];
+
+        RandomAccessFile raf = new RandomAccessFile(packFile, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            long position = AssetPack.HEADER_SIZE;
+            long storedTotal = 0, sizeTotal = 0;
+            int index = 0;
+            for (Map.Entry<String, File> file : files.entrySet()) {
+                String name = file.getKey();
+                byte[] data = readFile(file.getValue());
+                int method = AssetPack.STORED;
+                byte[] stored = data;
+                if (!isStored(name) && data.length > 0) {
+                    byte[] deflated = deflate(data);
+                    if (deflated.length <= data.length * compressionThreshold) {
+                        method = AssetPack.DEFLATED;
+                        stored = deflated;
+                    }
+                }
+                position = (position + AssetPack.ALIGNMENT - 1) & ~(long) (AssetPack.ALIGNMENT - 1);
+                channel.write(ByteBuffer.wrap(stored), position);
+
+                byte[] nameBytes = name.getBytes(UTF8);
+                hashes[index] = AssetPack.hash(name);
+                entries.putInt(hashes[index]);
+                entries.putInt(names.size());
+                entries.putInt(nameBytes.length);
+                entries.putInt(method);
+                entries.putLong(position);
+                entries.putInt(stored.length);
+                entries.putInt(data.length);
+                names.write(nameBytes);
+
+                position += stored.length;
+                storedTotal += stored.length;
+                sizeTotal += data.length;
+                index++;
+            }
+
+            for (int i = 0; i < numEntries; i++) {
+                int slot = hashes[i] & (numSlots - 1);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & (numSlots - 1);
+                }
+                slots[slot] = i + 1;
+            }
+
+            long tableOffset = (position + 3) & ~3L;
+            ByteBuffer table = ByteBuffer.allocate(numSlots * 4).order(ByteOrder.LITTLE_ENDIAN);
+            table.asIntBuffer().put(slots);
+            entries.flip();
+            channel.write(table, tableOffset);
+            channel.write(entries, tableOffset + numSlots * 4);
+            channel.write(ByteBuffer.wrap(names.toByteArray()), tableOffset + numSlots * 4 + entries.capacity());
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Asset pack larger than 2 GB: " + packFile);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(AssetPack.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(AssetPack.MAGIC);
+            header.putInt(AssetPack.VERSION);
+            header.putInt(numEntries);
+            header.putInt(numSlots);
+            header.putLong(tableOffset);
+            header.putLong(0);
+            header.flip();
+            channel.write(header, 0);
+
+            logger.log(Level.INFO, "Packed {0} files, {1} bytes into {2} bytes",
+                    new Object[]{numEntries, sizeTotal, storedTotal});
+        } finally {
+            raf.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: AssetPacker <asset directory> <pack file>");
+            System.exit(1);
+        }
+        AssetPacker packer = new AssetPacker();
+        packer.addDirectory(new File(args[0]));
+        packer.write(new File(args[1]));
+    }
+}